@@ -9,71 +9,362 @@ const require = createRequire(import.meta.url);
 const __filename = fileURLToPath(import.meta.url);
 const __dirname = path.dirname(__filename);
 
+const POOL_SIZE = Number(process.env.POOL_SIZE || 2);              // 预热页数
+const PAGE_MAX_USES = Number(process.env.PAGE_MAX_USES || 200);    // 单页渲染多少次后回收重建
+const ACQUIRE_TIMEOUT_MS = Number(process.env.ACQUIRE_TIMEOUT_MS || 10000);
+const RENDER_TIMEOUT_MS = Number(process.env.RENDER_TIMEOUT_MS || 8000);
+const SCALE = 2;
+
 const app = express();
 app.use(express.json({ limit: "2mb" }));
 
 let browser;
+let launching;
 async function ensureBrowser() {
-    if (browser && (await browser.pages()).length >= 0) return browser;
-    browser = await puppeteer.launch({
-        executablePath: process.env.PUPPETEER_EXECUTABLE_PATH || "/usr/bin/chromium", // 或 /usr/bin/chromium-browser
-        args: ["--no-sandbox", "--disable-setuid-sandbox"]
-    });
-    return browser;
+    if (browser && browser.connected) return browser;
+    if (!launching) {
+        launching = puppeteer.launch({
+            executablePath: process.env.PUPPETEER_EXECUTABLE_PATH || "/usr/bin/chromium", // 或 /usr/bin/chromium-browser
+            args: ["--no-sandbox", "--disable-setuid-sandbox"]
+        }).then((br) => {
+            browser = br;
+            // 浏览器整个挂掉：池里的页全部作废，下次取页时懒重建
+            br.on("disconnected", () => {
+                console.error("[renderer] browser disconnected, resetting pool");
+                browser = undefined;
+                pool.reset();
+            });
+            return br;
+        }).finally(() => { launching = undefined; });
+    }
+    return launching;
 }
 
-app.post("/render", async (req, res) => {
-    const t0 = Date.now();
-    try {
-        const { option, width = 1000, height = 380, backgroundColor = "#FFFFFF" } = req.body || {};
-        if (!option) return res.status(400).json({ error: "missing option" });
-
-        const br = await ensureBrowser();
-        const page = await br.newPage();
-        await page.setViewport({ width, height, deviceScaleFactor: 2 });
+// ---------------- 页面池 ----------------
+// 每个页面只在创建时 setContent + 注入 echarts 一次，并建好一个 chart 实例；
+// 请求只做 setOption + resize + 截图。
 
-        await page.setContent(`
+const SHELL = `
       <html>
         <head><meta charset="UTF-8"/></head>
-        <body style="margin:0;background:${backgroundColor}">
-          <div id="c" style="width:${width}px;height:${height}px;"></div>
+        <body style="margin:0">
+          <div id="c" style="width:1000px;height:380px;"></div>
         </body>
       </html>
-    `);
-
-        const echartsPath = require.resolve("echarts/dist/echarts.min.js");
-        await page.addScriptTag({ path: echartsPath });
-
-        // 初始化图表
-        await page.evaluate((opt) => {
-            const c = document.getElementById("c");
-            const chart = echarts.init(c, null, { renderer: "canvas", locale: "ZH" });
-            chart.setOption(opt, { notMerge: true, lazyUpdate: false });
-            chart.resize();
-            window.__chart__ = chart;
-        }, option);
-
-        // ✅ 等待 canvas 真正挂载并有尺寸，再截图（替代 waitForTimeout）
-        await page.waitForFunction(
-            () => {
-                const el = document.querySelector("#c canvas");
-                return el && el.width > 0 && el.height > 0;
-            },
-            { timeout: 8000 }
+    `;
+
+async function createSlot() {
+    const br = await ensureBrowser();
+    const page = await br.newPage();
+    const slot = { page, uses: 0, broken: false, width: 0, height: 0 };
+    // 渲染进程崩溃 / 页面异常：标记作废，归还时替换
+    page.on("error", (e) => {
+        console.error("[renderer] page crashed", e);
+        slot.broken = true;
+    });
+    // 先按 SCALE 设好视口再建 chart：canvas 的像素比在 init 时就定下了，之后再改 deviceScaleFactor 只会把 1x 画布放大截图（发糊）
+    slot.width = 1000;
+    slot.height = 380;
+    await page.setViewport({ width: slot.width, height: slot.height, deviceScaleFactor: SCALE });
+    await page.setContent(SHELL);
+    await page.addScriptTag({ path: require.resolve("echarts/dist/echarts.min.js") });
+    await page.evaluate((scale) => {
+        const c = document.getElementById("c");
+        window.__chart__ = echarts.init(c, null, { renderer: "canvas", locale: "ZH", devicePixelRatio: scale });
+    }, SCALE);
+    return slot;
+}
+
+async function destroySlot(slot) {
+    try {
+        if (!slot.page.isClosed()) await slot.page.close();
+    } catch (e) {
+        // 浏览器已断开时 close 会失败，忽略
+    }
+}
+
+const pool = {
+    idle: [],       // 空闲页
+    waiters: [],    // 等页的请求 { resolve, reject, timer }
+    size: 0,        // 已创建（含创建中）的页数
+    generation: 0,  // 浏览器重置后递增，旧代的页归还时直接丢弃
+    created: 0,
+    recycled: 0,
+    replaced: 0,
+
+    async acquire() {
+        const slot = this.idle.pop();
+        if (slot) return slot;
+        if (this.size < POOL_SIZE) return this.grow();
+        return new Promise((resolve, reject) => {
+            const w = { resolve, reject };
+            w.timer = setTimeout(() => {
+                this.waiters.splice(this.waiters.indexOf(w), 1);
+                reject(new Error(`no free page in ${ACQUIRE_TIMEOUT_MS}ms`));
+            }, ACQUIRE_TIMEOUT_MS);
+            this.waiters.push(w);
+        });
+    },
+
+    async grow() {
+        this.size++;
+        const gen = this.generation;
+        try {
+            const slot = await createSlot();
+            slot.generation = gen;
+            this.created++;
+            return slot;
+        } catch (e) {
+            if (gen === this.generation) this.size--;
+            throw e;
+        }
+    },
+
+    // 归还：坏页或用满的页关掉后补一张新页，再交给等待者或放回空闲
+    release(slot, failed) {
+        if (slot.generation !== this.generation) {
+            destroySlot(slot);
+            return;
+        }
+        const worn = slot.uses >= PAGE_MAX_USES;
+        if (!failed && !slot.broken && !worn) {
+            this.handOver(slot);
+            return;
+        }
+        if (worn && !failed && !slot.broken) this.recycled++;
+        else this.replaced++;
+        this.size--;
+        destroySlot(slot);
+        this.refill();
+    },
+
+    handOver(slot) {
+        const w = this.waiters.shift();
+        if (w) {
+            clearTimeout(w.timer);
+            w.resolve(slot);
+        } else {
+            this.idle.push(slot);
+        }
+    },
+
+    refill() {
+        if (this.size >= POOL_SIZE) return;
+        this.grow().then(
+            (slot) => this.handOver(slot),
+            (e) => {
+                console.error("[renderer] refill failed", e);
+                // 补页失败时让一个等待者自己去建，避免一直挂到超时
+                const w = this.waiters.shift();
+                if (w) {
+                    clearTimeout(w.timer);
+                    this.grow().then(w.resolve, w.reject);
+                }
+            }
         );
+    },
+
+    reset() {
+        this.generation++;
+        this.idle.splice(0).forEach(destroySlot);
+        this.size = 0;
+        // 等待者改为各自建新页
+        this.waiters.splice(0).forEach((w) => {
+            clearTimeout(w.timer);
+            this.grow().then(w.resolve, w.reject);
+        });
+    },
+
+    async warmUp() {
+        const results = await Promise.allSettled(Array.from({ length: POOL_SIZE }, () => this.grow()));
+        results.filter((r) => r.status === "fulfilled").forEach((r) => this.handOver(r.value));
+        const failed = results.find((r) => r.status === "rejected");
+        if (failed) throw failed.reason;
+    }
+};
 
-        const el = await page.$("#c");
-        if (!el) throw new Error("#c not found");
-        const png = await el.screenshot({ type: "png" });
-        await page.close();
+// ---------------- 分阶段耗时 ----------------
 
-        console.log(`[renderer] ok ${width}x${height} ${png.length}B in ${Date.now() - t0}ms`);
+const PHASES = ["acquire", "option", "screenshot", "total"];
+const timing = Object.fromEntries(PHASES.map((p) => [p, { count: 0, sumMs: 0, maxMs: 0 }]));
+let renders = 0;
+let failures = 0;
+
+function record(phases) {
+    for (const p of PHASES) {
+        const t = timing[p];
+        const ms = phases[p];
+        if (ms === undefined) continue;
+        t.count++;
+        t.sumMs += ms;
+        if (ms > t.maxMs) t.maxMs = ms;
+    }
+}
+
+function withTimeout(promise, ms, what) {
+    let timer;
+    return Promise.race([
+        promise,
+        new Promise((_, reject) => {
+            timer = setTimeout(() => reject(new Error(`${what} timed out after ${ms}ms`)), ms);
+        })
+    ]).finally(() => clearTimeout(timer));
+}
+
+async function renderOn(slot, option, width, height, backgroundColor) {
+    const { page } = slot;
+    // 视口只增不减，截图按 clip 裁出图表区域，尺寸不变时不再 setViewport
+    if (width > slot.width || height > slot.height) {
+        slot.width = Math.max(width, slot.width);
+        slot.height = Math.max(height, slot.height);
+        await page.setViewport({ width: slot.width, height: slot.height, deviceScaleFactor: SCALE });
+    }
+    await page.evaluate((opt, w, h, bg) => {
+        const chart = window.__chart__;
+        document.body.style.background = bg;
+        const c = document.getElementById("c");
+        c.style.width = w + "px";
+        c.style.height = h + "px";
+        // 关掉动画：截的是最终帧，'finished' 在绘制完成后立即触发
+        return new Promise((resolve) => {
+            chart.off("finished");
+            chart.on("finished", () => {
+                chart.off("finished");
+                resolve();
+            });
+            chart.setOption({ ...opt, animation: false }, { notMerge: true, lazyUpdate: false });
+            chart.resize({ width: w, height: h });
+        });
+    }, option, width, height, backgroundColor);
+}
+
+// 渲染一张图：取页 -> setOption/resize -> 截图，返回 PNG 与各阶段耗时；失败时抛出（页面已按失败归还）
+async function renderItem(item, tag) {
+    const t0 = performance.now();
+    const phases = {};
+    const { option, width = 1000, height = 380, backgroundColor = "#FFFFFF" } = item || {};
+    if (!option) throw new BadRequest("missing option");
+
+    let slot;
+    let failed = false;
+    try {
+        let t = performance.now();
+        slot = await pool.acquire();
+        phases.acquire = performance.now() - t;
+        slot.uses++;
+
+        t = performance.now();
+        await withTimeout(renderOn(slot, option, width, height, backgroundColor), RENDER_TIMEOUT_MS, "setOption");
+        phases.option = performance.now() - t;
+
+        t = performance.now();
+        const png = await withTimeout(
+            slot.page.screenshot({ type: "png", clip: { x: 0, y: 0, width, height } }),
+            RENDER_TIMEOUT_MS,
+            "screenshot"
+        );
+        phases.screenshot = performance.now() - t;
+        phases.total = performance.now() - t0;
+
+        renders++;
+        record(phases);
+        console.log(
+            `[renderer] ${tag}ok ${width}x${height} ${png.length}B in ${Math.round(phases.total)}ms ` +
+            `(acquire ${Math.round(phases.acquire)} / option ${Math.round(phases.option)} / screenshot ${Math.round(phases.screenshot)}, ` +
+            `page use ${slot.uses})`
+        );
+        return { png: Buffer.from(png), phases };
+    } catch (e) {
+        failed = true;
+        failures++;
+        console.error(`[renderer] ${tag}fail in ${Math.round(performance.now() - t0)}ms`, e);
+        throw e;
+    } finally {
+        if (slot) pool.release(slot, failed);
+    }
+}
+
+class BadRequest extends Error {}
+
+function serverTiming(phases) {
+    return PHASES.filter((p) => phases[p] !== undefined)
+        .map((p) => `${p};dur=${phases[p].toFixed(1)}`)
+        .join(", ");
+}
+
+app.post("/render", async (req, res) => {
+    try {
+        const { png, phases } = await renderItem(req.body, "");
+        res.set("Server-Timing", serverTiming(phases));
         res.type("png").send(png);
     } catch (e) {
-        console.error(`[renderer] fail in ${Date.now() - t0}ms`, e);
-        res.status(500).json({ error: String(e) });
+        res.status(e instanceof BadRequest ? 400 : 500).json({ error: e.message || String(e) });
+    }
+});
+
+// 批量渲染：请求体 { items: [{option, width, height, backgroundColor}, ...] }，各项并行（受页面池大小约束）。
+// 响应 application/octet-stream，按请求顺序逐项拼接：
+//   1 字节状态（0 = PNG，1 = 失败，内容是 UTF-8 错误信息）+ 4 字节大端长度 + 内容
+// 单项失败不影响其他项；整体只有请求格式不对时才返回 400。
+const BATCH_MAX_ITEMS = Number(process.env.BATCH_MAX_ITEMS || 8);
+
+app.post("/render/batch", async (req, res) => {
+    const t0 = performance.now();
+    const items = req.body && req.body.items;
+    if (!Array.isArray(items) || items.length === 0) {
+        return res.status(400).json({ error: "missing items" });
     }
+    if (items.length > BATCH_MAX_ITEMS) {
+        return res.status(400).json({ error: `too many items (max ${BATCH_MAX_ITEMS})` });
+    }
+
+    const results = await Promise.allSettled(items.map((item, i) => renderItem(item, `batch[${i}] `)));
+    const parts = [];
+    let ok = 0;
+    for (const r of results) {
+        const body = r.status === "fulfilled" ? r.value.png : Buffer.from(String(r.reason?.message || r.reason), "utf8");
+        const head = Buffer.alloc(5);
+        head.writeUInt8(r.status === "fulfilled" ? 0 : 1, 0);
+        head.writeUInt32BE(body.length, 1);
+        parts.push(head, body);
+        if (r.status === "fulfilled") ok++;
+    }
+    const out = Buffer.concat(parts);
+    console.log(`[renderer] batch ${ok}/${items.length} ok ${out.length}B in ${Math.round(performance.now() - t0)}ms`);
+    res.set("Server-Timing", `total;dur=${(performance.now() - t0).toFixed(1)}`);
+    res.type("application/octet-stream").send(out);
+});
+
+// 池状态与各阶段平均 / 最大耗时
+app.get("/stats", (req, res) => {
+    const phases = Object.fromEntries(
+        PHASES.map((p) => {
+            const t = timing[p];
+            return [p, { avgMs: t.count ? +(t.sumMs / t.count).toFixed(1) : 0, maxMs: +t.maxMs.toFixed(1) }];
+        })
+    );
+    res.json({
+        renders,
+        failures,
+        pool: {
+            size: pool.size,
+            idle: pool.idle.length,
+            waiting: pool.waiters.length,
+            created: pool.created,
+            recycled: pool.recycled,
+            replaced: pool.replaced,
+            maxUses: PAGE_MAX_USES
+        },
+        phases
+    });
 });
 
 const PORT = process.env.PORT || 5999;
-app.listen(PORT, () => console.log(`ECharts renderer listening on :${PORT}`));
+app.listen(PORT, () => {
+    console.log(`ECharts renderer listening on :${PORT} (pool ${POOL_SIZE}, recycle after ${PAGE_MAX_USES} uses)`);
+    const t = performance.now();
+    pool.warmUp().then(
+        () => console.log(`[renderer] pool warmed: ${POOL_SIZE} pages in ${Math.round(performance.now() - t)}ms`),
+        (e) => console.error("[renderer] warm-up failed, pages will be created on demand", e)
+    );
+});
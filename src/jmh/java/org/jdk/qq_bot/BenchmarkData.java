@@ -0,0 +1,51 @@
+package org.jdk.qq_bot;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+
+/** 基准测试共用的数据：按“一个月大部分工作日都有加班”的真实分布生成，固定种子 */
+public final class BenchmarkData {
+
+  /** 一条按 (日期, 类型) 汇总后的小计 */
+  public record DayTypeHours(LocalDate day, String type, BigDecimal hours) {}
+
+  private static final String[] TYPES = {"G1", "G1", "G1", "G2", "G3"};
+
+  private BenchmarkData() {}
+
+  /** 某月前 days 天的小计：工作日大多有 G1，偶尔叠加 G2/G3 */
+  public static List<DayTypeHours> month(YearMonth ym, int days, long seed) {
+    Random rnd = new Random(seed);
+    List<DayTypeHours> out = new ArrayList<>();
+    for (int d = 1; d <= Math.min(days, ym.lengthOfMonth()); d++) {
+      LocalDate day = ym.atDay(d);
+      int kinds = rnd.nextInt(10) < 2 ? 0 : 1 + rnd.nextInt(2);
+      List<String> seen = new ArrayList<>();
+      for (int k = 0; k < kinds; k++) {
+        String type = TYPES[rnd.nextInt(TYPES.length)];
+        if (seen.contains(type)) continue;
+        seen.add(type);
+        out.add(new DayTypeHours(day, type, BigDecimal.valueOf(50 + rnd.nextInt(350), 2)));
+      }
+    }
+    out.sort(
+        (a, b) ->
+            a.day().equals(b.day()) ? a.type().compareTo(b.type()) : a.day().compareTo(b.day()));
+    return out;
+  }
+
+  /** 与查询路径得到的统计同形（rows 须在 ym 内） */
+  public static CompactOvertimeSummary summary(
+      YearMonth ym, List<DayTypeHours> rows, LocalDate today) {
+    var b = CompactOvertimeSummary.builder(ym.atDay(1), ym.atEndOfMonth());
+    for (DayTypeHours r : rows) {
+      b.add(r.day(), r.type(), r.hours(), today);
+    }
+    return b.build();
+  }
+}
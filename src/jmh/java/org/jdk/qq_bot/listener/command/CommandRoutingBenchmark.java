@@ -0,0 +1,51 @@
+package org.jdk.qq_bot.listener.command;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * 群消息路由：原先的 @Filter 正则链 vs 单遍解析 + 前缀树。
+ *
+ * <p>每次调用处理 1000 条消息，指令占比由 commandRatio 控制（普通群里 5% 左右）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandRoutingBenchmark {
+
+  @Param({"0.05", "0.5"})
+  double commandRatio;
+
+  private String[] messages;
+
+  @Setup
+  public void setUp() {
+    List<String> sample = GroupTraffic.sample(1000, commandRatio, 42);
+    messages = sample.toArray(new String[0]);
+  }
+
+  @Benchmark
+  public void legacyFilterChain(Blackhole bh) {
+    for (String m : messages) bh.consume(LegacyFilterChain.route(m));
+  }
+
+  @Benchmark
+  public void commandParser(Blackhole bh) {
+    for (String m : messages) bh.consume(CommandParser.parse(m));
+  }
+}
@@ -0,0 +1,70 @@
+package org.jdk.qq_bot.repository;
+
+import static org.jooq.generated.tables.OvertimeDaily.OVERTIME_DAILY;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.jdk.qq_bot.BenchmarkData;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeSummary;
+import org.jooq.DSLContext;
+import org.jooq.Record3;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** 月度统计组装：把 (日期, 类型) 小计行折叠成 CompactOvertimeSummary（不含 SQL 本身） */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SummaryFoldBenchmark {
+
+  @Param({"5", "15", "31"})
+  int days;
+
+  private List<Record3<LocalDate, String, BigDecimal>> rows;
+  private LocalDate today;
+  private YearMonth ym;
+
+  @Setup
+  public void setUp() {
+    ym = YearMonth.of(2025, 8);
+    today = ym.atDay(Math.min(days, ym.lengthOfMonth()));
+    DSLContext ctx = DSL.using(SQLDialect.MYSQL);
+    rows = new ArrayList<>();
+    for (var r : BenchmarkData.month(ym, days, 7)) {
+      var rec =
+          ctx.newRecord(OVERTIME_DAILY.WORK_DATE, OVERTIME_DAILY.OT_TYPE, OVERTIME_DAILY.HOURS);
+      rec.values(r.day(), r.type(), r.hours());
+      rows.add(rec);
+    }
+  }
+
+  @Benchmark
+  public CompactOvertimeSummary fold() {
+    return SummaryFold.fold(rows, ym.atDay(1), ym.atEndOfMonth(), today);
+  }
+
+  /** 折叠后再转成 Map 形式，对照原来每次查询都要付出的分配 */
+  @Benchmark
+  public OvertimeSummary foldToMaps() {
+    return fold().toSummary();
+  }
+}
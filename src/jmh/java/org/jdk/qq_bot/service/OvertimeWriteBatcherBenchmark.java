@@ -0,0 +1,139 @@
+package org.jdk.qq_bot.service;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 32 个线程并发录入加班：每行一个事务 vs 攒批提交（{@link OvertimeWriteBatcher}），每秒行数即 ops/s。
+ *
+ * <p>H2 文件库、WRITE_DELAY=0（每次提交都刷盘），近似真实库里提交的代价；提交几乎免费时（内存库）攒批窗口反而成了瓶颈。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 5)
+@Threads(32)
+@Fork(1)
+public class OvertimeWriteBatcherBenchmark {
+
+  private static final LocalDate DAY = LocalDate.of(2025, 8, 24);
+  private static final BigDecimal HOURS = new BigDecimal("1.50");
+
+  @Param({"64"})
+  int maxBatch;
+
+  @Param({"5"})
+  long maxDelayMs;
+
+  /** 每个线程一个用户：H2 的 MERGE 在同一个键上并发首插会撞主键（MySQL 的 upsert 不会），各写各的避开它 */
+  @State(Scope.Thread)
+  public static class Writer {
+    private static final AtomicLong NEXT = new AtomicLong();
+
+    final long userId = NEXT.incrementAndGet();
+
+    OvertimeEntry entry() {
+      return new OvertimeEntry(userId, DAY, "G1", HOURS, null, 100L);
+    }
+  }
+
+  private Path dir;
+  private DataSource ds;
+  private OvertimeLogRepository repo;
+  private OvertimeDailyRepository dailyRepo;
+  private OvertimeMonthlyRepository monthlyRepo;
+  private OvertimeSummaryCache summaryCache;
+  private OvertimeRankCache rankCache;
+  private TransactionTemplate tx;
+  private OvertimeWriteBatcher batcher;
+
+  @Setup
+  public void setUp() throws Exception {
+    dir = Files.createTempDirectory("batcher-bench");
+    ds =
+        TestDb.createAt(
+            "jdbc:h2:file:"
+                + dir.resolve("db")
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;WRITE_DELAY=0");
+    DSLContext dsl = DSL.using(new TransactionAwareDataSourceProxy(ds), SQLDialect.H2);
+    repo = new OvertimeLogRepository(dsl);
+    dailyRepo = new OvertimeDailyRepository(dsl);
+    monthlyRepo = new OvertimeMonthlyRepository(dsl);
+    summaryCache = new OvertimeSummaryCache(1000, 600);
+    rankCache = new OvertimeRankCache(16);
+    tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+    batcher =
+        new OvertimeWriteBatcher(
+            repo,
+            dailyRepo,
+            monthlyRepo,
+            summaryCache,
+            rankCache,
+            tx,
+            maxBatch,
+            maxDelayMs,
+            4096,
+            10_000);
+    batcher.start();
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    batcher.stop();
+    TestDb.drop(ds);
+    try (var files = Files.walk(dir)) {
+      files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+    }
+  }
+
+  /** 改造前的写法：每行各自一个事务（明细 + 日 / 月汇总） */
+  @Benchmark
+  public void perRowTransaction(Writer w) {
+    OvertimeEntry e = w.entry();
+    tx.executeWithoutResult(
+        status -> {
+          repo.insertAll(List.of(e));
+          dailyRepo.addAll(List.of(e));
+          monthlyRepo.addAll(List.of(e));
+          summaryCache.invalidate(e.userId(), e.workDate());
+          rankCache.added(List.of(e));
+        });
+  }
+
+  @Benchmark
+  public void batched(Writer w) {
+    batcher.insert(w.entry());
+  }
+}
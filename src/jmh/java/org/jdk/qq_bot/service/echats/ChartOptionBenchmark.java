@@ -0,0 +1,97 @@
+package org.jdk.qq_bot.service.echats;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.jdk.qq_bot.BenchmarkData;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** 图表 option 构建与 /render 请求体序列化（按内容寻址前必经的路径） */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChartOptionBenchmark {
+
+  /** 月内已过天数：月初 / 月中 / 月末 */
+  @Param({"5", "15", "31"})
+  int days;
+
+  private static final ChartBodyTemplate BAR = ChartBodyTemplate.dailyBar(1000, 380, "#FCFCFF");
+  private static final ChartBodyTemplate PIE = ChartBodyTemplate.typePie(560, 380, "#FCFCFF");
+
+  private CompactOvertimeSummary summary;
+  private Map<String, Object> barOption;
+  private Map<String, Object> pieOption;
+
+  @Setup
+  public void setUp() {
+    YearMonth ym = YearMonth.of(2025, 8);
+    LocalDate today = ym.atDay(Math.min(days, ym.lengthOfMonth()));
+    summary = BenchmarkData.summary(ym, BenchmarkData.month(ym, days, 7), today);
+    barOption = EchartsOptionBuilder.dailyBarOption(summary);
+    pieOption = EchartsOptionBuilder.typePieOption(summary);
+  }
+
+  @Benchmark
+  public Map<String, Object> dailyBarOption() {
+    return EchartsOptionBuilder.dailyBarOption(summary);
+  }
+
+  @Benchmark
+  public Map<String, Object> typePieOption() {
+    return EchartsOptionBuilder.typePieOption(summary);
+  }
+
+  @Benchmark
+  public byte[] serializeBarBody() throws Exception {
+    return EchartsRenderClient.renderBody(barOption, 1000, 380, "#FCFCFF");
+  }
+
+  @Benchmark
+  public byte[] serializePieBody() throws Exception {
+    return EchartsRenderClient.renderBody(pieOption, 560, 380, "#FCFCFF");
+  }
+
+  /** 查询一次实际要做的：两张图的 option + 请求体 */
+  @Benchmark
+  public int buildAndSerializeBoth() throws Exception {
+    byte[] bar =
+        EchartsRenderClient.renderBody(
+            EchartsOptionBuilder.dailyBarOption(summary), 1000, 380, "#FCFCFF");
+    byte[] pie =
+        EchartsRenderClient.renderBody(
+            EchartsOptionBuilder.typePieOption(summary), 560, 380, "#FCFCFF");
+    return bar.length + pie.length;
+  }
+
+  /** 同上，走请求体模板（线上路径） */
+  @Benchmark
+  public int templateBoth() {
+    return BAR.render(summary).length + PIE.render(summary).length;
+  }
+
+  @Benchmark
+  public byte[] templateBarBody() {
+    return BAR.render(summary);
+  }
+
+  @Benchmark
+  public byte[] templatePieBody() {
+    return PIE.render(summary);
+  }
+}
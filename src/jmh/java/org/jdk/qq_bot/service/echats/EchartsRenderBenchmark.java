@@ -0,0 +1,89 @@
+package org.jdk.qq_bot.service.echats;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import org.jdk.qq_bot.BenchmarkData;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.observe.CommandMetrics;
+import org.jdk.qq_bot.service.http.SharedHttpClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * 一次月查询的两张图走完整个 {@link EchartsRenderClient}：engine=node 经 HTTP 请求渲染服务（/render/batch），
+ * engine=java 在进程内用 Java2D 出图，与 {@link Java2dChartBenchmark} 的单张耗时对照。
+ *
+ * <p>node 需要先启动 echarts/server.js，地址用 {@code -Dbench.render.base-url} 指定（默认 http://localhost:5999）。
+ * PNG 缓存上限设为 0，每次都真正渲染。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class EchartsRenderBenchmark {
+
+  @Param({"node", "java"})
+  String engine;
+
+  @Param({"31"})
+  int days;
+
+  private SharedHttpClient http;
+  private EchartsRenderClient client;
+  private CompactOvertimeSummary summary;
+
+  @Setup
+  public void setUp() throws Exception {
+    YearMonth ym = YearMonth.of(2025, 8);
+    LocalDate today = ym.atDay(Math.min(days, ym.lengthOfMonth()));
+    summary = BenchmarkData.summary(ym, BenchmarkData.month(ym, days, 7), today);
+
+    http = new SharedHttpClient(1000, 10_000, 8, 4, 1000, 30);
+    client =
+        new EchartsRenderClient(
+            new ChartPngCache(Files.createTempDirectory("render-bench").toString(), 0, false),
+            http,
+            new Java2dChartRenderer(),
+            new CommandMetrics(new SimpleMeterRegistry()));
+    ReflectionTestUtils.setField(
+        client, "baseUrl", System.getProperty("bench.render.base-url", "http://localhost:5999"));
+    ReflectionTestUtils.setField(client, "poolSize", 2);
+    ReflectionTestUtils.setField(client, "queueCapacity", 4);
+    ReflectionTestUtils.setField(client, "deadlineMs", 12_000L);
+    ReflectionTestUtils.setField(client, "readTimeoutMs", 10_000L);
+    ReflectionTestUtils.setField(client, "engine", engine);
+    // 渲染服务出错就让这一轮失败，不要悄悄换成 Java2D 的数字
+    ReflectionTestUtils.setField(client, "fallback", false);
+    ReflectionTestUtils.setField(client, "fallbackCooldownMs", 30_000L);
+    client.initPool();
+  }
+
+  @TearDown
+  public void tearDown() {
+    client.shutdownPool();
+    ReflectionTestUtils.invokeMethod(http, "close");
+  }
+
+  @Benchmark
+  public int monthCharts() throws Exception {
+    var charts = client.renderMonthChartsAsync(1L, summary);
+    return charts.bar().get(15, TimeUnit.SECONDS).length
+        + charts.pie().get(15, TimeUnit.SECONDS).length;
+  }
+}
@@ -0,0 +1,51 @@
+package org.jdk.qq_bot.service.echats;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import org.jdk.qq_bot.BenchmarkData;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** 进程内 Java2D 出图（绘制 + PNG 编码），对照 Node 渲染服务一次往返的耗时 */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class Java2dChartBenchmark {
+
+  @Param({"15", "31"})
+  int days;
+
+  private final Java2dChartRenderer renderer = new Java2dChartRenderer();
+  private CompactOvertimeSummary summary;
+
+  @Setup
+  public void setUp() {
+    YearMonth ym = YearMonth.of(2025, 8);
+    LocalDate today = ym.atDay(Math.min(days, ym.lengthOfMonth()));
+    summary = BenchmarkData.summary(ym, BenchmarkData.month(ym, days, 7), today);
+  }
+
+  @Benchmark
+  public byte[] dailyBar() {
+    return renderer.dailyBar(summary, 1000, 380, "#FCFCFF");
+  }
+
+  @Benchmark
+  public byte[] typePie() {
+    return renderer.typePie(summary, 560, 380, "#FCFCFF");
+  }
+}
@@ -0,0 +1,159 @@
+package org.jdk.qq_bot.service.transfer;
+
+import java.io.BufferedWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
+import org.jdk.qq_bot.service.OvertimeRankCache;
+import org.jdk.qq_bot.service.OvertimeSummaryCache;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 整文件导入 / 导出（H2 文件库，含校验、多行 INSERT 与 daily / monthly 累加）；每次调用处理 rows 行，每秒行数 = rows / 耗时。
+ *
+ * <p>CSV 与 JSONL 是同一批随机行，两种格式只差在解析 / 写出。
+ *
+ * <p>H2 只能看代码路径本身的开销，换成 MySQL 后 INSERT 往返会占大头。用文件库是为了不让库里的百万行占住堆，-prof gc 与堆上限看的只是导入 / 导出本身。
+ *
+ * <p>H2 上 jOOQ 把多行 ON DUPLICATE KEY UPDATE 改写成嵌套的 MERGE，H2 解析时每层都复制一遍词法单元，内存随批大小平方增长：
+ * 线上的 1000 行一批在这里会栈溢出 / 撑爆堆，所以这里按 100 行一批，并加大线程栈（-Xss）。
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgs = {"-Xmx1g", "-Xss64m"})
+public class OvertimeTransferBenchmark {
+
+  @Param({"1000000"})
+  int rows;
+
+  @Param({"CSV", "JSONL"})
+  TransferFormat format;
+
+  /** 每条多行 INSERT 的行数（overtime.transfer.batch-rows） */
+  @Param({"100"})
+  int batchRows;
+
+  private Path file;
+  private Path dbDir;
+  private int dbSeq;
+  private DataSource ds;
+  private OvertimeTransfer transfer;
+
+  @Setup(Level.Trial)
+  public void writeFile() throws Exception {
+    dbDir = Files.createTempDirectory("transfer-bench");
+    file = Files.createTempFile("overtime-bench", "." + format.name().toLowerCase(Locale.ROOT));
+    Random rnd = new Random(7);
+    LocalDate start = LocalDate.of(2023, 1, 1);
+    try (Writer w = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      if (format == TransferFormat.CSV) w.write("user_id,group_id,work_date,ot_type,hours,note\n");
+      for (int i = 0; i < rows; i++) {
+        String user = Integer.toString(1 + rnd.nextInt(500));
+        String day = start.plusDays(rnd.nextInt(1000)).toString();
+        String type = rnd.nextInt(5) < 3 ? "G1" : rnd.nextBoolean() ? "G2" : "G3";
+        String hours = (1 + rnd.nextInt(4)) + "." + rnd.nextInt(10);
+        String note = i % 10 == 0 ? "上线" : null;
+        if (format == TransferFormat.CSV) {
+          w.write(user + ",100," + day + "," + type + "," + hours + "," + (note != null ? note : ""));
+        } else {
+          w.write("{\"user_id\":" + user + ",\"group_id\":100,\"work_date\":\"" + day + "\"");
+          w.write(",\"ot_type\":\"" + type + "\",\"hours\":" + hours);
+          if (note != null) w.write(",\"note\":\"" + note + "\"");
+          w.write('}');
+        }
+        w.write('\n');
+      }
+    }
+  }
+
+  /** 每次调用前换一个空库，导入测的总是往空表里写 rows 行，导出读的是上一次导入的结果 */
+  @Setup(Level.Invocation)
+  public void freshDb() throws Exception {
+    dropDb();
+    ds =
+        TestDb.createAt(
+            "jdbc:h2:file:"
+                + dbDir.resolve("db" + dbSeq++)
+                + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+    DSLContext dsl = DSL.using(new TransactionAwareDataSourceProxy(ds), SQLDialect.H2);
+    transfer =
+        new OvertimeTransfer(
+            new OvertimeLogRepository(dsl),
+            new OvertimeDailyRepository(dsl),
+            new OvertimeMonthlyRepository(dsl),
+            new OvertimeSummaryCache(100, 600),
+            new OvertimeRankCache(16),
+            new TransactionTemplate(new DataSourceTransactionManager(ds)),
+            batchRows,
+            10000,
+            100);
+  }
+
+  @TearDown(Level.Trial)
+  public void cleanUp() throws Exception {
+    dropDb();
+    Files.deleteIfExists(file);
+    Files.deleteIfExists(dbDir);
+  }
+
+  private void dropDb() throws Exception {
+    if (ds == null) return;
+    try (Connection c = ds.getConnection();
+        Statement st = c.createStatement()) {
+      st.execute("DROP ALL OBJECTS DELETE FILES");
+    }
+  }
+
+  @Benchmark
+  public long importFile() throws Exception {
+    try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      return transfer.importFrom(in, format).imported();
+    }
+  }
+
+  @Benchmark
+  public long importThenExport() throws Exception {
+    try (var in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      transfer.importFrom(in, format);
+    }
+    Path out = Files.createTempFile("overtime-export", ".out");
+    try (BufferedWriter w = Files.newBufferedWriter(out, StandardCharsets.UTF_8)) {
+      return transfer.exportTo(w, format, null, null, null);
+    } finally {
+      Files.delete(out);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package org.jdk.qq_bot.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * 配置了 spring.datasource.replica.jdbc-url 时启用读写分离：@Transactional(readOnly = true) 走副本连接池，
+ * 其余走主库连接池；不配置则仍是 Spring Boot 默认的单数据源。
+ *
+ * <p>对外的 DataSource 是 LazyConnectionDataSourceProxy：事务开始时只拿到代理连接，
+ * 等第一条语句执行时只读标记已经设好，再据此向主库或副本要真实连接。jOOQ 与事务管理器都用它，业务代码不用改。
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.datasource.replica", name = "jdbc-url")
+public class ReadWriteDataSourceConfig {
+
+  /** 主库连接池：连接信息取 spring.datasource.*，池参数取 spring.datasource.hikari.* */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    HikariDataSource ds =
+        properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    ds.setPoolName("primary");
+    return ds;
+  }
+
+  /** 副本连接池：连接信息与池参数都在 spring.datasource.replica.*（Hikari 属性名，如 jdbc-url / maximum-pool-size） */
+  @Bean
+  @ConfigurationProperties("spring.datasource.replica")
+  public HikariDataSource replicaDataSource() {
+    HikariDataSource ds = new HikariDataSource();
+    ds.setPoolName("replica");
+    ds.setReadOnly(true);
+    return ds;
+  }
+
+  @Bean(initMethod = "start", destroyMethod = "stop")
+  public ReplicaRoutingDataSource replicaRouting(
+      @Qualifier("replicaDataSource") DataSource replica,
+      @Qualifier("primaryDataSource") DataSource primary,
+      @Value("${spring.datasource.routing.lag-query:}") String lagQuery,
+      @Value("${spring.datasource.routing.max-lag-seconds:5}") long maxLagSeconds,
+      @Value("${spring.datasource.routing.check-interval-ms:5000}") long checkIntervalMs,
+      @Value("${spring.datasource.routing.read-after-write-ms:0}") long readAfterWriteMs) {
+    return new ReplicaRoutingDataSource(
+        replica, primary, lagQuery, maxLagSeconds, checkIntervalMs, readAfterWriteMs);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(ReplicaRoutingDataSource routing) {
+    LazyConnectionDataSourceProxy proxy = new LazyConnectionDataSourceProxy(routing.writeTarget());
+    proxy.setReadOnlyDataSource(routing);
+    return proxy;
+  }
+}
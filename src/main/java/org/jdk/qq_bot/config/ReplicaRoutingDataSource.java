@@ -0,0 +1,232 @@
+package org.jdk.qq_bot.config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+/**
+ * 只读事务用的连接来源：副本健康时给副本连接，否则退回主库。
+ *
+ * <p>健康由后台线程每 checkIntervalMs 探测一次：能拿到连接，且（配置了 lagQuery 时）延迟不超过 maxLagSeconds。
+ * 两次探测之间副本拿连接失败会立刻标记为不健康，后续只读请求直接走主库，等下一次探测通过再切回。
+ *
+ * <p>主库读写事务提交后的 readAfterWriteMs 内，读它写过的数据的只读事务也走主库，免得“刚录完就查”读到副本上还没同步过来的数据并被缓存。
+ *
+ * <p>范围由 {@link ReplicaScope} 划定：事务登记了 key 时只有声明读这些 key 的读取回主库；没登记 key 的提交不知道写了什么，窗口内所有只读事务都走主库。
+ *
+ * <p>这段时间至少为 (maxLagSeconds + 1) 秒 + checkIntervalMs：延迟每秒至多涨 1 秒，过了这么久副本要么已经追上这次写入，
+ * 要么已被探测到延迟超限而停用，所以窗口之后从副本读到并回填缓存的数据不会早于这次写入。不配 lagQuery 时不知道延迟，没有这个保证。
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends DelegatingDataSource {
+
+  /** 副本 / 主库各给出的只读连接数，当前是否健康与最近一次探测到的延迟（秒，未知为 -1） */
+  public record Stats(long replicaReads, long primaryReads, boolean healthy, long lagSeconds) {}
+
+  private final DataSource primary;
+  private final String lagQuery;
+  private final long maxLagSeconds;
+  private final long checkIntervalMs;
+  private final long readAfterWriteNanos;
+
+  private final LongAdder replicaReads = new LongAdder();
+  private final LongAdder primaryReads = new LongAdder();
+
+  /** 登记了 key 的提交：key -> 提交时刻，过了窗口由探测线程清掉 */
+  private final ConcurrentHashMap<Object, Long> keyWrites = new ConcurrentHashMap<>();
+
+  private volatile boolean healthy = true;
+  private volatile long lagSeconds = -1;
+  private volatile long lastWriteNanos = System.nanoTime() - Long.MAX_VALUE / 2;
+  private volatile boolean running;
+  private Thread checker;
+
+  /**
+   * @param lagQuery 查询复制延迟（秒）的 SQL，为空则只检查连通性。结果里有 Seconds_Behind_Source / Seconds_Behind_Master
+   *     列时取该列（即 SHOW REPLICA STATUS），否则取第一列；值为 NULL 或没有结果行都视为复制中断
+   */
+  public ReplicaRoutingDataSource(
+      DataSource replica,
+      DataSource primary,
+      String lagQuery,
+      long maxLagSeconds,
+      long checkIntervalMs,
+      long readAfterWriteMs) {
+    super(replica);
+    this.primary = primary;
+    this.lagQuery = lagQuery == null ? "" : lagQuery.strip();
+    this.maxLagSeconds = maxLagSeconds;
+    this.checkIntervalMs = checkIntervalMs;
+    long minReadAfterWriteMs = TimeUnit.SECONDS.toMillis(maxLagSeconds + 1) + checkIntervalMs;
+    if (readAfterWriteMs < minReadAfterWriteMs) {
+      log.info(
+          "[Replica] read-after-write {}ms raised to {}ms (max lag + check interval)",
+          readAfterWriteMs,
+          minReadAfterWriteMs);
+      readAfterWriteMs = minReadAfterWriteMs;
+    }
+    this.readAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(readAfterWriteMs);
+  }
+
+  public void start() {
+    check();
+    running = true;
+    checker = new Thread(this::checkLoop, "replica-check");
+    checker.setDaemon(true);
+    checker.start();
+  }
+
+  public void stop() throws InterruptedException {
+    running = false;
+    if (checker != null) {
+      checker.interrupt();
+      checker.join(1000);
+    }
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    if (useReplica()) {
+      try {
+        Connection c = obtainTargetDataSource().getConnection();
+        replicaReads.increment();
+        return c;
+      } catch (SQLException e) {
+        markDown("getConnection failed: " + e.getMessage());
+      }
+    }
+    primaryReads.increment();
+    return primary.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return getConnection();
+  }
+
+  /**
+   * 读写事务用的主库：连接上每次 commit 按 {@link ReplicaScope} 登记的 key 记为一次写入（没登记则是全局写入）；
+   * 不开事务的读（自动提交）与只拿连接不执行语句都不算
+   */
+  public DataSource writeTarget() {
+    return new DelegatingDataSource(primary) {
+      @Override
+      public Connection getConnection() throws SQLException {
+        return stampOnCommit(super.getConnection());
+      }
+    };
+  }
+
+  /** 立即探测一次副本并更新健康状态 */
+  public void check() {
+    try (Connection c = obtainTargetDataSource().getConnection()) {
+      long lag = lagQuery.isEmpty() ? 0 : queryLag(c);
+      lagSeconds = lag;
+      if (lag < 0) {
+        markDown("replication stopped or not configured");
+      } else if (lag > maxLagSeconds) {
+        markDown("lag " + lag + "s > " + maxLagSeconds + "s");
+      } else if (!healthy) {
+        healthy = true;
+        log.info("[Replica] back online, lag={}s", lag);
+      }
+    } catch (SQLException | RuntimeException e) {
+      lagSeconds = -1;
+      markDown("check failed: " + e.getMessage());
+    }
+  }
+
+  public Stats stats() {
+    return new Stats(replicaReads.sum(), primaryReads.sum(), healthy, lagSeconds);
+  }
+
+  private boolean useReplica() {
+    if (!healthy) return false;
+    long now = System.nanoTime();
+    if (now - lastWriteNanos <= readAfterWriteNanos) return false;
+    Object key = ReplicaScope.reading();
+    if (key == null) return true;
+    Long wroteAt = keyWrites.get(key);
+    return wroteAt == null || now - wroteAt > readAfterWriteNanos;
+  }
+
+  private void stampWrite(Set<Object> keys) {
+    long now = System.nanoTime();
+    if (keys.isEmpty() || keys.contains(ReplicaScope.ALL)) {
+      lastWriteNanos = now;
+      return;
+    }
+    for (Object key : keys) keyWrites.put(key, now);
+  }
+
+  private void markDown(String reason) {
+    if (healthy) {
+      healthy = false;
+      log.warn("[Replica] reads fall back to primary: {}", reason);
+    }
+  }
+
+  /** commit 前后各记一次：提交过程中开始的读也算在窗口内，窗口从提交完成起算 */
+  private Connection stampOnCommit(Connection target) {
+    return (Connection)
+        Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] {Connection.class},
+            (proxy, method, args) -> {
+              boolean commit = method.getName().equals("commit");
+              Set<Object> keys = commit ? ReplicaScope.written() : Set.of();
+              if (commit) stampWrite(keys);
+              try {
+                return method.invoke(target, args);
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              } finally {
+                if (commit) stampWrite(keys);
+              }
+            });
+  }
+
+  /** 延迟秒数；复制中断（NULL）或没有结果行（不是副本 / 复制未配置）为 -1 */
+  private long queryLag(Connection c) throws SQLException {
+    try (Statement st = c.createStatement();
+        ResultSet rs = st.executeQuery(lagQuery)) {
+      if (!rs.next()) return -1;
+      ResultSetMetaData meta = rs.getMetaData();
+      int col = 1;
+      for (int i = 1; i <= meta.getColumnCount(); i++) {
+        String name = meta.getColumnLabel(i);
+        if (name.equalsIgnoreCase("Seconds_Behind_Source")
+            || name.equalsIgnoreCase("Seconds_Behind_Master")) {
+          col = i;
+          break;
+        }
+      }
+      long lag = rs.getLong(col);
+      return rs.wasNull() ? -1 : lag;
+    }
+  }
+
+  private void checkLoop() {
+    while (running) {
+      try {
+        Thread.sleep(checkIntervalMs);
+      } catch (InterruptedException e) {
+        return;
+      }
+      check();
+      long now = System.nanoTime();
+      keyWrites.values().removeIf(t -> now - t > readAfterWriteNanos);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package org.jdk.qq_bot.config;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 读写分离时“刚写完就读”的范围：读写事务登记自己写到了哪些 key，回填缓存的读取声明自己读的是哪个 key。
+ *
+ * <p>{@link ReplicaRoutingDataSource} 在 commit 时按登记的 key 记下写入时刻，之后只有读这些 key 的请求在窗口内走主库，
+ * 其余只读请求照常走副本。没登记任何 key 的提交（重建汇总、导入等）不知道影响范围，仍按全局窗口处理。
+ *
+ * <p>key 用缓存自己的 key（如 {@code OvertimeSummaryCache.Key}），写入与读取两边用同一个值即可。没配副本时只是多一次 ThreadLocal 读写。
+ */
+public final class ReplicaScope {
+
+  /** 当前读写事务登记的 key；事务结束即清空 */
+  private static final ThreadLocal<Set<Object>> WRITTEN = new ThreadLocal<>();
+
+  /** 当前读取声明的 key */
+  private static final ThreadLocal<Object> READING = new ThreadLocal<>();
+
+  /** 登记后按全局窗口处理，见 {@link #wroteUnscoped} */
+  static final Object ALL = new Object();
+
+  private ReplicaScope() {}
+
+  /** 当前事务写到了 key；不在事务中（自动提交，不经过 commit）时什么也不做 */
+  public static void wrote(Object key) {
+    Set<Object> keys = WRITTEN.get();
+    if (keys == null) {
+      if (!TransactionSynchronizationManager.isSynchronizationActive()) return;
+      keys = new HashSet<>();
+      WRITTEN.set(keys);
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              WRITTEN.remove();
+            }
+          });
+    }
+    keys.add(key);
+  }
+
+  /** 当前事务的影响范围说不清（如改写某天会波及不知道哪些群的榜）：提交后按全局窗口处理 */
+  public static void wroteUnscoped() {
+    wrote(ALL);
+  }
+
+  /** 以 key 的范围执行读取：key 刚写过时这次读取拿主库连接 */
+  public static <T> T reading(Object key, Supplier<T> read) {
+    Object outer = READING.get();
+    READING.set(key);
+    try {
+      return read.get();
+    } finally {
+      if (outer == null) {
+        READING.remove();
+      } else {
+        READING.set(outer);
+      }
+    }
+  }
+
+  /** 当前事务登记的 key，没有则为空集 */
+  static Set<Object> written() {
+    Set<Object> keys = WRITTEN.get();
+    return keys == null ? Set.of() : keys;
+  }
+
+  /** 当前读取声明的 key，没有为 null */
+  static Object reading() {
+    return READING.get();
+  }
+}
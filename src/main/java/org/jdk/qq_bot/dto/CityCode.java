@@ -0,0 +1,4 @@
+package org.jdk.qq_bot.dto;
+
+/** 一条城市编码（city_code 表的一行） */
+public record CityCode(String nameZh, String adCode, String cityCode) {}
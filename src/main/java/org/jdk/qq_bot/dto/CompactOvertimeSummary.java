@@ -0,0 +1,222 @@
+package org.jdk.qq_bot.dto;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 加班统计的紧凑形式（一个月或一周）：小时一律存为定点的百分之一小时（centis，DECIMAL(x,2) 无损）。
+ *
+ * <p>daily[i] 是 first + i 那天的总计（区间至多 31 天，0 表示当天没有记录），分类型小计按 G1 / G2 / G3 下标存在 int[3]。
+ *
+ * <p>整份统计只有三个小 int 数组，查询、缓存、文本与出图都直接读它；仍要 Map 形式的地方用 {@link #toSummary()}。
+ *
+ * <p>由 {@link Builder} 逐行累加，build() 之后不可变（缓存里的实例会被多个线程同时读）。
+ *
+ * <p>total* 是整个区间的合计：月查询即本月，周查询即本周。
+ */
+public final class CompactOvertimeSummary {
+
+  public static final int MAX_DAYS = 31;
+
+  public static final int G1 = 0;
+  public static final int G2 = 1;
+  public static final int G3 = 2;
+
+  private static final String[] TYPE_NAMES = {"G1", "G2", "G3"};
+
+  private final LocalDate first;
+  private final int[] daily;
+  private final int[] totalByType;
+  private final int[] todayByType;
+  private final int total;
+  private final int todayTotal;
+  private final int recordDays;
+
+  private CompactOvertimeSummary(Builder b) {
+    this.first = b.first;
+    this.daily = b.daily;
+    this.totalByType = b.totalByType;
+    this.todayByType = b.todayByType;
+    this.total = b.total;
+    this.todayTotal = b.todayTotal;
+    this.recordDays = b.recordDays;
+  }
+
+  /** [first, last] 区间（含两端，至多 31 天）的累加器 */
+  public static Builder builder(LocalDate first, LocalDate last) {
+    long days = ChronoUnit.DAYS.between(first, last) + 1;
+    if (days < 1 || days > MAX_DAYS) {
+      throw new IllegalArgumentException("range must be 1~31 days: " + first + " ~ " + last);
+    }
+    return new Builder(first, (int) days);
+  }
+
+  /** 没有任何天的空统计（图表模板取骨架用） */
+  public static CompactOvertimeSummary empty() {
+    return new Builder(LocalDate.EPOCH, 0).build();
+  }
+
+  /** 逐行累加；build() 把数组交给统计实例，之后再 add 抛 IllegalStateException */
+  public static final class Builder {
+    private final LocalDate first;
+    private int[] daily;
+    private final int[] totalByType = new int[3];
+    private final int[] todayByType = new int[3];
+    private int total;
+    private int todayTotal;
+    private int recordDays;
+
+    private Builder(LocalDate first, int days) {
+      this.first = first;
+      this.daily = new int[days];
+    }
+
+    /** 累加一条 (日期, 类型) 小计；day 须在区间内，不认识的类型只计入合计与每日 */
+    public Builder add(LocalDate day, String type, BigDecimal hours, LocalDate today) {
+      ensureOpen();
+      long i = ChronoUnit.DAYS.between(first, day);
+      if (i < 0 || i >= daily.length) {
+        throw new IllegalArgumentException(day + " is outside " + first + " + " + daily.length);
+      }
+      return add((int) i, typeIndex(type), centis(hours), day.equals(today));
+    }
+
+    /** 同上，已换算好的形式；type 为 -1 表示不计入分类型小计 */
+    public Builder add(int dayIndex, int type, int centis, boolean today) {
+      ensureOpen();
+      if (daily[dayIndex] == 0 && centis != 0) recordDays++;
+      daily[dayIndex] += centis;
+      total += centis;
+      if (type >= 0) totalByType[type] += centis;
+      if (today) {
+        todayTotal += centis;
+        if (type >= 0) todayByType[type] += centis;
+      }
+      return this;
+    }
+
+    public CompactOvertimeSummary build() {
+      ensureOpen();
+      var s = new CompactOvertimeSummary(this);
+      daily = null;
+      return s;
+    }
+
+    private void ensureOpen() {
+      if (daily == null) throw new IllegalStateException("summary already built");
+    }
+  }
+
+  /** 区间第一天，即 dailyCentis(0) 对应的日期 */
+  public LocalDate first() {
+    return first;
+  }
+
+  /** 区间天数（含没有记录的日子） */
+  public int days() {
+    return daily.length;
+  }
+
+  /** 有记录的天数 */
+  public int recordDays() {
+    return recordDays;
+  }
+
+  public int dailyCentis(int dayIndex) {
+    return daily[dayIndex];
+  }
+
+  /** 区间合计 */
+  public int totalCentis() {
+    return total;
+  }
+
+  public int todayCentis() {
+    return todayTotal;
+  }
+
+  /** 区间内某类型的小计 */
+  public int totalCentis(int type) {
+    return totalByType[type];
+  }
+
+  public int todayCentis(int type) {
+    return todayByType[type];
+  }
+
+  /** G1 / G2 / G3 -> 0 / 1 / 2（大小写敏感，库里只存大写），其他为 -1 */
+  public static int typeIndex(String type) {
+    if (type == null || type.length() != 2 || type.charAt(0) != 'G') return -1;
+    int i = type.charAt(1) - '1';
+    return i >= 0 && i < 3 ? i : -1;
+  }
+
+  public static String typeName(int type) {
+    return TYPE_NAMES[type];
+  }
+
+  /** 小时 -> 百分之一小时（四舍五入到两位小数） */
+  public static int centis(BigDecimal hours) {
+    return hours.movePointRight(2).setScale(0, RoundingMode.HALF_UP).intValueExact();
+  }
+
+  /** 百分之一小时 -> 小时；与 BigDecimal.valueOf(centis, 2).doubleValue() 相同（都是最近的 double） */
+  public static double hours(int centis) {
+    return centis / 100.0;
+  }
+
+  /** 按 stripTrailingZeros().toPlainString() 的样子追加小时数（2.50 -> 2.5，2.00 -> 2），不产生中间对象 */
+  public static StringBuilder appendHours(StringBuilder sb, int centis) {
+    if (centis < 0) {
+      sb.append('-');
+      centis = -centis;
+    }
+    sb.append(centis / 100);
+    int frac = centis % 100;
+    if (frac != 0) {
+      sb.append('.').append((char) ('0' + frac / 10));
+      if (frac % 10 != 0) sb.append((char) ('0' + frac % 10));
+    }
+    return sb;
+  }
+
+  /** 第 dayIndex 天的 "MM-dd" 写进 buf[off, off + 5) */
+  public void monthDay(int dayIndex, char[] buf, int off) {
+    LocalDate d = first.plusDays(dayIndex);
+    int m = d.getMonthValue();
+    int dd = d.getDayOfMonth();
+    buf[off] = (char) ('0' + m / 10);
+    buf[off + 1] = (char) ('0' + m % 10);
+    buf[off + 2] = '-';
+    buf[off + 3] = (char) ('0' + dd / 10);
+    buf[off + 4] = (char) ('0' + dd % 10);
+  }
+
+  /** 适配仍按 Map 读取的地方：只含有记录的日子与类型（不补 0），日期升序 */
+  public OvertimeSummary toSummary() {
+    var monthMap = new LinkedHashMap<String, BigDecimal>();
+    var todayMap = new LinkedHashMap<String, BigDecimal>();
+    for (int t = 0; t < 3; t++) {
+      putNonZero(monthMap, TYPE_NAMES[t], totalByType[t]);
+      putNonZero(todayMap, TYPE_NAMES[t], todayByType[t]);
+    }
+    var dailyMap = new LinkedHashMap<LocalDate, BigDecimal>();
+    for (int i = 0; i < daily.length; i++) {
+      putNonZero(dailyMap, first.plusDays(i), daily[i]);
+    }
+    return new OvertimeSummary(
+        BigDecimal.valueOf(total, 2),
+        BigDecimal.valueOf(todayTotal, 2),
+        monthMap,
+        todayMap,
+        dailyMap);
+  }
+
+  private static <K> void putNonZero(Map<K, BigDecimal> map, K key, int centis) {
+    if (centis != 0) map.put(key, BigDecimal.valueOf(centis, 2));
+  }
+}
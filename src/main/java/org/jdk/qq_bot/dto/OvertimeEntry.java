@@ -0,0 +1,14 @@
+package org.jdk.qq_bot.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/** 一条待写入的加班记录（已校验、类型已规范化）；groupId 为录入所在的群，没有则为 null */
+public record OvertimeEntry(
+    long userId, LocalDate workDate, String type, BigDecimal hours, String note, Long groupId) {
+
+  public OvertimeEntry(
+      long userId, LocalDate workDate, String type, BigDecimal hours, String note) {
+    this(userId, workDate, type, hours, note, null);
+  }
+}
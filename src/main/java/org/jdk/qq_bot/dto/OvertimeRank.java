@@ -0,0 +1,17 @@
+package org.jdk.qq_bot.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 群内某月加班排行：前 N 名 + 查询人自己的名次。
+ *
+ * @param top 按小时降序（同小时按 QQ 号升序）的前 N 名
+ * @param myRank 查询人的名次（从 1 起），本月在本群没有记录为 0
+ * @param myHours 查询人本月在本群的小时数（没有记录为 0）
+ * @param members 本月在本群有记录的人数
+ */
+public record OvertimeRank(List<Row> top, int myRank, BigDecimal myHours, int members) {
+
+  public record Row(long userId, BigDecimal hours) {}
+}
@@ -11,6 +11,10 @@ import lombok.NoArgsConstructor;
 /**
  * 加班统计： - monthTotal：当月总计 - todayTotal：今日总计 - monthByType：当月分类型小计（G1/G2/G3） -
  * todayByType：今日分类型小计（G1/G2/G3） - dailyTotals：当月每日累计（总和，按日期升序）
+ *
+ * <p>查询与缓存用的是 {@link CompactOvertimeSummary}，本类是它的 Map 形式。
+ *
+ * @see CompactOvertimeSummary#toSummary()
  */
 @Data
 @NoArgsConstructor
@@ -0,0 +1,20 @@
+package org.jdk.qq_bot.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.Map;
+
+/**
+ * 年度加班统计：total / byType / monthlyTotals 来自月汇总表，dailyTotals（供日历热力图）来自日汇总表。
+ *
+ * @param byType 分类型小计，G1/G2/G3 补齐为 0
+ * @param monthlyTotals 1~12 月各月总计（补齐为 0，月份升序）
+ * @param dailyTotals 有记录的日子的总小时（日期升序）
+ */
+public record OvertimeYearSummary(
+    int year,
+    BigDecimal total,
+    Map<String, BigDecimal> byType,
+    Map<YearMonth, BigDecimal> monthlyTotals,
+    Map<LocalDate, BigDecimal> dailyTotals) {}
@@ -0,0 +1,132 @@
+package org.jdk.qq_bot.listener;
+
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import love.forte.simbot.component.onebot.v11.core.event.message.OneBotGroupMessageEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 指令执行层：把监听器里的阻塞工作（JDBC / HTTP）挪出 simbot 的事件分发线程。
+ *
+ * <p>同一用户的指令按到达顺序串行执行（overtime set 不会被之后的 query 抢先），不同用户之间并行。
+ *
+ * <p>全局待执行数有上限：满了先在分发线程上短暂等待（背压），仍然满则直接拒绝并礼貌回复。
+ */
+@Slf4j
+@Component
+public class CommandExecutor {
+
+  static final String BUSY_TEXT = "🙇 机器人有点忙，请稍后再试~";
+
+  /** 执行 / 拒绝计数与当前待执行数 */
+  public record Stats(long executed, long rejected, int pending) {}
+
+  private final int maxPending;
+  private final long offerTimeoutMs;
+  private final Semaphore permits;
+  private final ExecutorService workers;
+
+  /** userId -> 该用户待执行的指令；存在即表示已有 worker 在处理该用户 */
+  private final ConcurrentHashMap<Long, ArrayDeque<Runnable>> queues = new ConcurrentHashMap<>();
+
+  private final LongAdder executed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public CommandExecutor(
+      @Value("${bot.command.threads:8}") int threads,
+      @Value("${bot.command.max-pending:256}") int maxPending,
+      @Value("${bot.command.offer-timeout-ms:200}") long offerTimeoutMs) {
+    this.maxPending = maxPending;
+    this.offerTimeoutMs = offerTimeoutMs;
+    this.permits = new Semaphore(maxPending);
+    // 队列长度天然不超过 maxPending（每个排队任务都占着一个 permit）
+    this.workers =
+        ExecutorBuilder.create()
+            .setCorePoolSize(threads)
+            .setMaxPoolSize(threads)
+            .useArrayBlockingQueue(maxPending)
+            .setThreadFactory(
+                ThreadFactoryBuilder.create().setNamePrefix("bot-cmd-").setDaemon(true).build())
+            .build();
+  }
+
+  /** 提交某用户的指令；忙到拒绝时回复提示 */
+  public void dispatch(OneBotGroupMessageEvent event, Runnable handler) {
+    long uid = Long.parseLong(event.getUserId().toString());
+    if (!submit(uid, handler)) {
+      event.replyAsync(BUSY_TEXT);
+    }
+  }
+
+  /** 按 key 串行执行；返回 false 表示已饱和、任务被丢弃 */
+  public boolean submit(long key, Runnable task) {
+    try {
+      if (!permits.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS)) {
+        rejected.increment();
+        log.warn("[Command] saturated, shed task of {} (pending={})", key, maxPending);
+        return false;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      rejected.increment();
+      return false;
+    }
+
+    boolean[] first = {false};
+    queues.compute(
+        key,
+        (k, q) -> {
+          if (q == null) {
+            q = new ArrayDeque<>();
+            first[0] = true;
+          }
+          q.add(task);
+          return q;
+        });
+    if (first[0]) {
+      workers.execute(() -> drain(key));
+    }
+    return true;
+  }
+
+  public Stats stats() {
+    return new Stats(executed.sum(), rejected.sum(), maxPending - permits.availablePermits());
+  }
+
+  @PreDestroy
+  void shutdown() {
+    workers.shutdown();
+  }
+
+  /** 依次执行该用户的指令，队列空了才移除，之后的新指令会另起一轮 */
+  private void drain(long key) {
+    while (true) {
+      Runnable[] next = {null};
+      queues.computeIfPresent(
+          key,
+          (k, q) -> {
+            next[0] = q.poll();
+            return next[0] == null ? null : q;
+          });
+      if (next[0] == null) return;
+
+      try {
+        next[0].run();
+      } catch (Throwable t) {
+        log.error("[Command] task of {} failed", key, t);
+      } finally {
+        permits.release();
+        executed.increment();
+      }
+    }
+  }
+}
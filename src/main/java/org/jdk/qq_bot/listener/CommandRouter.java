@@ -0,0 +1,83 @@
+package org.jdk.qq_bot.listener;
+
+import lombok.RequiredArgsConstructor;
+import love.forte.simbot.component.onebot.v11.core.event.message.OneBotGroupMessageEvent;
+import love.forte.simbot.quantcat.common.annotations.Listener;
+import org.jdk.qq_bot.listener.command.Command;
+import org.jdk.qq_bot.listener.command.CommandParser;
+import org.jdk.qq_bot.observe.CommandMetrics;
+import org.springframework.stereotype.Component;
+
+/**
+ * 群指令的唯一入口：每条群消息只解析一次（{@link CommandParser}），再分派给对应的处理方法。
+ *
+ * <p>不是指令的消息看完开头就返回；需要查库 / 调接口的指令交给 {@link CommandExecutor} 执行。
+ *
+ * <p>每条指令都经 {@link CommandMetrics} 计时，排队与执行分开记录。
+ */
+@Component
+@RequiredArgsConstructor
+public class CommandRouter {
+
+  private final Overtime overtime;
+  private final Handles handles;
+  private final CommandExecutor commands;
+  private final CommandMetrics metrics;
+
+  @Listener
+  public void onGroupMessage(OneBotGroupMessageEvent event) {
+    Command cmd = CommandParser.parse(event.getMessageContent().getPlainText());
+    if (cmd == null) return;
+
+    String name = metricName(cmd);
+    long receivedAt = System.nanoTime();
+    // 不阻塞的直接在分发线程回复
+    if (cmd instanceof Command.Help) {
+      metrics.run(name, receivedAt, () -> overtime.help(event));
+    } else if (cmd instanceof Command.Invalid invalid) {
+      metrics.run(name, receivedAt, () -> metrics.sent(event.replyAsync(invalid.reply())));
+    } else {
+      commands.dispatch(event, () -> metrics.run(name, receivedAt, () -> run(event, cmd)));
+    }
+  }
+
+  private void run(OneBotGroupMessageEvent event, Command cmd) {
+    if (cmd instanceof Command.AddOvertime c) {
+      overtime.add(event, c);
+    } else if (cmd instanceof Command.SetOvertime c) {
+      overtime.set(event, c);
+    } else if (cmd instanceof Command.DeleteOvertime c) {
+      overtime.delete(event, c);
+    } else if (cmd instanceof Command.QueryOvertime) {
+      overtime.query(event);
+    } else if (cmd instanceof Command.QueryMonth c) {
+      overtime.queryMonth(event, c);
+    } else if (cmd instanceof Command.QueryWeek) {
+      overtime.week(event);
+    } else if (cmd instanceof Command.QueryYear c) {
+      overtime.year(event, c);
+    } else if (cmd instanceof Command.Rank) {
+      overtime.rank(event);
+    } else if (cmd instanceof Command.Translate c) {
+      handles.translate(event, c.word());
+    } else if (cmd instanceof Command.LookupCityCodes c) {
+      handles.lookupCodes(event, c.name());
+    }
+  }
+
+  /** 指标里的 command 标签 */
+  static String metricName(Command cmd) {
+    if (cmd instanceof Command.Help) return "overtime.help";
+    if (cmd instanceof Command.AddOvertime) return "overtime.add";
+    if (cmd instanceof Command.SetOvertime) return "overtime.set";
+    if (cmd instanceof Command.DeleteOvertime) return "overtime.del";
+    if (cmd instanceof Command.QueryOvertime) return "overtime.query";
+    if (cmd instanceof Command.QueryMonth) return "overtime.month";
+    if (cmd instanceof Command.QueryWeek) return "overtime.week";
+    if (cmd instanceof Command.QueryYear) return "overtime.year";
+    if (cmd instanceof Command.Rank) return "overtime.rank";
+    if (cmd instanceof Command.Translate) return "fy";
+    if (cmd instanceof Command.LookupCityCodes) return "query";
+    return "invalid";
+  }
+}
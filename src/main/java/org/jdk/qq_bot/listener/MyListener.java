@@ -1,31 +1,34 @@
 package org.jdk.qq_bot.listener;
 
-import lombok.extern.slf4j.Slf4j;
+import lombok.RequiredArgsConstructor;
 import love.forte.simbot.component.onebot.v11.core.event.message.OneBotFriendMessageEvent;
-import love.forte.simbot.event.ChatGroupMessageEvent;
+import love.forte.simbot.component.onebot.v11.core.event.message.OneBotGroupMessageEvent;
 import love.forte.simbot.quantcat.common.annotations.Listener;
+import org.jdk.qq_bot.service.archive.ChatArchive;
 import org.springframework.stereotype.Component;
 
-@Slf4j
+/** 群聊 / 私聊消息写入聊天归档（只入队，不阻塞事件分发线程，也不打日志） */
 @Component
+@RequiredArgsConstructor
 public class MyListener {
 
+  private final ChatArchive archive;
+
   /** 监听群消息事件 */
   @Listener
-  public void onGroupMessage(ChatGroupMessageEvent event) {
-    String nickName = event.getAuthor().getName();
-    String plainText = event.getMessageContent().getPlainText();
-    String groupName = event.getContent().getName();
-    // 打印日志，xx在xx群说了xx
-    log.info("🗣️ {} 在「{}」群说：{}", nickName, groupName, plainText);
+  public void onGroupMessage(OneBotGroupMessageEvent event) {
+    archive.append(
+        Long.parseLong(event.getGroupId().toString()),
+        Long.parseLong(event.getUserId().toString()),
+        event.getMessageContent().getPlainText());
   }
 
   /** 监听好友消息事件 */
   @Listener
   public void onFriendMessage(OneBotFriendMessageEvent event) {
-    System.out.println("OneBotFriendMessageEvent: " + event);
-    String name = event.getContent().getName();
-    String plainText = event.getMessageContent().getPlainText();
-    log.info("💌 {} 私聊说：{}", name, plainText);
+    archive.append(
+        ChatArchive.PRIVATE,
+        Long.parseLong(event.getUserId().toString()),
+        event.getMessageContent().getPlainText());
   }
 }
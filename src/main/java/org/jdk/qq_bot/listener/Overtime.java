@@ -1,24 +1,26 @@
 package org.jdk.qq_bot.listener;
 
+import static org.jdk.qq_bot.dto.CompactOvertimeSummary.appendHours;
+
 import java.math.BigDecimal;
-import java.nio.file.Path;
-import java.time.DateTimeException;
 import java.time.LocalDate;
-import java.util.Locale;
+import java.time.YearMonth;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
 import lombok.RequiredArgsConstructor;
 import love.forte.simbot.component.onebot.v11.core.event.message.OneBotGroupMessageEvent;
 import love.forte.simbot.component.onebot.v11.message.segment.OneBotImage;
-import love.forte.simbot.quantcat.common.annotations.ContentTrim;
-import love.forte.simbot.quantcat.common.annotations.Filter;
-import love.forte.simbot.quantcat.common.annotations.Listener;
-import love.forte.simbot.quantcat.common.filter.MatchType;
 import love.forte.simbot.resource.Resources;
-import org.jdk.qq_bot.dto.OvertimeSummary;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeRank;
+import org.jdk.qq_bot.dto.OvertimeYearSummary;
+import org.jdk.qq_bot.listener.command.Command;
+import org.jdk.qq_bot.observe.CommandMetrics;
 import org.jdk.qq_bot.service.OvertimeService;
+import org.jdk.qq_bot.service.OvertimeWriteBatcher;
 import org.jdk.qq_bot.service.echats.EchartsRenderClient;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
@@ -27,6 +29,12 @@ public class Overtime {
 
   private final OvertimeService overtimeService;
   private final EchartsRenderClient echarts;
+  private final CommandMetrics metrics;
+
+  /** overtime rank 显示前几名 */
+  @Value("${overtime.rank.top-n:10}")
+  private int rankTopN;
+
   /** 帮助文本（Java 17 文本块） */
   private static final String HELP_TEXT =
       """
@@ -52,13 +60,23 @@ public class Overtime {
 📊 查询本月
 • overtime query
   - 返回：本月合计、按类型小计（G1/G2/G3）、以及每日汇总
+• overtime query YYMM
+  - 例：overtime query 2508 → 查询 2025 年 8 月
+• overtime week
+  - 本周（周一 ~ 周日）合计、按类型小计与每日汇总
+• overtime year [YYYY]
+  - 全年合计、按类型小计、各月小计 + 日历热力图；不写年份即今年
+
+🏆 本群排行
+• overtime rank
+  - 本月在本群录入的加班小时前几名，以及你自己的名次
 
 ℹ️ 规则说明
 • 日期格式：YYMMDD（按 20YY 解析），如 250824 → 2025-08-24
 • 小时数：支持最多两位小数（如 1.5、2.25），必须 > 0
 • 类型仅限：G1 / G2 / G3（大小写均可）
 • 同一天多次“录入（overtime …）”会累加；“set …”是覆盖
-• 查询范围：按自然月统计（当地时区 Asia/Shanghai）
+• 查询范围：按自然月 / 周 / 年统计（当地时区 Asia/Shanghai）
 
 ✅ 示例
 overtime 2.5
@@ -67,195 +85,262 @@ overtime set 250824 2.5
 overtime set G3 250901 3
 overtime del 250824
 overtime query
+overtime query 2508
+overtime week
+overtime year 2025
+overtime rank
 """;
 
   // —— 群聊：overtime help ——
-  @Listener
-  @ContentTrim
-  @Filter(value = "(?i)^overtime\\s+help$", matchType = MatchType.REGEX_MATCHES)
-  public void helpGroup(OneBotGroupMessageEvent event) {
-    event.replyAsync(HELP_TEXT);
+  void help(OneBotGroupMessageEvent event) {
+    reply(event, HELP_TEXT);
   }
 
-  // ---------- 1) add（默认 G1）：overtime 2.5 ----------
-  private static final Pattern ADD_DEFAULT_P =
-      Pattern.compile("^overtime\\s+(\\d+(?:\\.\\d{1,2})?)$", Pattern.CASE_INSENSITIVE);
-
-  @Listener
-  @ContentTrim
-  @Filter(value = "(?i)^overtime\\s+\\d+(?:\\.\\d{1,2})?$", matchType = MatchType.REGEX_MATCHES)
-  public void addDefault(OneBotGroupMessageEvent event) {
-    String text = event.getMessageContent().getPlainText().trim();
-    Matcher m = ADD_DEFAULT_P.matcher(text);
-    if (!m.matches()) return; // double check
+  // ---------- 1) add：overtime 2.5（默认 G1）/ overtime G2 1.0 ----------
+  void add(OneBotGroupMessageEvent event, Command.AddOvertime cmd) {
     long uid = Long.parseLong(event.getUserId().toString());
-    BigDecimal hours = new BigDecimal(m.group(1));
     try {
-      overtimeService.addOvertime(uid, hours, "G1", null);
-      event.replyAsync("✅ 已记录今天 G1 加班 " + fmt(hours) + " 小时");
+      overtimeService.addOvertime(uid, groupId(event), cmd.hours(), cmd.type(), null);
+      reply(event, "✅ 已记录今天 " + cmd.type() + " 加班 " + fmt(cmd.hours()) + " 小时");
+    } catch (OvertimeWriteBatcher.PendingWriteException e) {
+      // 已经排进批次，可能稍后才提交：不能说失败，否则用户重发会记两遍
+      metrics.failed();
+      reply(event, "⏳ 写入还没确认（数据库繁忙），请稍后用 overtime query 查看是否已记录，先不要重复录入");
     } catch (Exception e) {
-      event.replyAsync("❌ 失败：" + e.getMessage());
+      metrics.failed();
+      reply(event, "❌ 失败：" + e.getMessage());
     }
   }
 
-  // ---------- 2) add（显式类型）：overtime G2 1.0 ----------
-  private static final Pattern ADD_TYPED_P =
-      Pattern.compile("^overtime\\s+(G[1-3])\\s+(\\d+(?:\\.\\d{1,2})?)$", Pattern.CASE_INSENSITIVE);
-
-  @Listener
-  @ContentTrim
-  @Filter(
-      value = "(?i)^overtime\\s+G[1-3]\\s+\\d+(?:\\.\\d{1,2})?$",
-      matchType = MatchType.REGEX_MATCHES)
-  public void addTyped(OneBotGroupMessageEvent event) {
-    String text = event.getMessageContent().getPlainText().trim();
-    Matcher m = ADD_TYPED_P.matcher(text);
-    if (!m.matches()) return;
+  // ---------- 2) set：overtime set 250824 2.5 / overtime set G2 250824 1.5 ----------
+  void set(OneBotGroupMessageEvent event, Command.SetOvertime cmd) {
     long uid = Long.parseLong(event.getUserId().toString());
-    String type = m.group(1).toUpperCase(Locale.ROOT);
-    BigDecimal hours = new BigDecimal(m.group(2));
     try {
-      overtimeService.addOvertime(uid, hours, type, null);
-      event.replyAsync("✅ 已记录今天 " + type + " 加班 " + fmt(hours) + " 小时");
+      overtimeService.setOvertimeByDate(
+          uid, groupId(event), cmd.date(), cmd.hours(), cmd.type(), null);
+      reply(
+          event,
+          "✅ 已将 " + cmd.date() + " 的加班设为 " + cmd.type() + " " + fmt(cmd.hours()) + " 小时");
     } catch (Exception e) {
-      event.replyAsync("❌ 失败：" + e.getMessage());
+      metrics.failed();
+      reply(event, "❌ 失败：" + e.getMessage());
     }
   }
 
-  // ---------- 3) set（支持两种：overtime set 250824 2.5 / overtime set G2 250824 1.5） ----------
-  // 用宽过滤进入；方法内区分两种写法
-  private static final Pattern SET_WITH_TYPE_P =
-      Pattern.compile(
-          "^overtime\\s+set\\s+(G[1-3])\\s+(\\d{6})\\s+(\\d+(?:\\.\\d{1,2})?)$",
-          Pattern.CASE_INSENSITIVE);
-  private static final Pattern SET_NO_TYPE_P =
-      Pattern.compile(
-          "^overtime\\s+set\\s+(\\d{6})\\s+(\\d+(?:\\.\\d{1,2})?)$", Pattern.CASE_INSENSITIVE);
-
-  @Listener
-  @ContentTrim
-  @Filter(value = "(?i)^overtime\\s+set\\b.*", matchType = MatchType.REGEX_MATCHES)
-  public void setAtDate(OneBotGroupMessageEvent event) {
-    String text = event.getMessageContent().getPlainText().trim();
+  // ---------- 3) del：overtime del 250824 ----------
+  void delete(OneBotGroupMessageEvent event, Command.DeleteOvertime cmd) {
     long uid = Long.parseLong(event.getUserId().toString());
-
-    try {
-      Matcher mt = SET_WITH_TYPE_P.matcher(text);
-      if (mt.matches()) {
-        String type = mt.group(1).toUpperCase(Locale.ROOT);
-        LocalDate date = parseYyMmDd(mt.group(2));
-        BigDecimal hours = new BigDecimal(mt.group(3));
-        overtimeService.setOvertimeByDate(uid, date, hours, type, null);
-        event.replyAsync("✅ 已将 " + date + " 的加班设为 " + type + " " + fmt(hours) + " 小时");
-        return;
-      }
-
-      Matcher mn = SET_NO_TYPE_P.matcher(text);
-      if (mn.matches()) {
-        LocalDate date = parseYyMmDd(mn.group(1));
-        BigDecimal hours = new BigDecimal(mn.group(2));
-        overtimeService.setOvertimeByDate(uid, date, hours, "G1", null);
-        event.replyAsync("✅ 已将 " + date + " 的加班设为 G1 " + fmt(hours) + " 小时");
-        return;
-      }
-
-      event.replyAsync("❌ 用法：overtime set YYMMDD 2.5 或 overtime set G2 YYMMDD 1.5");
-    } catch (Exception e) {
-      event.replyAsync("❌ 失败：" + e.getMessage());
-    }
-  }
-
-  // ---------- 4) del：overtime del 250824 ----------
-  private static final Pattern DEL_P =
-      Pattern.compile("^overtime\\s+del(?:ete)?\\s+(\\d{6})$", Pattern.CASE_INSENSITIVE);
-
-  @Listener
-  @ContentTrim
-  @Filter(value = "(?i)^overtime\\s+del(?:ete)?\\s+\\d{6}$", matchType = MatchType.REGEX_MATCHES)
-  public void deleteAtDate(OneBotGroupMessageEvent event) {
-    String text = event.getMessageContent().getPlainText().trim();
-    Matcher m = DEL_P.matcher(text);
-    if (!m.matches()) return;
-    long uid = Long.parseLong(event.getUserId().toString());
-    LocalDate date = parseYyMmDd(m.group(1));
+    LocalDate date = cmd.date();
     try {
       int rows = overtimeService.deleteOvertimeByDate(uid, date);
-      event.replyAsync(
+      reply(
+          event,
           rows > 0
               ? ("🗑️ 已删除 " + date + " 的加班记录（" + rows + " 条）")
               : ("ℹ️ " + date + " 无加班记录，无需删除"));
     } catch (Exception e) {
-      event.replyAsync("❌ 失败：" + e.getMessage());
+      metrics.failed();
+      reply(event, "❌ 失败：" + e.getMessage());
     }
   }
 
-  // ---------- 5) query：overtime query ----------
+  // ---------- 4) query：overtime query ----------
     /** 群聊：overtime query -> 文本 + 两张图 */
-    @Listener
-    @ContentTrim
-    @Filter(value = "(?i)^overtime\\s+query$", matchType = MatchType.REGEX_MATCHES)
-    public void queryWithCharts(OneBotGroupMessageEvent event) {
+    void query(OneBotGroupMessageEvent event) {
         long uid = Long.parseLong(event.getUserId().toString());
 
         try {
             // 1) 查询统计
-            OvertimeSummary s = overtimeService.queryThisMonth(uid);
-
-            String byType = "G1=" + fmt(s.getMonthByType().get("G1")) + "h, "
-                    + "G2=" + fmt(s.getMonthByType().get("G2")) + "h, "
-                    + "G3=" + fmt(s.getMonthByType().get("G3")) + "h";
-
-            StringBuilder daily = new StringBuilder();
-            if (s.getDailyTotals().isEmpty()) {
-                daily.append("（本月暂无记录）");
-            } else {
-                for (Map.Entry<LocalDate, BigDecimal> e : s.getDailyTotals().entrySet()) {
-                    daily.append(e.getKey().toString().substring(5)) // MM-dd
-                            .append(" ").append(fmt(e.getValue())).append("h\n");
-                }
-            }
+            CompactOvertimeSummary s = overtimeService.queryThisMonth(uid);
 
-            String summary = "📊 本月合计：" + fmt(s.getMonthTotal()) + "h（" + byType + "）\n"
-                    + "🗓️ 今天：" + fmt(s.getTodayTotal()) + "h\n"
-                    + "—— 每日 ——\n" + daily;
+            StringBuilder sb = new StringBuilder(64 + 16 * s.recordDays()).append("📊 本月合计：");
+            appendHours(sb, s.totalCentis()).append("h（");
+            appendByType(sb, s).append("）\n🗓️ 今天：");
+            appendHours(sb, s.todayCentis()).append("h\n—— 每日 ——\n");
+            String summary = appendDaily(sb, s, "（本月暂无记录）").toString();
 
-            // 2) 生成图表（ECharts 渲染服务）
-            Path barPng = echarts.renderMonthDailyBar(uid, s);  // 调用 EchartsOptionBuilder.dailyBarOption
-            Path piePng = echarts.renderMonthTypePie(uid, s);   // 调用 EchartsOptionBuilder.typePieOption
+            // 2) 统计好了就先发文本，不等图表
+            reply(event, summary);
 
-            // 3) 先发文本，再发图（本地文件 -> base64）
-            event.replyAsync(summary);
+            // 3) 两张图一次往返批量渲染（ECharts 渲染服务），共用一个总截止时间；失败的那张单独提示
+            //    图在渲染线程上发出，先取好当前指令，发图耗时仍记在 overtime.query 名下
+            var scope = metrics.current();
+            var charts = echarts.renderMonthChartsAsync(uid, s);
+            charts.bar().whenComplete((png, ex) -> sendChart(event, scope, "柱状图", png, ex));
+            charts.pie().whenComplete((png, ex) -> sendChart(event, scope, "饼图", png, ex));
 
-            OneBotImage.AdditionalParams params = new OneBotImage.AdditionalParams();
-            params.setLocalFileToBase64(true); // 关键：把本地图片转 base64 发送
+        } catch (Exception e) {
+            metrics.failed();
+            reply(event, "⚠️ 查询失败：" + e.getMessage());
+        }
+    }
 
-            var barImg = OneBotImage.create(Resources.valueOf(barPng.toFile()), params).toElement();
-            var pieImg = OneBotImage.create(Resources.valueOf(piePng.toFile()), params).toElement();
+    /** 发送一张图表（内存字节，OneBot 消息段里以 base64 发出）；渲染失败或超时则回复原因 */
+    private static void sendChart(OneBotGroupMessageEvent event, CommandMetrics.Scope scope,
+                                  String name, byte[] png, Throwable ex) {
+        if (ex != null) {
+            Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+            String reason = (cause instanceof TimeoutException) ? "渲染超时" : cause.getMessage();
+            scope.sent(event.replyAsync("⚠️ 生成" + name + "失败：" + reason));
+            return;
+        }
+        scope.sent(event.replyAsync(OneBotImage.create(Resources.valueOf(png)).toElement()));
+    }
 
-            event.replyAsync(barImg);
-            event.replyAsync(pieImg);
+  // ---------- 5) 某月：overtime query 2508 ----------
+  /** 本月同 overtime query（带图）；其他月份只回文本（图表标题按“本月”绘制） */
+  void queryMonth(OneBotGroupMessageEvent event, Command.QueryMonth cmd) {
+    if (cmd.month().equals(YearMonth.now(OvertimeService.CN))) {
+      query(event);
+      return;
+    }
+    long uid = Long.parseLong(event.getUserId().toString());
+    try {
+      CompactOvertimeSummary s = overtimeService.queryMonth(uid, cmd.month());
+      StringBuilder sb = new StringBuilder(64 + 16 * s.recordDays());
+      sb.append("📊 ").append(cmd.month()).append(" 合计：");
+      appendHours(sb, s.totalCentis()).append("h（");
+      appendByType(sb, s).append("）\n—— 每日 ——\n");
+      reply(event, appendDaily(sb, s, "（该月暂无记录）").toString());
+    } catch (Exception e) {
+      metrics.failed();
+      reply(event, "⚠️ 查询失败：" + e.getMessage());
+    }
+  }
 
-        } catch (Exception e) {
-            event.replyAsync("⚠️ 生成图表失败：" + e.getMessage());
-        }
+  // ---------- 6) 本周：overtime week ----------
+  void week(OneBotGroupMessageEvent event) {
+    long uid = Long.parseLong(event.getUserId().toString());
+    try {
+      CompactOvertimeSummary s = overtimeService.queryThisWeek(uid);
+      StringBuilder sb = new StringBuilder(128).append("📊 本周合计：");
+      appendHours(sb, s.totalCentis()).append("h（");
+      appendByType(sb, s).append("）\n🗓️ 今天：");
+      appendHours(sb, s.todayCentis()).append("h\n—— 每日 ——\n");
+      reply(event, appendDaily(sb, s, "（本周暂无记录）").toString());
+    } catch (Exception e) {
+      metrics.failed();
+      reply(event, "⚠️ 查询失败：" + e.getMessage());
     }
+  }
 
-  // ---------- 工具 ----------
-  private static LocalDate parseYyMmDd(String yymmdd) {
-    if (yymmdd == null || !yymmdd.matches("\\d{6}")) {
-      throw new IllegalArgumentException("日期格式应为 YYMMDD，例如 250824");
+  // ---------- 7) 年度：overtime year [2025] ----------
+  /** 文本（合计 + 各月）先发，日历热力图渲染好再发 */
+  void year(OneBotGroupMessageEvent event, Command.QueryYear cmd) {
+    long uid = Long.parseLong(event.getUserId().toString());
+    try {
+      OvertimeYearSummary y =
+          cmd.year() == null
+              ? overtimeService.queryThisYear(uid)
+              : overtimeService.queryYear(uid, cmd.year());
+      StringBuilder months = new StringBuilder();
+      y.monthlyTotals()
+          .forEach(
+              (m, h) -> {
+                if (h.signum() > 0) {
+                  months.append(m.getMonthValue()).append("月 ").append(fmt(h)).append("h\n");
+                }
+              });
+      if (months.isEmpty()) months.append("（全年暂无记录）");
+      reply(
+          event,
+          "📊 "
+              + y.year()
+              + " 年合计："
+              + fmt(y.total())
+              + "h（"
+              + byType(y.byType())
+              + "）\n"
+              + "—— 每月 ——\n"
+              + months);
+
+      var scope = metrics.current();
+      echarts
+          .renderYearHeatmapAsync(uid, y)
+          .whenComplete((png, ex) -> sendChart(event, scope, "日历热力图", png, ex));
+    } catch (Exception e) {
+      metrics.failed();
+      reply(event, "⚠️ 查询失败：" + e.getMessage());
     }
-    int yy = Integer.parseInt(yymmdd.substring(0, 2));
-    int mm = Integer.parseInt(yymmdd.substring(2, 4));
-    int dd = Integer.parseInt(yymmdd.substring(4, 6));
-    int year = 2000 + yy;
+  }
+
+  // ---------- 8) 排行：overtime rank ----------
+  void rank(OneBotGroupMessageEvent event) {
+    long uid = Long.parseLong(event.getUserId().toString());
     try {
-      return LocalDate.of(year, mm, dd);
-    } catch (DateTimeException ex) {
-      throw new IllegalArgumentException("无效日期：" + yymmdd);
+      OvertimeRank r = overtimeService.rankThisMonth(groupId(event), uid, rankTopN);
+      if (r.top().isEmpty()) {
+        reply(event, "ℹ️ 本月本群还没有人录入加班");
+        return;
+      }
+      StringBuilder sb =
+          new StringBuilder("🏆 本月本群加班榜（").append(r.members()).append(" 人上榜）\n");
+      for (int i = 0; i < r.top().size(); i++) {
+        OvertimeRank.Row row = r.top().get(i);
+        sb.append(i < MEDALS.length ? MEDALS[i] : (i + 1) + ".")
+            .append(' ')
+            .append(row.userId())
+            .append("  ")
+            .append(fmt(row.hours()))
+            .append("h\n");
+      }
+      sb.append(
+          r.myRank() == 0
+              ? "🙋 你本月在本群还没有记录"
+              : "🙋 你：第 " + r.myRank() + " 名，" + fmt(r.myHours()) + "h");
+      reply(event, sb.toString());
+    } catch (Exception e) {
+      metrics.failed();
+      reply(event, "⚠️ 查询失败：" + e.getMessage());
     }
   }
 
+  private static final String[] MEDALS = {"🥇", "🥈", "🥉"};
+
+  // ---------- 工具 ----------
+  private static long groupId(OneBotGroupMessageEvent event) {
+    return Long.parseLong(event.getGroupId().toString());
+  }
+
+  private static String byType(Map<String, BigDecimal> byType) {
+    return "G1="
+        + fmt(byType.get("G1"))
+        + "h, G2="
+        + fmt(byType.get("G2"))
+        + "h, G3="
+        + fmt(byType.get("G3"))
+        + "h";
+  }
+
+  /** "G1=Xh, G2=Yh, G3=Zh"（区间内分类型小计） */
+  private static StringBuilder appendByType(StringBuilder sb, CompactOvertimeSummary s) {
+    for (int t = CompactOvertimeSummary.G1; t <= CompactOvertimeSummary.G3; t++) {
+      if (t > 0) sb.append(", ");
+      sb.append(CompactOvertimeSummary.typeName(t)).append('=');
+      appendHours(sb, s.totalCentis(t)).append('h');
+    }
+    return sb;
+  }
+
+  /** 每日一行 "MM-dd Xh"；没有记录时追加 empty */
+  private static StringBuilder appendDaily(StringBuilder sb, CompactOvertimeSummary s, String empty) {
+    if (s.recordDays() == 0) return sb.append(empty);
+    char[] monthDay = new char[5];
+    for (int i = 0; i < s.days(); i++) {
+      int centis = s.dailyCentis(i);
+      if (centis == 0) continue;
+      s.monthDay(i, monthDay, 0);
+      sb.append(monthDay).append(' ');
+      appendHours(sb, centis).append("h\n");
+    }
+    return sb;
+  }
+
+  /** 回复文本，并记录发送耗时（bot.reply） */
+  private void reply(OneBotGroupMessageEvent event, String text) {
+    metrics.sent(event.replyAsync(text));
+  }
+
   private static String fmt(BigDecimal x) {
     if (x == null) return "0";
     return x.stripTrailingZeros().toPlainString();
@@ -0,0 +1,46 @@
+package org.jdk.qq_bot.listener.command;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+
+/** 解析好的群指令；参数已校验并转成对应类型 */
+public sealed interface Command {
+
+  /** overtime help */
+  record Help() implements Command {}
+
+  /** overtime 2.5 / overtime G2 1.0 */
+  record AddOvertime(String type, BigDecimal hours) implements Command {}
+
+  /** overtime set [G2] YYMMDD 1.5 */
+  record SetOvertime(String type, LocalDate date, BigDecimal hours) implements Command {}
+
+  /** overtime del YYMMDD */
+  record DeleteOvertime(LocalDate date) implements Command {}
+
+  /** overtime query */
+  record QueryOvertime() implements Command {}
+
+  /** overtime query YYMM */
+  record QueryMonth(YearMonth month) implements Command {}
+
+  /** overtime week */
+  record QueryWeek() implements Command {}
+
+  /** overtime year [YYYY]；year 为 null 表示今年 */
+  record QueryYear(Year year) implements Command {}
+
+  /** overtime rank：本群本月排行 */
+  record Rank() implements Command {}
+
+  /** fy{word} */
+  record Translate(String word) implements Command {}
+
+  /** query{name} */
+  record LookupCityCodes(String name) implements Command {}
+
+  /** 认出了指令但参数不对：直接回复 reply */
+  record Invalid(String reply) implements Command {}
+}
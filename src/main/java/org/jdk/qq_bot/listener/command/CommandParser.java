@@ -0,0 +1,193 @@
+package org.jdk.qq_bot.listener.command;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 群消息的单遍指令解析：消息只切一次词，按首个关键字查前缀树分派，不是指令的消息走不到第一个词之后。
+ *
+ * <p>语法与原先各监听器上的 @Filter 正则一致：overtime 大小写不敏感、后面要有空白；fy / query 为前缀，参数可以紧跟。
+ */
+public final class CommandParser {
+
+  static final String SET_USAGE = "❌ 用法：overtime set YYMMDD 2.5 或 overtime set G2 YYMMDD 1.5";
+
+  private static final Command HELP = new Command.Help();
+  private static final Command QUERY = new Command.QueryOvertime();
+  private static final Command WEEK = new Command.QueryWeek();
+  private static final Command THIS_YEAR = new Command.QueryYear(null);
+  private static final Command RANK = new Command.Rank();
+
+  private interface Route {
+    /** rest 为关键字之后的原文；返回 null 表示不是指令 */
+    Command parse(String rest);
+  }
+
+  private static final KeywordTrie<Route> KEYWORDS = new KeywordTrie<>();
+
+  static {
+    KEYWORDS.put("overtime", false, CommandParser::overtime);
+    KEYWORDS.put("fy", true, rest -> rest.isBlank() ? null : new Command.Translate(rest.strip()));
+    KEYWORDS.put(
+        "query", true, rest -> rest.isBlank() ? null : new Command.LookupCityCodes(rest.strip()));
+  }
+
+  private CommandParser() {}
+
+  /** 解析一条群消息的纯文本；不是指令返回 null */
+  public static Command parse(String plainText) {
+    if (plainText == null) return null;
+    String text = plainText.strip();
+    KeywordTrie.Match<Route> m = KEYWORDS.match(text);
+    return m == null ? null : m.value().parse(text.substring(m.end()));
+  }
+
+  // overtime 之后的部分：help | query [YYMM] | week | year [YYYY] | rank | H | G1 H
+  //                   | set [G1] YYMMDD H | del(ete) YYMMDD
+  private static Command overtime(String rest) {
+    if (rest.isEmpty() || !Character.isWhitespace(rest.charAt(0))) return null;
+    List<String> t = tokens(rest);
+    String sub = t.isEmpty() ? "" : t.get(0).toLowerCase(Locale.ROOT);
+    switch (sub) {
+      case "help":
+        return t.size() == 1 ? HELP : null;
+      case "query":
+        if (t.size() == 1) return QUERY;
+        if (t.size() != 2 || !isDigits(t.get(1), 4)) return null;
+        YearMonth month = toYearMonth(t.get(1));
+        return month == null
+            ? new Command.Invalid("❌ 失败：无效月份：" + t.get(1))
+            : new Command.QueryMonth(month);
+      case "week":
+        return t.size() == 1 ? WEEK : null;
+      case "rank":
+        return t.size() == 1 ? RANK : null;
+      case "year":
+        if (t.size() == 1) return THIS_YEAR;
+        if (t.size() != 2 || !isDigits(t.get(1), 4)) return null;
+        int year = Integer.parseInt(t.get(1));
+        return year < 2000 || year > 2099
+            ? new Command.Invalid("❌ 失败：无效年份：" + t.get(1))
+            : new Command.QueryYear(Year.of(year));
+      case "set":
+        return set(t);
+      case "del":
+      case "delete":
+        if (t.size() != 2 || !isYyMmDd(t.get(1))) return null;
+        LocalDate date = toDate(t.get(1));
+        return date == null ? invalidDate(t.get(1)) : new Command.DeleteOvertime(date);
+      default:
+        if (t.size() == 1 && isHours(t.get(0))) {
+          return new Command.AddOvertime("G1", new BigDecimal(t.get(0)));
+        }
+        if (t.size() == 2 && isType(t.get(0)) && isHours(t.get(1))) {
+          return new Command.AddOvertime(
+              t.get(0).toUpperCase(Locale.ROOT), new BigDecimal(t.get(1)));
+        }
+        return null;
+    }
+  }
+
+  private static Command set(List<String> t) {
+    String type;
+    int i;
+    if (t.size() == 4 && isType(t.get(1))) {
+      type = t.get(1).toUpperCase(Locale.ROOT);
+      i = 2;
+    } else if (t.size() == 3) {
+      type = "G1";
+      i = 1;
+    } else {
+      return new Command.Invalid(SET_USAGE);
+    }
+    if (!isYyMmDd(t.get(i)) || !isHours(t.get(i + 1))) return new Command.Invalid(SET_USAGE);
+    LocalDate date = toDate(t.get(i));
+    return date == null
+        ? invalidDate(t.get(i))
+        : new Command.SetOvertime(type, date, new BigDecimal(t.get(i + 1)));
+  }
+
+  private static Command invalidDate(String yymmdd) {
+    return new Command.Invalid("❌ 失败：无效日期：" + yymmdd);
+  }
+
+  /** 按空白切词（等价于 \s+ 分隔） */
+  static List<String> tokens(String s) {
+    List<String> out = new ArrayList<>(4);
+    int i = 0;
+    int n = s.length();
+    while (i < n) {
+      while (i < n && Character.isWhitespace(s.charAt(i))) i++;
+      int start = i;
+      while (i < n && !Character.isWhitespace(s.charAt(i))) i++;
+      if (i > start) out.add(s.substring(start, i));
+    }
+    return out;
+  }
+
+  /** G1 / G2 / G3，大小写不敏感 */
+  static boolean isType(String s) {
+    return s.length() == 2
+        && (s.charAt(0) == 'G' || s.charAt(0) == 'g')
+        && s.charAt(1) >= '1'
+        && s.charAt(1) <= '3';
+  }
+
+  /** 整数或最多两位小数：\d+(\.\d{1,2})? */
+  static boolean isHours(String s) {
+    int n = s.length();
+    int i = 0;
+    while (i < n && isDigit(s.charAt(i))) i++;
+    if (i == 0) return false;
+    if (i == n) return true;
+    if (s.charAt(i) != '.') return false;
+    int frac = n - i - 1;
+    if (frac < 1 || frac > 2) return false;
+    for (int j = i + 1; j < n; j++) {
+      if (!isDigit(s.charAt(j))) return false;
+    }
+    return true;
+  }
+
+  static boolean isYyMmDd(String s) {
+    return isDigits(s, 6);
+  }
+
+  /** 恰好 n 位数字 */
+  private static boolean isDigits(String s, int n) {
+    if (s.length() != n) return false;
+    for (int i = 0; i < n; i++) {
+      if (!isDigit(s.charAt(i))) return false;
+    }
+    return true;
+  }
+
+  /** YYMM 按 20YY 解析；月份不存在返回 null */
+  static YearMonth toYearMonth(String yymm) {
+    int yy = Integer.parseInt(yymm, 0, 2, 10);
+    int mm = Integer.parseInt(yymm, 2, 4, 10);
+    return mm >= 1 && mm <= 12 ? YearMonth.of(2000 + yy, mm) : null;
+  }
+
+  /** YYMMDD 按 20YY 解析；日期不存在返回 null */
+  static LocalDate toDate(String yymmdd) {
+    int yy = Integer.parseInt(yymmdd, 0, 2, 10);
+    int mm = Integer.parseInt(yymmdd, 2, 4, 10);
+    int dd = Integer.parseInt(yymmdd, 4, 6, 10);
+    try {
+      return LocalDate.of(2000 + yy, mm, dd);
+    } catch (DateTimeException ex) {
+      return null;
+    }
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+}
@@ -0,0 +1,49 @@
+package org.jdk.qq_bot.listener.command;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 指令关键字前缀树：从消息开头逐字符往下走，第一个字符不在树里就立即放弃。
+ *
+ * <p>关键字按小写存；大小写敏感的关键字在命中后再核对一次原文。
+ */
+final class KeywordTrie<T> {
+
+  /** 命中的关键字：value 与关键字在原文中的结束位置 */
+  record Match<T>(T value, int end) {}
+
+  private static final class Node<T> {
+    final Map<Character, Node<T>> next = new HashMap<>(4);
+    String keyword;
+    boolean caseSensitive;
+    T value;
+  }
+
+  private final Node<T> root = new Node<>();
+
+  void put(String keyword, boolean caseSensitive, T value) {
+    Node<T> n = root;
+    for (int i = 0; i < keyword.length(); i++) {
+      n = n.next.computeIfAbsent(Character.toLowerCase(keyword.charAt(i)), c -> new Node<>());
+    }
+    n.keyword = keyword;
+    n.caseSensitive = caseSensitive;
+    n.value = value;
+  }
+
+  /** 最长匹配 text 开头的关键字；没有返回 null */
+  Match<T> match(String text) {
+    Node<T> n = root;
+    Match<T> best = null;
+    for (int i = 0; i < text.length(); i++) {
+      n = n.next.get(Character.toLowerCase(text.charAt(i)));
+      if (n == null) break;
+      if (n.value != null
+          && (!n.caseSensitive || text.regionMatches(0, n.keyword, 0, n.keyword.length()))) {
+        best = new Match<>(n.value, i + 1);
+      }
+    }
+    return best;
+  }
+}
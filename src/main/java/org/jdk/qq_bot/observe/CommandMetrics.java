@@ -0,0 +1,146 @@
+package org.jdk.qq_bot.observe;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * 指令及其下游调用的 Micrometer 计时（经 /actuator/prometheus 导出）。
+ *
+ * <p>{@link #run} 在执行线程上登记“当前指令”，同一线程上的 DB / 有道 / 回复计时据此打上 command 标签； 跑到别的线程上的回调（如图表渲染完成后发图）先用
+ * {@link #current()} 取到 {@link Scope} 再带过去。
+ *
+ * <p>所有计时器名以 bot. 开头，outcome 为 success / error（渲染另有 timeout）。
+ */
+@Component
+public class CommandMetrics {
+
+  /** 不在任何指令内（启动对账、合批写入线程等） */
+  public static final String NONE = "none";
+
+  private static final ThreadLocal<Scope> CURRENT = new ThreadLocal<>();
+
+  private final MeterRegistry registry;
+
+  public CommandMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  /** 一条指令的上下文：处理方法吞掉异常、自行回复失败时，调用 {@link #failed()} 把结果记为 error */
+  public final class Scope {
+    private final String command;
+    private volatile boolean failed;
+
+    private Scope(String command) {
+      this.command = command;
+    }
+
+    public String command() {
+      return command;
+    }
+
+    public void failed() {
+      failed = true;
+    }
+
+    /** 记录一次回复从发出到 OneBot 确认的耗时 */
+    public void sent(CompletionStage<?> reply) {
+      long t0 = System.nanoTime();
+      reply.whenComplete(
+          (r, ex) -> time("bot.reply", t0, "command", command, "outcome", outcome(ex)));
+    }
+  }
+
+  /** 在当前线程上以 command 为标签执行 body，记录耗时与结果；queuedAt 为入队时刻（nanoTime），另记排队耗时 */
+  public void run(String command, long queuedAt, Runnable body) {
+    Scope scope = new Scope(command);
+    Scope outer = CURRENT.get();
+    CURRENT.set(scope);
+    long t0 = System.nanoTime();
+    registry
+        .timer("bot.command.queue", "command", command)
+        .record(t0 - queuedAt, TimeUnit.NANOSECONDS);
+    try {
+      body.run();
+    } catch (RuntimeException | Error e) {
+      scope.failed();
+      throw e;
+    } finally {
+      time("bot.command", t0, "command", command, "outcome", scope.failed ? "error" : "success");
+      CURRENT.set(outer);
+    }
+  }
+
+  /** 当前线程上的指令；不在指令内时返回一个 command 为 none 的上下文 */
+  public Scope current() {
+    Scope scope = CURRENT.get();
+    return scope != null ? scope : new Scope(NONE);
+  }
+
+  public static String currentCommand() {
+    Scope scope = CURRENT.get();
+    return scope != null ? scope.command : NONE;
+  }
+
+  /** 当前指令记为失败（快捷方式） */
+  public void failed() {
+    Scope scope = CURRENT.get();
+    if (scope != null) scope.failed();
+  }
+
+  /** 记录一次回复（取当前线程上的指令） */
+  public void sent(CompletionStage<?> reply) {
+    current().sent(reply);
+  }
+
+  /** 一条 SQL 的耗时；method 为发起它的仓储方法（见 {@link SqlStats}） */
+  public void db(String method, long nanos, boolean failed) {
+    registry
+        .timer(
+            "bot.db",
+            "command",
+            currentCommand(),
+            "method",
+            method,
+            "outcome",
+            failed ? "error" : "success")
+        .record(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /** 计时一次有道接口调用 */
+  public <T> T youDao(Supplier<T> call) {
+    String command = currentCommand();
+    long t0 = System.nanoTime();
+    String outcome = "error";
+    try {
+      T result = call.get();
+      outcome = "success";
+      return result;
+    } finally {
+      time("bot.youdao", t0, "command", command, "outcome", outcome);
+    }
+  }
+
+  /** 记录一张图表从提交到拿到 PNG（或失败 / 超时）的耗时；command 需在提交线程上取好 */
+  public void rendered(String command, String chart, CompletionStage<?> png) {
+    long t0 = System.nanoTime();
+    png.whenComplete(
+        (r, ex) ->
+            time("bot.render", t0, "command", command, "chart", chart, "outcome", outcome(ex)));
+  }
+
+  private void time(String name, long t0, String... tags) {
+    registry.timer(name, tags).record(System.nanoTime() - t0, TimeUnit.NANOSECONDS);
+  }
+
+  private static String outcome(Throwable ex) {
+    if (ex == null) return "success";
+    Throwable cause =
+        ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+    return cause instanceof TimeoutException ? "timeout" : "error";
+  }
+}
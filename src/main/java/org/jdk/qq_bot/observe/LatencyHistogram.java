@@ -0,0 +1,74 @@
+package org.jdk.qq_bot.observe;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁延迟直方图：按对数分桶（每翻一倍 4 个桶，相邻上界约差 19%），覆盖 10µs ~ 160s。
+ *
+ * <p>记录只是一次二分查找加几个原子自增；分位数取所在桶的上界，误差不超过一个桶宽。
+ */
+public final class LatencyHistogram {
+
+  private static final long MIN_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+  private static final int BUCKETS = 96;
+
+  /** 各桶上界（含），最后一个桶之外另有一个溢出桶 */
+  private static final long[] UPPER = new long[BUCKETS];
+
+  static {
+    for (int i = 0; i < BUCKETS; i++) {
+      UPPER[i] = Math.round(MIN_NANOS * Math.pow(2, i / 4.0));
+    }
+  }
+
+  /** 次数 / 分位数 / 最大值 / 总耗时（毫秒） */
+  public record Snapshot(
+      long count, double p50Ms, double p90Ms, double p99Ms, double maxMs, double totalMs) {}
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+  private final LongAdder sumNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public void record(long nanos) {
+    int i = Arrays.binarySearch(UPPER, nanos);
+    counts.incrementAndGet(i >= 0 ? i : -i - 1);
+    sumNanos.add(nanos);
+    if (nanos > maxNanos.get()) maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  public Snapshot snapshot() {
+    long[] c = new long[BUCKETS + 1];
+    long n = 0;
+    for (int i = 0; i < c.length; i++) {
+      c[i] = counts.get(i);
+      n += c[i];
+    }
+    long max = maxNanos.get();
+    return new Snapshot(
+        n,
+        ms(percentile(c, n, 0.50, max)),
+        ms(percentile(c, n, 0.90, max)),
+        ms(percentile(c, n, 0.99, max)),
+        ms(max),
+        ms(sumNanos.sum()));
+  }
+
+  private static long percentile(long[] c, long n, double q, long max) {
+    if (n == 0) return 0;
+    long rank = (long) Math.ceil(q * n);
+    long seen = 0;
+    for (int i = 0; i < c.length; i++) {
+      seen += c[i];
+      if (seen >= rank) return i < BUCKETS ? Math.min(UPPER[i], max) : max;
+    }
+    return max;
+  }
+
+  private static double ms(long nanos) {
+    return Math.round(nanos / 1_000.0) / 1_000.0;
+  }
+}
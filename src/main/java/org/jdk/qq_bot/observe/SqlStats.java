@@ -0,0 +1,176 @@
+package org.jdk.qq_bot.observe;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import org.jdk.qq_bot.QqBotApplication;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 按“查询形状”统计 SQL 耗时：形状是 jOOQ 已渲染好的带 ? 的 SQL，再把变长的 IN 列表 / 多行 VALUES 折叠成一项。
+ *
+ * <p>发起方法（如 OvertimeLogRepository.insertAll）每次都顺着调用栈找：同一条 SQL 可能由不同方法发出。只有归一化结果按原始 SQL 缓存。
+ *
+ * <p>形状数量有上限，超出的归入 (other)，防止拼接 SQL 撑爆内存。
+ */
+@Component
+public class SqlStats {
+
+  static final String OTHER = "(other)";
+
+  private static final String APP_PACKAGE = QqBotApplication.class.getPackageName() + ".";
+  private static final String SELF_PACKAGE = SqlStats.class.getPackageName() + ".";
+  private static final String CONFIG_PACKAGE = APP_PACKAGE + "config.";
+
+  private static final Pattern SPACES = Pattern.compile("\\s+");
+  private static final Pattern BIND_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+  private static final Pattern ROW_LIST = Pattern.compile("(\\([^()]*\\))(?:\\s*,\\s*\\1)+");
+
+  /** 发起查询的方法 + 归一化后的 SQL */
+  public record Shape(String method, String sql) {}
+
+  /** 单个形状的统计 */
+  public record ShapeStats(
+      String method,
+      String sql,
+      long count,
+      long errors,
+      double p50Ms,
+      double p90Ms,
+      double p99Ms,
+      double maxMs,
+      double totalMs) {}
+
+  /** 按发起方法汇总的统计 */
+  public record MethodStats(
+      String method,
+      long count,
+      long errors,
+      double p50Ms,
+      double p90Ms,
+      double p99Ms,
+      double maxMs,
+      double totalMs) {}
+
+  /** 均按总耗时倒序 */
+  public record Report(List<MethodStats> methods, List<ShapeStats> shapes) {}
+
+  private static final class Entry {
+    final LatencyHistogram latency = new LatencyHistogram();
+    final LongAdder errors = new LongAdder();
+  }
+
+  private final int maxShapes;
+
+  /** 原始 SQL -> 归一化后的 SQL；同一条 SQL 只归一化一次 */
+  private final ConcurrentHashMap<String, String> normalized = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<Shape, Entry> byShape = new ConcurrentHashMap<>();
+  private final ConcurrentHashMap<String, Entry> byMethod = new ConcurrentHashMap<>();
+
+  public SqlStats(@Value("${sql.stats.max-shapes:500}") int maxShapes) {
+    this.maxShapes = maxShapes;
+  }
+
+  /** 原始 SQL 对应的形状，发起方法取自当前调用栈 */
+  public Shape shapeOf(String sql) {
+    String shape = normalized.get(sql);
+    if (shape == null) {
+      shape = normalize(sql);
+      if (normalized.size() < maxShapes * 4) normalized.putIfAbsent(sql, shape);
+    }
+    return new Shape(callerMethod(), shape);
+  }
+
+  public void record(Shape shape, long nanos, boolean failed) {
+    Entry e = byShape.get(shape);
+    if (e == null) {
+      Shape key = byShape.size() < maxShapes ? shape : new Shape(shape.method(), OTHER);
+      e = byShape.computeIfAbsent(key, k -> new Entry());
+    }
+    Entry m = byMethod.computeIfAbsent(shape.method(), k -> new Entry());
+    e.latency.record(nanos);
+    m.latency.record(nanos);
+    if (failed) {
+      e.errors.increment();
+      m.errors.increment();
+    }
+  }
+
+  public Report report() {
+    List<MethodStats> methods = new ArrayList<>();
+    byMethod.forEach(
+        (method, e) -> {
+          var s = e.latency.snapshot();
+          methods.add(
+              new MethodStats(
+                  method,
+                  s.count(),
+                  e.errors.sum(),
+                  s.p50Ms(),
+                  s.p90Ms(),
+                  s.p99Ms(),
+                  s.maxMs(),
+                  s.totalMs()));
+        });
+    List<ShapeStats> shapes = new ArrayList<>();
+    byShape.forEach(
+        (shape, e) -> {
+          var s = e.latency.snapshot();
+          shapes.add(
+              new ShapeStats(
+                  shape.method(),
+                  shape.sql(),
+                  s.count(),
+                  e.errors.sum(),
+                  s.p50Ms(),
+                  s.p90Ms(),
+                  s.p99Ms(),
+                  s.maxMs(),
+                  s.totalMs()));
+        });
+    methods.sort(Comparator.comparingDouble(MethodStats::totalMs).reversed());
+    shapes.sort(Comparator.comparingDouble(ShapeStats::totalMs).reversed());
+    return new Report(methods, shapes);
+  }
+
+  /** 折叠空白、变长绑定列表与重复的多行 VALUES */
+  static String normalize(String sql) {
+    String s = SPACES.matcher(sql.trim()).replaceAll(" ");
+    s = BIND_LIST.matcher(s).replaceAll("?, ...");
+    return ROW_LIST.matcher(s).replaceAll("$1, ...");
+  }
+
+  /** 调用栈上第一个业务方法（跳过本包与 config 包里的监听器），形如 OvertimeLogRepository.insertAll */
+  static String callerMethod() {
+    return StackWalker.getInstance()
+        .walk(
+            frames ->
+                frames
+                    .filter(
+                        f -> {
+                          String c = f.getClassName();
+                          return c.startsWith(APP_PACKAGE)
+                              && !c.startsWith(SELF_PACKAGE)
+                              && !c.startsWith(CONFIG_PACKAGE);
+                        })
+                    .findFirst()
+                    .map(f -> simpleName(f.getClassName()) + "." + methodName(f.getMethodName()))
+                    .orElse(OTHER));
+  }
+
+  private static String simpleName(String className) {
+    return className.substring(className.lastIndexOf('.') + 1);
+  }
+
+  /** lambda$insertAll$0 -> insertAll */
+  private static String methodName(String name) {
+    if (!name.startsWith("lambda$")) return name;
+    int end = name.indexOf('$', "lambda$".length());
+    return end > 0 ? name.substring("lambda$".length(), end) : name;
+  }
+}
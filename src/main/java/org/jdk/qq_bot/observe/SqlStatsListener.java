@@ -0,0 +1,80 @@
+package org.jdk.qq_bot.observe;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * jOOQ 执行监听：每条语句只记一次耗时（从 prepare 到结果取完）到 {@link SqlStats} 与 bot.db 计时器，不内联参数、不打日志。
+ *
+ * <p>只有超过慢查询阈值或被抽样命中时，才把参数内联渲染出完整 SQL 写日志。
+ */
+public class SqlStatsListener extends DefaultExecuteListener {
+
+  private static final Logger log = LoggerFactory.getLogger("jooq.sql");
+  private static final String T0 = SqlStatsListener.class.getName() + ".t0";
+  private static final int MAX_LOG_SQL = 800;
+
+  private final SqlStats stats;
+  private final CommandMetrics metrics;
+  private final long slowNanos;
+  private final double sampleRate;
+
+  public SqlStatsListener(SqlStats stats, CommandMetrics metrics, long slowMs, double sampleRate) {
+    this.stats = stats;
+    this.metrics = metrics;
+    this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowMs);
+    this.sampleRate = sampleRate;
+  }
+
+  @Override
+  public void prepareStart(ExecuteContext ctx) {
+    ctx.data(T0, System.nanoTime());
+  }
+
+  @Override
+  public void end(ExecuteContext ctx) {
+    Object t0 = ctx.data(T0);
+    if (t0 == null) return; // 渲染阶段就失败，没发到数据库
+    long nanos = System.nanoTime() - (long) t0;
+    String sql = sqlOf(ctx);
+    if (sql == null) return;
+
+    SqlStats.Shape shape = stats.shapeOf(sql);
+    boolean failed = ctx.exception() != null;
+    stats.record(shape, nanos, failed);
+    metrics.db(shape.method(), nanos, failed);
+
+    boolean slow = nanos >= slowNanos;
+    if (slow || (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+      String inlined = inline(ctx, sql);
+      long ms = TimeUnit.NANOSECONDS.toMillis(nanos);
+      if (slow) {
+        log.warn("[SQL] slow {}ms rows={} {} | {}", ms, rows(ctx), shape.method(), inlined);
+      } else {
+        log.info("[SQL] sampled {}ms rows={} {} | {}", ms, rows(ctx), shape.method(), inlined);
+      }
+    }
+  }
+
+  private static String sqlOf(ExecuteContext ctx) {
+    if (ctx.sql() != null) return ctx.sql();
+    String[] batch = ctx.batchSQL();
+    return batch.length > 0 ? batch[0] : null;
+  }
+
+  /** 仅用于日志：参数内联后的 SQL（截断） */
+  private static String inline(ExecuteContext ctx, String sql) {
+    String s =
+        ctx.query() != null ? DSL.using(ctx.configuration()).renderInlined(ctx.query()) : sql;
+    return s.length() > MAX_LOG_SQL ? s.substring(0, MAX_LOG_SQL) + " ..." : s;
+  }
+
+  private static int rows(ExecuteContext ctx) {
+    return ctx.result() != null ? ctx.result().size() : ctx.rows();
+  }
+}
@@ -0,0 +1,98 @@
+package org.jdk.qq_bot.observe;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import lombok.RequiredArgsConstructor;
+import org.jdk.qq_bot.config.ReplicaRoutingDataSource;
+import org.jdk.qq_bot.listener.CommandExecutor;
+import org.jdk.qq_bot.service.OvertimeRankCache;
+import org.jdk.qq_bot.service.OvertimeSummaryCache;
+import org.jdk.qq_bot.service.OvertimeWriteBatcher;
+import org.jdk.qq_bot.service.TranslateService;
+import org.jdk.qq_bot.service.archive.ChatArchive;
+import org.jdk.qq_bot.service.echats.ChartPngCache;
+import org.jdk.qq_bot.service.http.SharedHttpClient;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+/** 把各组件已有的 stats() 计数导出为 Micrometer 指标（抓取时才读取，不改动热路径） */
+@Component
+@RequiredArgsConstructor
+public class StatsMeterBinder implements MeterBinder {
+
+  private final CommandExecutor commands;
+  private final OvertimeSummaryCache summaryCache;
+  private final OvertimeRankCache rankCache;
+  private final OvertimeWriteBatcher writeBatcher;
+  private final TranslateService translate;
+  private final ChartPngCache pngCache;
+  private final SharedHttpClient http;
+  private final ChatArchive chatArchive;
+  private final ObjectProvider<ReplicaRoutingDataSource> replicaRouting;
+
+  @Override
+  public void bindTo(MeterRegistry r) {
+    counter(r, "bot.command.executed", commands, c -> c.stats().executed());
+    counter(r, "bot.command.rejected", commands, c -> c.stats().rejected());
+    gauge(r, "bot.command.pending", commands, c -> c.stats().pending());
+
+    counter(r, "bot.summary_cache.hits", summaryCache, c -> c.stats().hits());
+    counter(r, "bot.summary_cache.misses", summaryCache, c -> c.stats().misses());
+    counter(r, "bot.summary_cache.evictions", summaryCache, c -> c.stats().evictions());
+    gauge(r, "bot.summary_cache.size", summaryCache, c -> c.stats().size());
+
+    counter(r, "bot.rank_cache.hits", rankCache, c -> c.stats().hits());
+    counter(r, "bot.rank_cache.misses", rankCache, c -> c.stats().misses());
+    counter(r, "bot.rank_cache.evictions", rankCache, c -> c.stats().evictions());
+    gauge(r, "bot.rank_cache.size", rankCache, c -> c.stats().size());
+
+    counter(r, "bot.write_batch.rows", writeBatcher, b -> b.stats().rows());
+    counter(r, "bot.write_batch.batches", writeBatcher, b -> b.stats().batches());
+    counter(r, "bot.write_batch.failed", writeBatcher, b -> b.stats().failed());
+
+    counter(r, "bot.translate_cache.hits", translate, t -> t.stats().hits());
+    counter(r, "bot.translate_cache.misses", translate, t -> t.stats().misses());
+    counter(r, "bot.translate_cache.collapsed", translate, t -> t.stats().collapsed());
+    counter(r, "bot.translate_cache.evictions", translate, t -> t.stats().evictions());
+    gauge(r, "bot.translate_cache.size", translate, t -> t.stats().size());
+
+    counter(r, "bot.chart_cache.hits", pngCache, c -> c.stats().hits());
+    counter(r, "bot.chart_cache.misses", pngCache, c -> c.stats().misses());
+    counter(r, "bot.chart_cache.evictions", pngCache, c -> c.stats().evictions());
+    gauge(r, "bot.chart_cache.entries", pngCache, c -> c.stats().entries());
+    gauge(r, "bot.chart_cache.bytes", pngCache, c -> c.stats().bytes());
+
+    counter(r, "bot.http.requests", http, h -> h.stats().requests());
+    counter(r, "bot.http.failures", http, h -> h.stats().failures());
+    counter(r, "bot.http.connects", http, h -> h.stats().connects());
+    gauge(r, "bot.http.pool.leased", http, h -> h.stats().leased());
+    gauge(r, "bot.http.pool.available", http, h -> h.stats().available());
+    gauge(r, "bot.http.pool.pending", http, h -> h.stats().pending());
+
+    counter(r, "bot.chat_archive.appended", chatArchive, a -> a.stats().appended());
+    counter(r, "bot.chat_archive.dropped", chatArchive, a -> a.stats().dropped());
+    counter(r, "bot.chat_archive.written", chatArchive, a -> a.stats().written());
+    counter(r, "bot.chat_archive.bytes", chatArchive, a -> a.stats().bytes());
+    gauge(r, "bot.chat_archive.segments", chatArchive, a -> a.stats().segments());
+
+    // 只有启用了读写分离才有
+    replicaRouting.ifAvailable(
+        rr -> {
+          counter(r, "bot.replica.reads", rr, x -> x.stats().replicaReads());
+          counter(r, "bot.replica.fallback_reads", rr, x -> x.stats().primaryReads());
+          gauge(r, "bot.replica.healthy", rr, x -> x.stats().healthy() ? 1 : 0);
+          gauge(r, "bot.replica.lag_seconds", rr, x -> x.stats().lagSeconds());
+        });
+  }
+
+  private static <T> void counter(MeterRegistry r, String name, T obj, ToDoubleFunction<T> f) {
+    FunctionCounter.builder(name, obj, f).register(r);
+  }
+
+  private static <T> void gauge(MeterRegistry r, String name, T obj, ToDoubleFunction<T> f) {
+    Gauge.builder(name, obj, f).register(r);
+  }
+}
@@ -2,9 +2,11 @@ package org.jdk.qq_bot.repository;
 
 import static org.jooq.generated.tables.CityCode.CITY_CODE;
 
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.jdk.qq_bot.dto.CityCode;
 import org.jooq.DSLContext;
-import org.jooq.Record2;
+import org.jooq.Records;
 import org.springframework.stereotype.Repository;
 
 /** 城市编码数据访问 */
@@ -13,12 +15,11 @@ import org.springframework.stereotype.Repository;
 public class CityCodeRepository {
   private final DSLContext dsl;
 
-  /** 模糊匹配中文名，取命中的第一条（可按需改排序策略） */
-  public Record2<String, String> findTopByNameLike(String nameZh) {
-    return dsl.select(CITY_CODE.ADCODE, CITY_CODE.CITYCODE)
+  /** 全表读出（表很小，供内存索引加载） */
+  public List<CityCode> findAll() {
+    return dsl.select(CITY_CODE.NAME_ZH, CITY_CODE.ADCODE, CITY_CODE.CITYCODE)
         .from(CITY_CODE)
-        .where(CITY_CODE.NAME_ZH.like("%" + nameZh + "%"))
-        .limit(1)
-        .fetchOne();
+        .orderBy(CITY_CODE.ADCODE)
+        .fetch(Records.mapping(CityCode::new));
   }
 }
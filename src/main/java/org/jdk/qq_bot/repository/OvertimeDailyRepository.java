@@ -0,0 +1,180 @@
+package org.jdk.qq_bot.repository;
+
+import static org.jooq.generated.tables.OvertimeDaily.OVERTIME_DAILY;
+import static org.jooq.generated.tables.OvertimeLog.OVERTIME_LOG;
+import static org.jooq.impl.DSL.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.springframework.stereotype.Repository;
+
+/** 加班日汇总（overtime_daily）数据访问：随明细写入增量维护，供月度统计直接读取 */
+@Repository
+@RequiredArgsConstructor
+public class OvertimeDailyRepository {
+  private final DSLContext dsl;
+
+  /** 某用户某天（一个需要对账修复的单元） */
+  public record UserDay(long userId, LocalDate workDate) {}
+
+  private record DayKey(long userId, LocalDate workDate, String type) {}
+
+  /** 把一批新增明细累加进汇总：先在内存按 (用户, 日期, 类型) 合并，再一条多行 upsert */
+  public void addAll(Collection<OvertimeEntry> entries) {
+    if (entries.isEmpty()) return;
+    Map<DayKey, BigDecimal> merged = new LinkedHashMap<>();
+    for (OvertimeEntry e : entries) {
+      merged.merge(new DayKey(e.userId(), e.workDate(), e.type()), e.hours(), BigDecimal::add);
+    }
+    var insert =
+        dsl.insertInto(
+            OVERTIME_DAILY,
+            OVERTIME_DAILY.USER_ID,
+            OVERTIME_DAILY.WORK_DATE,
+            OVERTIME_DAILY.OT_TYPE,
+            OVERTIME_DAILY.HOURS);
+    for (var e : merged.entrySet()) {
+      DayKey k = e.getKey();
+      insert = insert.values(k.userId(), k.workDate(), k.type(), e.getValue());
+    }
+    insert
+        .onDuplicateKeyUpdate()
+        .set(OVERTIME_DAILY.HOURS, OVERTIME_DAILY.HOURS.plus(excluded(OVERTIME_DAILY.HOURS)))
+        .execute();
+  }
+
+  /** 覆盖某天：删掉当天所有类型，只保留指定类型与小时 */
+  public void replaceDay(long userId, LocalDate workDate, String type, BigDecimal hours) {
+    deleteDay(userId, workDate);
+    dsl.insertInto(OVERTIME_DAILY)
+        .set(OVERTIME_DAILY.USER_ID, userId)
+        .set(OVERTIME_DAILY.WORK_DATE, workDate)
+        .set(OVERTIME_DAILY.OT_TYPE, type)
+        .set(OVERTIME_DAILY.HOURS, hours)
+        .execute();
+  }
+
+  /** 删除某天的汇总 */
+  public int deleteDay(long userId, LocalDate workDate) {
+    return dsl.deleteFrom(OVERTIME_DAILY)
+        .where(OVERTIME_DAILY.USER_ID.eq(userId).and(OVERTIME_DAILY.WORK_DATE.eq(workDate)))
+        .execute();
+  }
+
+  /** 读区间内的日汇总（至多 天数 x 3 行），折叠为统计；区间至多 31 天 */
+  public CompactOvertimeSummary monthSummary(
+      long userId, LocalDate start, LocalDate end, LocalDate today) {
+    var rows =
+        dsl.select(OVERTIME_DAILY.WORK_DATE, OVERTIME_DAILY.OT_TYPE, OVERTIME_DAILY.HOURS)
+            .from(OVERTIME_DAILY)
+            .where(
+                OVERTIME_DAILY.USER_ID.eq(userId).and(OVERTIME_DAILY.WORK_DATE.between(start, end)))
+            .orderBy(OVERTIME_DAILY.WORK_DATE.asc(), OVERTIME_DAILY.OT_TYPE.asc())
+            .fetch();
+    return SummaryFold.fold(rows, start, end, today);
+  }
+
+  /** 区间内每天的总小时（不分类型，至多 366 行），日期升序；没有记录的日子不出现 */
+  public LinkedHashMap<LocalDate, BigDecimal> dailyTotals(
+      long userId, LocalDate start, LocalDate end) {
+    var out = new LinkedHashMap<LocalDate, BigDecimal>();
+    dsl.select(OVERTIME_DAILY.WORK_DATE, sum(OVERTIME_DAILY.HOURS))
+        .from(OVERTIME_DAILY)
+        .where(OVERTIME_DAILY.USER_ID.eq(userId).and(OVERTIME_DAILY.WORK_DATE.between(start, end)))
+        .groupBy(OVERTIME_DAILY.WORK_DATE)
+        .orderBy(OVERTIME_DAILY.WORK_DATE.asc())
+        .fetch()
+        .forEach(r -> out.put(r.value1(), r.value2()));
+    return out;
+  }
+
+  /** 对账：找出汇总与明细 SUM 不一致（含任一侧缺行）的 (用户, 日期) */
+  public Set<UserDay> findMismatchedDays() {
+    Field<BigDecimal> sumHours = sum(OVERTIME_LOG.HOURS).as("hours");
+    var raw =
+        select(OVERTIME_LOG.USER_ID, OVERTIME_LOG.WORK_DATE, OVERTIME_LOG.OT_TYPE, sumHours)
+            .from(OVERTIME_LOG)
+            .groupBy(OVERTIME_LOG.USER_ID, OVERTIME_LOG.WORK_DATE, OVERTIME_LOG.OT_TYPE)
+            .asTable("r");
+    Field<Long> rUser = raw.field(OVERTIME_LOG.USER_ID);
+    Field<LocalDate> rDate = raw.field(OVERTIME_LOG.WORK_DATE);
+    Field<String> rType = raw.field(OVERTIME_LOG.OT_TYPE);
+    Field<BigDecimal> rHours = raw.field(sumHours);
+    var joinOn =
+        OVERTIME_DAILY
+            .USER_ID
+            .eq(rUser)
+            .and(OVERTIME_DAILY.WORK_DATE.eq(rDate))
+            .and(OVERTIME_DAILY.OT_TYPE.eq(rType));
+
+    Set<UserDay> out = new LinkedHashSet<>();
+    // 明细有、汇总缺或不等
+    dsl.select(rUser, rDate)
+        .from(raw)
+        .leftJoin(OVERTIME_DAILY)
+        .on(joinOn)
+        .where(OVERTIME_DAILY.HOURS.isNull().or(OVERTIME_DAILY.HOURS.ne(rHours)))
+        .fetch()
+        .forEach(r -> out.add(new UserDay(r.value1(), r.value2())));
+    // 汇总有、明细没有
+    dsl.select(OVERTIME_DAILY.USER_ID, OVERTIME_DAILY.WORK_DATE)
+        .from(OVERTIME_DAILY)
+        .leftJoin(raw)
+        .on(joinOn)
+        .where(rHours.isNull())
+        .fetch()
+        .forEach(r -> out.add(new UserDay(r.value1(), r.value2())));
+    return out;
+  }
+
+  /** 按明细重算某天的汇总（先删后插） */
+  public void rebuildDay(long userId, LocalDate workDate) {
+    deleteDay(userId, workDate);
+    dsl.insertInto(
+            OVERTIME_DAILY,
+            OVERTIME_DAILY.USER_ID,
+            OVERTIME_DAILY.WORK_DATE,
+            OVERTIME_DAILY.OT_TYPE,
+            OVERTIME_DAILY.HOURS)
+        .select(
+            select(
+                    OVERTIME_LOG.USER_ID,
+                    OVERTIME_LOG.WORK_DATE,
+                    OVERTIME_LOG.OT_TYPE,
+                    sum(OVERTIME_LOG.HOURS))
+                .from(OVERTIME_LOG)
+                .where(OVERTIME_LOG.USER_ID.eq(userId).and(OVERTIME_LOG.WORK_DATE.eq(workDate)))
+                .groupBy(OVERTIME_LOG.USER_ID, OVERTIME_LOG.WORK_DATE, OVERTIME_LOG.OT_TYPE))
+        .execute();
+  }
+
+  /** 全量重建：清空汇总后按明细重新聚合，返回写入行数 */
+  public int rebuildAll() {
+    dsl.deleteFrom(OVERTIME_DAILY).execute();
+    return dsl.insertInto(
+            OVERTIME_DAILY,
+            OVERTIME_DAILY.USER_ID,
+            OVERTIME_DAILY.WORK_DATE,
+            OVERTIME_DAILY.OT_TYPE,
+            OVERTIME_DAILY.HOURS)
+        .select(
+            select(
+                    OVERTIME_LOG.USER_ID,
+                    OVERTIME_LOG.WORK_DATE,
+                    OVERTIME_LOG.OT_TYPE,
+                    sum(OVERTIME_LOG.HOURS))
+                .from(OVERTIME_LOG)
+                .groupBy(OVERTIME_LOG.USER_ID, OVERTIME_LOG.WORK_DATE, OVERTIME_LOG.OT_TYPE))
+        .execute();
+  }
+}
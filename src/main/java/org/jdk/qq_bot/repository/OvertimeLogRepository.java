@@ -6,10 +6,18 @@ import static org.jooq.impl.DSL.*;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import lombok.RequiredArgsConstructor;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jooq.Condition;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
+import org.jooq.Record6;
+import org.jooq.SQLDialect;
 import org.springframework.stereotype.Repository;
 
 /** 加班记录数据访问（写入 + 各类聚合查询） */
@@ -20,8 +28,15 @@ public class OvertimeLogRepository {
 
   /** 插入一条加班记录 */
   public void insert(long userId, LocalDate workDate, String type, BigDecimal hours, String note) {
+    insert(userId, workDate, type, hours, note, null);
+  }
+
+  /** 插入一条加班记录，groupId 为录入所在的群（可空） */
+  public void insert(
+      long userId, LocalDate workDate, String type, BigDecimal hours, String note, Long groupId) {
     dsl.insertInto(OVERTIME_LOG)
         .set(OVERTIME_LOG.USER_ID, userId)
+        .set(OVERTIME_LOG.GROUP_ID, groupId)
         .set(OVERTIME_LOG.WORK_DATE, workDate) // jOOQ 列为 LocalDate 映射
         .set(OVERTIME_LOG.OT_TYPE, type)
         .set(OVERTIME_LOG.HOURS, hours)
@@ -29,6 +44,24 @@ public class OvertimeLogRepository {
         .execute();
   }
 
+  /** 多行 INSERT 一次写入多条加班记录 */
+  public void insertAll(Collection<OvertimeEntry> entries) {
+    if (entries.isEmpty()) return;
+    var insert =
+        dsl.insertInto(
+            OVERTIME_LOG,
+            OVERTIME_LOG.USER_ID,
+            OVERTIME_LOG.WORK_DATE,
+            OVERTIME_LOG.OT_TYPE,
+            OVERTIME_LOG.HOURS,
+            OVERTIME_LOG.NOTE,
+            OVERTIME_LOG.GROUP_ID);
+    for (OvertimeEntry e : entries) {
+      insert = insert.values(e.userId(), e.workDate(), e.type(), e.hours(), e.note(), e.groupId());
+    }
+    insert.execute();
+  }
+
   /** 返回指定用户在指定日期范围内的加班总小时数（可能为 0） */
   public BigDecimal monthTotal(long userId, LocalDate start, LocalDate end) {
     return dsl.select(coalesce(sum(OVERTIME_LOG.HOURS), inline(BigDecimal.ZERO)))
@@ -83,6 +116,60 @@ public class OvertimeLogRepository {
     return out;
   }
 
+  /** 单次查询按 (work_date, ot_type) 分组，内存折叠出区间统计（含 today 与分类型小计；区间至多 31 天） */
+  public CompactOvertimeSummary monthSummary(
+      long userId, LocalDate start, LocalDate end, LocalDate today) {
+    var rows =
+        dsl.select(OVERTIME_LOG.WORK_DATE, OVERTIME_LOG.OT_TYPE, sum(OVERTIME_LOG.HOURS))
+            .from(OVERTIME_LOG)
+            .where(OVERTIME_LOG.USER_ID.eq(userId).and(OVERTIME_LOG.WORK_DATE.between(start, end)))
+            .groupBy(OVERTIME_LOG.WORK_DATE, OVERTIME_LOG.OT_TYPE)
+            .orderBy(OVERTIME_LOG.WORK_DATE.asc(), OVERTIME_LOG.OT_TYPE.asc())
+            .fetch();
+    return SummaryFold.fold(rows, start, end, today);
+  }
+
+  /** 某群在日期范围内每人的加班总小时（只含有记录的人）；只读覆盖索引 idx_group_date */
+  public Map<Long, BigDecimal> groupTotals(long groupId, LocalDate start, LocalDate end) {
+    var out = new HashMap<Long, BigDecimal>();
+    dsl.select(OVERTIME_LOG.USER_ID, sum(OVERTIME_LOG.HOURS))
+        .from(OVERTIME_LOG)
+        .where(OVERTIME_LOG.GROUP_ID.eq(groupId).and(OVERTIME_LOG.WORK_DATE.between(start, end)))
+        .groupBy(OVERTIME_LOG.USER_ID)
+        .fetch()
+        .forEach(r -> out.put(r.value1(), r.value2()));
+    return out;
+  }
+
+  /**
+   * 按 id 顺序流式读取明细（from / to / userId 均可为空表示不限），列为 user_id, group_id, work_date, ot_type, hours,
+   * note；调用方负责关闭 Cursor。
+   */
+  public Cursor<Record6<Long, Long, LocalDate, String, BigDecimal, String>> cursor(
+      LocalDate from, LocalDate to, Long userId) {
+    Condition where = noCondition();
+    if (from != null) where = where.and(OVERTIME_LOG.WORK_DATE.ge(from));
+    if (to != null) where = where.and(OVERTIME_LOG.WORK_DATE.le(to));
+    if (userId != null) where = where.and(OVERTIME_LOG.USER_ID.eq(userId));
+    return dsl.select(
+            OVERTIME_LOG.USER_ID,
+            OVERTIME_LOG.GROUP_ID,
+            OVERTIME_LOG.WORK_DATE,
+            OVERTIME_LOG.OT_TYPE,
+            OVERTIME_LOG.HOURS,
+            OVERTIME_LOG.NOTE)
+        .from(OVERTIME_LOG)
+        .where(where)
+        .orderBy(OVERTIME_LOG.ID)
+        .fetchSize(streamingFetchSize())
+        .fetchLazy();
+  }
+
+  // Connector/J 只有 fetchSize = Integer.MIN_VALUE 才逐行读取，否则先把整个结果集读进内存
+  private int streamingFetchSize() {
+    return dsl.dialect().family() == SQLDialect.MYSQL ? Integer.MIN_VALUE : 1000;
+  }
+
   /** 删除某用户某天的所有加班记录，返回删除行数 */
   public int deleteByUserIdAndWorkDate(long userId, LocalDate workDate) {
     return dsl.deleteFrom(OVERTIME_LOG)
@@ -0,0 +1,177 @@
+package org.jdk.qq_bot.repository;
+
+import static org.jooq.generated.tables.OvertimeDaily.OVERTIME_DAILY;
+import static org.jooq.generated.tables.OvertimeMonthly.OVERTIME_MONTHLY;
+import static org.jooq.impl.DSL.*;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import lombok.RequiredArgsConstructor;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.springframework.stereotype.Repository;
+
+/** 加班月汇总（overtime_monthly）数据访问：随日汇总维护，供年度报表直接读取 */
+@Repository
+@RequiredArgsConstructor
+public class OvertimeMonthlyRepository {
+  private final DSLContext dsl;
+
+  /** 某用户某月（一个需要对账修复的单元） */
+  public record UserMonth(long userId, YearMonth month) {}
+
+  private record MonthKey(long userId, int ym, String type) {}
+
+  /** ym 列的取值：2025-08 -> 202508 */
+  public static int ym(YearMonth month) {
+    return month.getYear() * 100 + month.getMonthValue();
+  }
+
+  static YearMonth toYearMonth(int ym) {
+    return YearMonth.of(ym / 100, ym % 100);
+  }
+
+  /** 把一批新增明细累加进月汇总：先在内存按 (用户, 年月, 类型) 合并，再一条多行 upsert */
+  public void addAll(Collection<OvertimeEntry> entries) {
+    if (entries.isEmpty()) return;
+    Map<MonthKey, BigDecimal> merged = new LinkedHashMap<>();
+    for (OvertimeEntry e : entries) {
+      merged.merge(
+          new MonthKey(e.userId(), ym(YearMonth.from(e.workDate())), e.type()),
+          e.hours(),
+          BigDecimal::add);
+    }
+    var insert =
+        dsl.insertInto(
+            OVERTIME_MONTHLY,
+            OVERTIME_MONTHLY.USER_ID,
+            OVERTIME_MONTHLY.YM,
+            OVERTIME_MONTHLY.OT_TYPE,
+            OVERTIME_MONTHLY.HOURS);
+    for (var e : merged.entrySet()) {
+      MonthKey k = e.getKey();
+      insert = insert.values(k.userId(), k.ym(), k.type(), e.getValue());
+    }
+    insert
+        .onDuplicateKeyUpdate()
+        .set(OVERTIME_MONTHLY.HOURS, OVERTIME_MONTHLY.HOURS.plus(excluded(OVERTIME_MONTHLY.HOURS)))
+        .execute();
+  }
+
+  /** 按日汇总重算某用户某月（先删后插，至多 93 行聚合成 3 行）；set / del 改写某天后调用 */
+  public void rebuildMonth(long userId, YearMonth month) {
+    dsl.deleteFrom(OVERTIME_MONTHLY)
+        .where(OVERTIME_MONTHLY.USER_ID.eq(userId).and(OVERTIME_MONTHLY.YM.eq(ym(month))))
+        .execute();
+    dsl.insertInto(
+            OVERTIME_MONTHLY,
+            OVERTIME_MONTHLY.USER_ID,
+            OVERTIME_MONTHLY.YM,
+            OVERTIME_MONTHLY.OT_TYPE,
+            OVERTIME_MONTHLY.HOURS)
+        .select(
+            select(
+                    OVERTIME_DAILY.USER_ID,
+                    inline(ym(month)),
+                    OVERTIME_DAILY.OT_TYPE,
+                    sum(OVERTIME_DAILY.HOURS))
+                .from(OVERTIME_DAILY)
+                .where(
+                    OVERTIME_DAILY
+                        .USER_ID
+                        .eq(userId)
+                        .and(
+                            OVERTIME_DAILY.WORK_DATE.between(month.atDay(1), month.atEndOfMonth())))
+                .groupBy(OVERTIME_DAILY.USER_ID, OVERTIME_DAILY.OT_TYPE))
+        .execute();
+  }
+
+  /** 某年各月的分类型小计（至多 36 行），年月升序；分类型 map 不补 0 */
+  public LinkedHashMap<YearMonth, Map<String, BigDecimal>> yearByMonth(long userId, int year) {
+    var out = new LinkedHashMap<YearMonth, Map<String, BigDecimal>>();
+    dsl.select(OVERTIME_MONTHLY.YM, OVERTIME_MONTHLY.OT_TYPE, OVERTIME_MONTHLY.HOURS)
+        .from(OVERTIME_MONTHLY)
+        .where(
+            OVERTIME_MONTHLY
+                .USER_ID
+                .eq(userId)
+                .and(OVERTIME_MONTHLY.YM.between(year * 100 + 1, year * 100 + 12)))
+        .orderBy(OVERTIME_MONTHLY.YM.asc(), OVERTIME_MONTHLY.OT_TYPE.asc())
+        .fetch()
+        .forEach(
+            r ->
+                out.computeIfAbsent(toYearMonth(r.value1()), k -> new LinkedHashMap<>())
+                    .put(r.value2(), r.value3()));
+    return out;
+  }
+
+  /** 对账：找出月汇总与日汇总 SUM 不一致（含任一侧缺行）的 (用户, 年月) */
+  public Set<UserMonth> findMismatchedMonths() {
+    Field<Integer> ymOfDay =
+        year(OVERTIME_DAILY.WORK_DATE).mul(inline(100)).plus(month(OVERTIME_DAILY.WORK_DATE));
+    Field<Integer> ymAlias = ymOfDay.as("ym");
+    Field<BigDecimal> sumHours = sum(OVERTIME_DAILY.HOURS).as("hours");
+    var daily =
+        select(OVERTIME_DAILY.USER_ID, ymAlias, OVERTIME_DAILY.OT_TYPE, sumHours)
+            .from(OVERTIME_DAILY)
+            .groupBy(OVERTIME_DAILY.USER_ID, ymOfDay, OVERTIME_DAILY.OT_TYPE)
+            .asTable("d");
+    Field<Long> dUser = daily.field(OVERTIME_DAILY.USER_ID);
+    Field<Integer> dYm = daily.field(ymAlias);
+    Field<String> dType = daily.field(OVERTIME_DAILY.OT_TYPE);
+    Field<BigDecimal> dHours = daily.field(sumHours);
+    var joinOn =
+        OVERTIME_MONTHLY
+            .USER_ID
+            .eq(dUser)
+            .and(OVERTIME_MONTHLY.YM.eq(dYm))
+            .and(OVERTIME_MONTHLY.OT_TYPE.eq(dType));
+
+    Set<UserMonth> out = new LinkedHashSet<>();
+    // 日汇总有、月汇总缺或不等
+    dsl.select(dUser, dYm)
+        .from(daily)
+        .leftJoin(OVERTIME_MONTHLY)
+        .on(joinOn)
+        .where(OVERTIME_MONTHLY.HOURS.isNull().or(OVERTIME_MONTHLY.HOURS.ne(dHours)))
+        .fetch()
+        .forEach(r -> out.add(new UserMonth(r.value1(), toYearMonth(r.value2()))));
+    // 月汇总有、日汇总没有
+    dsl.select(OVERTIME_MONTHLY.USER_ID, OVERTIME_MONTHLY.YM)
+        .from(OVERTIME_MONTHLY)
+        .leftJoin(daily)
+        .on(joinOn)
+        .where(dHours.isNull())
+        .fetch()
+        .forEach(r -> out.add(new UserMonth(r.value1(), toYearMonth(r.value2()))));
+    return out;
+  }
+
+  /** 全量重建：清空月汇总后按日汇总重新聚合，返回写入行数 */
+  public int rebuildAll() {
+    Field<Integer> ymOfDay =
+        year(OVERTIME_DAILY.WORK_DATE).mul(inline(100)).plus(month(OVERTIME_DAILY.WORK_DATE));
+    dsl.deleteFrom(OVERTIME_MONTHLY).execute();
+    return dsl.insertInto(
+            OVERTIME_MONTHLY,
+            OVERTIME_MONTHLY.USER_ID,
+            OVERTIME_MONTHLY.YM,
+            OVERTIME_MONTHLY.OT_TYPE,
+            OVERTIME_MONTHLY.HOURS)
+        .select(
+            select(
+                    OVERTIME_DAILY.USER_ID,
+                    ymOfDay,
+                    OVERTIME_DAILY.OT_TYPE,
+                    sum(OVERTIME_DAILY.HOURS))
+                .from(OVERTIME_DAILY)
+                .groupBy(OVERTIME_DAILY.USER_ID, ymOfDay, OVERTIME_DAILY.OT_TYPE))
+        .execute();
+  }
+}
@@ -0,0 +1,24 @@
+package org.jdk.qq_bot.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jooq.Record3;
+
+/** 把 [start, end] 内按 (work_date, ot_type) 分组的小计行折叠成 {@link CompactOvertimeSummary} */
+final class SummaryFold {
+  private SummaryFold() {}
+
+  static CompactOvertimeSummary fold(
+      Iterable<? extends Record3<LocalDate, String, BigDecimal>> rows,
+      LocalDate start,
+      LocalDate end,
+      LocalDate today) {
+    var b = CompactOvertimeSummary.builder(start, end);
+    for (var r : rows) {
+      if (r.value3() == null) continue;
+      b.add(r.value1(), r.value2(), r.value3(), today);
+    }
+    return b.build();
+  }
+}
@@ -1,19 +1,24 @@
 package org.jdk.qq_bot.service;
 
+import java.util.List;
 import lombok.RequiredArgsConstructor;
+import org.jdk.qq_bot.dto.CityCode;
 import org.jdk.qq_bot.dto.CodesResponse;
-import org.jdk.qq_bot.repository.CityCodeRepository;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class CityCodeService {
-  private final CityCodeRepository repo;
+  private final CityNameIndex index;
 
-  /** 根据中文名（模糊）返回 adCode、cityCode；找不到返回 null */
+  /** 根据中文名（模糊）返回最匹配的 adCode、cityCode；找不到返回 null */
   public CodesResponse getCodesByName(String nameZh) {
-    if (nameZh == null || nameZh.isBlank()) return null;
-    var r = repo.findTopByNameLike(nameZh.trim());
-    return (r == null) ? null : new CodesResponse(r.value1(), r.value2());
+    var top = index.search(nameZh, 1);
+    return top.isEmpty() ? null : new CodesResponse(top.get(0).adCode(), top.get(0).cityCode());
+  }
+
+  /** 根据中文名返回前 limit 个候选（完全匹配 &gt; 前缀 &gt; 包含，名字短的优先） */
+  public List<CityCode> searchByName(String nameZh, int limit) {
+    return index.search(nameZh, limit);
   }
 }
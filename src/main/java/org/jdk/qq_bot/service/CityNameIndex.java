@@ -0,0 +1,104 @@
+package org.jdk.qq_bot.service;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.dto.CityCode;
+import org.jdk.qq_bot.repository.CityCodeRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * 城市名内存索引：启动时把 city_code 全表装入，按单字建倒排表，替代 LIKE '%x%' 全表扫描。
+ *
+ * <p>查询取关键字里倒排表最短的那个字做候选，再逐个校验子串；结果按 完全匹配 &gt; 前缀 &gt; 包含 排序，同级名字短的优先。
+ *
+ * <p>索引是不可变快照，重新加载时整体替换引用，查询中途不会看到半个索引。
+ */
+@Slf4j
+@Component
+public class CityNameIndex {
+
+  private static final int[] EMPTY = new int[0];
+
+  private static final Comparator<Hit> ORDER =
+      Comparator.comparingInt(Hit::rank)
+          .thenComparingInt(h -> h.city().nameZh().length())
+          .thenComparingInt(Hit::pos)
+          .thenComparing(h -> h.city().adCode());
+
+  /** 一次命中：rank 0 完全匹配 / 1 前缀 / 2 包含，pos 为出现位置 */
+  private record Hit(CityCode city, int rank, int pos) {}
+
+  /** 不可变快照：cities 与 postings 里的下标一一对应 */
+  private record Snapshot(CityCode[] cities, Map<Character, int[]> postings) {}
+
+  private final CityCodeRepository repo;
+  private volatile Snapshot snapshot = new Snapshot(new CityCode[0], Map.of());
+
+  public CityNameIndex(CityCodeRepository repo) {
+    this.repo = repo;
+  }
+
+  /** 从库里重新加载；加载期间查询继续使用旧快照 */
+  @PostConstruct
+  public void reload() {
+    long t0 = System.currentTimeMillis();
+    install(repo.findAll());
+    log.info(
+        "[CityIndex] loaded {} cities in {} ms",
+        snapshot.cities().length,
+        System.currentTimeMillis() - t0);
+  }
+
+  /** 用给定数据构建新快照并替换 */
+  void install(Collection<CityCode> rows) {
+    CityCode[] cities = rows.toArray(new CityCode[0]);
+    Map<Character, List<Integer>> lists = new HashMap<>();
+    for (int i = 0; i < cities.length; i++) {
+      String name = cities[i].nameZh();
+      for (int j = 0; j < name.length(); j++) {
+        List<Integer> ids = lists.computeIfAbsent(name.charAt(j), c -> new ArrayList<>());
+        // 同一个名字里重复的字只记一次（下标递增，比较末尾即可）
+        if (ids.isEmpty() || ids.get(ids.size() - 1) != i) ids.add(i);
+      }
+    }
+    Map<Character, int[]> postings = new HashMap<>(lists.size() * 2);
+    lists.forEach((c, ids) -> postings.put(c, ids.stream().mapToInt(Integer::intValue).toArray()));
+    snapshot = new Snapshot(cities, postings);
+  }
+
+  /** 按名字查找，返回排序后的前 limit 个候选；没有命中返回空列表 */
+  public List<CityCode> search(String name, int limit) {
+    if (name == null || limit <= 0) return List.of();
+    String q = name.trim();
+    if (q.isEmpty()) return List.of();
+
+    Snapshot s = snapshot;
+    int[] candidates = null;
+    for (int i = 0; i < q.length(); i++) {
+      int[] ids = s.postings().getOrDefault(q.charAt(i), EMPTY);
+      if (candidates == null || ids.length < candidates.length) candidates = ids;
+      if (ids.length == 0) return List.of();
+    }
+
+    List<Hit> hits = new ArrayList<>();
+    for (int id : candidates) {
+      CityCode c = s.cities()[id];
+      int pos = c.nameZh().indexOf(q);
+      if (pos < 0) continue;
+      int rank = pos > 0 ? 2 : c.nameZh().length() == q.length() ? 0 : 1;
+      hits.add(new Hit(c, rank, pos));
+    }
+    return hits.stream().sorted(ORDER).limit(limit).map(Hit::city).toList();
+  }
+
+  /** 当前快照里的城市数 */
+  public int size() {
+    return snapshot.cities().length;
+  }
+}
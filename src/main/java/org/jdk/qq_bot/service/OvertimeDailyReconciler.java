@@ -0,0 +1,107 @@
+package org.jdk.qq_bot.service;
+
+import java.util.Set;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository.UserDay;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository.UserMonth;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 汇总表对账：overtime_daily 对 overtime_log 找出 SUM 不一致的 (用户, 日期) 并按明细重算， 再用（已修好的）overtime_daily 核对
+ * overtime_monthly，不一致的 (用户, 年月) 按日汇总重算。
+ *
+ * <p>默认启动时执行一次，首次上线时也就顺带完成了历史数据回填。
+ */
+@Slf4j
+@Component
+public class OvertimeDailyReconciler {
+
+  private final OvertimeDailyRepository dailyRepo;
+  private final OvertimeMonthlyRepository monthlyRepo;
+  private final OvertimeSummaryCache summaryCache;
+  private final TransactionTemplate tx;
+  private final boolean onStartup;
+
+  public OvertimeDailyReconciler(
+      OvertimeDailyRepository dailyRepo,
+      OvertimeMonthlyRepository monthlyRepo,
+      OvertimeSummaryCache summaryCache,
+      TransactionTemplate tx,
+      @Value("${overtime.daily.reconcile-on-startup:true}") boolean onStartup) {
+    this.dailyRepo = dailyRepo;
+    this.monthlyRepo = monthlyRepo;
+    this.summaryCache = summaryCache;
+    this.tx = tx;
+    this.onStartup = onStartup;
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  void reconcileOnStartup() {
+    if (!onStartup) return;
+    try {
+      reconcile(true);
+    } catch (Exception e) {
+      log.error("[OvertimeDaily] startup reconcile failed", e);
+    }
+  }
+
+  /** 校验汇总表；repair=true 时逐天 / 逐月重算不一致的部分。返回不一致的天数 + 月数 */
+  public int reconcile(boolean repair) {
+    return reconcileDaily(repair) + reconcileMonthly(repair);
+  }
+
+  private int reconcileDaily(boolean repair) {
+    Set<UserDay> mismatched = dailyRepo.findMismatchedDays();
+    if (mismatched.isEmpty()) {
+      log.info("[OvertimeDaily] verified, no drift");
+      return 0;
+    }
+    log.warn(
+        "[OvertimeDaily] {} day(s) drifted from overtime_log, repair={}",
+        mismatched.size(),
+        repair);
+    if (repair) {
+      for (UserDay d : mismatched) {
+        tx.executeWithoutResult(
+            status -> {
+              dailyRepo.rebuildDay(d.userId(), d.workDate());
+              summaryCache.invalidate(d.userId(), d.workDate());
+            });
+      }
+    }
+    return mismatched.size();
+  }
+
+  // 首次上线时月汇总为空，这里即完成回填
+  private int reconcileMonthly(boolean repair) {
+    Set<UserMonth> mismatched = monthlyRepo.findMismatchedMonths();
+    if (mismatched.isEmpty()) {
+      log.info("[OvertimeMonthly] verified, no drift");
+      return 0;
+    }
+    log.warn(
+        "[OvertimeMonthly] {} month(s) drifted from overtime_daily, repair={}",
+        mismatched.size(),
+        repair);
+    if (repair) {
+      for (UserMonth m : mismatched) {
+        tx.executeWithoutResult(status -> monthlyRepo.rebuildMonth(m.userId(), m.month()));
+      }
+    }
+    return mismatched.size();
+  }
+
+  /** 全量重建日 / 月汇总表（单事务），返回日汇总行数 */
+  public int rebuildAll() {
+    int[] rows = tx.execute(status -> new int[] {dailyRepo.rebuildAll(), monthlyRepo.rebuildAll()});
+    summaryCache.invalidateAll();
+    log.info("[OvertimeDaily] rebuilt, {} daily row(s), {} monthly row(s)", rows[0], rows[1]);
+    return rows[0];
+  }
+}
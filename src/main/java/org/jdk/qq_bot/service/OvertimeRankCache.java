@@ -0,0 +1,224 @@
+package org.jdk.qq_bot.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.config.ReplicaScope;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.dto.OvertimeRank;
+import org.jdk.qq_bot.service.cache.LruMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 群内月度加班排行：key 为 (groupId, YearMonth)，每个榜保存该群本月所有有记录成员的合计（单位 0.01h）及按小时排好序的集合。
+ *
+ * <p>取前 N 名只需从有序集合开头遍历 N 个，不再对明细做 GROUP BY；榜不在内存时由 loader 聚合一次（走覆盖索引 idx_group_date）。
+ *
+ * <p>每批录入提交后按增量更新；set / del 改写某天时丢掉受影响的榜，下次查询再重建。容量上限按 LRU 淘汰，跨月的旧榜自然被挤掉。
+ *
+ * <p>录入按 (群, 月) 登记到 {@link ReplicaScope}；set / del 波及哪些群说不清，登记为全局写入。
+ *
+ * <p>加载与写入并发时靠分段版本号：写入开始和结束各加一次，加载期间版本变化则不回填；写入开始后才加载的榜可能已含本次写入，写入结束时直接丢弃。
+ */
+@Slf4j
+@Component
+public class OvertimeRankCache {
+
+  /** 版本号分段数（2 的幂） */
+  private static final int STRIPES = 64;
+
+  public record Key(long groupId, YearMonth month) {}
+
+  /** 命中/未命中/淘汰计数与当前榜数 */
+  public record Stats(long hits, long misses, long evictions, int size) {}
+
+  /** 小时降序，同小时按 QQ 号升序 */
+  private record Score(long userId, long centis) implements Comparable<Score> {
+    @Override
+    public int compareTo(Score o) {
+      int c = Long.compare(o.centis, centis);
+      return c != 0 ? c : Long.compare(userId, o.userId);
+    }
+  }
+
+  /** 一个群一个月的榜；已放进缓存的只在持有 map 锁时读写 */
+  private static final class Board {
+    /** 开始加载时所在分段的版本号 */
+    final long loadedAt;
+
+    final Map<Long, Long> totals = new HashMap<>();
+    final TreeSet<Score> order = new TreeSet<>();
+
+    Board(long loadedAt) {
+      this.loadedAt = loadedAt;
+    }
+
+    void add(long userId, long centis) {
+      Long old = totals.get(userId);
+      if (old != null) order.remove(new Score(userId, old));
+      long now = (old == null ? 0 : old) + centis;
+      totals.put(userId, now);
+      order.add(new Score(userId, now));
+    }
+  }
+
+  private final LruMap<Key, Board> map;
+  private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public OvertimeRankCache(@Value("${overtime.rank.max-boards:256}") int maxSize) {
+    this.map = LruMap.ofSize(maxSize);
+  }
+
+  /** 取前 n 名与 userId 的名次；未命中时用 loader（userId -> 小时）建榜，加载期间版本未变化才回填 */
+  public OvertimeRank top(Key key, long userId, int n, Supplier<Map<Long, BigDecimal>> loader) {
+    synchronized (map) {
+      Board b = map.get(key);
+      if (b != null) {
+        hits.increment();
+        return rank(b, userId, n);
+      }
+    }
+    misses.increment();
+
+    int stripe = stripe(key);
+    long version = versions.get(stripe);
+    Board loaded = new Board(version);
+    ReplicaScope.reading(key, loader).forEach((uid, h) -> loaded.add(uid, centis(h)));
+    synchronized (map) {
+      if (versions.get(stripe) == version) {
+        map.put(key, loaded);
+      }
+      return rank(loaded, userId, n);
+    }
+  }
+
+  /** 一批录入（没有群号的不计入）；处于事务中时先记下版本，提交后把增量加到已有的榜上 */
+  public void added(Collection<OvertimeEntry> entries) {
+    Map<Key, Map<Long, Long>> deltas = new HashMap<>();
+    for (OvertimeEntry e : entries) {
+      if (e.groupId() == null) continue;
+      deltas
+          .computeIfAbsent(new Key(e.groupId(), YearMonth.from(e.workDate())), k -> new HashMap<>())
+          .merge(e.userId(), centis(e.hours()), Long::sum);
+    }
+    if (deltas.isEmpty()) return;
+    deltas.keySet().forEach(ReplicaScope::wrote);
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      applyNow(deltas, Map.of(), true);
+      return;
+    }
+    Map<Key, Long> started = new HashMap<>();
+    deltas.keySet().forEach(k -> started.put(k, versions.incrementAndGet(stripe(k))));
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCompletion(int status) {
+            applyNow(deltas, started, status == STATUS_COMMITTED);
+          }
+        });
+  }
+
+  /** set / del 改写了某用户某天：丢掉该月含此人的榜，以及 groupId（可空）这个群的榜；处于事务中时推迟到事务结束后 */
+  public void invalidate(long userId, Long groupId, LocalDate date) {
+    YearMonth month = YearMonth.from(date);
+    ReplicaScope.wroteUnscoped();
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              invalidateNow(userId, groupId, month);
+            }
+          });
+    } else {
+      invalidateNow(userId, groupId, month);
+    }
+  }
+
+  /** 全部丢弃（批量改数之后用） */
+  public void invalidateAll() {
+    for (int i = 0; i < STRIPES; i++) versions.incrementAndGet(i);
+    synchronized (map) {
+      map.clear();
+    }
+  }
+
+  public Stats stats() {
+    synchronized (map) {
+      return new Stats(hits.sum(), misses.sum(), map.evictions(), map.size());
+    }
+  }
+
+  private void applyNow(
+      Map<Key, Map<Long, Long>> deltas, Map<Key, Long> started, boolean committed) {
+    deltas.keySet().forEach(k -> versions.incrementAndGet(stripe(k)));
+    synchronized (map) {
+      for (var e : deltas.entrySet()) {
+        Board b = map.get(e.getKey());
+        if (b == null) continue;
+        Long writeStart = started.get(e.getKey());
+        if (writeStart != null && b.loadedAt >= writeStart) {
+          // 写入开始后才加载，说不清是否已含本次写入
+          map.remove(e.getKey());
+        } else if (committed) {
+          e.getValue().forEach(b::add);
+        }
+      }
+    }
+  }
+
+  private void invalidateNow(long userId, Long groupId, YearMonth month) {
+    // 受影响的群事先不知道，所有分段都算变化，正在加载的榜一律不回填
+    for (int i = 0; i < STRIPES; i++) versions.incrementAndGet(i);
+    synchronized (map) {
+      map.removeIf(
+          (k, b) ->
+              k.month().equals(month)
+                  && (Objects.equals(k.groupId(), groupId) || b.totals.containsKey(userId)));
+    }
+    log.debug("[RankCache] invalidate user={} group={} {}", userId, groupId, month);
+  }
+
+  private static OvertimeRank rank(Board b, long userId, int n) {
+    List<OvertimeRank.Row> top = new ArrayList<>(Math.min(n, b.order.size()));
+    for (Score s : b.order) {
+      if (top.size() == n) break;
+      top.add(new OvertimeRank.Row(s.userId(), hours(s.centis())));
+    }
+    Long mine = b.totals.get(userId);
+    if (mine == null) return new OvertimeRank(top, 0, BigDecimal.ZERO, b.totals.size());
+    int myRank = b.order.headSet(new Score(userId, mine)).size() + 1;
+    return new OvertimeRank(top, myRank, hours(mine), b.totals.size());
+  }
+
+  /** 小时 -> 0.01h 整数 */
+  static long centis(BigDecimal hours) {
+    return hours.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+  }
+
+  private static BigDecimal hours(long centis) {
+    return BigDecimal.valueOf(centis, 2);
+  }
+
+  private static int stripe(Key key) {
+    int h = key.hashCode();
+    return (h ^ (h >>> 16)) & (STRIPES - 1);
+  }
+}
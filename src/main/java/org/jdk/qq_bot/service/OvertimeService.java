@@ -2,16 +2,24 @@
 package org.jdk.qq_bot.service;
 
 import java.math.BigDecimal;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
+import java.time.Year;
 import java.time.YearMonth;
 import java.time.ZoneId;
+import java.time.temporal.TemporalAdjusters;
 import java.util.LinkedHashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import lombok.RequiredArgsConstructor;
-import org.jdk.qq_bot.dto.OvertimeSummary;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.dto.OvertimeRank;
+import org.jdk.qq_bot.dto.OvertimeYearSummary;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
 import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -19,14 +27,25 @@ import org.springframework.transaction.annotation.Transactional;
 @RequiredArgsConstructor
 public class OvertimeService {
 
-  private static final ZoneId CN = ZoneId.of("Asia/Shanghai");
+  /** 业务时区：“今天 / 本周 / 本月 / 今年”都按它计算 */
+  public static final ZoneId CN = ZoneId.of("Asia/Shanghai");
+
   private static final Set<String> VALID_TYPES = Set.of("G1", "G2", "G3");
 
   private final OvertimeLogRepository repo;
+  private final OvertimeDailyRepository dailyRepo;
+  private final OvertimeMonthlyRepository monthlyRepo;
+  private final OvertimeSummaryCache summaryCache;
+  private final OvertimeRankCache rankCache;
+  private final OvertimeWriteBatcher writeBatcher;
 
-  /** 记录今天的加班（默认 G1；会做基本参数校验与备注截断） */
-  @Transactional
+  /** 记录今天的加班（默认 G1；会做基本参数校验与备注截断）；与并发录入合批提交，返回时已落库 */
   public void addOvertime(long userId, BigDecimal hours, String type, String note) {
+    addOvertime(userId, null, hours, type, note);
+  }
+
+  /** 同上，groupId 为录入所在的群（计入该群排行，可空） */
+  public void addOvertime(long userId, Long groupId, BigDecimal hours, String type, String note) {
     if (hours == null || hours.compareTo(BigDecimal.ZERO) <= 0) {
       throw new IllegalArgumentException("hours must be > 0");
     }
@@ -37,50 +56,106 @@ public class OvertimeService {
     if (note != null && note.length() > 255) {
       note = note.substring(0, 255);
     }
-    repo.insert(userId, LocalDate.now(CN), t, hours, note);
+    writeBatcher.insert(new OvertimeEntry(userId, LocalDate.now(CN), t, hours, note, groupId));
   }
 
   /** 兼容：不传 type 则默认 G1 */
-  @Transactional
   public void addOvertime(long userId, BigDecimal hours, String note) {
     addOvertime(userId, hours, "G1", note);
   }
 
-  /** 查询本月统计：整体合计、分类型小计、每日总和（按日期升序） */
+  /** 查询本月统计：整体合计、分类型小计、每日总和；优先走缓存，未命中时读日汇总表 */
+  @Transactional(readOnly = true)
+  public CompactOvertimeSummary queryThisMonth(long userId) {
+    return queryMonth(userId, YearMonth.now(CN));
+  }
+
+  /** 查询任意自然月的统计（结构同 {@link #queryThisMonth}；非本月时“今天”为 0），同样走缓存 */
   @Transactional(readOnly = true)
-  public OvertimeSummary queryThisMonth(long userId) {
+  public CompactOvertimeSummary queryMonth(long userId, YearMonth ym) {
     LocalDate today = LocalDate.now(CN);
-    YearMonth ym = YearMonth.from(today);
-    LocalDate start = ym.atDay(1), end = ym.atEndOfMonth();
+    return summaryCache.get(
+        new OvertimeSummaryCache.Key(userId, ym), today, () -> loadMonth(userId, ym, today));
+  }
 
-    BigDecimal monthTotal = repo.monthTotal(userId, start, end);
-    BigDecimal todayTotal = repo.dayTotal(userId, today);
+  /** 本周（周一 ~ 周日）统计：totalCentis 即本周合计与分类型小计 */
+  @Transactional(readOnly = true)
+  public CompactOvertimeSummary queryThisWeek(long userId) {
+    LocalDate today = LocalDate.now(CN);
+    LocalDate monday = today.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    return dailyRepo.monthSummary(userId, monday, monday.plusDays(6), today);
+  }
 
-    Map<String, BigDecimal> monthByType =
-        new LinkedHashMap<>(repo.monthTotalsByType(userId, start, end));
-    Map<String, BigDecimal> todayByType = new LinkedHashMap<>(repo.dayTotalsByType(userId, today));
+  /** 今年的年度统计，见 {@link #queryYear} */
+  @Transactional(readOnly = true)
+  public OvertimeYearSummary queryThisYear(long userId) {
+    return queryYear(userId, Year.now(CN));
+  }
 
-    // 补齐缺失类型为 0，便于上层直接取值
-    VALID_TYPES.forEach(t -> monthByType.putIfAbsent(t, BigDecimal.ZERO));
-    VALID_TYPES.forEach(t -> todayByType.putIfAbsent(t, BigDecimal.ZERO));
+  /** 年度统计：合计与各月来自月汇总表（不扫明细），每日总计（热力图用）来自日汇总表 */
+  @Transactional(readOnly = true)
+  public OvertimeYearSummary queryYear(long userId, Year year) {
+    int y = year.getValue();
+    Map<String, BigDecimal> byType = new LinkedHashMap<>();
+    VALID_TYPES.stream().sorted().forEach(t -> byType.put(t, BigDecimal.ZERO));
+    Map<YearMonth, BigDecimal> monthly = new LinkedHashMap<>();
+    for (int m = 1; m <= 12; m++) monthly.put(YearMonth.of(y, m), BigDecimal.ZERO);
+    BigDecimal total = BigDecimal.ZERO;
 
-    var dailyTotals = repo.monthDailyTotals(userId, start, end);
+    for (var month : monthlyRepo.yearByMonth(userId, y).entrySet()) {
+      for (var e : month.getValue().entrySet()) {
+        total = total.add(e.getValue());
+        byType.merge(e.getKey(), e.getValue(), BigDecimal::add);
+        monthly.merge(month.getKey(), e.getValue(), BigDecimal::add);
+      }
+    }
+    var daily = dailyRepo.dailyTotals(userId, year.atDay(1), year.atMonth(12).atEndOfMonth());
+    return new OvertimeYearSummary(y, total, byType, monthly, daily);
+  }
 
-    if (monthTotal == null) monthTotal = BigDecimal.ZERO;
-    if (todayTotal == null) todayTotal = BigDecimal.ZERO;
+  /** 本群本月加班排行前 n 名与 userId 的名次；优先走内存榜，榜不在时按覆盖索引聚合一次 */
+  @Transactional(readOnly = true)
+  public OvertimeRank rankThisMonth(long groupId, long userId, int n) {
+    YearMonth ym = YearMonth.now(CN);
+    return rankCache.top(
+        new OvertimeRankCache.Key(groupId, ym),
+        userId,
+        n,
+        () -> repo.groupTotals(groupId, ym.atDay(1), ym.atEndOfMonth()));
+  }
+
+  /** 月度统计缓存的命中 / 未命中 / 淘汰计数 */
+  public OvertimeSummaryCache.Stats summaryCacheStats() {
+    return summaryCache.stats();
+  }
 
-    return new OvertimeSummary(monthTotal, todayTotal, monthByType, todayByType, dailyTotals);
+  private CompactOvertimeSummary loadMonth(long userId, YearMonth ym, LocalDate today) {
+    return dailyRepo.monthSummary(userId, ym.atDay(1), ym.atEndOfMonth(), today);
   }
 
   /** 删除某天的所有加班记录，返回删除的记录数 */
+  @Transactional
   public int deleteOvertimeByDate(long userId, LocalDate date) {
     if (date == null) throw new IllegalArgumentException("date is null");
-    return repo.deleteByUserIdAndWorkDate(userId, date);
+    int rows = repo.deleteByUserIdAndWorkDate(userId, date);
+    dailyRepo.deleteDay(userId, date);
+    monthlyRepo.rebuildMonth(userId, YearMonth.from(date));
+    summaryCache.invalidate(userId, date);
+    rankCache.invalidate(userId, null, date);
+    return rows;
   }
 
   /** 将某天的加班设为hours(覆盖原有记录),不传type则默认为G1 */
+  @Transactional
   public void setOvertimeByDate(
       long userId, LocalDate date, BigDecimal hours, String type, String note) {
+    setOvertimeByDate(userId, null, date, hours, type, note);
+  }
+
+  /** 同上，groupId 为操作所在的群（新记录计入该群排行，可空） */
+  @Transactional
+  public void setOvertimeByDate(
+      long userId, Long groupId, LocalDate date, BigDecimal hours, String type, String note) {
     if (date == null) throw new IllegalArgumentException("date is null");
     if (hours == null || hours.compareTo(BigDecimal.ZERO) <= 0) {
       throw new IllegalArgumentException("hours must be > 0");
@@ -95,6 +170,10 @@ public class OvertimeService {
     // 删除原有记录
     repo.deleteByUserIdAndWorkDate(userId, date);
     // 插入新记录
-    repo.insert(userId, date, t, hours, note);
+    repo.insert(userId, date, t, hours, note, groupId);
+    dailyRepo.replaceDay(userId, date, t, hours);
+    monthlyRepo.rebuildMonth(userId, YearMonth.from(date));
+    summaryCache.invalidate(userId, date);
+    rankCache.invalidate(userId, groupId, date);
   }
 }
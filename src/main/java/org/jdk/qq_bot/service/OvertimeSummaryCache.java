@@ -0,0 +1,125 @@
+package org.jdk.qq_bot.service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.config.ReplicaScope;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.service.cache.LruMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 月度统计缓存：key 为 (userId, YearMonth)，容量上限按 LRU 淘汰，并带 TTL。
+ *
+ * <p>写操作在事务结束后按 key 失效；加载期间若发生失效（分段版本号变化）则不回填，保证读不到旧值。
+ *
+ * <p>失效的 key 同时登记到 {@link ReplicaScope}，读写分离时刚写过的 key 回源走主库。
+ *
+ * <p>统计里含“今天”，跨天后旧条目视为未命中。
+ */
+@Slf4j
+@Component
+public class OvertimeSummaryCache {
+
+  /** 版本号分段数（2 的幂），失效时只影响同段 key 的回填 */
+  private static final int STRIPES = 64;
+
+  public record Key(long userId, YearMonth month) {}
+
+  /** 命中/未命中/淘汰（容量 + 过期）计数与当前条目数 */
+  public record Stats(long hits, long misses, long evictions, int size) {}
+
+  private record Entry(CompactOvertimeSummary summary, LocalDate day, long expireAt) {}
+
+  private final long ttlNanos;
+  private final LruMap<Key, Entry> map;
+  private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public OvertimeSummaryCache(
+      @Value("${overtime.summary-cache.max-size:2000}") int maxSize,
+      @Value("${overtime.summary-cache.ttl-seconds:600}") long ttlSeconds) {
+    this.map = LruMap.ofSize(maxSize);
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+  }
+
+  /** 读缓存；未命中时调用 loader 并在版本未变化时回填 */
+  public CompactOvertimeSummary get(
+      Key key, LocalDate today, Supplier<CompactOvertimeSummary> loader) {
+    long now = System.nanoTime();
+    synchronized (map) {
+      Entry e = map.get(key);
+      if (e != null) {
+        if (e.day().equals(today) && now - e.expireAt() < 0) {
+          hits.increment();
+          return e.summary();
+        }
+        map.expire(key);
+      }
+    }
+    misses.increment();
+
+    int stripe = stripe(key);
+    long version = versions.get(stripe);
+    CompactOvertimeSummary loaded = ReplicaScope.reading(key, loader);
+    synchronized (map) {
+      if (versions.get(stripe) == version) {
+        map.put(key, new Entry(loaded, today, System.nanoTime() + ttlNanos));
+      }
+    }
+    return loaded;
+  }
+
+  /** 使某用户某天所在月份的条目失效；处于事务中时推迟到事务结束后 */
+  public void invalidate(long userId, LocalDate date) {
+    Key key = new Key(userId, YearMonth.from(date));
+    ReplicaScope.wrote(key);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+              // 回滚也失效：代价只是一次多余的回源
+              invalidateNow(key);
+            }
+          });
+    } else {
+      invalidateNow(key);
+    }
+  }
+
+  /** 全部失效（批量修数之后用） */
+  public void invalidateAll() {
+    for (int i = 0; i < STRIPES; i++) versions.incrementAndGet(i);
+    synchronized (map) {
+      map.clear();
+    }
+  }
+
+  public Stats stats() {
+    synchronized (map) {
+      return new Stats(hits.sum(), misses.sum(), map.evictions(), map.size());
+    }
+  }
+
+  private void invalidateNow(Key key) {
+    versions.incrementAndGet(stripe(key));
+    synchronized (map) {
+      map.remove(key);
+    }
+    log.debug("[SummaryCache] invalidate {}", key);
+  }
+
+  private static int stripe(Key key) {
+    int h = key.hashCode();
+    return (h ^ (h >>> 16)) & (STRIPES - 1);
+  }
+}
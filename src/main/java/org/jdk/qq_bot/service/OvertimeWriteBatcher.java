@@ -0,0 +1,191 @@
+package org.jdk.qq_bot.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 加班录入的微批写入：并发到达的 add 请求攒成一批（凑满 max-size 或等满 max-delay-ms），一个事务里多行 INSERT 明细并累加日 / 月汇总后提交。
+ *
+ * <p>调用方阻塞到自己所在的批次提交后才返回，所以“已记录”的回复一定对应已落库的数据。
+ *
+ * <p>整批失败时逐条重试，一条坏数据不会连累同批其他人。
+ */
+@Slf4j
+@Component
+public class OvertimeWriteBatcher {
+
+  /** 已提交条数 / 批次数 / 失败条数 */
+  public record Stats(long rows, long batches, long failed) {}
+
+  private record Pending(OvertimeEntry entry, CompletableFuture<Void> done) {}
+
+  /** 等满 wait-timeout-ms 仍未提交：这一行已在批次里，之后可能写入也可能失败，结果未知 */
+  public static final class PendingWriteException extends IllegalStateException {
+    PendingWriteException(Throwable cause) {
+      super("写入仍在进行，结果未确认", cause);
+    }
+  }
+
+  private final OvertimeLogRepository repo;
+  private final OvertimeDailyRepository dailyRepo;
+  private final OvertimeMonthlyRepository monthlyRepo;
+  private final OvertimeSummaryCache summaryCache;
+  private final OvertimeRankCache rankCache;
+  private final TransactionTemplate tx;
+  private final int maxBatch;
+  private final long maxDelayNanos;
+  private final long waitTimeoutMs;
+  private final BlockingQueue<Pending> queue;
+
+  private final LongAdder rows = new LongAdder();
+  private final LongAdder batches = new LongAdder();
+  private final LongAdder failed = new LongAdder();
+
+  private volatile boolean running;
+  private Thread flusher;
+
+  public OvertimeWriteBatcher(
+      OvertimeLogRepository repo,
+      OvertimeDailyRepository dailyRepo,
+      OvertimeMonthlyRepository monthlyRepo,
+      OvertimeSummaryCache summaryCache,
+      OvertimeRankCache rankCache,
+      TransactionTemplate tx,
+      @Value("${overtime.write-batch.max-size:64}") int maxBatch,
+      @Value("${overtime.write-batch.max-delay-ms:5}") long maxDelayMs,
+      @Value("${overtime.write-batch.queue-capacity:4096}") int queueCapacity,
+      @Value("${overtime.write-batch.wait-timeout-ms:10000}") long waitTimeoutMs) {
+    this.repo = repo;
+    this.dailyRepo = dailyRepo;
+    this.monthlyRepo = monthlyRepo;
+    this.summaryCache = summaryCache;
+    this.rankCache = rankCache;
+    this.tx = tx;
+    this.maxBatch = maxBatch;
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+    this.waitTimeoutMs = waitTimeoutMs;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+  }
+
+  @PostConstruct
+  void start() {
+    running = true;
+    flusher = new Thread(this::runLoop, "overtime-writer");
+    flusher.setDaemon(true);
+    flusher.start();
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    running = false;
+    flusher.interrupt();
+    flusher.join(waitTimeoutMs);
+  }
+
+  /** 加入下一批并等待其提交；失败时抛出原始异常，等待超时抛出 {@link PendingWriteException} */
+  public void insert(OvertimeEntry entry) {
+    var done = new CompletableFuture<Void>();
+    try {
+      if (!queue.offer(new Pending(entry, done), waitTimeoutMs, TimeUnit.MILLISECONDS)) {
+        throw new IllegalStateException("写入繁忙，请稍后再试");
+      }
+      done.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("写入被中断", e);
+    } catch (TimeoutException e) {
+      throw new PendingWriteException(e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException re
+          ? re
+          : new IllegalStateException(e.getCause());
+    }
+  }
+
+  public Stats stats() {
+    return new Stats(rows.sum(), batches.sum(), failed.sum());
+  }
+
+  private void runLoop() {
+    List<Pending> batch = new ArrayList<>(maxBatch);
+    while (running || !queue.isEmpty()) {
+      try {
+        Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch.add(first);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatch) {
+          long left = deadline - System.nanoTime();
+          Pending next = left > 0 ? queue.poll(left, TimeUnit.NANOSECONDS) : queue.poll();
+          if (next == null) break;
+          batch.add(next);
+        }
+      } catch (InterruptedException e) {
+        // 停机：把队列里剩下的也写完
+        queue.drainTo(batch);
+      }
+      if (!batch.isEmpty()) {
+        flush(batch);
+        batch.clear();
+      }
+    }
+  }
+
+  private void flush(List<Pending> batch) {
+    try {
+      commit(batch);
+      batch.forEach(p -> p.done().complete(null));
+      return;
+    } catch (RuntimeException e) {
+      if (batch.size() == 1) {
+        failed.increment();
+        batch.get(0).done().completeExceptionally(e);
+        return;
+      }
+      log.warn(
+          "[OvertimeWriter] batch of {} failed, retrying one by one: {}",
+          batch.size(),
+          e.getMessage());
+    }
+    for (Pending p : batch) {
+      try {
+        commit(List.of(p));
+        p.done().complete(null);
+      } catch (RuntimeException e) {
+        failed.increment();
+        p.done().completeExceptionally(e);
+      }
+    }
+  }
+
+  private void commit(List<Pending> batch) {
+    List<OvertimeEntry> entries = batch.stream().map(Pending::entry).toList();
+    tx.executeWithoutResult(
+        status -> {
+          repo.insertAll(entries);
+          dailyRepo.addAll(entries);
+          monthlyRepo.addAll(entries);
+          entries.forEach(e -> summaryCache.invalidate(e.userId(), e.workDate()));
+          rankCache.added(entries);
+        });
+    rows.add(entries.size());
+    batches.increment();
+  }
+}
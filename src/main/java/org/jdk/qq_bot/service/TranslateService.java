@@ -0,0 +1,184 @@
+package org.jdk.qq_bot.service;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.observe.CommandMetrics;
+import org.jdk.qq_bot.service.cache.LruMap;
+import org.jdk.qq_bot.service.http.SharedHttpClient;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * 有道释义查询（fy 指令）：结果按规范化后的单词缓存，容量上限按 LRU 淘汰，并带 TTL。
+ *
+ * <p>规范化只去首尾空白、合并中间空白，保留大小写：us / US、nasa / NASA 释义不同，各自缓存、各自回源。
+ *
+ * <p>同一个词的并发查询只发一次请求，其余调用等待同一结果；查无释义也缓存，但时间短得多。
+ *
+ * <p>请求失败（超时、非 2xx）不缓存，下次照常回源。
+ */
+@Slf4j
+@Service
+public class TranslateService {
+
+  /** 命中 / 未命中 / 合并到在途请求 / 淘汰（容量 + 过期）计数与当前条目数 */
+  public record Stats(long hits, long misses, long collapsed, long evictions, int size) {
+    /** 命中率（在途合并也算命中） */
+    public double hitRate() {
+      long total = hits + collapsed + misses;
+      return total == 0 ? 0 : (double) (hits + collapsed) / total;
+    }
+  }
+
+  /** text 为 null 表示查无释义 */
+  private record Entry(String text, long expireAt) {}
+
+  private final String defineUrl;
+  private final long timeoutMs;
+  private final long ttlNanos;
+  private final long negativeTtlNanos;
+  private final SharedHttpClient http;
+  private final Function<String, String> fetcher;
+
+  private final LruMap<String, Entry> map;
+  private final ConcurrentHashMap<String, CompletableFuture<String>> inFlight =
+      new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder collapsed = new LongAdder();
+
+  @Autowired
+  public TranslateService(
+      SharedHttpClient http,
+      CommandMetrics metrics,
+      @Value("${fy.youDao.url:}") String youDaoUrl,
+      @Value("${fy.youDao.timeout-ms:3000}") long timeoutMs,
+      @Value("${fy.cache.max-size:1000}") int maxSize,
+      @Value("${fy.cache.ttl-seconds:3600}") long ttlSeconds,
+      @Value("${fy.cache.negative-ttl-seconds:60}") long negativeTtlSeconds) {
+    String base = StrUtil.emptyToDefault(youDaoUrl, "http://localhost:8000/");
+    this.defineUrl = (StrUtil.endWith(base, "/") ? base : base + "/") + "define";
+    this.http = http;
+    this.timeoutMs = timeoutMs;
+    this.map = LruMap.ofSize(maxSize);
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+    this.fetcher = word -> metrics.youDao(() -> fetch(word));
+  }
+
+  /** 测试用：替换真实的 HTTP 请求 */
+  TranslateService(
+      Function<String, String> fetcher, int maxSize, long ttlSeconds, long negativeTtlSeconds) {
+    this.defineUrl = null;
+    this.http = null;
+    this.timeoutMs = 0;
+    this.map = LruMap.ofSize(maxSize);
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    this.negativeTtlNanos = TimeUnit.SECONDS.toNanos(negativeTtlSeconds);
+    this.fetcher = fetcher;
+  }
+
+  /** 查询释义文本；查无释义返回 null，请求失败抛出异常 */
+  public String define(String word) {
+    String key = normalize(word);
+    if (key.isEmpty()) return null;
+
+    long now = System.nanoTime();
+    synchronized (map) {
+      Entry e = map.get(key);
+      if (e != null) {
+        if (now - e.expireAt() < 0) {
+          hits.increment();
+          return e.text();
+        }
+        map.expire(key);
+      }
+    }
+
+    CompletableFuture<String> mine = new CompletableFuture<>();
+    CompletableFuture<String> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      collapsed.increment();
+      try {
+        return running.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IllegalStateException("查询被中断", e);
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof RuntimeException re
+            ? re
+            : new IllegalStateException(e.getCause());
+      }
+    }
+
+    misses.increment();
+    try {
+      String text = fetcher.apply(key);
+      long ttl = text == null ? negativeTtlNanos : ttlNanos;
+      synchronized (map) {
+        map.put(key, new Entry(text, System.nanoTime() + ttl));
+      }
+      mine.complete(text);
+      return text;
+    } catch (RuntimeException e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  public Stats stats() {
+    synchronized (map) {
+      return new Stats(hits.sum(), misses.sum(), collapsed.sum(), map.evictions(), map.size());
+    }
+  }
+
+  /** 缓存 key 兼查询词：去首尾空白、合并中间空白（不改大小写） */
+  static String normalize(String word) {
+    if (word == null) return "";
+    return word.strip().replaceAll("\\s+", " ");
+  }
+
+  private String fetch(String word) {
+    var resp = http.get(defineUrl, Map.of("word", word), timeoutMs); // 自动编码为 ?word=...
+    if (!resp.isOk()) {
+      throw new IllegalStateException("HTTP " + resp.status());
+    }
+
+    JSONObject root = JSONUtil.parseObj(resp.text());
+    String text = root.getStr("text", "");
+
+    // 兜底：如果没有拼好的 text，就把 definitions 拼接成文本
+    if (StrUtil.isBlank(text)) {
+      JSONArray defs = root.getJSONArray("definitions");
+      if (defs != null) {
+        StringBuilder sb = new StringBuilder();
+        for (Object o : defs) {
+          if (!(o instanceof JSONObject def)) continue;
+          String pos = def.getStr("pos", "");
+          String tran = def.getStr("tran", "");
+          if (StrUtil.isNotBlank(tran)) {
+            if (StrUtil.isNotBlank(pos)) sb.append(pos).append('\n');
+            sb.append(tran).append('\n');
+          }
+        }
+        text = StrUtil.trim(sb);
+      }
+    }
+
+    log.info("翻译结果: " + text);
+    return StrUtil.isBlank(text) ? null : text;
+  }
+}
@@ -0,0 +1,235 @@
+package org.jdk.qq_bot.service.archive;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 聊天归档：监听线程只把消息放进有界队列（满了直接丢弃并计数，从不阻塞），由单独的写线程批量编码后追加到分段文件。
+ *
+ * <p>写线程把一批记录编码进一块直接内存缓冲，满了或这一批写完才调用一次 write；分段超过上限时换新文件。
+ *
+ * <p>换新文件时若分段数超过 max-segments，按序号从旧到新删掉多出的分段（0 表示不删）。
+ *
+ * <p>每次启动都从新分段开始写，不会接着上次可能残缺的文件尾追加。文件格式见 {@link ChatSegment}，读取见 {@link ChatArchiveReader}。
+ */
+@Slf4j
+@Component
+public class ChatArchive {
+
+  /** 私聊消息的 groupId */
+  public static final long PRIVATE = 0;
+
+  private static final int MAX_BATCH = 1024;
+  private static final int MAGIC_BYTES = ChatSegment.MAGIC.length;
+
+  /** 收到 / 因队列满丢弃 / 已写入文件的条数，写入字节数与当前分段数 */
+  public record Stats(long appended, long dropped, long written, long bytes, int segments) {}
+
+  private final Path dir;
+  private final long segmentMaxBytes;
+  private final int maxSegments;
+  private final int bufferBytes;
+  private final BlockingQueue<ChatRecord> queue;
+  private final ChatArchiveReader reader;
+
+  private final LongAdder appended = new LongAdder();
+  private final LongAdder dropped = new LongAdder();
+  private final LongAdder written = new LongAdder();
+  private final LongAdder bytes = new LongAdder();
+
+  private volatile boolean running;
+  private volatile int segments;
+  private Thread writer;
+
+  // 以下只由写线程访问
+  private ByteBuffer buf;
+  private FileChannel channel;
+  private long segmentBytes;
+  private long nextSeq;
+
+  @Autowired
+  public ChatArchive(
+      @Value("${chat.archive.dir:run/chat-archive}") String dir,
+      @Value("${chat.archive.segment-max-mb:64}") long segmentMaxMb,
+      @Value("${chat.archive.max-segments:64}") int maxSegments,
+      @Value("${chat.archive.queue-capacity:8192}") int queueCapacity,
+      @Value("${chat.archive.buffer-kb:64}") int bufferKb) {
+    this(Paths.get(dir), segmentMaxMb * 1024 * 1024, maxSegments, queueCapacity, bufferKb * 1024);
+  }
+
+  ChatArchive(Path dir, long segmentMaxBytes, int maxSegments, int queueCapacity, int bufferBytes) {
+    this.dir = dir.toAbsolutePath();
+    this.segmentMaxBytes = segmentMaxBytes;
+    this.maxSegments = maxSegments;
+    this.bufferBytes = bufferBytes;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.reader = new ChatArchiveReader(this.dir);
+  }
+
+  @PostConstruct
+  void start() throws IOException {
+    Files.createDirectories(dir);
+    List<ChatSegment.Info> existing = ChatSegment.list(dir);
+    nextSeq = existing.isEmpty() ? 1 : existing.get(existing.size() - 1).seq() + 1;
+    segments = existing.size();
+    buf = ByteBuffer.allocateDirect(bufferBytes);
+    running = true;
+    writer = new Thread(this::runLoop, "chat-archive");
+    writer.setDaemon(true);
+    writer.start();
+    log.info("[ChatArchive] dir={} segments={} max={}", dir, segments, maxSegments);
+  }
+
+  @PreDestroy
+  void stop() throws InterruptedException {
+    // 不能 interrupt：FileChannel 写到一半被中断会直接关闭通道；写线程最多 100ms 后发现停机并写完队列
+    running = false;
+    writer.join(TimeUnit.SECONDS.toMillis(10));
+  }
+
+  /** 归档一条消息（时间取当前时刻）；队列满时丢弃，返回 false */
+  public boolean append(long groupId, long userId, String text) {
+    if (queue.offer(new ChatRecord(System.currentTimeMillis(), groupId, userId, text))) {
+      appended.increment();
+      return true;
+    }
+    dropped.increment();
+    return false;
+  }
+
+  /** 回放 / 按群与时间范围检索（读到的是已写入文件的部分） */
+  public ChatArchiveReader reader() {
+    return reader;
+  }
+
+  public Stats stats() {
+    return new Stats(appended.sum(), dropped.sum(), written.sum(), bytes.sum(), segments);
+  }
+
+  private void runLoop() {
+    List<ChatRecord> batch = new ArrayList<>(MAX_BATCH);
+    while (running || !queue.isEmpty()) {
+      try {
+        ChatRecord first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) continue;
+        batch.add(first);
+        queue.drainTo(batch, MAX_BATCH - 1);
+      } catch (InterruptedException e) {
+        // 停机：把队列里剩下的也写完
+        queue.drainTo(batch);
+      }
+      if (!batch.isEmpty()) {
+        write(batch);
+        batch.clear();
+      }
+    }
+    closeSegment();
+  }
+
+  private void write(List<ChatRecord> batch) {
+    try {
+      for (ChatRecord r : batch) {
+        byte[] text = r.text().getBytes(StandardCharsets.UTF_8);
+        int body = ChatSegment.bodySize(r, text);
+        int size = ChatSegment.varLongSize(body) + body;
+        long pending = segmentBytes + buf.position();
+        if (channel == null || (pending + size > segmentMaxBytes && pending > MAGIC_BYTES)) {
+          openSegment(r.timeMillis());
+        }
+        if (size > buf.remaining()) flushBuffer();
+        if (size > buf.capacity()) {
+          // 超长消息单独写，不为它扩缓冲
+          ByteBuffer big = ByteBuffer.allocate(size);
+          ChatSegment.encode(big, r, text, body);
+          writeFully(big.flip());
+        } else {
+          ChatSegment.encode(buf, r, text, body);
+        }
+      }
+      flushBuffer();
+      written.add(batch.size());
+    } catch (IOException e) {
+      // 整批按丢弃计（先写出的一部分读取时仍可见）；换新分段继续，不在半条记录后面接着写
+      dropped.add(batch.size());
+      log.warn("[ChatArchive] write of {} records failed: {}", batch.size(), e.getMessage());
+      buf.clear();
+      closeSegment();
+    }
+  }
+
+  private void openSegment(long firstMillis) throws IOException {
+    closeSegment();
+    Path path = dir.resolve(ChatSegment.fileName(nextSeq++, firstMillis));
+    channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    segmentBytes = 0;
+    segments++;
+    buf.put(ChatSegment.MAGIC);
+    prune();
+  }
+
+  /** 分段数超过上限时删掉最旧的；删不掉只记日志，下次换分段再试 */
+  private void prune() {
+    if (maxSegments <= 0 || segments <= maxSegments) return;
+    try {
+      List<ChatSegment.Info> all = ChatSegment.list(dir);
+      int remaining = all.size();
+      for (int i = 0; i < all.size() - maxSegments; i++) {
+        Files.deleteIfExists(all.get(i).path());
+        remaining--;
+      }
+      segments = remaining;
+    } catch (IOException e) {
+      log.warn("[ChatArchive] prune to {} segments failed: {}", maxSegments, e.getMessage());
+    }
+  }
+
+  /** 写出缓冲并关闭当前分段（落盘一次） */
+  private void closeSegment() {
+    if (channel == null) return;
+    try {
+      flushBuffer();
+      channel.force(false);
+    } catch (IOException e) {
+      log.warn("[ChatArchive] flush on close failed: {}", e.getMessage());
+    }
+    try {
+      channel.close();
+    } catch (IOException ignored) {
+      // 已尽力写出
+    }
+    channel = null;
+    buf.clear();
+  }
+
+  private void flushBuffer() throws IOException {
+    if (buf.position() == 0) return;
+    buf.flip();
+    writeFully(buf);
+    buf.clear();
+  }
+
+  private void writeFully(ByteBuffer b) throws IOException {
+    int n = b.remaining();
+    while (b.hasRemaining()) channel.write(b);
+    segmentBytes += n;
+    bytes.add(n);
+  }
+}
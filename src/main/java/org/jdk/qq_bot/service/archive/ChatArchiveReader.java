@@ -0,0 +1,112 @@
+package org.jdk.qq_bot.service.archive;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+/**
+ * 读取聊天归档：按分段文件名里的首条时间跳过不相关的分段，其余分段只读映射后顺序扫描。
+ *
+ * <p>先比较时间与群号，命中了才解码文本。正在写的分段也能读，读到文件尾不完整的记录即停止；扫描途中被删掉的旧分段直接跳过。
+ */
+public final class ChatArchiveReader {
+
+  /** 不限群（含私聊） */
+  public static final long ANY_GROUP = -1;
+
+  /** 消息时间在入队时取，多线程入队可能有极小的乱序；跳过分段时留出余量 */
+  private static final long SKEW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+  private final Path dir;
+
+  public ChatArchiveReader(Path dir) {
+    this.dir = dir;
+  }
+
+  /**
+   * 按写入顺序回放 [fromMillis, toMillis] 内的消息；visitor 返回 false 即停止。
+   *
+   * @param groupId 群号，{@link #ANY_GROUP} 表示全部，{@link ChatArchive#PRIVATE} 表示私聊
+   */
+  public void replay(long groupId, long fromMillis, long toMillis, Predicate<ChatRecord> visitor)
+      throws IOException {
+    List<ChatSegment.Info> segments = ChatSegment.list(dir);
+    for (int i = 0; i < segments.size(); i++) {
+      ChatSegment.Info seg = segments.get(i);
+      long upper = i + 1 < segments.size() ? segments.get(i + 1).firstMillis() : Long.MAX_VALUE;
+      if (seg.firstMillis() - SKEW_MILLIS > toMillis) break;
+      if (upper != Long.MAX_VALUE && upper + SKEW_MILLIS < fromMillis) continue;
+      if (!scan(seg.path(), groupId, fromMillis, toMillis, visitor)) return;
+    }
+  }
+
+  /** 时间范围内文本包含 keyword（为空则不限）的消息，最多返回最近的 limit 条，按时间先后排列 */
+  public List<ChatRecord> search(
+      long groupId, long fromMillis, long toMillis, String keyword, int limit) throws IOException {
+    ArrayDeque<ChatRecord> last = new ArrayDeque<>(limit);
+    boolean any = keyword == null || keyword.isEmpty();
+    replay(
+        groupId,
+        fromMillis,
+        toMillis,
+        r -> {
+          if (any || r.text().contains(keyword)) {
+            if (last.size() == limit) last.pollFirst();
+            last.addLast(r);
+          }
+          return true;
+        });
+    return new ArrayList<>(last);
+  }
+
+  private static boolean scan(
+      Path path, long groupId, long fromMillis, long toMillis, Predicate<ChatRecord> visitor)
+      throws IOException {
+    MappedByteBuffer buf;
+    try (FileChannel ch = FileChannel.open(path, StandardOpenOption.READ)) {
+      if (ch.size() < ChatSegment.MAGIC.length) return true;
+      // 映射在关闭通道后依然有效
+      buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+    } catch (NoSuchFileException e) {
+      return true; // 列出之后被保留策略删掉了
+    }
+    byte[] magic = new byte[ChatSegment.MAGIC.length];
+    buf.get(magic);
+    if (!Arrays.equals(magic, ChatSegment.MAGIC)) return true;
+
+    while (buf.hasRemaining()) {
+      int end = ChatSegment.next(buf);
+      if (end < 0) break;
+      long time, group, user;
+      try {
+        time = ChatSegment.getVarLong(buf);
+        group = ChatSegment.getVarLong(buf);
+        user = ChatSegment.getVarLong(buf);
+      } catch (BufferUnderflowException e) {
+        break; // 损坏
+      }
+      if (buf.position() > end) break; // 损坏
+      if (time >= fromMillis && time <= toMillis && (groupId == ANY_GROUP || group == groupId)) {
+        byte[] text = new byte[end - buf.position()];
+        buf.get(text);
+        if (!visitor.test(
+            new ChatRecord(time, group, user, new String(text, StandardCharsets.UTF_8)))) {
+          return false;
+        }
+      }
+      buf.position(end);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,4 @@
+package org.jdk.qq_bot.service.archive;
+
+/** 归档的一条聊天消息；私聊的 groupId 为 {@link ChatArchive#PRIVATE} */
+public record ChatRecord(long timeMillis, long groupId, long userId, String text) {}
@@ -0,0 +1,109 @@
+package org.jdk.qq_bot.service.archive;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 归档分段文件的格式：文件名 {@code <8 位序号>-<首条消息毫秒时间戳>.seg}，文件头 4 字节魔数，之后逐条追加记录。
+ *
+ * <p>每条记录：varint 长度 + varint 时间戳 + varint 群号 + varint QQ 号 + UTF-8 文本（长度之内剩下的字节）。
+ *
+ * <p>只追加、不改写：进程崩溃最多在文件尾留下半条记录，读取时遇到不完整的记录即视为文件结束。
+ */
+final class ChatSegment {
+
+  static final byte[] MAGIC = {'Q', 'C', 'A', '1'};
+
+  private static final Pattern NAME = Pattern.compile("(\\d{8})-(\\d+)\\.seg");
+
+  /** 一个分段文件：序号决定先后，firstMillis 为其中第一条消息的时间 */
+  record Info(Path path, long seq, long firstMillis) {}
+
+  private ChatSegment() {}
+
+  static String fileName(long seq, long firstMillis) {
+    return String.format("%08d-%d.seg", seq, firstMillis);
+  }
+
+  /** 目录下的分段文件，按序号排列 */
+  static List<Info> list(Path dir) throws IOException {
+    List<Info> out = new ArrayList<>();
+    if (!Files.isDirectory(dir)) return out;
+    try (Stream<Path> s = Files.list(dir)) {
+      s.forEach(
+          p -> {
+            Matcher m = NAME.matcher(p.getFileName().toString());
+            if (m.matches()) {
+              out.add(new Info(p, Long.parseLong(m.group(1)), Long.parseLong(m.group(2))));
+            }
+          });
+    }
+    out.sort(Comparator.comparingLong(Info::seq));
+    return out;
+  }
+
+  /** 记录体长度（不含长度前缀） */
+  static int bodySize(ChatRecord r, byte[] text) {
+    return varLongSize(r.timeMillis())
+        + varLongSize(r.groupId())
+        + varLongSize(r.userId())
+        + text.length;
+  }
+
+  /** 写入一条记录；body 为 {@link #bodySize} 的结果，调用方保证 buf 剩余空间足够 */
+  static void encode(ByteBuffer buf, ChatRecord r, byte[] text, int body) {
+    putVarLong(buf, body);
+    putVarLong(buf, r.timeMillis());
+    putVarLong(buf, r.groupId());
+    putVarLong(buf, r.userId());
+    buf.put(text);
+  }
+
+  /** 下一条记录的结束位置；文件尾不完整（或损坏）时返回 -1，position 停在记录体开头 */
+  static int next(ByteBuffer buf) {
+    long len;
+    try {
+      len = getVarLong(buf);
+    } catch (BufferUnderflowException e) {
+      return -1;
+    }
+    if (len <= 0 || len > buf.remaining()) return -1;
+    return buf.position() + (int) len;
+  }
+
+  static void putVarLong(ByteBuffer buf, long v) {
+    while ((v & ~0x7FL) != 0) {
+      buf.put((byte) ((v & 0x7F) | 0x80));
+      v >>>= 7;
+    }
+    buf.put((byte) v);
+  }
+
+  static long getVarLong(ByteBuffer buf) {
+    long v = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      byte b = buf.get();
+      v |= (long) (b & 0x7F) << shift;
+      if (b >= 0) return v;
+    }
+    throw new BufferUnderflowException();
+  }
+
+  static int varLongSize(long v) {
+    int n = 1;
+    while ((v & ~0x7FL) != 0) {
+      n++;
+      v >>>= 7;
+    }
+    return n;
+  }
+}
@@ -0,0 +1,108 @@
+package org.jdk.qq_bot.service.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 按最近访问淘汰（LRU）的有界 Map：put 后总权重超过上限就从最久未访问的一端淘汰，并计入淘汰数。
+ *
+ * <p>默认每条权重为 1（即条数上限）；{@link #weighted} 可按值大小（如 PNG 字节数）计权，并在淘汰时回调。
+ *
+ * <p>本身不加锁：各缓存都要在同一把锁里做“查版本再回填”之类的复合操作，由调用方统一在自己的锁下读写。
+ */
+public final class LruMap<K, V> {
+
+  private final LinkedHashMap<K, V> map = new LinkedHashMap<>(16, 0.75f, true);
+  private final long maxWeight;
+  private final ToLongFunction<? super V> weigher;
+  private final BiConsumer<? super K, ? super V> onEvict;
+
+  private long weight;
+  private long evictions;
+
+  private LruMap(
+      long maxWeight, ToLongFunction<? super V> weigher, BiConsumer<? super K, ? super V> onEvict) {
+    this.maxWeight = maxWeight;
+    this.weigher = weigher;
+    this.onEvict = onEvict;
+  }
+
+  /** 至多 maxSize 条 */
+  public static <K, V> LruMap<K, V> ofSize(int maxSize) {
+    return new LruMap<>(maxSize, v -> 1, (k, v) -> {});
+  }
+
+  /** 总权重至多 maxWeight；onEvict 只在容量淘汰时调用（remove / expire / clear 不调用） */
+  public static <K, V> LruMap<K, V> weighted(
+      long maxWeight, ToLongFunction<? super V> weigher, BiConsumer<? super K, ? super V> onEvict) {
+    return new LruMap<>(maxWeight, weigher, onEvict);
+  }
+
+  /** 取值并记为最近访问 */
+  public V get(K key) {
+    return map.get(key);
+  }
+
+  /** 放入（替换旧值）后按上限淘汰；刚放入的这条最后才会被淘汰 */
+  public void put(K key, V value) {
+    V old = map.put(key, value);
+    if (old != null) weight -= weigher.applyAsLong(old);
+    weight += weigher.applyAsLong(value);
+    Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+    while (weight > maxWeight && it.hasNext()) {
+      Map.Entry<K, V> e = it.next();
+      it.remove();
+      weight -= weigher.applyAsLong(e.getValue());
+      evictions++;
+      onEvict.accept(e.getKey(), e.getValue());
+    }
+  }
+
+  public V remove(K key) {
+    V old = map.remove(key);
+    if (old != null) weight -= weigher.applyAsLong(old);
+    return old;
+  }
+
+  /** 过期删除：与 remove 相同，但计入淘汰数 */
+  public void expire(K key) {
+    if (remove(key) != null) evictions++;
+  }
+
+  public boolean removeIf(BiPredicate<? super K, ? super V> filter) {
+    boolean removed = false;
+    Iterator<Map.Entry<K, V>> it = map.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<K, V> e = it.next();
+      if (filter.test(e.getKey(), e.getValue())) {
+        it.remove();
+        weight -= weigher.applyAsLong(e.getValue());
+        removed = true;
+      }
+    }
+    return removed;
+  }
+
+  public void clear() {
+    map.clear();
+    weight = 0;
+  }
+
+  public int size() {
+    return map.size();
+  }
+
+  /** 当前总权重（条数上限时即条数） */
+  public long weight() {
+    return weight;
+  }
+
+  /** 累计淘汰数（容量 + 过期） */
+  public long evictions() {
+    return evictions;
+  }
+}
@@ -0,0 +1,171 @@
+package org.jdk.qq_bot.service.echats;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+
+/**
+ * /render 请求体模板：图表里与数据无关的部分（配色、渐变、贴纸、坐标轴……）只序列化一次。
+ *
+ * <p>模板来自 {@link EchartsOptionBuilder} 的真实输出：把随数据变化的节点换成占位串后序列化，再按占位串切开。
+ *
+ * <p>每次请求只用 JsonGenerator 把数据写进占位处，输出与整棵 option 直接序列化逐字节相同。
+ */
+@SuppressWarnings("unchecked")
+final class ChartBodyTemplate {
+
+  private static final String SLOT_PREFIX = "@@slot";
+  private static final String SLOT_SUFFIX = "@@";
+
+  /** 往第 slot 个占位处写入数据 */
+  @FunctionalInterface
+  interface SlotWriter {
+    void write(int slot, CompactOvertimeSummary s, JsonGenerator g) throws IOException;
+  }
+
+  /** literals[i] 之后是 slots[i]，最后一段 literal 之后没有占位 */
+  private final byte[][] literals;
+
+  private final int[] slots;
+  private final SlotWriter writer;
+  private final int sizeHint;
+
+  private ChartBodyTemplate(byte[] body, SlotWriter writer) {
+    String text = new String(body, StandardCharsets.ISO_8859_1); // 与字节一一对应，便于按下标切
+    List<byte[]> lits = new ArrayList<>();
+    List<Integer> ids = new ArrayList<>();
+    String open = '"' + SLOT_PREFIX;
+    int from = 0;
+    int at;
+    while ((at = text.indexOf(open, from)) >= 0) {
+      int end = text.indexOf(SLOT_SUFFIX + '"', at + open.length());
+      lits.add(slice(body, from, at));
+      ids.add(Integer.parseInt(text.substring(at + open.length(), end)));
+      from = end + SLOT_SUFFIX.length() + 1;
+    }
+    lits.add(slice(body, from, body.length));
+    this.literals = lits.toArray(new byte[0][]);
+    this.slots = ids.stream().mapToInt(Integer::intValue).toArray();
+    this.writer = writer;
+    this.sizeHint = body.length + 1024;
+  }
+
+  /** 每日柱状图：slot0 = x 轴标签，slot1 = 三层系列共用的数据 */
+  static ChartBodyTemplate dailyBar(int w, int h, String bg) {
+    Map<String, Object> option =
+        EchartsOptionBuilder.dailyBarOption(CompactOvertimeSummary.empty());
+    option.put("xAxis", with(option.get("xAxis"), "data", slot(0)));
+    for (Object series : (List<?>) option.get("series")) {
+      ((Map<String, Object>) series).put("data", slot(1));
+    }
+    return new ChartBodyTemplate(serialize(option, w, h, bg), ChartBodyTemplate::writeBar);
+  }
+
+  /** 类型饼图：slot0 = 主环数据，slot1 = 中心数字 */
+  static ChartBodyTemplate typePie(int w, int h, String bg) {
+    Map<String, Object> option = EchartsOptionBuilder.typePieOption(CompactOvertimeSummary.empty());
+    ((Map<String, Object>) ((List<?>) option.get("series")).get(1)).put("data", slot(0));
+    List<Object> graphics = (List<Object>) option.get("graphic");
+    Map<?, ?> center = (Map<?, ?>) graphics.get(0);
+    graphics.set(0, with(center, "style", with(center.get("style"), "text", slot(1))));
+    return new ChartBodyTemplate(serialize(option, w, h, bg), ChartBodyTemplate::writePie);
+  }
+
+  /** 生成请求体 */
+  byte[] render(CompactOvertimeSummary s) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(sizeHint);
+    try (JsonGenerator g = EchartsRenderClient.M.getFactory().createGenerator(out)) {
+      g.setRootValueSeparator(null); // 各段数据都是“根值”，不要插空格
+      for (int i = 0; i < slots.length; i++) {
+        out.write(literals[i]);
+        writer.write(slots[i], s, g);
+        g.flush();
+      }
+      out.write(literals[slots.length]);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  // 与 EchartsOptionBuilder.dailyBarOption 的 labels / data 一致
+  private static void writeBar(int slot, CompactOvertimeSummary s, JsonGenerator g)
+      throws IOException {
+    char[] monthDay = slot == 0 ? new char[5] : null;
+    g.writeStartArray();
+    for (int i = 0; i < s.days(); i++) {
+      int centis = s.dailyCentis(i);
+      if (centis == 0) continue;
+      if (slot == 0) {
+        s.monthDay(i, monthDay, 0);
+        g.writeString(monthDay, 0, 5); // MM-dd
+      } else {
+        g.writeNumber(CompactOvertimeSummary.hours(centis));
+      }
+    }
+    g.writeEndArray();
+  }
+
+  // 与 EchartsOptionBuilder.typePieOption 的 data / 中心数字一致（Map 键按字母序：name、value）
+  private static void writePie(int slot, CompactOvertimeSummary s, JsonGenerator g)
+      throws IOException {
+    if (slot == 1) {
+      g.writeString(EchartsOptionBuilder.centerText(s.totalCentis()));
+      return;
+    }
+    double g1 = CompactOvertimeSummary.hours(s.totalCentis(CompactOvertimeSummary.G1));
+    double g2 = CompactOvertimeSummary.hours(s.totalCentis(CompactOvertimeSummary.G2));
+    double g3 = CompactOvertimeSummary.hours(s.totalCentis(CompactOvertimeSummary.G3));
+    g.writeStartArray();
+    if (g1 + g2 + g3 == 0) {
+      g.writeStartObject();
+      g.writeStringField("name", "无记录");
+      g.writeNumberField("value", 1);
+      g.writeEndObject();
+    } else {
+      writePieItem(g, "G1", g1);
+      writePieItem(g, "G2", g2);
+      writePieItem(g, "G3", g3);
+    }
+    g.writeEndArray();
+  }
+
+  private static void writePieItem(JsonGenerator g, String name, double value) throws IOException {
+    g.writeStartObject();
+    g.writeStringField("name", name);
+    g.writeNumberField("value", value);
+    g.writeEndObject();
+  }
+
+  private static byte[] serialize(Map<String, Object> option, int w, int h, String bg) {
+    try {
+      return EchartsRenderClient.renderBody(option, w, h, bg);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private static String slot(int i) {
+    return SLOT_PREFIX + i + SLOT_SUFFIX;
+  }
+
+  /** builder 里多是不可变 Map：复制一份再替换 */
+  private static Map<String, Object> with(Object map, String key, Object value) {
+    Map<String, Object> copy = new LinkedHashMap<>((Map<String, Object>) map);
+    copy.put(key, value);
+    return copy;
+  }
+
+  private static byte[] slice(byte[] b, int from, int to) {
+    byte[] out = new byte[to - from];
+    System.arraycopy(b, from, out, 0, out.length);
+    return out;
+  }
+}
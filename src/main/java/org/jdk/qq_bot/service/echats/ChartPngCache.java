@@ -0,0 +1,288 @@
+package org.jdk.qq_bot.service.echats;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.service.cache.LruMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 图表 PNG 的内容寻址缓存：key 是渲染请求体（option + 宽高 + 背景）的 SHA-256，PNG 字节直接放在内存里。
+ *
+ * <p>请求体相同即直接返回已有字节，不再请求渲染服务；同一 key 的并发渲染只发一次请求。
+ *
+ * <p>总大小超过上限时按最近访问时间（LRU）淘汰。开启 persist 时同时写入 out-dir，重启后从目录恢复。
+ */
+@Slf4j
+@Component
+public class ChartPngCache {
+
+  private static final Pattern FILE_NAME = Pattern.compile("[0-9a-f]{64}\\.png");
+
+  public record Stats(long hits, long misses, long evictions, int entries, long bytes) {}
+
+  private static final class Item {
+    final byte[] png;
+    long lastAccess;
+
+    Item(byte[] png, long lastAccess) {
+      this.png = png;
+      this.lastAccess = lastAccess;
+    }
+  }
+
+  private final Path dir;
+  private final long maxBytes;
+  private final boolean persist;
+
+  /** key -> PNG，按字节数计权的 LRU；淘汰时一并删掉落盘文件 */
+  private final LruMap<String, Item> index;
+
+  private final ConcurrentHashMap<String, CompletableFuture<byte[]>> inFlight =
+      new ConcurrentHashMap<>();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public ChartPngCache(
+      @Value("${echarts.render.out-dir:run/charts}") String outDir,
+      @Value("${echarts.render.cache-max-mb:64}") long maxMb,
+      @Value("${echarts.render.persist:false}") boolean persist) {
+    this.dir = Paths.get(outDir).toAbsolutePath();
+    this.maxBytes = maxMb * 1024 * 1024;
+    this.persist = persist;
+    // 调用方手里已有字节，淘汰不影响正在发送的图
+    this.index =
+        LruMap.weighted(
+            maxBytes,
+            item -> item.png.length,
+            (key, item) -> {
+              if (persist) deleteQuietly(dir.resolve(key + ".png"));
+            });
+  }
+
+  /** 开启 persist 时：把目录里最近使用的文件装回内存（不超过上限），其余删除，并清理残留的临时文件 */
+  @PostConstruct
+  void loadExisting() throws IOException {
+    if (!persist) return;
+    Files.createDirectories(dir);
+    List<Path> files = new ArrayList<>();
+    try (Stream<Path> s = Files.list(dir)) {
+      s.forEach(
+          p -> {
+            String name = p.getFileName().toString();
+            if (name.endsWith(".tmp")) {
+              deleteQuietly(p);
+            } else if (FILE_NAME.matcher(name).matches()) {
+              files.add(p);
+            }
+          });
+    }
+    // 新的在前，装满为止
+    files.sort(Comparator.comparingLong(ChartPngCache::lastModified).reversed());
+    List<Path> keep = new ArrayList<>();
+    long bytes = 0;
+    for (Path p : files) {
+      long size = p.toFile().length();
+      if (bytes + size <= maxBytes) {
+        keep.add(p);
+        bytes += size;
+      } else {
+        deleteQuietly(p);
+      }
+    }
+    Collections.reverse(keep);
+    synchronized (index) {
+      for (Path p : keep) {
+        byte[] png = Files.readAllBytes(p);
+        index.put(keyOf(p), new Item(png, lastModified(p)));
+      }
+    }
+    log.info("[ChartCache] dir={} entries={} bytes={}", dir, index.size(), index.weight());
+  }
+
+  /** 请求体的内容地址 */
+  public static String key(byte[] requestBody) {
+    return DigestUtil.sha256Hex(requestBody);
+  }
+
+  /** 命中则返回已有 PNG；否则调用 renderer 渲染并缓存（同 key 并发只渲染一次） */
+  public byte[] getOrRender(byte[] requestBody, Callable<byte[]> renderer) throws Exception {
+    String key = key(requestBody);
+    byte[] cached = lookup(key);
+    if (cached != null) {
+      hits.increment();
+      return cached;
+    }
+
+    CompletableFuture<byte[]> mine = new CompletableFuture<>();
+    CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      hits.increment();
+      try {
+        return running.get();
+      } catch (ExecutionException e) {
+        throw e.getCause() instanceof Exception c ? c : e;
+      }
+    }
+
+    misses.increment();
+    try {
+      byte[] png = renderer.call();
+      store(key, png);
+      mine.complete(png);
+      return png;
+    } catch (Exception e) {
+      mine.completeExceptionally(e);
+      throw e;
+    } finally {
+      inFlight.remove(key, mine);
+    }
+  }
+
+  /** 一次渲染多张图：只收到未命中的请求体，返回同序、已完成的结果（单项失败以异常结束） */
+  @FunctionalInterface
+  public interface BatchRenderer {
+    List<CompletableFuture<byte[]>> render(List<byte[]> requestBodies) throws Exception;
+  }
+
+  /**
+   * 批量版 {@link #getOrRender}：命中的直接返回，别人正在渲染的等它，其余合并成一次 renderer 调用。
+   *
+   * <p>返回与 requestBodies 同序的 future；本方法在 renderer 返回后才结束，单项失败不影响其他项。
+   */
+  public List<CompletableFuture<byte[]>> getOrRenderAll(
+      List<byte[]> requestBodies, BatchRenderer renderer) {
+    List<CompletableFuture<byte[]>> results = new ArrayList<>(requestBodies.size());
+    List<String> mineKeys = new ArrayList<>();
+    List<byte[]> mineBodies = new ArrayList<>();
+    List<CompletableFuture<byte[]>> mine = new ArrayList<>();
+    for (byte[] body : requestBodies) {
+      String key = key(body);
+      byte[] cached = lookup(key);
+      if (cached != null) {
+        hits.increment();
+        results.add(CompletableFuture.completedFuture(cached));
+        continue;
+      }
+      CompletableFuture<byte[]> f = new CompletableFuture<>();
+      CompletableFuture<byte[]> running = inFlight.putIfAbsent(key, f);
+      if (running != null) {
+        // 别的请求（或本批前面相同的一项）正在渲染
+        hits.increment();
+        results.add(running);
+        continue;
+      }
+      misses.increment();
+      results.add(f);
+      mineKeys.add(key);
+      mineBodies.add(body);
+      mine.add(f);
+    }
+    if (mine.isEmpty()) return results;
+
+    List<CompletableFuture<byte[]>> rendered;
+    try {
+      rendered = renderer.render(mineBodies);
+    } catch (Exception e) {
+      for (int i = 0; i < mine.size(); i++) {
+        mine.get(i).completeExceptionally(e);
+        inFlight.remove(mineKeys.get(i), mine.get(i));
+      }
+      return results;
+    }
+    for (int i = 0; i < mine.size(); i++) {
+      String key = mineKeys.get(i);
+      CompletableFuture<byte[]> f = mine.get(i);
+      rendered
+          .get(i)
+          .whenComplete(
+              (png, e) -> {
+                if (e == null) {
+                  store(key, png);
+                  f.complete(png);
+                } else {
+                  f.completeExceptionally(e);
+                }
+                inFlight.remove(key, f);
+              });
+    }
+    return results;
+  }
+
+  public Stats stats() {
+    synchronized (index) {
+      return new Stats(hits.sum(), misses.sum(), index.evictions(), index.size(), index.weight());
+    }
+  }
+
+  private byte[] lookup(String key) {
+    long now = System.currentTimeMillis();
+    Item item;
+    synchronized (index) {
+      item = index.get(key);
+      if (item == null) return null;
+      item.lastAccess = now;
+    }
+    if (persist) {
+      try {
+        // 记录访问时间，重启后仍能按 LRU 顺序恢复
+        Files.setLastModifiedTime(dir.resolve(key + ".png"), FileTime.fromMillis(now));
+      } catch (IOException ignored) {
+        // 仅影响重启后的恢复顺序
+      }
+    }
+    return item.png;
+  }
+
+  private void store(String key, byte[] png) {
+    if (persist) {
+      try {
+        write(key, png);
+      } catch (IOException e) {
+        // 落盘只为重启复用，失败不影响本次发送
+        log.warn("[ChartCache] persist {} failed: {}", key, e.getMessage());
+      }
+    }
+    synchronized (index) {
+      index.put(key, new Item(png, System.currentTimeMillis()));
+    }
+  }
+
+  private void write(String key, byte[] png) throws IOException {
+    Path out = dir.resolve(key + ".png");
+    // 先写临时文件再原子改名，读方永远看不到半个文件
+    Path tmp = Files.createTempFile(dir, key + ".", ".tmp");
+    try {
+      Files.write(tmp, png);
+      Files.move(tmp, out, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    } finally {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static void deleteQuietly(Path p) {
+    try {
+      Files.deleteIfExists(p);
+    } catch (IOException e) {
+      log.warn("[ChartCache] delete {} failed: {}", p.getFileName(), e.getMessage());
+    }
+  }
+
+  private static String keyOf(Path p) {
+    String name = p.getFileName().toString();
+    return name.substring(0, name.length() - ".png".length());
+  }
+
+  private static long lastModified(Path p) {
+    return p.toFile().lastModified();
+  }
+}
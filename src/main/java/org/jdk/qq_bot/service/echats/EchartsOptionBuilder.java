@@ -3,7 +3,8 @@ package org.jdk.qq_bot.service.echats;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.*;
-import org.jdk.qq_bot.dto.OvertimeSummary;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeYearSummary;
 
 /**
  * 二次元风格增强版：
@@ -30,23 +31,26 @@ public final class EchartsOptionBuilder {
         return g;
     }
 
-    /** 求和：本月总小时（用于中心数字） */
-    private static double sumHours(OvertimeSummary s) {
-        return s.getDailyTotals().values().stream().filter(Objects::nonNull)
-                .mapToDouble(BigDecimal::doubleValue).sum();
+    /** 饼图中心数字：本月总小时保留一位小数（四舍五入，同 "%.1f h"），按定点整数算，不走 Formatter */
+    static String centerText(int centis) {
+        int tenths = (centis + 5) / 10;
+        return new StringBuilder(8).append(tenths / 10).append('.').append(tenths % 10).append(" h").toString();
     }
 
     /* ------------------------- 每日柱状图 ------------------------- */
 
     /** 每日总小时 柱状图（更花哨的二次元风格） */
-    public static Map<String, Object> dailyBarOption(OvertimeSummary s) {
-        // x 轴与数据
-        List<String> labels = new ArrayList<>();
-        List<Double> data = new ArrayList<>();
-        s.getDailyTotals().forEach((LocalDate d, BigDecimal h) -> {
-            labels.add(d.toString().substring(5));           // MM-dd
-            data.add(h == null ? 0d : h.doubleValue());
-        });
+    public static Map<String, Object> dailyBarOption(CompactOvertimeSummary s) {
+        // x 轴与数据（只含有记录的日子）
+        List<String> labels = new ArrayList<>(s.recordDays());
+        List<Double> data = new ArrayList<>(s.recordDays());
+        char[] monthDay = new char[5];
+        for (int i = 0; i < s.days(); i++) {
+            if (s.dailyCentis(i) == 0) continue;
+            s.monthDay(i, monthDay, 0);
+            labels.add(new String(monthDay));                // MM-dd
+            data.add(CompactOvertimeSummary.hours(s.dailyCentis(i)));
+        }
 
         // —— 主柱子：粉→紫 渐变 + 阴影 + 圆角 —— //
         Map<String, Object> mainBar = new LinkedHashMap<>();
@@ -159,10 +163,10 @@ public final class EchartsOptionBuilder {
     /* ------------------------- 类型占比饼图 ------------------------- */
 
     /** 本月类型占比 饼图（外发光环 + 内高光 + 胶囊标签 + 贴纸） */
-    public static Map<String, Object> typePieOption(OvertimeSummary s) {
-        double g1 = s.getMonthByType().getOrDefault("G1", BigDecimal.ZERO).doubleValue();
-        double g2 = s.getMonthByType().getOrDefault("G2", BigDecimal.ZERO).doubleValue();
-        double g3 = s.getMonthByType().getOrDefault("G3", BigDecimal.ZERO).doubleValue();
+    public static Map<String, Object> typePieOption(CompactOvertimeSummary s) {
+        double g1 = CompactOvertimeSummary.hours(s.totalCentis(CompactOvertimeSummary.G1));
+        double g2 = CompactOvertimeSummary.hours(s.totalCentis(CompactOvertimeSummary.G2));
+        double g3 = CompactOvertimeSummary.hours(s.totalCentis(CompactOvertimeSummary.G3));
 
         // 数据：为 0 的项依然保留，这样图例能显示；但扇区会非常薄
         List<Map<String, Object>> data = new ArrayList<>();
@@ -243,11 +247,10 @@ public final class EchartsOptionBuilder {
         ));
 
         // —— 中心数字 + 表情（graphic 文本） —— //
-        double total = sumHours(s);
         List<Map<String,Object>> graphics = new ArrayList<>();
         graphics.add(Map.of("type","text","silent",true,"z",10,"left","center","top","46%",
                 "style", Map.of(
-                        "text", String.format("%.1f h", total),
+                        "text", centerText(s.totalCentis()),
                         "fontSize", 22, "fontWeight", 700, "fill","#556", "align","center"
                 )));
         graphics.add(Map.of("type","text","silent",true,"z",10,"left","center","top","58%",
@@ -274,4 +277,65 @@ public final class EchartsOptionBuilder {
         option.put("series", List.of(outerGlow, main, innerGloss));
         return option;
     }
+
+    /* ------------------------- 年度日历热力图 ------------------------- */
+
+    /** 年度日历热力图：一格一天，颜色深浅表示当天总小时 */
+    public static Map<String, Object> yearHeatmapOption(OvertimeYearSummary y) {
+        List<List<Object>> data = new ArrayList<>();
+        double max = 0;
+        for (Map.Entry<LocalDate, BigDecimal> e : y.dailyTotals().entrySet()) {
+            double h = e.getValue() == null ? 0d : e.getValue().doubleValue();
+            data.add(List.of(e.getKey().toString(), h));   // yyyy-MM-dd
+            max = Math.max(max, h);
+        }
+
+        // —— 日历坐标：周一开头，中文月份 / 星期 —— //
+        Map<String, Object> calendar = new LinkedHashMap<>();
+        calendar.put("range", String.valueOf(y.year()));
+        calendar.put("top", 84); calendar.put("left", 50); calendar.put("right", 30);
+        calendar.put("cellSize", List.of("auto", 16));
+        calendar.put("firstDay", 1);
+        calendar.put("splitLine", Map.of("lineStyle", Map.of("color","#eadcff","width",2)));
+        calendar.put("itemStyle", Map.of("color","rgba(255,255,255,0.75)","borderColor","#fff","borderWidth",2));
+        calendar.put("yearLabel", Map.of("show", false));
+        calendar.put("monthLabel", Map.of("nameMap","ZH","color","#667"));
+        calendar.put("dayLabel", Map.of("nameMap","ZH","color","#889"));
+
+        // —— 粉彩色阶：浅粉 → 紫 —— //
+        Map<String, Object> visualMap = new LinkedHashMap<>();
+        visualMap.put("min", 0);
+        visualMap.put("max", Math.max(4, Math.ceil(max)));
+        visualMap.put("calculable", false);
+        visualMap.put("orient","horizontal");
+        visualMap.put("left","center");
+        visualMap.put("top", 40);
+        visualMap.put("itemWidth", 12);
+        visualMap.put("textStyle", Map.of("color","#667"));
+        visualMap.put("inRange", Map.of("color", List.of("#FFE4EC","#FFD1DC","#E0BBE4","#C4A4FF","#9D7BEA")));
+
+        Map<String, Object> heat = new LinkedHashMap<>();
+        heat.put("type","heatmap");
+        heat.put("coordinateSystem","calendar");
+        heat.put("data", data);
+        heat.put("itemStyle", Map.of("borderRadius", 4));
+
+        // —— 主配置 —— //
+        Map<String, Object> option = new LinkedHashMap<>();
+        option.put("backgroundColor","transparent");
+        option.put("title", Map.of(
+                "text", y.year() + " 年加班日历 ✿ 合计 " + y.total().stripTrailingZeros().toPlainString() + "h",
+                "left","center",
+                "textStyle", Map.of("color","#556","fontSize",20,"fontWeight",700)
+        ));
+        option.put("tooltip", Map.of(
+                "backgroundColor","rgba(255,255,255,0.95)",
+                "borderColor","#eadcff","borderWidth",1,
+                "textStyle", Map.of("color","#334")
+        ));
+        option.put("visualMap", visualMap);
+        option.put("calendar", calendar);
+        option.put("series", List.of(heat));
+        return option;
+    }
 }
@@ -1,19 +1,29 @@
 package org.jdk.qq_bot.service.echats;
 
-import cn.hutool.http.HttpRequest;
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.nio.file.*;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.jdk.qq_bot.dto.OvertimeSummary;
+import org.apache.hc.core5.http.ContentType;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeYearSummary;
+import org.jdk.qq_bot.observe.CommandMetrics;
+import org.jdk.qq_bot.service.http.SharedHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.util.StopWatch;
 
 /**
- * 负责把 ECharts option 发到你 Node 渲染器（/render），拿回 PNG 并落盘。
- * 输出目录默认 run/charts，可通过配置覆盖。
+ * 负责把 ECharts option 发到你 Node 渲染器（/render），拿回 PNG 字节。
+ * 结果按请求内容寻址缓存在内存里（见 {@link ChartPngCache}），可选同时落盘到 run/charts。
  */
 @Slf4j
 @Service
@@ -24,79 +34,281 @@ public class EchartsRenderClient {
     @Value("${echarts.render.base-url}")
     private String baseUrl;
 
-    /** 输出目录（默认 run/charts） */
-    @Value("${echarts.render.out-dir:run/charts}")
-    private String outDir;
+    /** 渲染线程数：一次查询的两张图并行，多人同时查询时共享 */
+    @Value("${echarts.render.pool-size:4}")
+    private int poolSize;
 
-    private static final ObjectMapper M = new ObjectMapper();
+    /** 渲染排队上限，满了直接拒绝（不拖住调用线程） */
+    @Value("${echarts.render.queue-capacity:32}")
+    private int queueCapacity;
 
-    /** 渲染“本月每日小时”柱状图，返回生成文件路径 */
-    public Path renderMonthDailyBar(long userId, OvertimeSummary s) throws Exception {
-        log.info("[ECharts] user={} render daily-bar start", userId);
-        var option = EchartsOptionBuilder.dailyBarOption(s); // 使用二次元风格的 option
-        Path p = renderToPng(option, 1000, 380, "#FCFCFF", "month-daily-" + userId + ".png");
-        log.info("[ECharts] user={} render daily-bar done -> {}", userId, p);
-        return p;
+    /** 一次查询全部图表的总截止时间 */
+    @Value("${echarts.render.deadline-ms:12000}")
+    private long deadlineMs;
+
+    /** 单次渲染请求的读超时 */
+    @Value("${echarts.render.read-timeout-ms:10000}")
+    private long readTimeoutMs;
+
+    /** 渲染引擎：node（Chromium 渲染服务）或 java（进程内 Java2D，见 {@link Java2dChartRenderer}） */
+    @Value("${echarts.render.engine:node}")
+    private String engine;
+
+    /** node 引擎渲染失败时是否改用 Java2D 兜底 */
+    @Value("${echarts.render.fallback:true}")
+    private boolean fallback;
+
+    /** 渲染服务连不上后，这段时间内直接走 Java2D，不再每次去撞连接超时；不支持 /render/batch 时同样隔这么久再试批量 */
+    @Value("${echarts.render.fallback-cooldown-ms:30000}")
+    private long fallbackCooldownMs;
+
+    private final ChartPngCache pngCache;
+    private final SharedHttpClient http;
+    private final Java2dChartRenderer java2d;
+    private final CommandMetrics metrics;
+
+    private ThreadPoolExecutor pool;
+
+    /** 收到 /render/batch 404 后逐张请求到这个时刻（nanoTime），0 表示走批量；过了冷却期再试批量（渲染器可能已升级） */
+    private volatile long batchOffUntil;
+
+    /** 渲染服务被判定为不可用的截止时刻（nanoTime），0 表示可用 */
+    private volatile long nodeDownUntil;
+
+    /** 一次查询的两张图（各自独立完成，共用同一个截止时间） */
+    public record MonthCharts(CompletableFuture<byte[]> bar, CompletableFuture<byte[]> pie) {}
+
+    /** map 键排序输出：同样的图表永远得到同样的请求体，才能按内容寻址命中缓存 */
+    static final ObjectMapper M =
+            new ObjectMapper().configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    /** 图表页面背景色 */
+    private static final String CHART_BG = "#FCFCFF";
+
+    /** Java2D 结果的缓存 key 前缀 */
+    private static final byte[] LOCAL_KEY_PREFIX = "java2d:".getBytes(StandardCharsets.US_ASCII);
+
+    /** 请求体模板：静态装饰只序列化一次，请求时只写数据（与整棵 option 序列化逐字节相同） */
+    private static final ChartBodyTemplate BAR_BODY = ChartBodyTemplate.dailyBar(1000, 380, CHART_BG);
+    private static final ChartBodyTemplate PIE_BODY = ChartBodyTemplate.typePie(560, 380, CHART_BG);
+
+    /** 年度日历热力图尺寸：53 周 × 7 天 */
+    private static final int HEATMAP_W = 1000;
+    private static final int HEATMAP_H = 240;
+
+    @PostConstruct
+    void initPool() {
+        pool = ExecutorBuilder.create()
+                .setCorePoolSize(poolSize)
+                .setMaxPoolSize(poolSize)
+                .setWorkQueue(new ArrayBlockingQueue<>(queueCapacity))
+                .setThreadFactory(ThreadFactoryBuilder.create().setNamePrefix("echarts-render-").setDaemon(true).build())
+                .setHandler(new ThreadPoolExecutor.AbortPolicy())
+                .build();
     }
 
-    /** 渲染“本月类型占比”饼图，返回生成文件路径 */
-    public Path renderMonthTypePie(long userId, OvertimeSummary s) throws Exception {
-        log.info("[ECharts] user={} render type-pie start", userId);
-        var option = EchartsOptionBuilder.typePieOption(s); // 使用二次元风格的 option
-        Path p = renderToPng(option, 560, 380, "#FCFCFF", "month-type-" + userId + ".png");
-        log.info("[ECharts] user={} render type-pie done -> {}", userId, p);
-        return p;
+    @PreDestroy
+    void shutdownPool() {
+        pool.shutdownNow();
     }
 
     /**
-     * 发送 POST /render，拿回 PNG 并写入 outDir/fileName。
+     * 柱状图与饼图一次往返渲染（未命中缓存的合并成一个 POST /render/batch）；
+     * 超过 deadline 未完成则两张都以 TimeoutException 结束，并中止还没回来的渲染请求；某一张渲染失败不影响另一张。
+     */
+    public MonthCharts renderMonthChartsAsync(long userId, CompactOvertimeSummary s) {
+        String command = CommandMetrics.currentCommand(); // 渲染在别的线程完成，先在调用线程取好
+        var done = new CompletableFuture<Void>();
+        var both = submit(() -> renderMonthCharts(userId, s, done));
+        var bar = both.thenCompose(l -> l.get(0)).orTimeout(deadlineMs, TimeUnit.MILLISECONDS);
+        var pie = both.thenCompose(l -> l.get(1)).orTimeout(deadlineMs, TimeUnit.MILLISECONDS);
+        // 两张都有了结果（含超时）就中止还在等的请求，别让它们占着渲染线程和连接直到读超时
+        CompletableFuture.allOf(bar, pie).whenComplete((v, e) -> done.complete(null));
+        metrics.rendered(command, "daily-bar", bar);
+        metrics.rendered(command, "type-pie", pie);
+        return new MonthCharts(bar, pie);
+    }
+
+    /**
+     * 同时渲染柱状图与饼图，返回 [柱状图, 饼图]；按配置走渲染服务或 Java2D，渲染服务失败的那张改用 Java2D。
      *
-     * @param option ECharts 配置
-     * @param w      画布宽度
-     * @param h      画布高度
-     * @param bg     渲染页面 body 背景色（会透过 transparent 的 option 背景）
-     * @param fileName 输出文件名
+     * @param abortOn 它一结束（正常或异常）就中止尚未返回的渲染请求，也不再改用 Java2D
      */
-    private Path renderToPng(Map<String, Object> option, int w, int h, String bg, String fileName) throws Exception {
-        String url = baseUrl + "/render";
+    public List<CompletableFuture<byte[]>> renderMonthCharts(long userId, CompactOvertimeSummary s,
+                                                             CompletableFuture<?> abortOn) {
+        log.info("[ECharts] user={} render daily-bar + type-pie start", userId);
+        byte[] barBody = BAR_BODY.render(s);
+        byte[] pieBody = PIE_BODY.render(s);
+        Callable<byte[]> localBar = () -> java2d.dailyBar(s, 1000, 380, CHART_BG);
+        Callable<byte[]> localPie = () -> java2d.typePie(s, 560, 380, CHART_BG);
+
+        var charts = render(List.of(barBody, pieBody), List.of(localBar, localPie), abortOn);
+        charts.get(0).thenAccept(png -> log.info("[ECharts] user={} render daily-bar done -> {}B", userId, png.length));
+        charts.get(1).thenAccept(png -> log.info("[ECharts] user={} render type-pie done -> {}B", userId, png.length));
+        return charts;
+    }
+
+    /** 年度日历热力图；超过 deadline 未完成以 TimeoutException 结束 */
+    public CompletableFuture<byte[]> renderYearHeatmapAsync(long userId, OvertimeYearSummary y) {
+        String command = CommandMetrics.currentCommand();
+        var done = new CompletableFuture<Void>();
+        var png = submit(() -> renderYearHeatmap(userId, y, done))
+                .thenCompose(f -> f)
+                .orTimeout(deadlineMs, TimeUnit.MILLISECONDS);
+        png.whenComplete((b, e) -> done.complete(null));
+        metrics.rendered(command, "year-heatmap", png);
+        return png;
+    }
+
+    /** 渲染年度日历热力图；与月度图一样按配置走渲染服务或 Java2D，失败时改用 Java2D */
+    public CompletableFuture<byte[]> renderYearHeatmap(long userId, OvertimeYearSummary y, CompletableFuture<?> abortOn)
+            throws JsonProcessingException {
+        log.info("[ECharts] user={} render year-heatmap {} start", userId, y.year());
+        byte[] body = renderBody(EchartsOptionBuilder.yearHeatmapOption(y), HEATMAP_W, HEATMAP_H, CHART_BG);
+        Callable<byte[]> local = () -> java2d.yearHeatmap(y, HEATMAP_W, HEATMAP_H, CHART_BG);
+        var png = render(List.of(body), List.of(local), abortOn).get(0);
+        png.thenAccept(b -> log.info("[ECharts] user={} render year-heatmap done -> {}B", userId, b.length));
+        return png;
+    }
+
+    /** 按配置走渲染服务或 Java2D（locals 与 bodies 同序）；渲染服务失败的那张改用 Java2D */
+    private List<CompletableFuture<byte[]>> render(List<byte[]> bodies, List<Callable<byte[]>> locals,
+                                                   CompletableFuture<?> abortOn) {
+        List<CompletableFuture<byte[]>> charts = new ArrayList<>(bodies.size());
+        if ("java".equalsIgnoreCase(engine) || (fallback && nodeDown())) {
+            for (int i = 0; i < bodies.size(); i++) charts.add(renderLocal(bodies.get(i), locals.get(i)));
+            return charts;
+        }
+        List<CompletableFuture<byte[]>> remote = renderAll(bodies, abortOn);
+        if (!fallback) return remote;
+        for (int i = 0; i < bodies.size(); i++) {
+            charts.add(orLocal(remote.get(i), bodies.get(i), locals.get(i), abortOn));
+        }
+        return charts;
+    }
 
-        // 构造请求体（与 Node 渲染器约定相同键名）
+    /** 一组 /render 请求体 -> 同序的 PNG；命中缓存的直接复用，其余一次 POST /render/batch（abortOn 结束即中止） */
+    public List<CompletableFuture<byte[]>> renderAll(List<byte[]> bodies, CompletableFuture<?> abortOn) {
+        return pngCache.getOrRenderAll(bodies, missing -> postBatch(missing, abortOn));
+    }
+
+    /** Java2D 渲染，同样按内容缓存（key 与渲染服务的结果区分开，服务恢复后不会一直拿到兜底图） */
+    private CompletableFuture<byte[]> renderLocal(byte[] body, Callable<byte[]> renderer) {
+        byte[] key = new byte[LOCAL_KEY_PREFIX.length + body.length];
+        System.arraycopy(LOCAL_KEY_PREFIX, 0, key, 0, LOCAL_KEY_PREFIX.length);
+        System.arraycopy(body, 0, key, LOCAL_KEY_PREFIX.length, body.length);
+        try {
+            return CompletableFuture.completedFuture(pngCache.getOrRender(key, renderer));
+        } catch (Exception e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /** 渲染服务这张失败了就改用 Java2D；连不上时记下不可用，冷却期内后续请求直接走 Java2D；已过截止时间的不再兜底 */
+    private CompletableFuture<byte[]> orLocal(CompletableFuture<byte[]> remote, byte[] body, Callable<byte[]> renderer,
+                                              CompletableFuture<?> abortOn) {
+        return remote.handle((png, ex) -> {
+            if (ex == null) return CompletableFuture.completedFuture(png);
+            Throwable cause = (ex instanceof CompletionException && ex.getCause() != null) ? ex.getCause() : ex;
+            if (abortOn.isDone()) return CompletableFuture.<byte[]>failedFuture(cause);
+            if (cause instanceof UncheckedIOException) {
+                nodeDownUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fallbackCooldownMs);
+            }
+            log.warn("[ECharts] renderer failed ({}), falling back to Java2D", cause.getMessage());
+            return renderLocal(body, renderer);
+        }).thenCompose(f -> f);
+    }
+
+    private boolean nodeDown() {
+        long until = nodeDownUntil;
+        return until != 0 && System.nanoTime() - until < 0;
+    }
+
+    private boolean batchOff() {
+        long until = batchOffUntil;
+        return until != 0 && System.nanoTime() - until < 0;
+    }
+
+    private <T> CompletableFuture<T> submit(Callable<T> task) {
+        CompletableFuture<T> f = new CompletableFuture<>();
+        try {
+            pool.execute(() -> {
+                try {
+                    f.complete(task.call());
+                } catch (Throwable e) {
+                    f.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            f.completeExceptionally(new IllegalStateException("渲染繁忙，请稍后再试"));
+        }
+        return f;
+    }
+
+    /** 构造 /render 请求体（与 Node 渲染器约定相同键名），map 键排序输出；模板即由它生成 */
+    static byte[] renderBody(Map<String, Object> option, int w, int h, String bg) throws JsonProcessingException {
         Map<String, Object> payload = new LinkedHashMap<>();
         payload.put("option", option);
         payload.put("width", w);
         payload.put("height", h);
         payload.put("backgroundColor", bg);
-        String body = M.writeValueAsString(payload);
-
-        StopWatch sw = new StopWatch("echarts-" + fileName);
-        log.info("[ECharts] POST {} ({}x{}, bg={}), payload={}B", url, w, h, bg, body.length());
-
-        // HTTP 请求渲染（10s 超时）
-        sw.start("http");
-        var resp = HttpRequest.post(url)
-                .header("Content-Type", "application/json")
-                .body(body)
-                .timeout(10_000)
-                .execute();
-        sw.stop();
-
-        int status = resp.getStatus();
-        byte[] png = resp.bodyBytes();
-        int bytes = (png == null ? -1 : png.length);
-        log.info("[ECharts] response status={} bytes={}", status, bytes);
-
-        if (status != 200 || png == null || png.length == 0) {
-            throw new IllegalStateException("Renderer HTTP " + status + " -> " + resp.body());
+        return M.writeValueAsBytes(payload);
+    }
+
+    /** 发送 POST /render/batch，返回与 bodies 同序的结果；渲染器不支持批量（404）时退回逐张 /render */
+    private List<CompletableFuture<byte[]>> postBatch(List<byte[]> bodies, CompletableFuture<?> abortOn) {
+        if (bodies.size() == 1 || batchOff()) {
+            return postEach(bodies, abortOn);
+        }
+        String url = baseUrl + "/render/batch";
+        byte[] body = RenderBatch.body(bodies);
+        log.info("[ECharts] POST {} items={}, payload={}B", url, bodies.size(), body.length);
+
+        long t0 = System.nanoTime();
+        var resp = http.post(url, body, ContentType.APPLICATION_JSON, readTimeoutMs, abortOn);
+        log.info("[ECharts] batch response status={} bytes={} in {}ms",
+                resp.status(), resp.body().length, (System.nanoTime() - t0) / 1_000_000);
+
+        if (resp.status() == 404) {
+            log.warn("[ECharts] renderer has no /render/batch, one request per chart for the next {}ms",
+                    fallbackCooldownMs);
+            batchOffUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(fallbackCooldownMs);
+            return postEach(bodies, abortOn);
+        }
+        if (resp.status() != 200) {
+            throw new IllegalStateException("Renderer HTTP " + resp.status() + " -> " + resp.text());
+        }
+        return RenderBatch.decode(resp.body(), bodies.size());
+    }
+
+    /** 逐张 POST /render；多于一张时每张各交给渲染线程池，并行发出而不是在当前线程一张接一张等 */
+    private List<CompletableFuture<byte[]>> postEach(List<byte[]> bodies, CompletableFuture<?> abortOn) {
+        if (bodies.size() == 1) return List.of(postSingle(bodies.get(0), abortOn));
+        return bodies.stream().map(b -> submit(() -> post(b, "single", abortOn))).toList();
+    }
+
+    private CompletableFuture<byte[]> postSingle(byte[] body, CompletableFuture<?> abortOn) {
+        try {
+            return CompletableFuture.completedFuture(post(body, "single", abortOn));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
         }
+    }
 
-        // 写文件到 outDir
-        sw.start("writeFile");
-        Path out = Paths.get(outDir, fileName);
-        Files.createDirectories(out.getParent());
-        Files.write(out, png);
-        sw.stop();
+    /** 发送 POST /render，返回 PNG 字节（走共享连接池）；abortOn 结束即中止 */
+    private byte[] post(byte[] body, String label, CompletableFuture<?> abortOn) {
+        String url = baseUrl + "/render";
+        log.info("[ECharts] POST {} ({}), payload={}B", url, label, body.length);
+
+        long t0 = System.nanoTime();
+        var resp = http.post(url, body, ContentType.APPLICATION_JSON, readTimeoutMs, abortOn);
+        byte[] png = resp.body();
+        log.info("[ECharts] {} response status={} bytes={} in {}ms",
+                label, resp.status(), png.length, (System.nanoTime() - t0) / 1_000_000);
 
-        log.info("[ECharts] saved -> {} ({} bytes)\n{}", out.toAbsolutePath(), bytes, sw.prettyPrint());
-        return out.toAbsolutePath();
+        if (resp.status() != 200 || png.length == 0) {
+            throw new IllegalStateException("Renderer HTTP " + resp.status() + " -> " + resp.text());
+        }
+        return png;
     }
 }
@@ -0,0 +1,634 @@
+package org.jdk.qq_bot.service.echats;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.Shape;
+import java.awt.geom.Arc2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.math.BigDecimal;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.DoubleFunction;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeYearSummary;
+import org.springframework.stereotype.Component;
+
+/**
+ * 进程内图表渲染：用 Java2D 画出与 {@link EchartsOptionBuilder} 同布局、同配色的柱状图、饼图与年度日历热力图，不依赖 Node / Chromium。
+ *
+ * <p>只覆盖实际用到的几张图；阴影、发光用几层半透明描边近似，贴纸用几何图形代替字符。
+ *
+ * <p>输出按 2 倍像素密度绘制，与 Node 渲染器的 deviceScaleFactor 一致。无状态，可并发调用。
+ */
+@Component
+public class Java2dChartRenderer {
+
+  static final int SCALE = 2;
+
+  private static final Color[] PALETTE = {
+    rgb("#FFD1DC"), rgb("#BDE0FE"), rgb("#CDEAC0"), rgb("#FFE8A3"), rgb("#E0BBE4"), rgb("#FFDFD3")
+  };
+  private static final Color TITLE = rgb("#556");
+  private static final Color AXIS_TEXT = rgb("#667");
+  private static final Color AXIS_LINE = rgb("#d8dbe8");
+  private static final Color SPLIT_LINE = new Color(0, 0, 0, 15);
+  private static final Color SPLIT_AREA = new Color(253, 246, 255, 89);
+  private static final Color BAR_BG = new Color(255, 255, 255, 140);
+  private static final Color BAR_TOP = new Color(255, 209, 220, 245);
+  private static final Color BAR_BOTTOM = new Color(196, 164, 255, 224);
+  private static final Color BAR_SHADOW = new Color(165, 155, 255, 72);
+  private static final Color CAP = new Color(255, 210, 230, 242);
+  private static final Color CAP_GLOW = new Color(196, 164, 255, 140);
+  private static final Color RIBBON_FROM = new Color(196, 164, 255, 31);
+  private static final Color RIBBON_TO = new Color(255, 209, 220, 20);
+  private static final Color STAR = new Color(189, 224, 254, 97);
+  private static final Color HEART = new Color(255, 209, 220, 97);
+  private static final Color FLOWER = new Color(224, 187, 228, 102);
+  private static final Color OUTER_GLOW = new Color(189, 224, 254, 89);
+  private static final Color OUTER_GLOW_SHADOW = new Color(173, 216, 230, 140);
+  private static final Color SLICE_SHADOW = new Color(0, 0, 0, 14);
+  private static final Color LABEL_BG = new Color(255, 255, 255, 230);
+  private static final Color LABEL_TEXT = rgb("#445");
+  private static final Color SUB_TEXT = rgb("#889");
+
+  private static final Color CELL_EMPTY = new Color(255, 255, 255, 191);
+  private static final Color CELL_BORDER = Color.WHITE;
+  private static final Color[] HEAT = {
+    rgb("#FFE4EC"), rgb("#FFD1DC"), rgb("#E0BBE4"), rgb("#C4A4FF"), rgb("#9D7BEA")
+  };
+  private static final String[] MONTH_NAMES = {
+    "一月", "二月", "三月", "四月", "五月", "六月", "七月", "八月", "九月", "十月", "十一月", "十二月"
+  };
+  private static final String[] DAY_NAMES = {"一", "二", "三", "四", "五", "六", "日"};
+
+  private static final String FAMILY = Font.SANS_SERIF;
+
+  /** 每日总小时柱状图 */
+  public byte[] dailyBar(CompactOvertimeSummary s, int width, int height, String background) {
+    List<String> labels = new ArrayList<>(s.recordDays());
+    List<Double> data = new ArrayList<>(s.recordDays());
+    char[] monthDay = new char[5];
+    for (int i = 0; i < s.days(); i++) {
+      if (s.dailyCentis(i) == 0) continue;
+      s.monthDay(i, monthDay, 0);
+      labels.add(new String(monthDay)); // MM-dd
+      data.add(CompactOvertimeSummary.hours(s.dailyCentis(i)));
+    }
+
+    return draw(
+        width,
+        height,
+        background,
+        g -> {
+          // 背景丝带与贴纸（z 最低）
+          ribbon(g, width / 2.0, height * 0.55, 220, 180, -15, 25);
+          star(g, width * 0.06 + 14, height * 0.08 + 14, 14, STAR);
+          heart(g, width * 0.94 - 11, height * 0.94 - 11, 11, HEART);
+
+          title(g, "本月每日加班（小时） ᕦ(ò_óˇ)ᕤ", width);
+
+          double left = 56, right = width - 30, top = 70, bottom = height - 52;
+          double plotH = bottom - top;
+          double[] axis = niceAxis(data.stream().mapToDouble(Double::doubleValue).max().orElse(0));
+          double max = axis[0];
+          int splits = (int) axis[1];
+
+          // y 轴：交替背景带 + 分隔线 + 刻度
+          g.setFont(font(Font.PLAIN, 12));
+          FontMetrics fm = g.getFontMetrics();
+          for (int i = 0; i < splits; i++) {
+            double y1 = bottom - plotH * (i + 1) / splits;
+            if (i % 2 == 0) {
+              g.setColor(SPLIT_AREA);
+              g.fill(new Rectangle2D.Double(left, y1, right - left, plotH / splits));
+            }
+          }
+          g.setStroke(new BasicStroke(1f));
+          for (int i = 0; i <= splits; i++) {
+            double y = bottom - plotH * i / splits;
+            if (i > 0) {
+              g.setColor(SPLIT_LINE);
+              g.draw(new Rectangle2D.Double(left, y, right - left, 0));
+            }
+            String text = tick(max * i / splits);
+            g.setColor(AXIS_TEXT);
+            g.drawString(
+                text,
+                (float) (left - 8 - fm.stringWidth(text)),
+                (float) (y + fm.getAscent() / 2.0 - 1));
+          }
+          g.setColor(AXIS_LINE);
+          g.draw(new Rectangle2D.Double(left, bottom, right - left, 0));
+
+          int n = data.size();
+          if (n == 0) return;
+          double cw = (right - left) / n;
+          double barW = Math.min(18, cw * 0.68);
+
+          // x 轴标签：放不下时隔几个显示一个
+          g.setFont(font(Font.PLAIN, 12));
+          fm = g.getFontMetrics();
+          int step = Math.max(1, (int) Math.ceil((fm.stringWidth("00-00") + 6) / cw));
+          g.setColor(AXIS_TEXT);
+          for (int i = 0; i < n; i += step) {
+            String text = labels.get(i);
+            double cx = left + cw * (i + 0.5);
+            g.drawString(
+                text,
+                (float) (cx - fm.stringWidth(text) / 2.0),
+                (float) (bottom + 8 + fm.getAscent()));
+          }
+
+          for (int i = 0; i < n; i++) {
+            double cx = left + cw * (i + 0.5);
+            double x = cx - barW / 2;
+            // 轴对齐的背景条不需要抗锯齿
+            g.setColor(BAR_BG);
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            g.fill(new Rectangle2D.Double(x, top, barW, plotH));
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+            double v = data.get(i);
+            if (v <= 0) continue;
+            double h = plotH * v / max;
+            double y = bottom - h;
+            var bar = roundedBar(x, y, barW, h, 12, 8);
+            glow(
+                g,
+                k -> roundedBar(x - k, y - k, barW + 2 * k, h + 2 * k, 12 + k, 8 + k),
+                BAR_SHADOW,
+                3);
+            g.setPaint(new GradientPaint(0f, (float) y, BAR_TOP, 0f, (float) bottom, BAR_BOTTOM));
+            g.fill(bar);
+
+            // 顶端高光圆点
+            double r = 8;
+            var cap = new Ellipse2D.Double(cx - r, y - 3 - r, r * 2, r * 2);
+            glow(
+                g,
+                k -> new Ellipse2D.Double(cx - r - k, y - 3 - r - k, (r + k) * 2, (r + k) * 2),
+                CAP_GLOW,
+                3);
+            g.setColor(CAP);
+            g.fill(cap);
+          }
+        });
+  }
+
+  /** 本月类型占比环形饼图 */
+  public byte[] typePie(CompactOvertimeSummary s, int width, int height, String background) {
+    String[] names = {"G1", "G2", "G3"};
+    double[] values = new double[3];
+    for (int i = 0; i < 3; i++) {
+      values[i] = CompactOvertimeSummary.hours(s.totalCentis(i));
+    }
+    double sum = values[0] + values[1] + values[2];
+    if (sum == 0) {
+      names = new String[] {"无记录"};
+      values = new double[] {1};
+      sum = 1;
+    }
+    double[] percents = percents(values, sum);
+    String center = EchartsOptionBuilder.centerText(s.totalCentis());
+    String[] legend = names;
+    double[] vals = values;
+    double all = sum;
+
+    return draw(
+        width,
+        height,
+        background,
+        g -> {
+          ribbon(g, width / 2.0, height * 0.58, 235, 200, 210, 260);
+          star(g, width * 0.08 + 13, height * 0.12 + 13, 13, STAR);
+          heart(g, width * 0.90 - 11, height * 0.91 - 11, 11, HEART);
+          flower(g, width * 0.84 - 10, height * 0.14 + 10, 10, FLOWER);
+
+          title(g, "本月加班类型占比 ❀", width);
+
+          double cx = width * 0.5, cy = height * 0.54;
+          double base = Math.min(width, height) / 2.0;
+
+          // 外发光细环
+          var outer = ring(cx, cy, base * 0.74, base * 0.70, 90, -360);
+          glow(
+              g,
+              k -> ring(cx, cy, base * 0.74 + k, base * 0.70 - k, 90, -360),
+              OUTER_GLOW_SHADOW,
+              6);
+          g.setColor(OUTER_GLOW);
+          g.fill(outer);
+
+          // 主环：从 12 点方向顺时针
+          double r0 = base * 0.38, r1 = base * 0.66;
+          double start = 90;
+          List<double[]> labelAt = new ArrayList<>();
+          for (int i = 0; i < vals.length; i++) {
+            double extent = -360 * vals[i] / all;
+            if (vals[i] > 0) {
+              var slice = ring(cx, cy, r1, r0, start, extent);
+              double from = start;
+              glow(g, k -> ring(cx, cy, r1 + k, r0 - k, from, extent), SLICE_SHADOW, 3);
+              g.setColor(PALETTE[i % PALETTE.length]);
+              g.fill(slice);
+              g.setColor(Color.WHITE);
+              g.setStroke(new BasicStroke(2f));
+              g.draw(slice);
+              labelAt.add(new double[] {i, Math.toRadians(start + extent / 2)});
+            }
+            start += extent;
+          }
+
+          // 内高光细环
+          double gr0 = base * 0.28, gr1 = base * 0.32;
+          g.setPaint(
+              new GradientPaint(
+                  0f,
+                  (float) (cy - gr1),
+                  new Color(255, 255, 255, 242),
+                  0f,
+                  (float) (cy + gr1),
+                  new Color(255, 255, 255, 89)));
+          g.fill(ring(cx, cy, gr1, gr0, 90, -360));
+
+          // 胶囊标签 + 引导线
+          g.setFont(font(Font.PLAIN, 12));
+          FontMetrics fm = g.getFontMetrics();
+          g.setStroke(new BasicStroke(1f));
+          for (double[] l : labelAt) {
+            int i = (int) l[0];
+            double a = l[1];
+            double cos = Math.cos(a), sin = -Math.sin(a);
+            var p0 = new Point2D.Double(cx + cos * r1, cy + sin * r1);
+            var p1 = new Point2D.Double(cx + cos * (r1 + 12), cy + sin * (r1 + 12));
+            double dir = cos >= 0 ? 1 : -1;
+            var p2 = new Point2D.Double(p1.x + dir * 10, p1.y);
+            g.setColor(PALETTE[i % PALETTE.length].darker());
+            Path2D line = new Path2D.Double();
+            line.moveTo(p0.x, p0.y);
+            line.lineTo(p1.x, p1.y);
+            line.lineTo(p2.x, p2.y);
+            g.draw(line);
+
+            String name = legend[i];
+            String pct = tick(percents[i]) + "%";
+            double wName = fm.stringWidth(name) + 16, wPct = fm.stringWidth(pct) + 16;
+            double hTag = fm.getHeight() + 6;
+            double x = dir > 0 ? p2.x + 4 : p2.x - 4 - wName - 4 - wPct;
+            double y = p2.y - hTag / 2;
+            capsule(g, name, x, y, wName, hTag, fm, false);
+            capsule(g, pct, x + wName + 4, y, wPct, hTag, fm, true);
+          }
+
+          // 中心数字与表情
+          g.setColor(TITLE);
+          g.setFont(font(Font.BOLD, 22));
+          centered(g, center, cx, height * 0.46);
+          g.setColor(SUB_TEXT);
+          g.setFont(font(Font.PLAIN, 14));
+          centered(g, "(ง •̀_•́)ง", cx, height * 0.58);
+
+          // 底部图例
+          g.setFont(font(Font.PLAIN, 12));
+          fm = g.getFontMetrics();
+          double itemsW = 0;
+          for (String name : legend) itemsW += 12 + 5 + fm.stringWidth(name);
+          itemsW += 10 * (legend.length - 1);
+          double x = cx - itemsW / 2;
+          double y = height - 6 - 14;
+          for (int i = 0; i < legend.length; i++) {
+            g.setColor(PALETTE[i % PALETTE.length]);
+            g.fill(new RoundRectangle2D.Double(x, y + 3, 12, 8, 3, 3));
+            g.setColor(TITLE);
+            g.drawString(legend[i], (float) (x + 17), (float) (y + 7 + fm.getAscent() / 2.0 - 1));
+            x += 12 + 5 + fm.stringWidth(legend[i]) + 10;
+          }
+        });
+  }
+
+  /** 年度日历热力图：一列一周（周一开头），一格一天；没有记录的日子留白 */
+  public byte[] yearHeatmap(OvertimeYearSummary y, int width, int height, String background) {
+    LocalDate first = LocalDate.of(y.year(), 1, 1);
+    LocalDate firstMonday = first.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    int weeks = weekOf(firstMonday, LocalDate.of(y.year(), 12, 31)) + 1;
+    double max =
+        Math.max(
+            4,
+            Math.ceil(
+                y.dailyTotals().values().stream()
+                    .filter(Objects::nonNull)
+                    .mapToDouble(BigDecimal::doubleValue)
+                    .max()
+                    .orElse(0)));
+
+    return draw(
+        width,
+        height,
+        background,
+        g -> {
+          title(g, y.year() + " 年加班日历 ✿ 合计 " + tick(y.total().doubleValue()) + "h", width);
+
+          // 色阶图例：0 ~ max 的横向渐变条
+          double lw = 160, lh = 12, lx = (width - lw) / 2, ly = 40;
+          g.setFont(font(Font.PLAIN, 12));
+          FontMetrics fm = g.getFontMetrics();
+          for (int i = 0; i < lw; i++) {
+            g.setColor(heat(i / (lw - 1)));
+            g.fill(new Rectangle2D.Double(lx + i, ly, 1.2, lh));
+          }
+          g.setColor(AXIS_TEXT);
+          String maxText = tick(max);
+          g.drawString(
+              "0", (float) (lx - 6 - fm.stringWidth("0")), (float) (ly + fm.getAscent() - 1));
+          g.drawString(maxText, (float) (lx + lw + 6), (float) (ly + fm.getAscent() - 1));
+
+          double left = 50, top = 84, cellH = 16;
+          double cellW = (width - left - 30) / weeks;
+
+          // 月份（首日所在列的上方）与星期标签
+          g.setColor(AXIS_TEXT);
+          for (int m = 1; m <= 12; m++) {
+            double x = left + cellW * weekOf(firstMonday, LocalDate.of(y.year(), m, 1));
+            g.drawString(MONTH_NAMES[m - 1], (float) x, (float) (top - 6));
+          }
+          g.setColor(SUB_TEXT);
+          for (int d = 0; d < 7; d++) {
+            String text = DAY_NAMES[d];
+            g.drawString(
+                text,
+                (float) (left - 8 - fm.stringWidth(text)),
+                (float) (top + cellH * (d + 0.5) + fm.getAscent() / 2.0 - 1));
+          }
+
+          g.setStroke(new BasicStroke(2f));
+          for (LocalDate d = first; d.getYear() == y.year(); d = d.plusDays(1)) {
+            double x = left + cellW * weekOf(firstMonday, d);
+            double cy = top + cellH * (d.getDayOfWeek().getValue() - 1);
+            var cell = new Rectangle2D.Double(x, cy, cellW, cellH);
+            BigDecimal h = y.dailyTotals().get(d);
+            g.setColor(CELL_EMPTY);
+            g.fill(cell);
+            g.setColor(CELL_BORDER);
+            g.draw(cell);
+            if (h != null) {
+              g.setColor(heat(Math.min(1, h.doubleValue() / max)));
+              g.fill(new RoundRectangle2D.Double(x + 1, cy + 1, cellW - 2, cellH - 2, 4, 4));
+            }
+          }
+        });
+  }
+
+  // ---------- 布局 ----------
+
+  /** d 在以 firstMonday 为第 0 列的日历里所在的列 */
+  private static int weekOf(LocalDate firstMonday, LocalDate d) {
+    return (int) ((d.toEpochDay() - firstMonday.toEpochDay()) / 7);
+  }
+
+  /** 色阶上 t（0 ~ 1）处的颜色：相邻两档线性插值 */
+  static Color heat(double t) {
+    double pos = Math.max(0, Math.min(1, t)) * (HEAT.length - 1);
+    int i = Math.min((int) pos, HEAT.length - 2);
+    double f = pos - i;
+    Color a = HEAT[i];
+    Color b = HEAT[i + 1];
+    return new Color(
+        (int) Math.round(a.getRed() + (b.getRed() - a.getRed()) * f),
+        (int) Math.round(a.getGreen() + (b.getGreen() - a.getGreen()) * f),
+        (int) Math.round(a.getBlue() + (b.getBlue() - a.getBlue()) * f));
+  }
+
+  /** 坐标轴上限与分段数：与 ECharts 一样取 1 / 2 / 3 / 5 × 10^n 的整刻度，约 5 段 */
+  static double[] niceAxis(double max) {
+    if (max <= 0) return new double[] {1, 5};
+    double raw = max / 5;
+    double mag = Math.pow(10, Math.floor(Math.log10(raw)));
+    double norm = raw / mag;
+    double step = (norm < 1.5 ? 1 : norm < 2.5 ? 2 : norm < 4 ? 3 : norm < 7 ? 5 : 10) * mag;
+    int splits = (int) Math.ceil(max / step - 1e-9);
+    return new double[] {step * splits, splits};
+  }
+
+  /** 百分比（两位小数，最大余数法保证加起来正好 100，与 ECharts 的 {d} 一致） */
+  static double[] percents(double[] values, double sum) {
+    int n = values.length;
+    long target = 10000;
+    long[] units = new long[n];
+    double[] rest = new double[n];
+    long used = 0;
+    for (int i = 0; i < n; i++) {
+      double exact = values[i] / sum * target;
+      units[i] = (long) Math.floor(exact);
+      rest[i] = exact - units[i];
+      used += units[i];
+    }
+    while (used < target) {
+      int best = 0;
+      for (int i = 1; i < n; i++) if (rest[i] > rest[best]) best = i;
+      units[best]++;
+      rest[best] = -1;
+      used++;
+    }
+    double[] out = new double[n];
+    for (int i = 0; i < n; i++) out[i] = units[i] / 100.0;
+    return out;
+  }
+
+  /** 数字去掉多余的 0：3.0 -> "3"，2.5 -> "2.5" */
+  private static String tick(double v) {
+    return BigDecimal.valueOf(Math.round(v * 100) / 100.0).stripTrailingZeros().toPlainString();
+  }
+
+  // ---------- 绘制 ----------
+
+  @FunctionalInterface
+  private interface Painter {
+    void paint(Graphics2D g);
+  }
+
+  private static byte[] draw(int width, int height, String background, Painter painter) {
+    var img = new BufferedImage(width * SCALE, height * SCALE, BufferedImage.TYPE_INT_RGB);
+    Graphics2D g = img.createGraphics();
+    try {
+      g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+      g.setRenderingHint(
+          RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+      g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+      g.setRenderingHint(
+          RenderingHints.KEY_FRACTIONALMETRICS, RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+      g.scale(SCALE, SCALE);
+      g.setColor(rgb(background));
+      g.fillRect(0, 0, width, height);
+      painter.paint(g);
+    } finally {
+      g.dispose();
+    }
+    return PngEncoder.encode(img);
+  }
+
+  private static void title(Graphics2D g, String text, int width) {
+    g.setFont(font(Font.BOLD, 20));
+    g.setColor(TITLE);
+    FontMetrics fm = g.getFontMetrics();
+    String shown = displayable(g.getFont(), text);
+    g.drawString(shown, (float) ((width - fm.stringWidth(shown)) / 2.0), 5f + fm.getAscent());
+  }
+
+  private static void centered(Graphics2D g, String text, double cx, double top) {
+    String shown = displayable(g.getFont(), text);
+    if (shown.isEmpty()) return;
+    FontMetrics fm = g.getFontMetrics();
+    g.drawString(shown, (float) (cx - fm.stringWidth(shown) / 2.0), (float) (top + fm.getAscent()));
+  }
+
+  /** 字体里没有的字符（颜文字、装饰符）整段去掉，避免画出方块 */
+  private static String displayable(Font font, String text) {
+    int bad = font.canDisplayUpTo(text);
+    if (bad < 0) return text;
+    int space = text.lastIndexOf(' ', bad);
+    return space > 0 ? text.substring(0, space) : "";
+  }
+
+  private static void capsule(
+      Graphics2D g,
+      String text,
+      double x,
+      double y,
+      double w,
+      double h,
+      FontMetrics fm,
+      boolean bold) {
+    g.setColor(LABEL_BG);
+    g.fill(new RoundRectangle2D.Double(x, y, w, h, 18, 18));
+    g.setColor(LABEL_TEXT);
+    Font f = g.getFont();
+    if (bold) g.setFont(f.deriveFont(Font.BOLD));
+    FontMetrics m = g.getFontMetrics();
+    g.drawString(
+        text,
+        (float) (x + (w - m.stringWidth(text)) / 2),
+        (float) (y + (h + m.getAscent()) / 2 - 2));
+    g.setFont(f);
+  }
+
+  /** 上圆角 rt、下圆角 rb 的柱子 */
+  private static Path2D roundedBar(double x, double y, double w, double h, double rt, double rb) {
+    rt = Math.min(rt, Math.min(w / 2, h / 2));
+    rb = Math.min(rb, Math.min(w / 2, h / 2));
+    Path2D p = new Path2D.Double();
+    p.moveTo(x + rt, y);
+    p.lineTo(x + w - rt, y);
+    p.quadTo(x + w, y, x + w, y + rt);
+    p.lineTo(x + w, y + h - rb);
+    p.quadTo(x + w, y + h, x + w - rb, y + h);
+    p.lineTo(x + rb, y + h);
+    p.quadTo(x, y + h, x, y + h - rb);
+    p.lineTo(x, y + rt);
+    p.quadTo(x, y, x + rt, y);
+    p.closePath();
+    return p;
+  }
+
+  /** 圆环扇区（角度同 Arc2D：0 度在 3 点方向，逆时针为正）；直接拼路径，不做 Area 布尔运算 */
+  private static Path2D ring(
+      double cx, double cy, double r1, double r0, double start, double extent) {
+    Path2D p = new Path2D.Double(Path2D.WIND_EVEN_ODD);
+    if (Math.abs(extent) >= 360) {
+      p.append(new Ellipse2D.Double(cx - r1, cy - r1, r1 * 2, r1 * 2), false);
+      p.append(new Ellipse2D.Double(cx - r0, cy - r0, r0 * 2, r0 * 2), false);
+      return p;
+    }
+    p.append(new Arc2D.Double(cx - r1, cy - r1, r1 * 2, r1 * 2, start, extent, Arc2D.OPEN), false);
+    p.append(
+        new Arc2D.Double(cx - r0, cy - r0, r0 * 2, r0 * 2, start + extent, -extent, Arc2D.OPEN),
+        true);
+    p.closePath();
+    return p;
+  }
+
+  /** 近似 shadowBlur：由外向内几层逐渐收小的半透明同形状，越靠近本体叠得越浓（填充比宽描边便宜得多） */
+  private static void glow(Graphics2D g, DoubleFunction<Shape> grown, Color color, int layers) {
+    // 每层透明度摊薄，叠起来中心最浓；直接用带透明度的颜色而不是 AlphaComposite，走 Java2D 的快速填充路径
+    g.setColor(
+        new Color(
+            color.getRed(), color.getGreen(), color.getBlue(), color.getAlpha() / (layers + 1)));
+    for (int i = layers; i >= 1; i--) {
+      g.fill(grown.apply(i));
+    }
+  }
+
+  /** 背景丝带：中心 (cx, cy) 的圆环扇区，角度按 ECharts（顺时针为正） */
+  private static void ribbon(
+      Graphics2D g, double cx, double cy, double r, double r0, double fromDeg, double toDeg) {
+    var shape = ring(cx, cy, r, r0, -fromDeg, -(toDeg - fromDeg));
+    var b = shape.getBounds2D();
+    g.setPaint(
+        new GradientPaint(
+            0f, (float) b.getMinY(), RIBBON_FROM, 0f, (float) b.getMaxY(), RIBBON_TO));
+    g.fill(shape);
+  }
+
+  /** 四角星（代替 ✦） */
+  private static void star(Graphics2D g, double cx, double cy, double r, Color color) {
+    Path2D p = new Path2D.Double();
+    for (int i = 0; i < 8; i++) {
+      double a = Math.PI / 4 * i - Math.PI / 2;
+      double rr = i % 2 == 0 ? r : r * 0.32;
+      double x = cx + Math.cos(a) * rr, y = cy + Math.sin(a) * rr;
+      if (i == 0) p.moveTo(x, y);
+      else p.lineTo(x, y);
+    }
+    p.closePath();
+    g.setColor(color);
+    g.fill(p);
+  }
+
+  /** 爱心（代替 ❤） */
+  private static void heart(Graphics2D g, double cx, double cy, double r, Color color) {
+    Path2D p = new Path2D.Double();
+    p.moveTo(cx, cy + r);
+    p.curveTo(cx - r * 1.6, cy - r * 0.1, cx - r * 0.6, cy - r * 1.2, cx, cy - r * 0.4);
+    p.curveTo(cx + r * 0.6, cy - r * 1.2, cx + r * 1.6, cy - r * 0.1, cx, cy + r);
+    p.closePath();
+    g.setColor(color);
+    g.fill(p);
+  }
+
+  /** 五瓣小花（代替 ❁） */
+  private static void flower(Graphics2D g, double cx, double cy, double r, Color color) {
+    g.setColor(color);
+    double pr = r * 0.45;
+    for (int i = 0; i < 5; i++) {
+      double a = Math.PI * 2 / 5 * i - Math.PI / 2;
+      double px = cx + Math.cos(a) * r * 0.55, py = cy + Math.sin(a) * r * 0.55;
+      g.fill(new Ellipse2D.Double(px - pr, py - pr, pr * 2, pr * 2));
+    }
+  }
+
+  private static Font font(int style, int size) {
+    return new Font(FAMILY, style, size);
+  }
+
+  /** "#RGB" / "#RRGGBB" */
+  private static Color rgb(String hex) {
+    String h = hex.substring(1);
+    if (h.length() == 3) {
+      h = "" + h.charAt(0) + h.charAt(0) + h.charAt(1) + h.charAt(1) + h.charAt(2) + h.charAt(2);
+    }
+    return new Color(Integer.parseInt(h, 16));
+  }
+}
@@ -0,0 +1,86 @@
+package org.jdk.qq_bot.service.echats;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * 图表专用的 PNG 编码：8 位 RGB，每行固定用 Up 过滤 + 低级别 deflate。
+ *
+ * <p>ImageIO 的 PNG 编码逐行试所有过滤器，2000x760 的图要 70ms 以上；图表以竖向渐变和纯色块为主，固定 Up 过滤只要三分之一的时间，文件还更小。
+ */
+final class PngEncoder {
+
+  private static final byte[] SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+  private static final int FILTER_UP = 2;
+  private static final int LEVEL = 3;
+
+  private PngEncoder() {}
+
+  /** 编码 TYPE_INT_RGB 图像 */
+  static byte[] encode(BufferedImage img) {
+    if (img.getType() != BufferedImage.TYPE_INT_RGB) {
+      throw new IllegalArgumentException("expected TYPE_INT_RGB, got " + img.getType());
+    }
+    int w = img.getWidth();
+    int h = img.getHeight();
+    int[] px = ((DataBufferInt) img.getRaster().getDataBuffer()).getData();
+    try {
+      var idat = new ByteArrayOutputStream(w * h / 4);
+      var deflater = new Deflater(LEVEL);
+      try (var z = new DeflaterOutputStream(idat, deflater, 64 * 1024)) {
+        byte[] line = new byte[1 + w * 3];
+        byte[] prev = new byte[w * 3];
+        byte[] cur = new byte[w * 3];
+        line[0] = FILTER_UP;
+        for (int y = 0; y < h; y++) {
+          for (int x = 0, o = y * w, i = 0; x < w; x++, i += 3) {
+            int p = px[o + x];
+            cur[i] = (byte) (p >> 16);
+            cur[i + 1] = (byte) (p >> 8);
+            cur[i + 2] = (byte) p;
+          }
+          for (int i = 0; i < cur.length; i++) line[1 + i] = (byte) (cur[i] - prev[i]);
+          z.write(line);
+          byte[] t = prev;
+          prev = cur;
+          cur = t;
+        }
+      } finally {
+        deflater.end();
+      }
+
+      var out = new ByteArrayOutputStream(idat.size() + 64);
+      var d = new DataOutputStream(out);
+      d.write(SIGNATURE);
+      // 宽、高、位深 8、颜色类型 2（RGB）、压缩 / 过滤 / 隔行均为 0
+      byte[] ihdr = ByteBuffer.allocate(13).putInt(w).putInt(h).put((byte) 8).put((byte) 2).array();
+      chunk(d, "IHDR", ihdr, ihdr.length);
+      chunk(d, "IDAT", idat.toByteArray(), idat.size());
+      chunk(d, "IEND", new byte[0], 0);
+      return out.toByteArray();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); // 只写内存，不会发生
+    }
+  }
+
+  private static void chunk(DataOutputStream d, String type, byte[] data, int len)
+      throws IOException {
+    byte[] t = type.getBytes(StandardCharsets.US_ASCII);
+    var crc = new CRC32();
+    crc.update(t);
+    crc.update(data, 0, len);
+    d.writeInt(len);
+    d.write(t);
+    d.write(data, 0, len);
+    d.writeInt((int) crc.getValue());
+  }
+}
@@ -0,0 +1,70 @@
+package org.jdk.qq_bot.service.echats;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * /render/batch 的请求与响应编码（与 echarts/server.js 约定）。
+ *
+ * <p>请求体 {@code {"items":[body1, body2, ...]}}：直接拼接各项已序列化好的 /render 请求体，不再二次序列化。
+ *
+ * <p>响应按请求顺序逐项拼接：1 字节状态（0 = PNG，1 = 失败，内容为 UTF-8 错误信息）+ 4 字节大端长度 + 内容。
+ */
+final class RenderBatch {
+
+  static final byte OK = 0;
+  static final byte FAILED = 1;
+
+  private static final byte[] OPEN = "{\"items\":[".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] CLOSE = "]}".getBytes(StandardCharsets.US_ASCII);
+
+  private RenderBatch() {}
+
+  /** 把若干 /render 请求体包成一个 /render/batch 请求体 */
+  static byte[] body(List<byte[]> renderBodies) {
+    int size = OPEN.length + CLOSE.length + renderBodies.size();
+    for (byte[] b : renderBodies) size += b.length;
+    var out = new ByteArrayOutputStream(size);
+    out.writeBytes(OPEN);
+    for (int i = 0; i < renderBodies.size(); i++) {
+      if (i > 0) out.write(',');
+      out.writeBytes(renderBodies.get(i));
+    }
+    out.writeBytes(CLOSE);
+    return out.toByteArray();
+  }
+
+  /** 解析响应：每项一个已完成的 future，失败项以 IllegalStateException 结束；整体格式不对时直接抛出 */
+  static List<CompletableFuture<byte[]>> decode(byte[] response, int expected) {
+    ByteBuffer buf = ByteBuffer.wrap(response);
+    List<CompletableFuture<byte[]>> out = new ArrayList<>(expected);
+    while (buf.hasRemaining()) {
+      if (buf.remaining() < 5) throw malformed("truncated header", out.size());
+      byte status = buf.get();
+      int len = buf.getInt();
+      if (len < 0 || len > buf.remaining()) throw malformed("bad length " + len, out.size());
+      byte[] content = new byte[len];
+      buf.get(content);
+      if (status == OK && len > 0) {
+        out.add(CompletableFuture.completedFuture(content));
+      } else {
+        String reason = status == OK ? "empty png" : new String(content, StandardCharsets.UTF_8);
+        out.add(CompletableFuture.failedFuture(new IllegalStateException("Renderer: " + reason)));
+      }
+    }
+    if (out.size() != expected) {
+      throw new IllegalStateException(
+          "Renderer batch returned " + out.size() + " items, expected " + expected);
+    }
+    return out;
+  }
+
+  private static IllegalStateException malformed(String what, int item) {
+    return new IllegalStateException(
+        "Renderer batch response malformed at item " + item + ": " + what);
+  }
+}
@@ -0,0 +1,311 @@
+package org.jdk.qq_bot.service.http;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.classic.methods.HttpUriRequestBase;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultHttpRequestRetryStrategy;
+import org.apache.hc.client5.http.impl.IdleConnectionEvictor;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.client5.http.io.ConnectionEndpoint;
+import org.apache.hc.client5.http.io.HttpClientConnectionManager;
+import org.apache.hc.client5.http.io.LeaseRequest;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.HttpResponse;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.net.URIBuilder;
+import org.apache.hc.core5.pool.PoolStats;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 全局共享的 HTTP 客户端（渲染服务、有道接口共用）：keep-alive 连接池，连接超时与读超时分开配置。
+ *
+ * <p>每个目标主机最多 max-per-host 个并发连接，超出的请求排队等连接，等满 lease-timeout-ms 仍拿不到就失败。
+ *
+ * <p>分阶段计时：等连接（lease）、新建连接（connect）、收到响应头（headers，含前两段）、读响应体（transfer）。
+ */
+@Slf4j
+@Component
+public class SharedHttpClient {
+
+  /** 响应状态码与完整响应体 */
+  public record Response(int status, byte[] body) {
+    public boolean isOk() {
+      return status >= 200 && status < 300;
+    }
+
+    public String text() {
+      return new String(body, StandardCharsets.UTF_8);
+    }
+  }
+
+  /** 请求 / 失败 / 新建连接计数，各阶段平均耗时（毫秒），以及连接池当前的占用 / 空闲 / 排队数 */
+  public record Stats(
+      long requests,
+      long failures,
+      long connects,
+      double avgLeaseMs,
+      double avgConnectMs,
+      double avgHeadersMs,
+      double avgTransferMs,
+      int leased,
+      int available,
+      int pending) {}
+
+  private final PoolingHttpClientConnectionManager pool;
+  private final CloseableHttpClient client;
+  private final IdleConnectionEvictor evictor;
+  private final RequestConfig defaults;
+
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final Phase lease = new Phase();
+  private final Phase connect = new Phase();
+  private final Phase headers = new Phase();
+  private final Phase transfer = new Phase();
+
+  public SharedHttpClient(
+      @Value("${http.client.connect-timeout-ms:2000}") long connectTimeoutMs,
+      @Value("${http.client.read-timeout-ms:10000}") long readTimeoutMs,
+      @Value("${http.client.max-total:32}") int maxTotal,
+      @Value("${http.client.max-per-host:8}") int maxPerHost,
+      @Value("${http.client.lease-timeout-ms:3000}") long leaseTimeoutMs,
+      @Value("${http.client.keep-alive-seconds:30}") long keepAliveSeconds) {
+    Timeout readTimeout = Timeout.ofMilliseconds(readTimeoutMs);
+    this.defaults =
+        RequestConfig.custom()
+            .setConnectionRequestTimeout(Timeout.ofMilliseconds(leaseTimeoutMs))
+            .setResponseTimeout(readTimeout)
+            .build();
+    this.pool =
+        PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(maxTotal)
+            .setMaxConnPerRoute(maxPerHost)
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                    .setSocketTimeout(readTimeout)
+                    // 闲置过的连接复用前先检查，避免撞上对端已关闭的连接
+                    .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                    .build())
+            .build();
+    this.client =
+        HttpClients.custom()
+            .setConnectionManager(new TimedConnectionManager(pool))
+            .setDefaultRequestConfig(defaults)
+            // 幂等请求（GET）撞上对端刚关掉的连接或收到 429 / 503 时立即重试一次；POST 不重试，超时也不重试
+            .setRetryStrategy(new IdempotentRetryStrategy())
+            .build();
+    // 连接管理器被包了一层，builder 自带的空闲回收认不出来，这里自己起
+    TimeValue idle = TimeValue.ofSeconds(keepAliveSeconds);
+    this.evictor = new IdleConnectionEvictor(pool, idle, idle);
+    this.evictor.start();
+  }
+
+  /** GET，query 参数自动编码；使用默认读超时 */
+  public Response get(String url, Map<String, String> query) {
+    return get(url, query, 0);
+  }
+
+  /** GET，readTimeoutMs &lt;= 0 时使用默认读超时 */
+  public Response get(String url, Map<String, String> query, long readTimeoutMs) {
+    try {
+      URIBuilder b = new URIBuilder(url);
+      query.forEach(b::addParameter);
+      HttpGet req = new HttpGet(b.build());
+      req.setHeader(HttpHeaders.ACCEPT, "application/json");
+      return execute(req, readTimeoutMs);
+    } catch (URISyntaxException e) {
+      throw new IllegalArgumentException("URL 不合法：" + url, e);
+    }
+  }
+
+  /** POST 请求体；readTimeoutMs &lt;= 0 时使用默认读超时 */
+  public Response post(String url, byte[] body, ContentType type, long readTimeoutMs) {
+    HttpPost req = new HttpPost(url);
+    req.setEntity(new ByteArrayEntity(body, type));
+    return execute(req, readTimeoutMs);
+  }
+
+  /**
+   * 同上，abortOn 一结束（正常或异常）就中止这次请求：连接直接关闭、不回连接池，调用方以 CancellationException 结束。
+   *
+   * <p>调用方自己的截止时间比读超时短时用它，超时后不再占着连接与线程等一个没人要的响应。
+   */
+  public Response post(
+      String url, byte[] body, ContentType type, long readTimeoutMs, CompletionStage<?> abortOn) {
+    HttpPost req = new HttpPost(url);
+    req.setEntity(new ByteArrayEntity(body, type));
+    abortOn.whenComplete((r, e) -> req.cancel());
+    return execute(req, readTimeoutMs);
+  }
+
+  public Stats stats() {
+    PoolStats p = pool.getTotalStats();
+    return new Stats(
+        requests.sum(),
+        failures.sum(),
+        connect.count.sum(),
+        lease.avgMs(),
+        connect.avgMs(),
+        headers.avgMs(),
+        transfer.avgMs(),
+        p.getLeased(),
+        p.getAvailable(),
+        p.getPending());
+  }
+
+  @PreDestroy
+  void close() {
+    evictor.shutdown();
+    client.close(CloseMode.GRACEFUL);
+  }
+
+  private Response execute(HttpUriRequestBase req, long readTimeoutMs) {
+    if (readTimeoutMs > 0) {
+      req.setConfig(
+          RequestConfig.copy(defaults)
+              .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+              .build());
+    }
+    requests.increment();
+    long t0 = System.nanoTime();
+    try {
+      return client.execute(
+          req,
+          resp -> {
+            long t1 = System.nanoTime();
+            headers.record(t1 - t0);
+            byte[] body =
+                resp.getEntity() == null ? new byte[0] : EntityUtils.toByteArray(resp.getEntity());
+            transfer.record(System.nanoTime() - t1);
+            return new Response(resp.getCode(), body);
+          });
+    } catch (IOException e) {
+      failures.increment();
+      if (req.isCancelled()) {
+        throw (CancellationException) new CancellationException("请求已中止").initCause(e);
+      }
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** 只重试幂等请求：默认实现对 IO 异常会看方法，但收到 429 / 503 时连 POST（渲染、导入）也会重发 */
+  private static final class IdempotentRetryStrategy extends DefaultHttpRequestRetryStrategy {
+    IdempotentRetryStrategy() {
+      super(1, TimeValue.ZERO_MILLISECONDS);
+    }
+
+    @Override
+    public boolean retryRequest(HttpResponse response, int execCount, HttpContext context) {
+      HttpRequest request = HttpCoreContext.cast(context).getRequest();
+      return request != null
+          && handleAsIdempotent(request)
+          && super.retryRequest(response, execCount, context);
+    }
+  }
+
+  /** 某一阶段的次数与总耗时 */
+  private static final class Phase {
+    final LongAdder count = new LongAdder();
+    final LongAdder nanos = new LongAdder();
+
+    void record(long ns) {
+      count.increment();
+      nanos.add(ns);
+    }
+
+    double avgMs() {
+      long n = count.sum();
+      return n == 0 ? 0 : nanos.sum() / 1e6 / n;
+    }
+  }
+
+  /** 给连接池的取连接与建连接计时；connect 只在新建连接时才会被调用 */
+  private final class TimedConnectionManager implements HttpClientConnectionManager {
+    private final HttpClientConnectionManager delegate;
+
+    TimedConnectionManager(HttpClientConnectionManager delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public LeaseRequest lease(String id, HttpRoute route, Timeout timeout, Object state) {
+      LeaseRequest req = delegate.lease(id, route, timeout, state);
+      return new LeaseRequest() {
+        @Override
+        public ConnectionEndpoint get(Timeout t)
+            throws InterruptedException, ExecutionException, TimeoutException {
+          long t0 = System.nanoTime();
+          try {
+            return req.get(t);
+          } finally {
+            lease.record(System.nanoTime() - t0);
+          }
+        }
+
+        @Override
+        public boolean cancel() {
+          return req.cancel();
+        }
+      };
+    }
+
+    @Override
+    public void release(ConnectionEndpoint endpoint, Object newState, TimeValue validDuration) {
+      delegate.release(endpoint, newState, validDuration);
+    }
+
+    @Override
+    public void connect(ConnectionEndpoint endpoint, TimeValue connectTimeout, HttpContext context)
+        throws IOException {
+      long t0 = System.nanoTime();
+      try {
+        delegate.connect(endpoint, connectTimeout, context);
+      } finally {
+        connect.record(System.nanoTime() - t0);
+      }
+    }
+
+    @Override
+    public void upgrade(ConnectionEndpoint endpoint, HttpContext context) throws IOException {
+      delegate.upgrade(endpoint, context);
+    }
+
+    @Override
+    public void close(CloseMode closeMode) {
+      delegate.close(closeMode);
+    }
+
+    @Override
+    public void close() throws IOException {
+      delegate.close();
+    }
+  }
+}
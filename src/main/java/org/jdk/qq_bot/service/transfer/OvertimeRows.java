@@ -0,0 +1,161 @@
+package org.jdk.qq_bot.service.transfer;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+
+/**
+ * 导入 / 导出的行格式：列名、逐字段校验与 CSV 的切分 / 转义。
+ *
+ * <p>CSV 只支持单行记录：引号内可以有逗号和成对的双引号，不能有换行（导出时备注里的换行会替换成空格）。
+ */
+final class OvertimeRows {
+
+  /** 导出的列顺序，也是导入时认得的列名；user_id / work_date / hours 必填，其余可省略 */
+  static final List<String> COLUMNS =
+      List.of("user_id", "group_id", "work_date", "ot_type", "hours", "note");
+
+  static final int USER_ID = 0;
+  static final int GROUP_ID = 1;
+  static final int WORK_DATE = 2;
+  static final int OT_TYPE = 3;
+  static final int HOURS = 4;
+  static final int NOTE = 5;
+
+  /** overtime_log.hours 为 DECIMAL(5,2) */
+  private static final BigDecimal MAX_HOURS = new BigDecimal("999.99");
+
+  private OvertimeRows() {}
+
+  /** 按 COLUMNS 顺序给出的字段（缺省为 null）校验并转成一条记录；不合法时抛 IllegalArgumentException，消息即原因 */
+  static OvertimeEntry toEntry(String[] f) {
+    long userId = parseId(f[USER_ID], "user_id");
+    Long groupId = isBlank(f[GROUP_ID]) ? null : parseId(f[GROUP_ID], "group_id");
+
+    if (isBlank(f[WORK_DATE])) throw new IllegalArgumentException("work_date 为空");
+    LocalDate date;
+    try {
+      date = LocalDate.parse(f[WORK_DATE].strip());
+    } catch (DateTimeParseException e) {
+      throw new IllegalArgumentException("work_date 不是 yyyy-MM-dd：" + f[WORK_DATE]);
+    }
+
+    String type = isBlank(f[OT_TYPE]) ? "G1" : f[OT_TYPE].strip().toUpperCase(Locale.ROOT);
+    if (!type.equals("G1") && !type.equals("G2") && !type.equals("G3")) {
+      throw new IllegalArgumentException("ot_type 只能是 G1/G2/G3：" + f[OT_TYPE]);
+    }
+
+    if (isBlank(f[HOURS])) throw new IllegalArgumentException("hours 为空");
+    BigDecimal hours;
+    try {
+      hours = new BigDecimal(f[HOURS].strip());
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("hours 不是数字：" + f[HOURS]);
+    }
+    if (hours.signum() <= 0
+        || hours.compareTo(MAX_HOURS) > 0
+        || hours.stripTrailingZeros().scale() > 2) {
+      throw new IllegalArgumentException("hours 须在 0 ~ 999.99 之间且最多两位小数：" + f[HOURS]);
+    }
+
+    String note = isBlank(f[NOTE]) ? null : f[NOTE];
+    if (note != null && note.length() > 255) note = note.substring(0, 255);
+    return new OvertimeEntry(userId, date, type, hours, note, groupId);
+  }
+
+  /** 表头 -> 每个 COLUMNS 列在行里的下标（没有的列为 -1）；有不认识的列或缺必填列时抛出 */
+  static int[] headerIndex(List<String> header) {
+    int[] index = new int[COLUMNS.size()];
+    Arrays.fill(index, -1);
+    for (int i = 0; i < header.size(); i++) {
+      String name = header.get(i).strip().toLowerCase(Locale.ROOT);
+      int c = COLUMNS.indexOf(name);
+      if (c < 0) throw new IllegalArgumentException("不认识的列：" + header.get(i));
+      index[c] = i;
+    }
+    for (int c : new int[] {USER_ID, WORK_DATE, HOURS}) {
+      if (index[c] < 0) throw new IllegalArgumentException("缺少列：" + COLUMNS.get(c));
+    }
+    return index;
+  }
+
+  /** 一行 CSV 切成字段；引号不配对时抛出 */
+  static List<String> splitCsv(String line) {
+    List<String> out = new ArrayList<>(COLUMNS.size());
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    int i = 0;
+    int n = line.length();
+    while (i < n) {
+      char c = line.charAt(i++);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i < n && line.charAt(i) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',') {
+        out.add(field.toString());
+        field.setLength(0);
+      } else {
+        field.append(c);
+      }
+    }
+    if (quoted) throw new IllegalArgumentException("引号没有闭合");
+    out.add(field.toString());
+    return out;
+  }
+
+  /** 写一个 CSV 字段：含逗号 / 引号时加引号，换行替换为空格 */
+  static void writeCsvField(Writer out, String s) throws IOException {
+    if (s == null) return;
+    boolean quote = false;
+    for (int i = 0; i < s.length() && !quote; i++) {
+      char c = s.charAt(i);
+      quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+    }
+    if (!quote) {
+      out.write(s);
+      return;
+    }
+    out.write('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"') {
+        out.write("\"\"");
+      } else if (c == '\n' || c == '\r') {
+        out.write(' ');
+      } else {
+        out.write(c);
+      }
+    }
+    out.write('"');
+  }
+
+  private static long parseId(String s, String column) {
+    if (isBlank(s)) throw new IllegalArgumentException(column + " 为空");
+    try {
+      long v = Long.parseLong(s.strip());
+      if (v > 0) return v;
+    } catch (NumberFormatException ignored) {
+      // 落到下面统一报错
+    }
+    throw new IllegalArgumentException(column + " 不是正整数：" + s);
+  }
+
+  private static boolean isBlank(String s) {
+    return s == null || s.isBlank();
+  }
+}
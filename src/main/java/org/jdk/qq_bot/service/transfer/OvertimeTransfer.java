@@ -0,0 +1,234 @@
+package org.jdk.qq_bot.service.transfer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.extern.slf4j.Slf4j;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
+import org.jdk.qq_bot.service.OvertimeRankCache;
+import org.jdk.qq_bot.service.OvertimeSummaryCache;
+import org.jooq.Cursor;
+import org.jooq.Record6;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 加班明细的批量导入 / 导出（迁移历史数据、备份用）。
+ *
+ * <p>导入逐行读取、校验，不合法的行跳过并记下原因；合法的行每 batch-rows 条一条多行 INSERT，每 chunk-rows 条一个事务，同一事务里同步累加
+ * overtime_daily / overtime_monthly，内存占用只与 chunk 大小有关。导入是追加，不去重：同一文件导两次会记两遍。
+ *
+ * <p>导出用 jOOQ 的 lazy cursor 按 id 顺序逐行读出、边读边写，不把结果集整个放进内存。
+ */
+@Slf4j
+@Service
+public class OvertimeTransfer {
+
+  private static final ObjectMapper M = new ObjectMapper();
+
+  /**
+   * 一次导入的结果。
+   *
+   * @param read 读到的数据行数（不含表头与空行）
+   * @param imported 写入的行数
+   * @param rejected 校验不通过被跳过的行数
+   * @param errors 前若干条出错行的原因（"line N: ..."）
+   * @param millis 耗时
+   */
+  public record ImportResult(
+      long read, long imported, long rejected, List<String> errors, long millis) {}
+
+  private final OvertimeLogRepository logRepo;
+  private final OvertimeDailyRepository dailyRepo;
+  private final OvertimeMonthlyRepository monthlyRepo;
+  private final OvertimeSummaryCache summaryCache;
+  private final OvertimeRankCache rankCache;
+  private final TransactionTemplate tx;
+  private final int batchRows;
+  private final int chunkRows;
+  private final int maxErrors;
+
+  public OvertimeTransfer(
+      OvertimeLogRepository logRepo,
+      OvertimeDailyRepository dailyRepo,
+      OvertimeMonthlyRepository monthlyRepo,
+      OvertimeSummaryCache summaryCache,
+      OvertimeRankCache rankCache,
+      TransactionTemplate tx,
+      @Value("${overtime.transfer.batch-rows:1000}") int batchRows,
+      @Value("${overtime.transfer.chunk-rows:10000}") int chunkRows,
+      @Value("${overtime.transfer.max-errors:100}") int maxErrors) {
+    this.logRepo = logRepo;
+    this.dailyRepo = dailyRepo;
+    this.monthlyRepo = monthlyRepo;
+    this.summaryCache = summaryCache;
+    this.rankCache = rankCache;
+    this.tx = tx;
+    this.batchRows = batchRows;
+    this.chunkRows = Math.max(chunkRows, batchRows);
+    this.maxErrors = maxErrors;
+  }
+
+  /**
+   * 从 in 读取并导入；CSV 首行必须是表头。已提交的 chunk 不会因后面的错误回滚，中途失败时抛出的异常之前的 chunk 已经落库。
+   *
+   * @throws IllegalArgumentException CSV 表头不合法
+   */
+  public ImportResult importFrom(Reader in, TransferFormat format) throws IOException {
+    long start = System.nanoTime();
+    BufferedReader reader = in instanceof BufferedReader b ? b : new BufferedReader(in);
+    int[] index = null;
+    if (format == TransferFormat.CSV) {
+      String header = stripBom(reader.readLine());
+      if (header == null) throw new IllegalArgumentException("文件为空");
+      index = OvertimeRows.headerIndex(OvertimeRows.splitCsv(header));
+    }
+
+    long lineNo = format == TransferFormat.CSV ? 1 : 0;
+    long read = 0;
+    long imported = 0;
+    long rejected = 0;
+    List<String> errors = new ArrayList<>();
+    List<OvertimeEntry> chunk = new ArrayList<>(chunkRows);
+    String line;
+    while ((line = reader.readLine()) != null) {
+      lineNo++;
+      if (lineNo == 1) line = stripBom(line);
+      if (line.isBlank()) continue;
+      read++;
+      try {
+        String[] fields = format == TransferFormat.CSV ? csvFields(line, index) : jsonFields(line);
+        chunk.add(OvertimeRows.toEntry(fields));
+      } catch (IllegalArgumentException e) {
+        rejected++;
+        if (errors.size() < maxErrors) errors.add("line " + lineNo + ": " + e.getMessage());
+        continue;
+      }
+      if (chunk.size() == chunkRows) {
+        imported += flush(chunk);
+      }
+    }
+    imported += flush(chunk);
+
+    long millis = (System.nanoTime() - start) / 1_000_000;
+    log.info(
+        "[Transfer] import {} read={} imported={} rejected={} in {} ms",
+        format,
+        read,
+        imported,
+        rejected,
+        millis);
+    return new ImportResult(read, imported, rejected, List.copyOf(errors), millis);
+  }
+
+  /** 导出 [from, to] 内的明细（均可为空表示不限，userId 为空表示所有人），返回行数 */
+  @Transactional(readOnly = true)
+  public long exportTo(Writer out, TransferFormat format, LocalDate from, LocalDate to, Long userId)
+      throws IOException {
+    long rows = 0;
+    try (Cursor<Record6<Long, Long, LocalDate, String, BigDecimal, String>> cursor =
+        logRepo.cursor(from, to, userId)) {
+      if (format == TransferFormat.CSV) {
+        out.write(String.join(",", OvertimeRows.COLUMNS));
+        out.write('\n');
+        for (var r : cursor) {
+          out.write(Long.toString(r.value1()));
+          out.write(',');
+          if (r.value2() != null) out.write(Long.toString(r.value2()));
+          out.write(',');
+          out.write(r.value3().toString());
+          out.write(',');
+          out.write(r.value4());
+          out.write(',');
+          out.write(r.value5().toPlainString());
+          out.write(',');
+          OvertimeRows.writeCsvField(out, r.value6());
+          out.write('\n');
+          rows++;
+        }
+      } else {
+        JsonGenerator json = M.getFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        for (var r : cursor) {
+          json.writeStartObject();
+          json.writeNumberField("user_id", r.value1());
+          if (r.value2() != null) json.writeNumberField("group_id", r.value2());
+          json.writeStringField("work_date", r.value3().toString());
+          json.writeStringField("ot_type", r.value4());
+          json.writeNumberField("hours", r.value5());
+          if (r.value6() != null) json.writeStringField("note", r.value6());
+          json.writeEndObject();
+          json.writeRaw('\n');
+          rows++;
+        }
+        json.flush();
+      }
+    }
+    out.flush();
+    return rows;
+  }
+
+  /** 一个 chunk 一个事务，事务内按 batchRows 切成多行 INSERT；提交后清空 chunk 并丢掉受影响的缓存 */
+  private long flush(List<OvertimeEntry> chunk) {
+    if (chunk.isEmpty()) return 0;
+    tx.executeWithoutResult(
+        status -> {
+          for (int i = 0; i < chunk.size(); i += batchRows) {
+            List<OvertimeEntry> batch = chunk.subList(i, Math.min(i + batchRows, chunk.size()));
+            logRepo.insertAll(batch);
+            dailyRepo.addAll(batch);
+            monthlyRepo.addAll(batch);
+          }
+        });
+    // 一个 chunk 可能涉及成千上万个 (用户, 月份)，逐条失效不如整体丢弃
+    summaryCache.invalidateAll();
+    rankCache.invalidateAll();
+    int n = chunk.size();
+    chunk.clear();
+    return n;
+  }
+
+  private static String[] csvFields(String line, int[] index) {
+    List<String> values = OvertimeRows.splitCsv(line);
+    String[] fields = new String[index.length];
+    for (int c = 0; c < index.length; c++) {
+      int i = index[c];
+      if (i >= 0 && i < values.size()) fields[c] = values.get(i);
+    }
+    return fields;
+  }
+
+  private static String[] jsonFields(String line) {
+    JsonNode node;
+    try {
+      node = M.readTree(line);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException("不是合法的 JSON");
+    }
+    if (!node.isObject()) throw new IllegalArgumentException("不是 JSON 对象");
+    String[] fields = new String[OvertimeRows.COLUMNS.size()];
+    for (int c = 0; c < fields.length; c++) {
+      JsonNode v = node.get(OvertimeRows.COLUMNS.get(c));
+      if (v != null && !v.isNull()) fields[c] = v.asText();
+    }
+    return fields;
+  }
+
+  private static String stripBom(String line) {
+    return line != null && line.startsWith("\uFEFF") ? line.substring(1) : line;
+  }
+}
@@ -0,0 +1,30 @@
+package org.jdk.qq_bot.service.transfer;
+
+import java.util.Locale;
+
+/** 批量导入 / 导出的文件格式 */
+public enum TransferFormat {
+  /** 首行为表头（列名见 {@link OvertimeRows#COLUMNS}），逗号分隔，字段可用双引号包裹 */
+  CSV("text/csv"),
+  /** 每行一个 JSON 对象，键名同 CSV 表头 */
+  JSONL("application/x-ndjson");
+
+  private final String contentType;
+
+  TransferFormat(String contentType) {
+    this.contentType = contentType;
+  }
+
+  public String contentType() {
+    return contentType;
+  }
+
+  /** csv / jsonl（大小写不敏感），ndjson 视同 jsonl */
+  public static TransferFormat of(String name) {
+    return switch (name.toLowerCase(Locale.ROOT)) {
+      case "csv" -> CSV;
+      case "jsonl", "ndjson" -> JSONL;
+      default -> throw new IllegalArgumentException("unknown format: " + name);
+    };
+  }
+}
@@ -0,0 +1,98 @@
+package org.jdk.qq_bot.web;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDate;
+import java.util.Locale;
+import org.jdk.qq_bot.service.transfer.OvertimeTransfer;
+import org.jdk.qq_bot.service.transfer.TransferFormat;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * 运维用：加班明细批量导入（请求体即文件，UTF-8）与导出（流式下载）。
+ *
+ * <p>会改数据，需带 X-Admin-Token 请求头且与 overtime.transfer.admin-token 一致；未配置 token 时两个接口都返回 403。
+ */
+@RestController
+public class OvertimeTransferController {
+
+  private final OvertimeTransfer transfer;
+  private final byte[] adminToken;
+
+  public OvertimeTransferController(
+      OvertimeTransfer transfer, @Value("${overtime.transfer.admin-token:}") String adminToken) {
+    this.transfer = transfer;
+    this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @PostMapping("/internal/overtime/import")
+  public OvertimeTransfer.ImportResult importRows(
+      @RequestHeader(name = "X-Admin-Token", required = false) String token,
+      @RequestParam(defaultValue = "csv") String format,
+      InputStream body)
+      throws IOException {
+    checkToken(token);
+    TransferFormat f = parseFormat(format);
+    try {
+      return transfer.importFrom(new InputStreamReader(body, StandardCharsets.UTF_8), f);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+
+  @GetMapping("/internal/overtime/export")
+  public ResponseEntity<StreamingResponseBody> exportRows(
+      @RequestHeader(name = "X-Admin-Token", required = false) String token,
+      @RequestParam(defaultValue = "csv") String format,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+      @RequestParam(required = false) Long user) {
+    checkToken(token);
+    TransferFormat f = parseFormat(format);
+    StreamingResponseBody body =
+        out -> {
+          Writer w =
+              new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+          transfer.exportTo(w, f, from, to, user);
+        };
+    String file = "overtime." + f.name().toLowerCase(Locale.ROOT);
+    return ResponseEntity.ok()
+        .contentType(MediaType.parseMediaType(f.contentType() + ";charset=UTF-8"))
+        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + file + "\"")
+        .body(body);
+  }
+
+  private void checkToken(String token) {
+    if (adminToken.length == 0
+        || token == null
+        || !MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8))) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+    }
+  }
+
+  private static TransferFormat parseFormat(String format) {
+    try {
+      return TransferFormat.of(format);
+    } catch (IllegalArgumentException e) {
+      throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+    }
+  }
+}
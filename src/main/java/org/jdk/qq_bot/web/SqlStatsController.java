@@ -0,0 +1,40 @@
+package org.jdk.qq_bot.web;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import org.jdk.qq_bot.observe.SqlStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+/**
+ * 运维查看用：各业务方法 / SQL 形状的耗时分位数。
+ *
+ * <p>SQL 形状会暴露表结构与查询方式，需带 X-Admin-Token 请求头且与 sql.stats.admin-token 一致；未配置 token 时返回 403。
+ */
+@RestController
+public class SqlStatsController {
+
+  private final SqlStats sqlStats;
+  private final byte[] adminToken;
+
+  public SqlStatsController(
+      SqlStats sqlStats, @Value("${sql.stats.admin-token:}") String adminToken) {
+    this.sqlStats = sqlStats;
+    this.adminToken = adminToken.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @GetMapping("/internal/sql-stats")
+  public SqlStats.Report sqlStats(
+      @RequestHeader(name = "X-Admin-Token", required = false) String token) {
+    if (adminToken.length == 0
+        || token == null
+        || !MessageDigest.isEqual(adminToken, token.getBytes(StandardCharsets.UTF_8))) {
+      throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+    }
+    return sqlStats.report();
+  }
+}
@@ -9,6 +9,7 @@ CREATE TABLE IF NOT EXISTS city_code (
 CREATE TABLE IF NOT EXISTS overtime_log (
                                             id          BIGINT       NOT NULL AUTO_INCREMENT,
                                             user_id     BIGINT       NOT NULL COMMENT 'QQ号',
+    group_id    BIGINT       NULL COMMENT '录入所在的群号（历史数据为 NULL）',
                                             work_date   DATE         NOT NULL COMMENT '加班归属日期',
                                             ot_type     VARCHAR(2)   NOT NULL DEFAULT 'G1' COMMENT '加班类型: G1/G2/G3',
     hours       DECIMAL(5,2) NOT NULL COMMENT '加班小时，如 2.50',
@@ -19,4 +20,25 @@ CREATE TABLE IF NOT EXISTS overtime_log (
 
 -- 索引用独立语句（DDLDatabase 解析更稳妥）
 CREATE INDEX idx_user_date ON overtime_log (user_id, work_date);
-CREATE INDEX idx_user_type ON overtime_log (user_id, ot_type);
\ No newline at end of file
+CREATE INDEX idx_user_type ON overtime_log (user_id, ot_type);
+-- 群排行冷启动：按群 + 月份范围扫描，user_id / hours 都在索引里，不回表
+-- 已有库升级：ALTER TABLE overtime_log ADD COLUMN group_id BIGINT NULL COMMENT '录入所在的群号（历史数据为 NULL）' AFTER user_id;
+CREATE INDEX idx_group_date ON overtime_log (group_id, work_date, user_id, hours);
+
+-- 加班日汇总表：按 (用户, 日期, 类型) 预先求和，写明细时同事务维护；月度查询只读这里（每月最多 93 行）
+CREATE TABLE IF NOT EXISTS overtime_daily (
+    user_id    BIGINT       NOT NULL COMMENT 'QQ号',
+    work_date  DATE         NOT NULL COMMENT '加班归属日期',
+    ot_type    VARCHAR(2)   NOT NULL COMMENT '加班类型: G1/G2/G3',
+    hours      DECIMAL(7,2) NOT NULL COMMENT '当日该类型小时合计',
+    PRIMARY KEY (user_id, work_date, ot_type)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- 加班月汇总表：按 (用户, 年月, 类型) 预先求和，随日汇总同事务维护；年度报表只读这里（每年最多 36 行）
+CREATE TABLE IF NOT EXISTS overtime_monthly (
+    user_id  BIGINT       NOT NULL COMMENT 'QQ号',
+    ym       INT          NOT NULL COMMENT '年月 yyyymm，如 202508',
+    ot_type  VARCHAR(2)   NOT NULL COMMENT '加班类型: G1/G2/G3',
+    hours    DECIMAL(8,2) NOT NULL COMMENT '当月该类型小时合计',
+    PRIMARY KEY (user_id, ym, ot_type)
+    ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -0,0 +1,39 @@
+package org.jdk.qq_bot;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.Statement;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+
+/** 测试用 H2 内存库（MySQL 兼容模式），按 sql/create.sql 建表 */
+public final class TestDb {
+  private TestDb() {}
+
+  public static DataSource create(String name) throws Exception {
+    return createAt("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+  }
+
+  /** 指定完整 JDBC URL（例如落盘的 H2 文件库），同样按 sql/create.sql 建表 */
+  public static DataSource createAt(String url) throws Exception {
+    var ds = new JdbcDataSource();
+    ds.setURL(url);
+    try (Connection conn = ds.getConnection();
+        InputStream in = TestDb.class.getResourceAsStream("/sql/create.sql");
+        Statement st = conn.createStatement()) {
+      String ddl = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      for (String sql : ddl.split(";")) {
+        if (!sql.isBlank()) st.execute(sql);
+      }
+    }
+    return ds;
+  }
+
+  public static void drop(DataSource ds) throws Exception {
+    try (Connection conn = ds.getConnection();
+        Statement st = conn.createStatement()) {
+      st.execute("DROP ALL OBJECTS");
+    }
+  }
+}
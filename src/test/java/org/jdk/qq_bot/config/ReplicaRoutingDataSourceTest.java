@@ -0,0 +1,223 @@
+package org.jdk.qq_bot.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.h2.jdbcx.JdbcDataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.OvertimeRank;
+import org.jdk.qq_bot.service.OvertimeRankCache;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReplicaRoutingDataSourceTest {
+
+  private DataSource primary;
+  private DataSource replica;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    primary = TestDb.create("rw_primary");
+    replica = TestDb.create("rw_replica");
+    exec(primary, "CREATE TABLE whoami (name VARCHAR(16))");
+    exec(primary, "INSERT INTO whoami VALUES ('primary')");
+    exec(replica, "CREATE TABLE whoami (name VARCHAR(16))");
+    exec(replica, "INSERT INTO whoami VALUES ('replica')");
+    exec(replica, "CREATE TABLE repl_lag (seconds INT)");
+    exec(replica, "INSERT INTO repl_lag VALUES (0)");
+    for (DataSource ds : new DataSource[] {primary, replica}) {
+      exec(ds, "CREATE TABLE totals (user_id BIGINT, hours DECIMAL(5, 2))");
+      exec(ds, "INSERT INTO totals VALUES (1, 1.00)");
+    }
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TestDb.drop(primary);
+    TestDb.drop(replica);
+  }
+
+  @Test
+  void readOnlyTransactionsGoToReplica() {
+    var routing = routing(replica, 0);
+    Stack s = stack(routing);
+
+    assertThat(s.read()).isEqualTo("replica");
+    assertThat(s.write()).isEqualTo("primary");
+    // 没有事务时不是只读，走主库
+    assertThat(s.dsl.fetchValue("SELECT name FROM whoami")).isEqualTo("primary");
+    assertThat(routing.stats().replicaReads()).isEqualTo(1);
+  }
+
+  @Test
+  void fallsBackWhileReplicaLagsAndRecovers() throws Exception {
+    var routing = routing(replica, 0);
+    Stack s = stack(routing);
+
+    exec(replica, "UPDATE repl_lag SET seconds = 30");
+    routing.check();
+    assertThat(routing.stats().healthy()).isFalse();
+    assertThat(routing.stats().lagSeconds()).isEqualTo(30);
+    assertThat(s.read()).isEqualTo("primary");
+
+    exec(replica, "UPDATE repl_lag SET seconds = NULL");
+    routing.check();
+    assertThat(s.read()).isEqualTo("primary");
+
+    exec(replica, "UPDATE repl_lag SET seconds = 1");
+    routing.check();
+    assertThat(routing.stats().healthy()).isTrue();
+    assertThat(s.read()).isEqualTo("replica");
+  }
+
+  @Test
+  void missingReplicationStatusMarksReplicaDown() throws Exception {
+    var routing = routing(replica, 0);
+    Stack s = stack(routing);
+
+    exec(replica, "DELETE FROM repl_lag");
+    routing.check();
+    assertThat(routing.stats().healthy()).isFalse();
+    assertThat(s.read()).isEqualTo("primary");
+  }
+
+  @Test
+  void fallsBackWhenReplicaIsDown() {
+    var down = new JdbcDataSource();
+    down.setURL("jdbc:h2:mem:rw_missing;IFEXISTS=TRUE");
+    var routing = routing(down, 0);
+    Stack s = stack(routing);
+
+    assertThat(s.read()).isEqualTo("primary");
+    assertThat(routing.stats().healthy()).isFalse();
+    assertThat(routing.stats().replicaReads()).isZero();
+    assertThat(routing.stats().primaryReads()).isEqualTo(1);
+  }
+
+  @Test
+  void readsRightAfterAWriteStayOnPrimary() {
+    var routing = routing(replica, 60_000);
+    Stack s = stack(routing);
+
+    assertThat(s.read()).isEqualTo("replica");
+    s.write();
+    assertThat(s.read()).isEqualTo("primary");
+  }
+
+  @Test
+  void writeWithKeysOnlyHoldsBackReadsOfThoseKeys() {
+    var routing = routing(replica, 60_000);
+    Stack s = stack(routing);
+    var written = new OvertimeRankCache.Key(100, YearMonth.of(2025, 8));
+    var other = new OvertimeRankCache.Key(200, YearMonth.of(2025, 8));
+
+    s.tx.executeWithoutResult(
+        st -> {
+          ReplicaScope.wrote(written);
+          s.dsl.execute("UPDATE whoami SET name = name");
+        });
+    assertThat(s.read(written)).isEqualTo("primary");
+    assertThat(s.read(other)).isEqualTo("replica");
+    assertThat(s.read()).isEqualTo("replica");
+
+    // 登记的 key 随事务结束清掉，下一个没登记 key 的写入按全局算
+    s.write();
+    assertThat(s.read(other)).isEqualTo("primary");
+    assertThat(s.read()).isEqualTo("primary");
+  }
+
+  @Test
+  void primaryConnectionsWithoutACommitAreNotWrites() {
+    var routing = routing(replica, 60_000);
+    Stack s = stack(routing);
+
+    // 不开事务的读、没有执行语句的读写事务都不算写入
+    assertThat(s.dsl.fetchValue("SELECT name FROM whoami")).isEqualTo("primary");
+    s.tx.executeWithoutResult(st -> {});
+    assertThat(s.read()).isEqualTo("replica");
+  }
+
+  @Test
+  void cacheFilledRightAfterAWriteIsNotStale() throws Exception {
+    // 配得比 最大延迟 + 探测间隔 还短，也要按后者算
+    var routing = routing(replica, 100);
+    Stack s = stack(routing);
+    var cache = new OvertimeRankCache(16);
+    var key = new OvertimeRankCache.Key(100, YearMonth.of(2025, 8));
+
+    // 副本落后 4 秒，仍在允许范围内（健康），但还没有下面这次写入
+    exec(replica, "UPDATE repl_lag SET seconds = 4");
+    routing.check();
+    assertThat(routing.stats().healthy()).isTrue();
+    s.tx.executeWithoutResult(st -> s.dsl.execute("UPDATE totals SET hours = 3.00"));
+    Thread.sleep(200);
+
+    OvertimeRank filled = s.readTx.execute(st -> cache.top(key, 1, 10, () -> totals(s.dsl)));
+    OvertimeRank cached = s.readTx.execute(st -> cache.top(key, 1, 10, Map::of));
+    assertThat(filled.myHours()).isEqualByComparingTo("3.00");
+    assertThat(cached.myHours()).isEqualByComparingTo("3.00");
+    assertThat(routing.stats().replicaReads()).isZero();
+  }
+
+  private static Map<Long, BigDecimal> totals(DSLContext dsl) {
+    return dsl.resultQuery("SELECT user_id, hours FROM totals")
+        .fetchMap(r -> r.get(0, Long.class), r -> r.get(1, BigDecimal.class));
+  }
+
+  private ReplicaRoutingDataSource routing(DataSource replicaDs, long readAfterWriteMs) {
+    return new ReplicaRoutingDataSource(
+        replicaDs, primary, "SELECT seconds FROM repl_lag", 5, 60_000, readAfterWriteMs);
+  }
+
+  /** 与 ReadWriteDataSourceConfig 相同的组装方式 */
+  private static Stack stack(ReplicaRoutingDataSource routing) {
+    var proxy = new LazyConnectionDataSourceProxy(routing.writeTarget());
+    proxy.setReadOnlyDataSource(routing);
+    var dsl = DSL.using(new TransactionAwareDataSourceProxy(proxy), SQLDialect.H2);
+    var tx = new TransactionTemplate(new DataSourceTransactionManager(proxy));
+    var readTx = new TransactionTemplate(new DataSourceTransactionManager(proxy));
+    readTx.setReadOnly(true);
+    return new Stack(dsl, tx, readTx);
+  }
+
+  private record Stack(DSLContext dsl, TransactionTemplate tx, TransactionTemplate readTx) {
+    String read() {
+      return readTx.execute(st -> (String) dsl.fetchValue("SELECT name FROM whoami"));
+    }
+
+    String read(Object key) {
+      return readTx.execute(
+          st ->
+              ReplicaScope.reading(key, () -> (String) dsl.fetchValue("SELECT name FROM whoami")));
+    }
+
+    String write() {
+      return tx.execute(
+          st -> {
+            dsl.execute("UPDATE whoami SET name = name");
+            return (String) dsl.fetchValue("SELECT name FROM whoami");
+          });
+    }
+  }
+
+  private static void exec(DataSource ds, String sql) throws SQLException {
+    try (Connection c = ds.getConnection();
+        Statement st = c.createStatement()) {
+      st.execute(sql);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package org.jdk.qq_bot.dto;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import org.junit.jupiter.api.Test;
+
+class CompactOvertimeSummaryTest {
+
+  @Test
+  void appendHoursMatchesStripTrailingZeros() {
+    StringBuilder sb = new StringBuilder();
+    for (int centis = 0; centis <= 100_000; centis++) {
+      sb.setLength(0);
+      String expected = BigDecimal.valueOf(centis, 2).stripTrailingZeros().toPlainString();
+      assertThat(CompactOvertimeSummary.appendHours(sb, centis).toString()).isEqualTo(expected);
+    }
+  }
+
+  @Test
+  void foldsWeekAcrossMonthBoundary() {
+    LocalDate monday = LocalDate.of(2025, 7, 28);
+    LocalDate today = LocalDate.of(2025, 8, 1);
+    var s =
+        CompactOvertimeSummary.builder(monday, monday.plusDays(6))
+            .add(monday, "G1", new BigDecimal("2.50"), today)
+            .add(today, "G2", new BigDecimal("1.25"), today)
+            .add(today, "G3", new BigDecimal("0.75"), today)
+            .build();
+
+    assertThat(s.days()).isEqualTo(7);
+    assertThat(s.recordDays()).isEqualTo(2);
+    assertThat(s.totalCentis()).isEqualTo(450);
+    assertThat(s.todayCentis()).isEqualTo(200);
+    assertThat(s.totalCentis(CompactOvertimeSummary.G1)).isEqualTo(250);
+    assertThat(s.todayCentis(CompactOvertimeSummary.G1)).isZero();
+    assertThat(s.dailyCentis(4)).isEqualTo(200);
+
+    char[] md = new char[5];
+    s.monthDay(4, md, 0);
+    assertThat(new String(md)).isEqualTo("08-01");
+
+    OvertimeSummary maps = s.toSummary();
+    assertThat(maps.getMonthTotal()).isEqualByComparingTo("4.5");
+    assertThat(maps.getMonthByType()).containsOnlyKeys("G1", "G2", "G3");
+    assertThat(maps.getTodayByType()).containsOnlyKeys("G2", "G3");
+    assertThat(maps.getDailyTotals()).containsOnlyKeys(monday, today);
+  }
+
+  @Test
+  void rejectsDaysOutsideRange() {
+    LocalDate first = LocalDate.of(2025, 8, 1);
+    var b = CompactOvertimeSummary.builder(first, LocalDate.of(2025, 8, 31));
+
+    assertThatThrownBy(() -> b.add(LocalDate.of(2025, 9, 1), "G1", BigDecimal.ONE, first))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> CompactOvertimeSummary.builder(first, first.plusDays(31)))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThat(CompactOvertimeSummary.typeIndex("G4")).isEqualTo(-1);
+  }
+
+  @Test
+  void builtSummaryCannotBeChanged() {
+    LocalDate first = LocalDate.of(2025, 8, 1);
+    var b = CompactOvertimeSummary.builder(first, first).add(first, "G1", BigDecimal.ONE, first);
+    var s = b.build();
+
+    assertThatThrownBy(() -> b.add(first, "G1", BigDecimal.ONE, first))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(b::build).isInstanceOf(IllegalStateException.class);
+    assertThat(s.totalCentis()).isEqualTo(100);
+  }
+}
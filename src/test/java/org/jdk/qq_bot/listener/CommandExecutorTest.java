@@ -0,0 +1,69 @@
+package org.jdk.qq_bot.listener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class CommandExecutorTest {
+
+  private CommandExecutor executor;
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void runsEachUsersCommandsInOrder() throws Exception {
+    executor = new CommandExecutor(4, 1000, 200);
+    List<String> seen = new CopyOnWriteArrayList<>();
+    CountDownLatch done = new CountDownLatch(300);
+
+    for (int i = 0; i < 100; i++) {
+      for (long uid = 1; uid <= 3; uid++) {
+        int seq = i;
+        long u = uid;
+        executor.submit(
+            uid,
+            () -> {
+              seen.add(u + ":" + seq);
+              done.countDown();
+            });
+      }
+    }
+
+    assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+    for (long uid = 1; uid <= 3; uid++) {
+      String prefix = uid + ":";
+      assertThat(seen.stream().filter(x -> x.startsWith(prefix)).map(x -> x.substring(2)))
+          .containsExactlyElementsOf(IntStream.range(0, 100).mapToObj(String::valueOf).toList());
+    }
+  }
+
+  @Test
+  void shedsWhenSaturated() throws Exception {
+    executor = new CommandExecutor(1, 2, 10);
+    CountDownLatch release = new CountDownLatch(1);
+    Runnable blocked =
+        () -> {
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        };
+
+    assertThat(executor.submit(1, blocked)).isTrue();
+    assertThat(executor.submit(2, blocked)).isTrue();
+    assertThat(executor.submit(3, blocked)).isFalse();
+    assertThat(executor.stats().rejected()).isEqualTo(1);
+
+    release.countDown();
+  }
+}
@@ -0,0 +1,100 @@
+package org.jdk.qq_bot.listener.command;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class CommandParserTest {
+
+  @Test
+  void parsesOvertimeCommands() {
+    assertThat(CommandParser.parse("overtime 2.5"))
+        .isEqualTo(new Command.AddOvertime("G1", new BigDecimal("2.5")));
+    assertThat(CommandParser.parse("Overtime g2 1.25"))
+        .isEqualTo(new Command.AddOvertime("G2", new BigDecimal("1.25")));
+    assertThat(CommandParser.parse("overtime set G3 250901 3"))
+        .isEqualTo(new Command.SetOvertime("G3", LocalDate.of(2025, 9, 1), new BigDecimal("3")));
+    assertThat(CommandParser.parse("overtime delete 250824"))
+        .isEqualTo(new Command.DeleteOvertime(LocalDate.of(2025, 8, 24)));
+    assertThat(CommandParser.parse(" overtime\tquery ")).isEqualTo(new Command.QueryOvertime());
+    assertThat(CommandParser.parse("OVERTIME HELP")).isEqualTo(new Command.Help());
+  }
+
+  @Test
+  void parsesReportCommands() {
+    assertThat(CommandParser.parse("overtime query 2508"))
+        .isEqualTo(new Command.QueryMonth(YearMonth.of(2025, 8)));
+    assertThat(CommandParser.parse("overtime WEEK")).isEqualTo(new Command.QueryWeek());
+    assertThat(CommandParser.parse("overtime rank")).isEqualTo(new Command.Rank());
+    assertThat(CommandParser.parse("overtime year")).isEqualTo(new Command.QueryYear(null));
+    assertThat(CommandParser.parse("overtime year 2025"))
+        .isEqualTo(new Command.QueryYear(Year.of(2025)));
+    assertThat(CommandParser.parse("overtime query 2513"))
+        .isEqualTo(new Command.Invalid("❌ 失败：无效月份：2513"));
+    assertThat(CommandParser.parse("overtime year 1999"))
+        .isEqualTo(new Command.Invalid("❌ 失败：无效年份：1999"));
+    assertThat(CommandParser.parse("overtime query 250824")).isNull();
+    assertThat(CommandParser.parse("overtime week 2")).isNull();
+    assertThat(CommandParser.parse("overtime rank 5")).isNull();
+    assertThat(CommandParser.parse("overtime year 25")).isNull();
+  }
+
+  @Test
+  void reportsMalformedSetAndBadDates() {
+    assertThat(CommandParser.parse("overtime set 250824"))
+        .isEqualTo(new Command.Invalid(CommandParser.SET_USAGE));
+    assertThat(CommandParser.parse("overtime set 250231 1"))
+        .isEqualTo(new Command.Invalid("❌ 失败：无效日期：250231"));
+    assertThat(CommandParser.parse("overtime del 251301"))
+        .isEqualTo(new Command.Invalid("❌ 失败：无效日期：251301"));
+  }
+
+  @Test
+  void prefixCommandsTakeTheRestAsArgument() {
+    assertThat(CommandParser.parse("fy hello")).isEqualTo(new Command.Translate("hello"));
+    assertThat(CommandParser.parse("fyhello")).isEqualTo(new Command.Translate("hello"));
+    assertThat(CommandParser.parse("query北京")).isEqualTo(new Command.LookupCityCodes("北京"));
+    assertThat(CommandParser.parse("FY hello")).isNull();
+    assertThat(CommandParser.parse("fy")).isNull();
+  }
+
+  @Test
+  void ignoresNonCommands() {
+    assertThat(CommandParser.parse(null)).isNull();
+    assertThat(CommandParser.parse("")).isNull();
+    assertThat(CommandParser.parse("哈哈哈")).isNull();
+    assertThat(CommandParser.parse("overtime")).isNull();
+    assertThat(CommandParser.parse("overtimes 2")).isNull();
+    assertThat(CommandParser.parse("overtime 2.555")).isNull();
+    assertThat(CommandParser.parse("overtime G4 1")).isNull();
+    assertThat(CommandParser.parse("overtime query now")).isNull();
+  }
+
+  @Test
+  void agreesWithLegacyFilterChain() {
+    List<String> inputs = new ArrayList<>(GroupTraffic.CHAT);
+    inputs.addAll(GroupTraffic.COMMANDS);
+    inputs.addAll(
+        List.of(
+            "overtime  G1   0.5",
+            "overtime 10",
+            "overtime 1.",
+            "overtime .5",
+            "overtime set g1 250824 2",
+            "overtime set G2 250824 1 extra",
+            "overtime settle 1",
+            "overtime del 25082",
+            "overtime query me",
+            "fy  ice cream ",
+            "query"));
+    for (String s : inputs) {
+      assertThat(CommandParser.parse(s)).as(s).isEqualTo(LegacyFilterChain.route(s));
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package org.jdk.qq_bot.listener.command;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/** 模拟的群消息流：绝大多数是闲聊，少量是指令（含写错的） */
+final class GroupTraffic {
+
+  static final List<String> CHAT =
+      List.of(
+          "哈哈哈哈哈",
+          "今天中午吃啥",
+          "[图片]",
+          "收到",
+          "好的👌",
+          "有人一起开黑吗",
+          "明天几点开会？",
+          "https://github.com/jiangdengke/qq_bot/pull/12 帮忙看下",
+          "overtime 这个指令怎么用来着",
+          "我今天又加班了😭",
+          "666",
+          "@张三 你那个接口好了没",
+          "fine, thanks",
+          "query 一下明天的天气",
+          "下班下班",
+          "这个 bug 复现不了啊，你那边日志发我一下，重点看 10 点到 11 点之间的",
+          "？？？",
+          "OK",
+          "周末有人去爬山吗 ⛰️",
+          "晚上聚餐别忘了");
+
+  static final List<String> COMMANDS =
+      List.of(
+          "overtime 2.5",
+          "overtime G2 1.0",
+          "OVERTIME g3 3",
+          "overtime set 250824 2.5",
+          "overtime set G2 250901 1.5",
+          "overtime set 250824",
+          "overtime set 250231 1",
+          "overtime del 250824",
+          "overtime delete 250825",
+          "overtime del 251301",
+          "overtime query",
+          "overtime help",
+          "overtime 2.555",
+          "overtime G4 1",
+          "overtimes 2",
+          "fy hello",
+          "fyserendipity",
+          "query北京",
+          "query 杭州",
+          "  overtime   query  ");
+
+  private GroupTraffic() {}
+
+  /** n 条消息，其中约 commandRatio 比例是指令；固定种子，可复现 */
+  static List<String> sample(int n, double commandRatio, long seed) {
+    Random rnd = new Random(seed);
+    List<String> out = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      List<String> src = rnd.nextDouble() < commandRatio ? COMMANDS : CHAT;
+      out.add(src.get(rnd.nextInt(src.size())));
+    }
+    Collections.shuffle(out, rnd);
+    return out;
+  }
+}
@@ -0,0 +1,117 @@
+package org.jdk.qq_bot.listener.command;
+
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 原先的匹配方式（对照用）：每条消息依次过每个监听器的 @Filter 正则，命中的处理方法再用自己的 Pattern 解析一遍。
+ *
+ * <p>正则原样照抄自改造前的 Overtime / Handles；{{x}} 按 simbot 的写法展开为 (?&lt;x&gt;.+)。
+ */
+final class LegacyFilterChain {
+
+  private static final Pattern HELP_F = Pattern.compile("(?i)^overtime\\s+help$");
+  private static final Pattern ADD_DEFAULT_F =
+      Pattern.compile("(?i)^overtime\\s+\\d+(?:\\.\\d{1,2})?$");
+  private static final Pattern ADD_TYPED_F =
+      Pattern.compile("(?i)^overtime\\s+G[1-3]\\s+\\d+(?:\\.\\d{1,2})?$");
+  private static final Pattern SET_F = Pattern.compile("(?i)^overtime\\s+set\\b.*");
+  private static final Pattern DEL_F = Pattern.compile("(?i)^overtime\\s+del(?:ete)?\\s+\\d{6}$");
+  private static final Pattern QUERY_F = Pattern.compile("(?i)^overtime\\s+query$");
+  private static final Pattern FY_F = Pattern.compile("fy(?<word>.+)");
+  private static final Pattern CODES_F = Pattern.compile("query(?<name>.+)");
+
+  private static final Pattern ADD_DEFAULT_P =
+      Pattern.compile("^overtime\\s+(\\d+(?:\\.\\d{1,2})?)$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern ADD_TYPED_P =
+      Pattern.compile("^overtime\\s+(G[1-3])\\s+(\\d+(?:\\.\\d{1,2})?)$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern SET_WITH_TYPE_P =
+      Pattern.compile(
+          "^overtime\\s+set\\s+(G[1-3])\\s+(\\d{6})\\s+(\\d+(?:\\.\\d{1,2})?)$",
+          Pattern.CASE_INSENSITIVE);
+  private static final Pattern SET_NO_TYPE_P =
+      Pattern.compile(
+          "^overtime\\s+set\\s+(\\d{6})\\s+(\\d+(?:\\.\\d{1,2})?)$", Pattern.CASE_INSENSITIVE);
+  private static final Pattern DEL_P =
+      Pattern.compile("^overtime\\s+del(?:ete)?\\s+(\\d{6})$", Pattern.CASE_INSENSITIVE);
+
+  private LegacyFilterChain() {}
+
+  /** 返回命中的指令（与 CommandParser 的结果可直接比较）；没有监听器命中返回 null */
+  static Command route(String plainText) {
+    String text = plainText.trim(); // @ContentTrim
+    Command hit = null;
+    // simbot 对每个监听器都求一次过滤器，不会因为前面命中而跳过
+    if (HELP_F.matcher(text).matches()) hit = new Command.Help();
+    if (ADD_DEFAULT_F.matcher(text).matches()) hit = addDefault(text);
+    if (ADD_TYPED_F.matcher(text).matches()) hit = addTyped(text);
+    if (SET_F.matcher(text).matches()) hit = set(text);
+    if (DEL_F.matcher(text).matches()) hit = delete(text);
+    if (QUERY_F.matcher(text).matches()) hit = new Command.QueryOvertime();
+    Matcher fy = FY_F.matcher(text);
+    if (fy.matches()) hit = new Command.Translate(fy.group("word").strip());
+    Matcher codes = CODES_F.matcher(text);
+    if (codes.matches()) hit = new Command.LookupCityCodes(codes.group("name").strip());
+    return hit;
+  }
+
+  private static Command addDefault(String text) {
+    Matcher m = ADD_DEFAULT_P.matcher(text);
+    if (!m.matches()) return null;
+    return new Command.AddOvertime("G1", new BigDecimal(m.group(1)));
+  }
+
+  private static Command addTyped(String text) {
+    Matcher m = ADD_TYPED_P.matcher(text);
+    if (!m.matches()) return null;
+    return new Command.AddOvertime(m.group(1).toUpperCase(Locale.ROOT), new BigDecimal(m.group(2)));
+  }
+
+  private static Command set(String text) {
+    try {
+      Matcher mt = SET_WITH_TYPE_P.matcher(text);
+      if (mt.matches()) {
+        return new Command.SetOvertime(
+            mt.group(1).toUpperCase(Locale.ROOT),
+            parseYyMmDd(mt.group(2)),
+            new BigDecimal(mt.group(3)));
+      }
+      Matcher mn = SET_NO_TYPE_P.matcher(text);
+      if (mn.matches()) {
+        return new Command.SetOvertime("G1", parseYyMmDd(mn.group(1)), new BigDecimal(mn.group(2)));
+      }
+      return new Command.Invalid(CommandParser.SET_USAGE);
+    } catch (Exception e) {
+      return new Command.Invalid("❌ 失败：" + e.getMessage());
+    }
+  }
+
+  private static Command delete(String text) {
+    Matcher m = DEL_P.matcher(text);
+    if (!m.matches()) return null;
+    try {
+      return new Command.DeleteOvertime(parseYyMmDd(m.group(1)));
+    } catch (IllegalArgumentException e) {
+      // 原先这里的异常没人接，用户收不到回复；新解析器改为回复原因
+      return new Command.Invalid("❌ 失败：" + e.getMessage());
+    }
+  }
+
+  private static LocalDate parseYyMmDd(String yymmdd) {
+    if (yymmdd == null || !yymmdd.matches("\\d{6}")) {
+      throw new IllegalArgumentException("日期格式应为 YYMMDD，例如 250824");
+    }
+    int yy = Integer.parseInt(yymmdd.substring(0, 2));
+    int mm = Integer.parseInt(yymmdd.substring(2, 4));
+    int dd = Integer.parseInt(yymmdd.substring(4, 6));
+    try {
+      return LocalDate.of(2000 + yy, mm, dd);
+    } catch (DateTimeException ex) {
+      throw new IllegalArgumentException("无效日期：" + yymmdd);
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package org.jdk.qq_bot.observe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+class CommandMetricsTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final CommandMetrics metrics = new CommandMetrics(registry);
+
+  @Test
+  void tagsDownstreamCallsWithTheRunningCommand() {
+    CompletableFuture<String> reply = new CompletableFuture<>();
+    metrics.run(
+        "fy",
+        System.nanoTime(),
+        () -> {
+          metrics.youDao(() -> "hello");
+          metrics.db("OvertimeLogRepository.insert", 1_000_000, false);
+          metrics.sent(reply);
+        });
+    // 回复确认可能在指令结束之后才到
+    reply.complete("ok");
+    metrics.db("OvertimeWriteBatcher.flush", 1_000_000, false);
+
+    assertThat(count("bot.command", "command", "fy", "outcome", "success")).isEqualTo(1);
+    assertThat(count("bot.command.queue", "command", "fy")).isEqualTo(1);
+    assertThat(count("bot.youdao", "command", "fy", "outcome", "success")).isEqualTo(1);
+    assertThat(count("bot.db", "command", "fy", "method", "OvertimeLogRepository.insert"))
+        .isEqualTo(1);
+    assertThat(count("bot.db", "command", CommandMetrics.NONE)).isEqualTo(1);
+    assertThat(count("bot.reply", "command", "fy", "outcome", "success")).isEqualTo(1);
+  }
+
+  @Test
+  void recordsHandledAndThrownFailuresAsErrors() {
+    metrics.run("overtime.add", System.nanoTime(), metrics::failed);
+    assertThatThrownBy(
+            () ->
+                metrics.run(
+                    "overtime.set",
+                    System.nanoTime(),
+                    () -> {
+                      throw new IllegalStateException("boom");
+                    }))
+        .isInstanceOf(IllegalStateException.class);
+    assertThatThrownBy(
+            () ->
+                metrics.run(
+                    "fy",
+                    System.nanoTime(),
+                    () ->
+                        metrics.youDao(
+                            () -> {
+                              throw new IllegalStateException("down");
+                            })))
+        .isInstanceOf(IllegalStateException.class);
+
+    assertThat(count("bot.command", "command", "overtime.add", "outcome", "error")).isEqualTo(1);
+    assertThat(count("bot.command", "command", "overtime.set", "outcome", "error")).isEqualTo(1);
+    assertThat(count("bot.youdao", "command", "fy", "outcome", "error")).isEqualTo(1);
+    assertThat(CommandMetrics.currentCommand()).isEqualTo(CommandMetrics.NONE);
+  }
+
+  @Test
+  void rendersCarryCapturedCommandAcrossThreads() {
+    var bar = new CompletableFuture<byte[]>();
+    var pie = new CompletableFuture<byte[]>();
+    metrics.rendered("overtime.query", "daily-bar", bar);
+    metrics.rendered("overtime.query", "type-pie", pie);
+    bar.complete(new byte[1]);
+    pie.completeExceptionally(new TimeoutException());
+
+    assertThat(count("bot.render", "chart", "daily-bar", "outcome", "success")).isEqualTo(1);
+    assertThat(count("bot.render", "chart", "type-pie", "outcome", "timeout")).isEqualTo(1);
+  }
+
+  private long count(String name, String... tags) {
+    var timer = registry.find(name).tags(tags).timer();
+    return timer == null ? 0 : timer.count();
+  }
+}
@@ -0,0 +1,129 @@
+package org.jdk.qq_bot.observe;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.exception.DataAccessException;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.impl.DefaultExecuteListenerProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SqlStatsTest {
+
+  private static final LocalDate DAY = LocalDate.of(2025, 8, 24);
+
+  private DataSource ds;
+  private SqlStats stats;
+  private DSLContext dsl;
+  private OvertimeLogRepository repo;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = TestDb.create("sqlstats");
+    stats = new SqlStats(500);
+    var cfg =
+        new DefaultConfiguration()
+            .set(ds)
+            .set(SQLDialect.H2)
+            .set(
+                new DefaultExecuteListenerProvider(
+                    new SqlStatsListener(
+                        stats, new CommandMetrics(new SimpleMeterRegistry()), 200, 0)));
+    dsl = DSL.using(cfg);
+    repo = new OvertimeLogRepository(dsl);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TestDb.drop(ds);
+  }
+
+  @Test
+  void groupsStatementsByCallerAndShape() {
+    // 不同行数的多行 INSERT 归为同一形状
+    for (int n = 2; n <= 6; n++) {
+      List<OvertimeEntry> batch = new ArrayList<>();
+      for (int i = 0; i < n; i++) batch.add(new OvertimeEntry(i, DAY, "G1", BigDecimal.ONE, null));
+      repo.insertAll(batch);
+    }
+    for (int i = 0; i < 3; i++) repo.monthTotal(1, DAY.withDayOfMonth(1), DAY);
+
+    SqlStats.Report report = stats.report();
+    assertThat(report.methods())
+        .extracting(SqlStats.MethodStats::method, SqlStats.MethodStats::count)
+        .containsExactlyInAnyOrder(
+            tuple("OvertimeLogRepository.insertAll", 5L),
+            tuple("OvertimeLogRepository.monthTotal", 3L));
+    assertThat(report.shapes()).hasSize(2);
+    SqlStats.ShapeStats insert =
+        report.shapes().stream()
+            .filter(s -> s.sql().startsWith("insert"))
+            .findFirst()
+            .orElseThrow();
+    assertThat(insert.count()).isEqualTo(5);
+    assertThat(insert.sql()).endsWith("(?, ...), ...").doesNotContain("'G1'");
+  }
+
+  @Test
+  void sameSqlFromAnotherCallerIsAttributedToThatCaller() {
+    repo.monthTotal(1, DAY.withDayOfMonth(1), DAY);
+    String sql = stats.report().shapes().get(0).sql();
+
+    // 同一条 SQL 换个地方发出，不能沿用第一次找到的发起方法
+    dsl.fetch(sql, 1L, DAY.withDayOfMonth(1), DAY);
+
+    assertThat(stats.report().shapes())
+        .extracting(SqlStats.ShapeStats::method, SqlStats.ShapeStats::sql)
+        .containsExactlyInAnyOrder(
+            tuple("OvertimeLogRepository.monthTotal", sql), tuple(SqlStats.OTHER, sql));
+  }
+
+  @Test
+  void countsFailedStatements() {
+    assertThatThrownBy(() -> dsl.execute("select * from no_such_table where id = ?", 1))
+        .isInstanceOf(DataAccessException.class);
+
+    SqlStats.ShapeStats shape = stats.report().shapes().get(0);
+    assertThat(shape.method()).isEqualTo(SqlStats.OTHER); // 测试类自身所在包被跳过
+    assertThat(shape.count()).isEqualTo(1);
+    assertThat(shape.errors()).isEqualTo(1);
+  }
+
+  @Test
+  void normalizeCollapsesVariableLists() {
+    assertThat(SqlStats.normalize("select *\n  from t where id in (?, ?,?)"))
+        .isEqualTo("select * from t where id in (?, ...)");
+    assertThat(SqlStats.normalize("insert into t (a, b) values (?, ?), (?, ?), (?, ?)"))
+        .isEqualTo("insert into t (a, b) values (?, ...), ...");
+    assertThat(SqlStats.normalize("select ? from t")).isEqualTo("select ? from t");
+  }
+
+  @Test
+  void histogramPercentilesWithinOneBucket() {
+    var h = new LatencyHistogram();
+    for (int ms = 1; ms <= 100; ms++) h.record(TimeUnit.MILLISECONDS.toNanos(ms));
+
+    LatencyHistogram.Snapshot s = h.snapshot();
+    assertThat(s.count()).isEqualTo(100);
+    assertThat(s.p50Ms()).isBetween(50.0, 50 * 1.2);
+    assertThat(s.p99Ms()).isBetween(99.0, 100.0);
+    assertThat(s.maxMs()).isEqualTo(100.0);
+    assertThat(s.totalMs()).isEqualTo(5050.0);
+  }
+}
@@ -0,0 +1,114 @@
+package org.jdk.qq_bot.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jooq.generated.tables.OvertimeDaily.OVERTIME_DAILY;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.dto.OvertimeSummary;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OvertimeDailyRepositoryTest {
+
+  private static final YearMonth YM = YearMonth.of(2025, 8);
+  private static final LocalDate TODAY = YM.atDay(24);
+
+  private DataSource ds;
+  private DSLContext dsl;
+  private OvertimeLogRepository logRepo;
+  private OvertimeDailyRepository dailyRepo;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = TestDb.create("daily");
+    dsl = DSL.using(ds, SQLDialect.H2);
+    logRepo = new OvertimeLogRepository(dsl);
+    dailyRepo = new OvertimeDailyRepository(dsl);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TestDb.drop(ds);
+  }
+
+  @Test
+  void incrementalWritesMatchRawLog() {
+    Random rnd = new Random(7);
+    String[] types = {"G1", "G2", "G3"};
+    for (int batch = 0; batch < 20; batch++) {
+      List<OvertimeEntry> entries = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        entries.add(
+            new OvertimeEntry(
+                1 + rnd.nextInt(2),
+                YM.atDay(1 + rnd.nextInt(YM.lengthOfMonth())),
+                types[rnd.nextInt(3)],
+                BigDecimal.valueOf(1 + rnd.nextInt(400), 2),
+                null));
+      }
+      logRepo.insertAll(entries);
+      dailyRepo.addAll(entries);
+    }
+    // set / del 覆盖语义
+    logRepo.deleteByUserIdAndWorkDate(1, TODAY);
+    logRepo.insert(1, TODAY, "G3", new BigDecimal("4.00"), null);
+    dailyRepo.replaceDay(1, TODAY, "G3", new BigDecimal("4.00"));
+    logRepo.deleteByUserIdAndWorkDate(2, YM.atDay(3));
+    dailyRepo.deleteDay(2, YM.atDay(3));
+
+    assertThat(dailyRepo.findMismatchedDays()).isEmpty();
+    assertThat(dsl.fetchCount(OVERTIME_DAILY)).isLessThanOrEqualTo(2 * YM.lengthOfMonth() * 3);
+    for (long uid = 1; uid <= 2; uid++) {
+      assertSameSummary(
+          dailyRepo.monthSummary(uid, YM.atDay(1), YM.atEndOfMonth(), TODAY).toSummary(),
+          logRepo.monthSummary(uid, YM.atDay(1), YM.atEndOfMonth(), TODAY).toSummary());
+    }
+  }
+
+  @Test
+  void reconcileFindsAndRepairsDrift() {
+    logRepo.insert(1, TODAY, "G1", new BigDecimal("2.00"), null); // 汇总缺行
+    logRepo.insert(2, TODAY, "G1", new BigDecimal("1.00"), null);
+    dailyRepo.replaceDay(2, TODAY, "G1", new BigDecimal("9.00")); // 汇总不等
+    dailyRepo.replaceDay(3, TODAY, "G2", new BigDecimal("1.00")); // 明细没有
+
+    var drift = dailyRepo.findMismatchedDays();
+    assertThat(drift)
+        .containsExactlyInAnyOrder(
+            new OvertimeDailyRepository.UserDay(1, TODAY),
+            new OvertimeDailyRepository.UserDay(2, TODAY),
+            new OvertimeDailyRepository.UserDay(3, TODAY));
+
+    drift.forEach(d -> dailyRepo.rebuildDay(d.userId(), d.workDate()));
+    assertThat(dailyRepo.findMismatchedDays()).isEmpty();
+
+    assertThat(dailyRepo.rebuildAll()).isEqualTo(2);
+    assertThat(dailyRepo.findMismatchedDays()).isEmpty();
+  }
+
+  private static void assertSameSummary(OvertimeSummary actual, OvertimeSummary expected) {
+    assertThat(actual.getMonthTotal()).isEqualByComparingTo(expected.getMonthTotal());
+    assertThat(actual.getTodayTotal()).isEqualByComparingTo(expected.getTodayTotal());
+    assertThat(actual.getMonthByType().keySet()).isEqualTo(expected.getMonthByType().keySet());
+    expected
+        .getMonthByType()
+        .forEach((k, v) -> assertThat(actual.getMonthByType().get(k)).isEqualByComparingTo(v));
+    assertThat(actual.getDailyTotals().keySet())
+        .containsExactlyElementsOf(expected.getDailyTotals().keySet());
+    expected
+        .getDailyTotals()
+        .forEach((k, v) -> assertThat(actual.getDailyTotals().get(k)).isEqualByComparingTo(v));
+  }
+}
@@ -0,0 +1,97 @@
+package org.jdk.qq_bot.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.OvertimeSummary;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OvertimeLogRepositoryTest {
+
+  private static final YearMonth YM = YearMonth.of(2025, 8);
+  private static final LocalDate TODAY = YM.atDay(24);
+
+  private DataSource ds;
+  private OvertimeLogRepository repo;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = TestDb.create("overtime");
+    repo = new OvertimeLogRepository(DSL.using(ds, SQLDialect.H2));
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TestDb.drop(ds);
+  }
+
+  @Test
+  void monthSummaryMatchesFiveQueryPath() {
+    Random rnd = new Random(42);
+    String[] types = {"G1", "G2", "G3"};
+    for (int i = 0; i < 200; i++) {
+      long uid = 1 + rnd.nextInt(3);
+      // 覆盖当月、上月末、下月初，验证区间边界
+      LocalDate day = YM.atDay(1).plusDays(rnd.nextInt(YM.lengthOfMonth() + 4) - 2);
+      BigDecimal hours = BigDecimal.valueOf(1 + rnd.nextInt(800), 2);
+      repo.insert(uid, day, types[rnd.nextInt(3)], hours, null);
+    }
+    for (int i = 0; i < 5; i++) repo.insert(1, TODAY, "G2", new BigDecimal("1.25"), null);
+
+    for (long uid = 1; uid <= 4; uid++) {
+      LocalDate start = YM.atDay(1), end = YM.atEndOfMonth();
+      assertSameSummary(
+          repo.monthSummary(uid, start, end, TODAY).toSummary(),
+          fiveQuerySummary(uid, start, end, TODAY));
+    }
+  }
+
+  @Test
+  void monthSummaryOfEmptyMonthIsZero() {
+    OvertimeSummary s = repo.monthSummary(9, YM.atDay(1), YM.atEndOfMonth(), TODAY).toSummary();
+
+    assertThat(s.getMonthTotal()).isEqualByComparingTo("0");
+    assertThat(s.getTodayTotal()).isEqualByComparingTo("0");
+    assertThat(s.getMonthByType()).isEmpty();
+    assertThat(s.getTodayByType()).isEmpty();
+    assertThat(s.getDailyTotals()).isEmpty();
+  }
+
+  /** 原 queryThisMonth 的五次查询组装方式，作为对照 */
+  private OvertimeSummary fiveQuerySummary(
+      long uid, LocalDate start, LocalDate end, LocalDate today) {
+    return new OvertimeSummary(
+        repo.monthTotal(uid, start, end),
+        repo.dayTotal(uid, today),
+        new LinkedHashMap<>(repo.monthTotalsByType(uid, start, end)),
+        new LinkedHashMap<>(repo.dayTotalsByType(uid, today)),
+        repo.monthDailyTotals(uid, start, end));
+  }
+
+  private static void assertSameSummary(OvertimeSummary actual, OvertimeSummary expected) {
+    assertThat(actual.getMonthTotal()).isEqualByComparingTo(expected.getMonthTotal());
+    assertThat(actual.getTodayTotal()).isEqualByComparingTo(expected.getTodayTotal());
+    assertSameTotals(actual.getMonthByType(), expected.getMonthByType());
+    assertSameTotals(actual.getTodayByType(), expected.getTodayByType());
+    assertSameTotals(actual.getDailyTotals(), expected.getDailyTotals());
+    // 每日总和要求按日期升序
+    assertThat(new ArrayList<>(actual.getDailyTotals().keySet())).isSorted();
+  }
+
+  private static <K> void assertSameTotals(Map<K, BigDecimal> actual, Map<K, BigDecimal> expected) {
+    assertThat(actual.keySet()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+    expected.forEach((k, v) -> assertThat(actual.get(k)).as("%s", k).isEqualByComparingTo(v));
+  }
+}
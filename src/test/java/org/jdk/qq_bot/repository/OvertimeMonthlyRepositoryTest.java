@@ -0,0 +1,106 @@
+package org.jdk.qq_bot.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository.UserMonth;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class OvertimeMonthlyRepositoryTest {
+
+  private static final int YEAR = 2025;
+
+  private DataSource ds;
+  private OvertimeDailyRepository dailyRepo;
+  private OvertimeMonthlyRepository monthlyRepo;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = TestDb.create("monthly");
+    DSLContext dsl = DSL.using(ds, SQLDialect.H2);
+    dailyRepo = new OvertimeDailyRepository(dsl);
+    monthlyRepo = new OvertimeMonthlyRepository(dsl);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TestDb.drop(ds);
+  }
+
+  @Test
+  void incrementalWritesMatchDailyRollup() {
+    Random rnd = new Random(11);
+    String[] types = {"G1", "G2", "G3"};
+    for (int batch = 0; batch < 20; batch++) {
+      List<OvertimeEntry> entries = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        entries.add(
+            new OvertimeEntry(
+                1 + rnd.nextInt(2),
+                LocalDate.ofYearDay(YEAR, 1 + rnd.nextInt(365)),
+                types[rnd.nextInt(3)],
+                BigDecimal.valueOf(1 + rnd.nextInt(400), 2),
+                null));
+      }
+      dailyRepo.addAll(entries);
+      monthlyRepo.addAll(entries);
+    }
+    // set / del 覆盖某天后按日汇总重算该月
+    LocalDate day = LocalDate.of(YEAR, 8, 24);
+    dailyRepo.replaceDay(1, day, "G3", new BigDecimal("4.00"));
+    monthlyRepo.rebuildMonth(1, YearMonth.from(day));
+    dailyRepo.deleteDay(2, day);
+    monthlyRepo.rebuildMonth(2, YearMonth.from(day));
+
+    assertThat(monthlyRepo.findMismatchedMonths()).isEmpty();
+
+    var byMonth = monthlyRepo.yearByMonth(1, YEAR);
+    assertThat(new ArrayList<>(byMonth.keySet())).isSorted();
+    BigDecimal fromMonthly =
+        byMonth.values().stream()
+            .flatMap(m -> m.values().stream())
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    BigDecimal fromDaily =
+        dailyRepo
+            .dailyTotals(1, LocalDate.of(YEAR, 1, 1), LocalDate.of(YEAR, 12, 31))
+            .values()
+            .stream()
+            .reduce(BigDecimal.ZERO, BigDecimal::add);
+    assertThat(fromMonthly).isEqualByComparingTo(fromDaily);
+  }
+
+  @Test
+  void reconcileFindsAndRepairsDrift() {
+    LocalDate day = LocalDate.of(YEAR, 3, 5);
+    dailyRepo.replaceDay(1, day, "G1", new BigDecimal("2.00")); // 月汇总缺行
+    dailyRepo.replaceDay(2, day, "G1", new BigDecimal("1.00"));
+    monthlyRepo.addAll(List.of(new OvertimeEntry(2, day, "G1", new BigDecimal("9.00"), null)));
+    monthlyRepo.addAll(List.of(new OvertimeEntry(3, day, "G2", BigDecimal.ONE, null))); // 日汇总没有
+
+    var drift = monthlyRepo.findMismatchedMonths();
+    YearMonth march = YearMonth.of(YEAR, 3);
+    assertThat(drift)
+        .containsExactlyInAnyOrder(
+            new UserMonth(1, march), new UserMonth(2, march), new UserMonth(3, march));
+
+    drift.forEach(m -> monthlyRepo.rebuildMonth(m.userId(), m.month()));
+    assertThat(monthlyRepo.findMismatchedMonths()).isEmpty();
+    assertThat(monthlyRepo.yearByMonth(3, YEAR)).isEmpty();
+
+    assertThat(monthlyRepo.rebuildAll()).isEqualTo(2);
+    assertThat(monthlyRepo.findMismatchedMonths()).isEmpty();
+  }
+}
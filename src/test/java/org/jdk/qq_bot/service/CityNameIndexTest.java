@@ -0,0 +1,87 @@
+package org.jdk.qq_bot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.jdk.qq_bot.dto.CityCode;
+import org.junit.jupiter.api.Test;
+
+class CityNameIndexTest {
+
+  private static final List<CityCode> CITIES =
+      List.of(
+          new CityCode("中国", "100000", null),
+          new CityCode("广州市", "440100", "020"),
+          new CityCode("广州", "440199", "020"),
+          new CityCode("州广", "440198", null),
+          new CityCode("杭州市", "330100", "0571"),
+          new CityCode("杭州湾新区", "330299", "0574"),
+          new CityCode("西湖区", "330106", "0571"),
+          new CityCode("湖州市", "330500", "0572"));
+
+  private static CityNameIndex index(List<CityCode> rows) {
+    var idx = new CityNameIndex(null);
+    idx.install(rows);
+    return idx;
+  }
+
+  private static List<String> names(List<CityCode> rows) {
+    return rows.stream().map(CityCode::nameZh).toList();
+  }
+
+  @Test
+  void ranksExactThenPrefixThenSubstringShorterFirst() {
+    var idx = index(CITIES);
+
+    assertThat(names(idx.search("广州", 10))).containsExactly("广州", "广州市");
+    assertThat(names(idx.search("杭州", 10))).containsExactly("杭州市", "杭州湾新区");
+    assertThat(names(idx.search("州", 10)))
+        .containsExactly("州广", "广州", "杭州市", "湖州市", "广州市", "杭州湾新区");
+    assertThat(names(idx.search("湖", 10))).containsExactly("湖州市", "西湖区");
+    assertThat(names(idx.search(" 州", 2))).containsExactly("州广", "广州");
+  }
+
+  @Test
+  void missesAndBlankInputReturnEmpty() {
+    var idx = index(CITIES);
+
+    assertThat(idx.search("北京", 5)).isEmpty();
+    assertThat(idx.search("州湖", 5)).isEmpty();
+    assertThat(idx.search("  ", 5)).isEmpty();
+    assertThat(idx.search(null, 5)).isEmpty();
+    assertThat(idx.search("广州", 0)).isEmpty();
+  }
+
+  @Test
+  void reloadSwapsWholeSnapshotUnderConcurrentReads() throws Exception {
+    List<CityCode> a = new ArrayList<>();
+    List<CityCode> b = new ArrayList<>();
+    for (int i = 0; i < 500; i++) {
+      a.add(new CityCode("甲城" + i, "A" + i, null));
+      b.add(new CityCode("乙城" + i, "B" + i, null));
+    }
+    var idx = index(a);
+    var stop = new AtomicBoolean();
+    var failure = new AtomicReference<String>();
+    Thread reader =
+        new Thread(
+            () -> {
+              while (!stop.get()) {
+                // 任一时刻只能看到完整的旧快照或完整的新快照
+                var hits = idx.search("城", 1000);
+                long prefixes = hits.stream().map(c -> c.nameZh().charAt(0)).distinct().count();
+                if (hits.size() != 500 || prefixes != 1) failure.set("saw " + names(hits));
+              }
+            });
+    reader.start();
+    for (int i = 0; i < 200; i++) idx.install(i % 2 == 0 ? b : a);
+    stop.set(true);
+    reader.join();
+
+    assertThat(failure.get()).isNull();
+    assertThat(idx.size()).isEqualTo(500);
+  }
+}
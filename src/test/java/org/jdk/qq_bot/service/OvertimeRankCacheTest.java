@@ -0,0 +1,143 @@
+package org.jdk.qq_bot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.dto.OvertimeRank;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class OvertimeRankCacheTest {
+
+  private static final YearMonth YM = YearMonth.of(2025, 8);
+  private static final long GROUP = 100;
+  private static final OvertimeRankCache.Key KEY = new OvertimeRankCache.Key(GROUP, YM);
+
+  private DataSource ds;
+  private OvertimeLogRepository logRepo;
+  private TransactionTemplate tx;
+  private OvertimeRankCache cache;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = TestDb.create("rank");
+    logRepo =
+        new OvertimeLogRepository(
+            DSL.using(new TransactionAwareDataSourceProxy(ds), SQLDialect.H2));
+    tx = new TransactionTemplate(new DataSourceTransactionManager(ds));
+    cache = new OvertimeRankCache(16);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TestDb.drop(ds);
+  }
+
+  @Test
+  void incrementalUpdatesMatchColdLoad() {
+    Random rnd = new Random(3);
+    assertThat(top(cache, 1).members()).isZero();
+    for (int batch = 0; batch < 30; batch++) {
+      List<OvertimeEntry> entries = new ArrayList<>();
+      for (int i = 0; i < 8; i++) {
+        entries.add(
+            new OvertimeEntry(
+                1 + rnd.nextInt(40),
+                YM.atDay(1 + rnd.nextInt(YM.lengthOfMonth())),
+                "G1",
+                BigDecimal.valueOf(1 + rnd.nextInt(400), 2),
+                null,
+                rnd.nextInt(4) == 0 ? GROUP + 1 : GROUP));
+      }
+      tx.executeWithoutResult(
+          status -> {
+            logRepo.insertAll(entries);
+            cache.added(entries);
+          });
+    }
+
+    OvertimeRank warm = top(cache, 7);
+    OvertimeRank cold = top(new OvertimeRankCache(16), 7);
+    assertThat(warm).isEqualTo(cold);
+    assertThat(warm.top()).hasSize(5);
+    assertThat(warm.top().get(0).hours()).isGreaterThanOrEqualTo(warm.top().get(4).hours());
+    assertThat(cache.stats().misses()).isEqualTo(1);
+  }
+
+  @Test
+  void boardLoadedWhileWriteIsInFlightIsDroppedNotDoubleCounted() {
+    var entry = new OvertimeEntry(7, YM.atDay(3), "G1", new BigDecimal("2.50"), null, GROUP);
+    logRepo.insertAll(List.of(entry));
+
+    TransactionSynchronizationManager.initSynchronization();
+    try {
+      cache.added(List.of(entry));
+      // 提交后、回调前有人建榜：SELECT 已经看得到这次写入
+      assertThat(top(cache, 7).myHours()).isEqualByComparingTo("2.50");
+      TransactionSynchronizationManager.getSynchronizations()
+          .forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+    } finally {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    assertThat(top(cache, 7).myHours()).isEqualByComparingTo("2.50");
+    assertThat(cache.stats().misses()).isEqualTo(2);
+  }
+
+  @Test
+  void setAndDeleteDropAffectedBoards() {
+    var other = new OvertimeRankCache.Key(GROUP + 1, YM);
+    cache.top(KEY, 1, 3, () -> Map.of(1L, BigDecimal.ONE));
+    cache.top(other, 1, 3, () -> Map.of(2L, BigDecimal.ONE));
+
+    cache.invalidate(1, null, YM.atDay(9));
+    assertThat(cache.stats().size()).isEqualTo(1);
+
+    cache.invalidate(3, GROUP + 1, YM.atDay(9));
+    assertThat(cache.stats().size()).isZero();
+  }
+
+  @Test
+  void ranksTiesByUserIdAndReportsOwnPosition() {
+    var r =
+        cache.top(
+            KEY,
+            4,
+            2,
+            () ->
+                Map.of(
+                    3L, new BigDecimal("5"),
+                    1L, new BigDecimal("5"),
+                    4L, new BigDecimal("1.25"),
+                    2L, new BigDecimal("8")));
+
+    assertThat(r.top())
+        .containsExactly(
+            new OvertimeRank.Row(2, new BigDecimal("8.00")),
+            new OvertimeRank.Row(1, new BigDecimal("5.00")));
+    assertThat(r.myRank()).isEqualTo(4);
+    assertThat(r.myHours()).isEqualByComparingTo("1.25");
+    assertThat(r.members()).isEqualTo(4);
+  }
+
+  private OvertimeRank top(OvertimeRankCache c, long userId) {
+    return c.top(KEY, userId, 5, () -> logRepo.groupTotals(GROUP, YM.atDay(1), YM.atEndOfMonth()));
+  }
+}
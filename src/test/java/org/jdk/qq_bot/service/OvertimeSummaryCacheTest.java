@@ -0,0 +1,94 @@
+package org.jdk.qq_bot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.junit.jupiter.api.Test;
+
+class OvertimeSummaryCacheTest {
+
+  private static final LocalDate TODAY = LocalDate.of(2025, 8, 24);
+  private static final YearMonth YM = YearMonth.from(TODAY);
+
+  @Test
+  void servesRepeatedReadsFromCache() {
+    var cache = new OvertimeSummaryCache(10, 600);
+    var loads = new AtomicInteger();
+    var key = new OvertimeSummaryCache.Key(1, YM);
+
+    CompactOvertimeSummary first = cache.get(key, TODAY, () -> summary(loads.incrementAndGet()));
+    CompactOvertimeSummary second = cache.get(key, TODAY, () -> summary(loads.incrementAndGet()));
+
+    assertThat(second).isSameAs(first);
+    assertThat(loads).hasValue(1);
+    assertThat(cache.stats()).isEqualTo(new OvertimeSummaryCache.Stats(1, 1, 0, 1));
+  }
+
+  @Test
+  void invalidationForcesReload() {
+    var cache = new OvertimeSummaryCache(10, 600);
+    var key = new OvertimeSummaryCache.Key(1, YM);
+    cache.get(key, TODAY, () -> summary(1));
+
+    cache.invalidate(1, YM.atDay(3));
+
+    assertThat(cache.get(key, TODAY, () -> summary(2)).totalCentis()).isEqualTo(200);
+  }
+
+  @Test
+  void loadRacingWithInvalidationIsNotCached() {
+    var cache = new OvertimeSummaryCache(10, 600);
+    var key = new OvertimeSummaryCache.Key(1, YM);
+
+    // 加载过程中发生写入：返回的旧值不应留在缓存里
+    CompactOvertimeSummary stale =
+        cache.get(
+            key,
+            TODAY,
+            () -> {
+              cache.invalidate(1, TODAY);
+              return summary(1);
+            });
+
+    assertThat(stale.totalCentis()).isEqualTo(100);
+    assertThat(cache.get(key, TODAY, () -> summary(2)).totalCentis()).isEqualTo(200);
+  }
+
+  @Test
+  void dayRolloverIsAMiss() {
+    var cache = new OvertimeSummaryCache(10, 600);
+    var key = new OvertimeSummaryCache.Key(1, YM);
+    cache.get(key, TODAY, () -> summary(1));
+
+    CompactOvertimeSummary next = cache.get(key, TODAY.plusDays(1), () -> summary(2));
+
+    assertThat(next.totalCentis()).isEqualTo(200);
+    assertThat(cache.stats().evictions()).isEqualTo(1);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedBeyondCapacity() {
+    var cache = new OvertimeSummaryCache(2, 600);
+    var k1 = new OvertimeSummaryCache.Key(1, YM);
+    var k2 = new OvertimeSummaryCache.Key(2, YM);
+    var k3 = new OvertimeSummaryCache.Key(3, YM);
+    cache.get(k1, TODAY, () -> summary(1));
+    cache.get(k2, TODAY, () -> summary(2));
+    cache.get(k1, TODAY, () -> summary(-1)); // k1 变为最近使用
+    cache.get(k3, TODAY, () -> summary(3));
+
+    assertThat(cache.stats().evictions()).isEqualTo(1);
+    assertThat(cache.get(k1, TODAY, () -> summary(-1)).totalCentis()).isEqualTo(100);
+    assertThat(cache.get(k2, TODAY, () -> summary(20)).totalCentis()).isEqualTo(2000);
+  }
+
+  private static CompactOvertimeSummary summary(int total) {
+    return CompactOvertimeSummary.builder(YM.atDay(1), YM.atEndOfMonth())
+        .add(YM.atDay(1), "G1", BigDecimal.valueOf(total), TODAY)
+        .build();
+  }
+}
@@ -0,0 +1,109 @@
+package org.jdk.qq_bot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jooq.generated.tables.OvertimeLog.OVERTIME_LOG;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeEntry;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class OvertimeWriteBatcherTest {
+
+  private static final LocalDate DAY = LocalDate.of(2025, 8, 24);
+
+  private DataSource ds;
+  private DSLContext dsl;
+  private OvertimeSummaryCache cache;
+  private OvertimeWriteBatcher batcher;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = TestDb.create("batcher");
+    dsl = DSL.using(new TransactionAwareDataSourceProxy(ds), SQLDialect.H2);
+    cache = new OvertimeSummaryCache(100, 600);
+    batcher =
+        new OvertimeWriteBatcher(
+            new OvertimeLogRepository(dsl),
+            new OvertimeDailyRepository(dsl),
+            new OvertimeMonthlyRepository(dsl),
+            cache,
+            new OvertimeRankCache(16),
+            new TransactionTemplate(new DataSourceTransactionManager(ds)),
+            64,
+            20,
+            1024,
+            5_000);
+    batcher.start();
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    batcher.stop();
+    TestDb.drop(ds);
+  }
+
+  @Test
+  void concurrentInsertsShareBatchesAndAreVisibleOnReturn() throws Exception {
+    int writers = 32;
+    ExecutorService pool = Executors.newFixedThreadPool(writers);
+    CountDownLatch go = new CountDownLatch(1);
+    List<Future<Integer>> visible = new ArrayList<>();
+    for (int i = 0; i < writers; i++) {
+      long uid = i;
+      visible.add(
+          pool.submit(
+              () -> {
+                go.await();
+                batcher.insert(new OvertimeEntry(uid, DAY, "G1", new BigDecimal("1.50"), null));
+                // 返回即已提交：立刻能读到自己的记录
+                return dsl.fetchCount(OVERTIME_LOG, OVERTIME_LOG.USER_ID.eq(uid));
+              }));
+    }
+    go.countDown();
+    for (Future<Integer> f : visible) assertThat(f.get()).isEqualTo(1);
+    pool.shutdown();
+
+    assertThat(dsl.fetchCount(OVERTIME_LOG)).isEqualTo(writers);
+    assertThat(batcher.stats().rows()).isEqualTo(writers);
+    assertThat(batcher.stats().batches()).isLessThan(writers);
+  }
+
+  @Test
+  void badRowFailsAloneAndInvalidatesCache() throws Exception {
+    var key = new OvertimeSummaryCache.Key(1, YearMonth.from(DAY));
+    cache.get(key, DAY, CompactOvertimeSummary::empty);
+
+    batcher.insert(new OvertimeEntry(1, DAY, "G2", new BigDecimal("2.00"), null));
+    // DECIMAL(5,2) 放不下：只有这一条失败
+    assertThatThrownBy(
+            () -> batcher.insert(new OvertimeEntry(2, DAY, "G1", new BigDecimal("12345"), null)))
+        .isInstanceOf(RuntimeException.class);
+
+    assertThat(dsl.fetchCount(OVERTIME_LOG)).isEqualTo(1);
+    assertThat(batcher.stats().failed()).isEqualTo(1);
+    assertThat(cache.stats().size()).isZero();
+  }
+}
@@ -0,0 +1,111 @@
+package org.jdk.qq_bot.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class TranslateServiceTest {
+
+  @Test
+  void cachesByWhitespaceNormalizedWordKeepingCase() {
+    var calls = new AtomicInteger();
+    var svc = new TranslateService(w -> w + "#" + calls.incrementAndGet(), 10, 600, 600);
+
+    assertThat(svc.define("  NASA ")).isEqualTo("NASA#1");
+    assertThat(svc.define("nasa")).isEqualTo("nasa#2"); // 大小写不同是另一个词
+    assertThat(svc.define("NASA")).isEqualTo("NASA#1");
+    assertThat(svc.define("ice  cream")).isEqualTo("ice cream#3");
+    assertThat(svc.define(" ice cream")).isEqualTo("ice cream#3");
+
+    var stats = svc.stats();
+    assertThat(stats).isEqualTo(new TranslateService.Stats(2, 3, 0, 0, 3));
+    assertThat(stats.hitRate()).isEqualTo(0.4);
+  }
+
+  @Test
+  void negativeResultsExpireSoonerAndErrorsAreNotCached() {
+    var calls = new AtomicInteger();
+    var svc =
+        new TranslateService(
+            w -> {
+              calls.incrementAndGet();
+              if (w.equals("boom")) throw new IllegalStateException("HTTP 502");
+              return null;
+            },
+            10,
+            600,
+            0);
+
+    assertThat(svc.define("zzz")).isNull();
+    assertThat(svc.define("zzz")).isNull(); // 负缓存 TTL 为 0，已过期
+    assertThat(calls).hasValue(2);
+
+    assertThatThrownBy(() -> svc.define("boom")).hasMessage("HTTP 502");
+    assertThatThrownBy(() -> svc.define("boom")).hasMessage("HTTP 502");
+    assertThat(calls).hasValue(4);
+  }
+
+  @Test
+  void concurrentLookupsShareOneCall() throws Exception {
+    var calls = new AtomicInteger();
+    var entered = new CountDownLatch(1);
+    var release = new CountDownLatch(1);
+    var svc =
+        new TranslateService(
+            w -> {
+              calls.incrementAndGet();
+              entered.countDown();
+              try {
+                release.await();
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+              }
+              return "释义";
+            },
+            10,
+            600,
+            60);
+
+    ExecutorService pool = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<>();
+      results.add(pool.submit(() -> svc.define("word")));
+      assertThat(entered.await(5, TimeUnit.SECONDS)).isTrue();
+      for (int i = 0; i < 7; i++) results.add(pool.submit(() -> svc.define("word")));
+      // 等其余调用都挂到在途请求上
+      long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (svc.stats().collapsed() < 7 && System.nanoTime() < deadline) Thread.sleep(5);
+      release.countDown();
+
+      for (Future<String> f : results) assertThat(f.get(5, TimeUnit.SECONDS)).isEqualTo("释义");
+    } finally {
+      pool.shutdownNow();
+    }
+    assertThat(calls).hasValue(1);
+    assertThat(svc.stats().collapsed()).isEqualTo(7);
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedBeyondCapacity() {
+    var calls = new AtomicInteger();
+    var svc = new TranslateService(w -> w + calls.incrementAndGet(), 2, 600, 600);
+    svc.define("a");
+    svc.define("b");
+    svc.define("a");
+    svc.define("c"); // 挤掉 b
+
+    svc.define("a");
+    svc.define("b");
+    assertThat(calls).hasValue(4);
+    assertThat(svc.stats().evictions()).isEqualTo(2);
+  }
+}
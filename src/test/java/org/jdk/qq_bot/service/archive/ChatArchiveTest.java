@@ -0,0 +1,100 @@
+package org.jdk.qq_bot.service.archive;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChatArchiveTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void rotatesSegmentsAndSearchesByGroupAndTime() throws Exception {
+    var archive = new ChatArchive(dir, 4 * 1024, 0, 10_000, 1024);
+    archive.start();
+    long t0 = System.currentTimeMillis();
+    for (int i = 0; i < 2000; i++) {
+      archive.append(i % 2 == 0 ? 1001 : 1002, 10 + i % 7, "消息 #" + i);
+    }
+    archive.append(ChatArchive.PRIVATE, 42, "x".repeat(5000)); // 比写缓冲还大
+    archive.stop();
+
+    ChatArchive.Stats stats = archive.stats();
+    assertThat(stats.appended()).isEqualTo(2001);
+    assertThat(stats.written()).isEqualTo(2001);
+    assertThat(stats.dropped()).isZero();
+    assertThat(stats.segments()).isGreaterThan(5);
+    assertThat(ChatSegment.list(dir)).hasSize(stats.segments());
+
+    ChatArchiveReader reader = archive.reader();
+    long now = System.currentTimeMillis();
+    List<ChatRecord> group1 = new ArrayList<>();
+    reader.replay(1001, t0, now, group1::add);
+    assertThat(group1).hasSize(1000);
+    assertThat(group1.get(0).text()).isEqualTo("消息 #0");
+    assertThat(group1.get(999).text()).isEqualTo("消息 #1998");
+    assertThat(group1).allMatch(r -> r.groupId() == 1001);
+
+    assertThat(reader.search(1002, t0, now, "#1999", 10))
+        .singleElement()
+        .extracting(ChatRecord::userId)
+        .isEqualTo(10L + 1999 % 7);
+    assertThat(reader.search(ChatArchiveReader.ANY_GROUP, t0, now, null, 3))
+        .extracting(ChatRecord::userId)
+        .containsExactly(10L + 1998 % 7, 10L + 1999 % 7, 42L);
+    assertThat(reader.search(ChatArchive.PRIVATE, t0, now, null, 10))
+        .singleElement()
+        .satisfies(r -> assertThat(r.text()).hasSize(5000));
+    assertThat(reader.search(ChatArchiveReader.ANY_GROUP, now + 120_000, now + 240_000, null, 10))
+        .isEmpty();
+  }
+
+  @Test
+  void prunesOldestSegmentsBeyondMaxSegments() throws Exception {
+    var archive = new ChatArchive(dir, 4 * 1024, 3, 10_000, 1024);
+    archive.start();
+    for (int i = 0; i < 2000; i++) archive.append(1001, 10, "消息 #" + i);
+    archive.stop();
+
+    List<ChatSegment.Info> left = ChatSegment.list(dir);
+    assertThat(left).hasSize(3);
+    assertThat(archive.stats().segments()).isEqualTo(3);
+    long lastSeq = left.get(2).seq();
+    assertThat(left)
+        .extracting(ChatSegment.Info::seq)
+        .containsExactly(lastSeq - 2, lastSeq - 1, lastSeq);
+
+    List<ChatRecord> kept = new ArrayList<>();
+    archive.reader().replay(1001, 0, Long.MAX_VALUE, kept::add);
+    assertThat(kept).isNotEmpty().hasSizeLessThan(2000);
+    assertThat(kept.get(kept.size() - 1).text()).isEqualTo("消息 #1999");
+  }
+
+  @Test
+  void restartStartsNewSegmentAndIgnoresTornTail() throws Exception {
+    var first = new ChatArchive(dir, 1024 * 1024, 0, 100, 1024);
+    first.start();
+    first.append(1, 2, "before crash");
+    first.stop();
+
+    // 模拟崩溃时写了一半的记录
+    Path seg = ChatSegment.list(dir).get(0).path();
+    Files.write(seg, new byte[] {(byte) 0x90, 0x01, 0x05}, StandardOpenOption.APPEND);
+
+    var second = new ChatArchive(dir, 1024 * 1024, 0, 100, 1024);
+    second.start();
+    second.append(1, 3, "after restart");
+    second.stop();
+
+    assertThat(ChatSegment.list(dir)).extracting(ChatSegment.Info::seq).containsExactly(1L, 2L);
+    assertThat(second.reader().search(1, 0, Long.MAX_VALUE, null, 10))
+        .extracting(ChatRecord::text)
+        .containsExactly("before crash", "after restart");
+  }
+}
@@ -0,0 +1,47 @@
+package org.jdk.qq_bot.service.cache;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class LruMapTest {
+
+  @Test
+  void evictsLeastRecentlyAccessedBeyondSize() {
+    LruMap<String, Integer> lru = LruMap.ofSize(2);
+    lru.put("a", 1);
+    lru.put("b", 2);
+    lru.get("a");
+    lru.put("c", 3); // 挤掉 b
+
+    assertThat(lru.get("b")).isNull();
+    assertThat(lru.get("a")).isEqualTo(1);
+    assertThat(lru.get("c")).isEqualTo(3);
+    assertThat(lru.evictions()).isEqualTo(1);
+
+    lru.expire("a");
+    lru.remove("c");
+    assertThat(lru.size()).isZero();
+    assertThat(lru.evictions()).isEqualTo(2);
+  }
+
+  @Test
+  void weightedEvictionTracksWeightAndCallsBack() {
+    List<String> evicted = new ArrayList<>();
+    LruMap<String, byte[]> lru = LruMap.weighted(10, b -> b.length, (k, v) -> evicted.add(k));
+    lru.put("a", new byte[4]);
+    lru.put("b", new byte[4]);
+    lru.put("a", new byte[2]); // 替换：权重按新值算，a 变成最近访问
+    assertThat(lru.weight()).isEqualTo(6);
+
+    lru.put("c", new byte[6]); // 12 > 10，淘汰最久未访问的 b
+    assertThat(evicted).containsExactly("b");
+    assertThat(lru.weight()).isEqualTo(8);
+
+    assertThat(lru.removeIf((k, v) -> v.length == 2)).isTrue();
+    assertThat(lru.weight()).isEqualTo(6);
+    assertThat(evicted).containsExactly("b");
+  }
+}
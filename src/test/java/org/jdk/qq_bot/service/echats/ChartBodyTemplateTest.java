@@ -0,0 +1,77 @@
+package org.jdk.qq_bot.service.echats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.YearMonth;
+import java.util.Random;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.junit.jupiter.api.Test;
+
+class ChartBodyTemplateTest {
+
+  private static final YearMonth YM = YearMonth.of(2025, 8);
+
+  private static final ChartBodyTemplate BAR = ChartBodyTemplate.dailyBar(1000, 380, "#FCFCFF");
+  private static final ChartBodyTemplate PIE = ChartBodyTemplate.typePie(560, 380, "#FCFCFF");
+
+  @Test
+  void matchesFullSerializationByteForByte() throws Exception {
+    Random rnd = new Random(12);
+    for (int i = 0; i < 200; i++) {
+      assertSameBodies(randomSummary(rnd));
+    }
+  }
+
+  @Test
+  void handlesEmptyAndDegenerateMonths() throws Exception {
+    assertSameBodies(CompactOvertimeSummary.empty());
+    assertSameBodies(CompactOvertimeSummary.builder(YM.atDay(1), YM.atEndOfMonth()).build());
+
+    // 只有不认识的类型：有每日柱子，饼图仍是“无记录”
+    assertSameBodies(
+        CompactOvertimeSummary.builder(YM.atDay(1), YM.atEndOfMonth())
+            .add(0, -1, 150, false)
+            .build());
+  }
+
+  @Test
+  void centerTextRoundsHalfUpLikeFormatter() {
+    for (int centis : new int[] {0, 4, 5, 15, 149, 150, 225, 9995, 123456}) {
+      assertThat(EchartsOptionBuilder.centerText(centis))
+          .isEqualTo(String.format("%.1f h", new BigDecimal(centis).movePointLeft(2)));
+    }
+  }
+
+  @Test
+  void templateKeepsNoPlaceholders() {
+    String bar = new String(BAR.render(CompactOvertimeSummary.empty()), StandardCharsets.UTF_8);
+    String pie = new String(PIE.render(CompactOvertimeSummary.empty()), StandardCharsets.UTF_8);
+    assertThat(bar).doesNotContain("@@slot").contains("\"xAxis\"");
+    assertThat(pie).doesNotContain("@@slot").contains("无记录").contains("0.0 h");
+  }
+
+  private static void assertSameBodies(CompactOvertimeSummary s) throws Exception {
+    byte[] bar =
+        EchartsRenderClient.renderBody(
+            EchartsOptionBuilder.dailyBarOption(s), 1000, 380, "#FCFCFF");
+    byte[] pie =
+        EchartsRenderClient.renderBody(EchartsOptionBuilder.typePieOption(s), 560, 380, "#FCFCFF");
+    assertThat(BAR.render(s)).isEqualTo(bar);
+    assertThat(PIE.render(s)).isEqualTo(pie);
+  }
+
+  private static CompactOvertimeSummary randomSummary(Random rnd) {
+    var b = CompactOvertimeSummary.builder(YM.atDay(1), YM.atEndOfMonth());
+    int days = rnd.nextInt(32);
+    for (int d = 0; d < days; d++) {
+      if (rnd.nextInt(4) == 0) continue;
+      int types = 1 + rnd.nextInt(3);
+      for (int t = 0; t < types; t++) {
+        if (rnd.nextBoolean()) b.add(d, t, 1 + rnd.nextInt(1200), d == 23);
+      }
+    }
+    return b.build();
+  }
+}
@@ -0,0 +1,144 @@
+package org.jdk.qq_bot.service.echats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ChartPngCacheTest {
+
+  @TempDir Path dir;
+
+  @Test
+  void sameRequestBodyRendersOnce() throws Exception {
+    var cache = new ChartPngCache(dir.toString(), 64, true);
+    cache.loadExisting();
+    var renders = new AtomicInteger();
+    byte[] body = bytes("{\"option\":{},\"width\":560}");
+
+    byte[] first = cache.getOrRender(body, () -> png(renders.incrementAndGet()));
+    byte[] second = cache.getOrRender(body.clone(), () -> png(renders.incrementAndGet()));
+
+    assertThat(second).isSameAs(first).isEqualTo(png(1));
+    assertThat(renders).hasValue(1);
+    assertThat(Files.readAllBytes(dir.resolve(ChartPngCache.key(body) + ".png"))).isEqualTo(png(1));
+  }
+
+  @Test
+  void differentBodiesGetDifferentEntries() throws Exception {
+    var cache = new ChartPngCache(dir.toString(), 64, true);
+    cache.loadExisting();
+
+    byte[] a = cache.getOrRender(bytes("{\"width\":1000}"), () -> png(1));
+    byte[] b = cache.getOrRender(bytes("{\"width\":560}"), () -> png(2));
+
+    assertThat(a).isEqualTo(png(1));
+    assertThat(b).isEqualTo(png(2));
+    assertThat(cache.stats().entries()).isEqualTo(2);
+  }
+
+  @Test
+  void reusesFilesFromPreviousRun() throws Exception {
+    byte[] body = bytes("{\"width\":1000}");
+    var before = new ChartPngCache(dir.toString(), 64, true);
+    before.loadExisting();
+    before.getOrRender(body, () -> png(1));
+
+    var after = new ChartPngCache(dir.toString(), 64, true);
+    after.loadExisting();
+    byte[] png =
+        after.getOrRender(
+            body,
+            () -> {
+              throw new AssertionError("should be served from disk");
+            });
+
+    assertThat(png).isEqualTo(png(1));
+    assertThat(after.stats().hits()).isEqualTo(1);
+  }
+
+  @Test
+  void memoryOnlyModeNeverTouchesDisk() throws Exception {
+    Path out = dir.resolve("charts");
+    var cache = new ChartPngCache(out.toString(), 64, false);
+    cache.loadExisting();
+    var renders = new AtomicInteger();
+    byte[] body = bytes("{\"width\":1000}");
+
+    cache.getOrRender(body, () -> png(renders.incrementAndGet()));
+    cache.getOrRender(body, () -> png(renders.incrementAndGet()));
+
+    assertThat(renders).hasValue(1);
+    assertThat(out).doesNotExist();
+  }
+
+  @Test
+  void evictsLeastRecentlyUsedOverCap() throws Exception {
+    var cache = new ChartPngCache(dir.toString(), 1, true);
+    cache.loadExisting();
+    byte[] big = new byte[600 * 1024];
+
+    cache.getOrRender(bytes("a"), () -> big);
+    cache.getOrRender(bytes("b"), () -> big.clone());
+
+    assertThat(cache.stats().entries()).isEqualTo(1);
+    assertThat(cache.stats().evictions()).isEqualTo(1);
+    assertThat(dir.resolve(ChartPngCache.key(bytes("a")) + ".png")).doesNotExist();
+    assertThat(dir.resolve(ChartPngCache.key(bytes("b")) + ".png")).exists();
+  }
+
+  @Test
+  void batchSendsOnlyMissesAndCachesEachItem() throws Exception {
+    var cache = new ChartPngCache(dir.toString(), 64, false);
+    byte[] hit = bytes("{\"width\":1000}");
+    cache.getOrRender(hit, () -> png(1));
+    List<List<byte[]>> calls = new ArrayList<>();
+
+    var results =
+        cache.getOrRenderAll(
+            List.of(hit, bytes("{\"width\":560}")),
+            bodies -> {
+              calls.add(bodies);
+              return List.of(CompletableFuture.completedFuture(png(2)));
+            });
+
+    assertThat(calls).hasSize(1);
+    assertThat(calls.get(0)).hasSize(1);
+    assertThat(results.get(0).get()).isEqualTo(png(1));
+    assertThat(results.get(1).get()).isEqualTo(png(2));
+    assertThat(cache.getOrRender(bytes("{\"width\":560}"), () -> png(3))).isEqualTo(png(2));
+  }
+
+  @Test
+  void batchItemFailureIsNotCachedAndDoesNotAffectOthers() throws Exception {
+    var cache = new ChartPngCache(dir.toString(), 64, false);
+    byte[] bad = bytes("{\"width\":1}");
+
+    var results =
+        cache.getOrRenderAll(
+            List.of(bytes("{\"width\":2}"), bad),
+            bodies ->
+                List.of(
+                    CompletableFuture.completedFuture(png(1)),
+                    CompletableFuture.failedFuture(new IllegalStateException("boom"))));
+
+    assertThat(results.get(0).get()).isEqualTo(png(1));
+    assertThat(results.get(1)).isCompletedExceptionally();
+    assertThat(cache.getOrRender(bad, () -> png(9))).isEqualTo(png(9));
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] png(int n) {
+    return new byte[] {(byte) 0x89, 'P', 'N', 'G', (byte) n};
+  }
+}
@@ -0,0 +1,165 @@
+package org.jdk.qq_bot.service.echats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.observe.CommandMetrics;
+import org.jdk.qq_bot.service.http.SharedHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class EchartsRenderClientTest {
+
+  @TempDir Path dir;
+
+  private HttpServer server;
+  private SharedHttpClient http;
+  private EchartsRenderClient client;
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger requests = new AtomicInteger();
+  private final AtomicInteger batchRequests = new AtomicInteger();
+  private final AtomicInteger rendering = new AtomicInteger();
+  private final AtomicInteger maxRendering = new AtomicInteger();
+
+  /** true：渲染器收下请求后一直不回（最多 10 秒）；false：没有 /render/batch 的旧渲染器 */
+  private volatile boolean stalled;
+
+  /** 每张 /render 的处理耗时 */
+  private volatile long renderMillis;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext(
+        "/",
+        ex -> {
+          requests.incrementAndGet();
+          ex.getRequestBody().readAllBytes();
+          if (stalled) {
+            try {
+              release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException ignored) {
+              Thread.currentThread().interrupt();
+            }
+            ex.sendResponseHeaders(500, -1);
+          } else if (ex.getRequestURI().getPath().equals("/render/batch")) {
+            batchRequests.incrementAndGet();
+            ex.sendResponseHeaders(404, -1);
+          } else {
+            maxRendering.accumulateAndGet(rendering.incrementAndGet(), Math::max);
+            try {
+              Thread.sleep(renderMillis);
+            } catch (InterruptedException ignored) {
+              Thread.currentThread().interrupt();
+            }
+            rendering.decrementAndGet();
+            byte[] png = {(byte) 0x89, 'P', 'N', 'G'};
+            ex.sendResponseHeaders(200, png.length);
+            ex.getResponseBody().write(png);
+          }
+          ex.close();
+        });
+    server.start();
+
+    http = new SharedHttpClient(1000, 10_000, 8, 4, 1000, 30);
+    client =
+        new EchartsRenderClient(
+            new ChartPngCache(dir.toString(), 64, false),
+            http,
+            new Java2dChartRenderer(),
+            new CommandMetrics(new SimpleMeterRegistry()));
+    ReflectionTestUtils.setField(
+        client, "baseUrl", "http://127.0.0.1:" + server.getAddress().getPort());
+    ReflectionTestUtils.setField(client, "poolSize", 2);
+    ReflectionTestUtils.setField(client, "queueCapacity", 4);
+    ReflectionTestUtils.setField(client, "deadlineMs", 300L);
+    ReflectionTestUtils.setField(client, "readTimeoutMs", 10_000L);
+    ReflectionTestUtils.setField(client, "engine", "node");
+    ReflectionTestUtils.setField(client, "fallback", false);
+    ReflectionTestUtils.setField(client, "fallbackCooldownMs", 200L);
+    client.initPool();
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    client.shutdownPool();
+    ReflectionTestUtils.invokeMethod(http, "close");
+    server.stop(0);
+  }
+
+  @Test
+  void stalledRendererTimesOutAndAbortsTheRequest() throws Exception {
+    stalled = true;
+    LocalDate first = LocalDate.of(2025, 8, 1);
+    var charts =
+        client.renderMonthChartsAsync(1L, CompactOvertimeSummary.builder(first, first).build());
+
+    long t0 = System.nanoTime();
+    assertThatThrownBy(() -> charts.bar().get(5, TimeUnit.SECONDS))
+        .isInstanceOf(ExecutionException.class)
+        .hasCauseInstanceOf(TimeoutException.class);
+    assertThatThrownBy(() -> charts.pie().get(5, TimeUnit.SECONDS))
+        .hasCauseInstanceOf(TimeoutException.class);
+    assertThat(System.nanoTime() - t0).isLessThan(TimeUnit.SECONDS.toNanos(3));
+
+    // 渲染器还卡着（读超时 10 秒），连接却已经被中止归还，不再占着
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(3);
+    while (http.stats().leased() > 0 && System.nanoTime() < deadline) Thread.sleep(10);
+    assertThat(requests).hasValue(1);
+    assertThat(http.stats().leased()).isZero();
+    assertThat(release.getCount()).isEqualTo(1);
+  }
+
+  @Test
+  void retriesBatchEndpointAfterCooldown() throws Exception {
+    render(1); // 404 -> 逐张
+    assertThat(batchRequests).hasValue(1);
+    assertThat(requests).hasValue(3);
+
+    render(2); // 冷却期内直接逐张
+    assertThat(batchRequests).hasValue(1);
+    assertThat(requests).hasValue(5);
+
+    Thread.sleep(300);
+    render(3); // 冷却期过了，再试一次批量
+    assertThat(batchRequests).hasValue(2);
+  }
+
+  @Test
+  void singleRequestFallbackRendersChartsInParallel() throws Exception {
+    renderMillis = 100;
+    render(1); // 404 -> 两张各自 /render，同时在渲染
+    assertThat(requests).hasValue(3);
+    assertThat(maxRendering).hasValue(2);
+  }
+
+  /** 每次换一天记录，请求体不同，不会命中 PNG 缓存 */
+  private void render(int day) throws Exception {
+    LocalDate first = LocalDate.of(2025, 8, 1);
+    var s =
+        CompactOvertimeSummary.builder(first, first.plusDays(30))
+            .add(first.plusDays(day), "G1", BigDecimal.valueOf(day), first)
+            .build();
+    var charts = client.renderMonthChartsAsync(1L, s);
+    assertThat(charts.bar().get(5, TimeUnit.SECONDS)).isNotEmpty();
+    assertThat(charts.pie().get(5, TimeUnit.SECONDS)).isNotEmpty();
+  }
+}
@@ -0,0 +1,86 @@
+package org.jdk.qq_bot.service.echats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import org.jdk.qq_bot.dto.CompactOvertimeSummary;
+import org.jdk.qq_bot.dto.OvertimeYearSummary;
+import org.junit.jupiter.api.Test;
+
+class Java2dChartRendererTest {
+
+  private final Java2dChartRenderer renderer = new Java2dChartRenderer();
+
+  @Test
+  void rendersBothChartsAtDoubleDensity() throws Exception {
+    var b = CompactOvertimeSummary.builder(LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31));
+    for (int d = 0; d < 31; d++) {
+      int type = d % 3 == 0 ? CompactOvertimeSummary.G2 : CompactOvertimeSummary.G1;
+      b.add(d, type, 100 * (d % 5), false);
+    }
+    var s = b.build();
+
+    BufferedImage bar = decode(renderer.dailyBar(s, 1000, 380, "#FCFCFF"));
+    BufferedImage pie = decode(renderer.typePie(s, 560, 380, "#FCFCFF"));
+
+    assertThat(bar.getWidth()).isEqualTo(2000);
+    assertThat(bar.getHeight()).isEqualTo(760);
+    assertThat(pie.getWidth()).isEqualTo(1120);
+    assertThat(pie.getHeight()).isEqualTo(760);
+    // 角落是背景色，图表区域画了东西
+    assertThat(bar.getRGB(0, 0) & 0xFFFFFF).isEqualTo(0xFCFCFF);
+    assertThat(pie.getRGB(360, 410) & 0xFFFFFF).isNotEqualTo(0xFCFCFF);
+  }
+
+  @Test
+  void rendersEmptyMonth() throws Exception {
+    var empty = CompactOvertimeSummary.empty();
+
+    assertThat(decode(renderer.dailyBar(empty, 1000, 380, "#FCFCFF")).getWidth()).isEqualTo(2000);
+    assertThat(decode(renderer.typePie(empty, 560, 380, "#FCFCFF")).getWidth()).isEqualTo(1120);
+  }
+
+  @Test
+  void rendersYearHeatmapOneCellPerDay() throws Exception {
+    Map<LocalDate, BigDecimal> daily = new LinkedHashMap<>();
+    daily.put(LocalDate.of(2025, 1, 1), new BigDecimal("4")); // 周三，第 0 列第 2 行
+    daily.put(LocalDate.of(2025, 8, 24), new BigDecimal("1.5"));
+    var y =
+        new OvertimeYearSummary(
+            2025,
+            new BigDecimal("5.5"),
+            Map.of(),
+            Map.of(YearMonth.of(2025, 1), BigDecimal.ONE),
+            daily);
+
+    BufferedImage img = decode(renderer.yearHeatmap(y, 1000, 240, "#FCFCFF"));
+
+    assertThat(img.getWidth()).isEqualTo(2000);
+    assertThat(img.getHeight()).isEqualTo(480);
+    // 格子中心：left 50 + 半格，top 84 + 2.5 行 × 16，按 2 倍像素
+    int x = (int) ((50 + 920.0 / 53 / 2) * 2);
+    int cy = (84 + 16 * 5 / 2) * 2;
+    assertThat(img.getRGB(x, cy) & 0xFFFFFF).isEqualTo(0x9D7BEA);
+    assertThat(Java2dChartRenderer.heat(0).getRGB() & 0xFFFFFF).isEqualTo(0xFFE4EC);
+  }
+
+  @Test
+  void axisAndPercentsFollowEchartsRounding() {
+    assertThat(Java2dChartRenderer.niceAxis(0)).containsExactly(1, 5);
+    assertThat(Java2dChartRenderer.niceAxis(3.75)).containsExactly(4, 4);
+    assertThat(Java2dChartRenderer.niceAxis(11)).containsExactly(12, 6);
+    assertThat(Java2dChartRenderer.percents(new double[] {1, 1, 1}, 3))
+        .containsExactly(33.34, 33.33, 33.33);
+  }
+
+  private static BufferedImage decode(byte[] png) throws Exception {
+    return ImageIO.read(new ByteArrayInputStream(png));
+  }
+}
@@ -0,0 +1,31 @@
+package org.jdk.qq_bot.service.echats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+
+class PngEncoderTest {
+
+  @Test
+  void decodesBackToTheSamePixels() throws Exception {
+    var img = new BufferedImage(37, 23, BufferedImage.TYPE_INT_RGB);
+    Random rnd = new Random(3);
+    for (int y = 0; y < img.getHeight(); y++) {
+      for (int x = 0; x < img.getWidth(); x++) img.setRGB(x, y, rnd.nextInt());
+    }
+
+    BufferedImage back = ImageIO.read(new ByteArrayInputStream(PngEncoder.encode(img)));
+
+    assertThat(back.getWidth()).isEqualTo(37);
+    assertThat(back.getHeight()).isEqualTo(23);
+    for (int y = 0; y < img.getHeight(); y++) {
+      for (int x = 0; x < img.getWidth(); x++) {
+        assertThat(back.getRGB(x, y) & 0xFFFFFF).isEqualTo(img.getRGB(x, y) & 0xFFFFFF);
+      }
+    }
+  }
+}
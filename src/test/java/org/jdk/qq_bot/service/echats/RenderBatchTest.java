@@ -0,0 +1,62 @@
+package org.jdk.qq_bot.service.echats;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import org.junit.jupiter.api.Test;
+
+class RenderBatchTest {
+
+  @Test
+  void wrapsRenderBodiesWithoutReserializing() {
+    byte[] body = RenderBatch.body(List.of(bytes("{\"width\":1000}"), bytes("{\"width\":560}")));
+
+    assertThat(new String(body, StandardCharsets.UTF_8))
+        .isEqualTo("{\"items\":[{\"width\":1000},{\"width\":560}]}");
+  }
+
+  @Test
+  void decodesItemsInOrderAndKeepsFailuresSeparate() throws Exception {
+    var resp = new ByteArrayOutputStream();
+    item(resp, RenderBatch.OK, new byte[] {(byte) 0x89, 'P', 'N', 'G'});
+    item(resp, RenderBatch.FAILED, bytes("setOption timed out"));
+
+    var items = RenderBatch.decode(resp.toByteArray(), 2);
+
+    assertThat(items.get(0).get()).containsExactly(0x89, 'P', 'N', 'G');
+    assertThatThrownBy(() -> items.get(1).get())
+        .isInstanceOf(ExecutionException.class)
+        .hasMessageContaining("setOption timed out");
+  }
+
+  @Test
+  void rejectsTruncatedOrMiscountedResponses() {
+    var resp = new ByteArrayOutputStream();
+    item(resp, RenderBatch.OK, new byte[] {1, 2, 3});
+    byte[] full = resp.toByteArray();
+    byte[] truncated = Arrays.copyOf(full, full.length - 1);
+
+    assertThatThrownBy(() -> RenderBatch.decode(truncated, 1))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("bad length");
+    assertThatThrownBy(() -> RenderBatch.decode(full, 2))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("expected 2");
+  }
+
+  private static void item(ByteArrayOutputStream out, byte status, byte[] content) {
+    out.write(status);
+    out.writeBytes(ByteBuffer.allocate(4).putInt(content.length).array());
+    out.writeBytes(content);
+  }
+
+  private static byte[] bytes(String s) {
+    return s.getBytes(StandardCharsets.UTF_8);
+  }
+}
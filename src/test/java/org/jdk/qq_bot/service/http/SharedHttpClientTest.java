@@ -0,0 +1,128 @@
+package org.jdk.qq_bot.service.http;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hc.core5.http.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class SharedHttpClientTest {
+
+  private HttpServer server;
+  private String base;
+  private final CountDownLatch release = new CountDownLatch(1);
+  private final AtomicInteger busyHits = new AtomicInteger();
+
+  @BeforeEach
+  void setUp() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext(
+        "/echo",
+        ex -> {
+          byte[] in = ex.getRequestBody().readAllBytes();
+          String q = ex.getRequestURI().getRawQuery();
+          byte[] out = (q != null ? q : new String(in, StandardCharsets.UTF_8)).getBytes();
+          ex.sendResponseHeaders(200, out.length);
+          ex.getResponseBody().write(out);
+          ex.close();
+        });
+    server.createContext(
+        "/busy",
+        ex -> {
+          busyHits.incrementAndGet();
+          ex.getRequestBody().readAllBytes();
+          ex.sendResponseHeaders(503, -1);
+          ex.close();
+        });
+    server.createContext(
+        "/slow",
+        ex -> {
+          try {
+            release.await(5, TimeUnit.SECONDS);
+          } catch (InterruptedException ignored) {
+            Thread.currentThread().interrupt();
+          }
+          ex.sendResponseHeaders(204, -1);
+          ex.close();
+        });
+    server.start();
+    base = "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  @AfterEach
+  void tearDown() {
+    release.countDown();
+    server.stop(0);
+  }
+
+  @Test
+  void reusesKeepAliveConnections() {
+    var http = new SharedHttpClient(1000, 2000, 8, 4, 1000, 30);
+    for (int i = 0; i < 5; i++) {
+      var resp = http.get(base + "/echo", Map.of("word", "ice cream"));
+      assertThat(resp.isOk()).isTrue();
+      assertThat(resp.text()).isEqualTo("word=ice%20cream");
+    }
+    assertThat(http.post(base + "/echo", "{}".getBytes(), ContentType.APPLICATION_JSON, 0).text())
+        .isEqualTo("{}");
+
+    var stats = http.stats();
+    assertThat(stats.requests()).isEqualTo(6);
+    assertThat(stats.connects()).isEqualTo(1);
+    assertThat(stats.available()).isEqualTo(1);
+    http.close();
+  }
+
+  @Test
+  void perHostLimitMakesExtraCallersWaitThenFail() throws Exception {
+    var http = new SharedHttpClient(1000, 5000, 8, 1, 200, 30);
+    var first = CompletableFuture.supplyAsync(() -> http.get(base + "/slow", Map.of()));
+    // 等第一个请求占住唯一的连接
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (http.stats().leased() < 1 && System.nanoTime() < deadline) Thread.sleep(5);
+
+    assertThatThrownBy(() -> http.get(base + "/echo", Map.of()))
+        .isInstanceOf(UncheckedIOException.class);
+
+    release.countDown();
+    assertThat(first.get(5, TimeUnit.SECONDS).status()).isEqualTo(204);
+    assertThat(http.get(base + "/echo", Map.of("a", "1")).text()).isEqualTo("a=1");
+    assertThat(http.stats().failures()).isEqualTo(1);
+    http.close();
+  }
+
+  @Test
+  void retriesServiceUnavailableOnlyForIdempotentRequests() {
+    var http = new SharedHttpClient(1000, 2000, 8, 4, 1000, 30);
+
+    assertThat(http.get(base + "/busy", Map.of()).status()).isEqualTo(503);
+    assertThat(busyHits).hasValue(2);
+
+    busyHits.set(0);
+    assertThat(http.post(base + "/busy", "{}".getBytes(), ContentType.APPLICATION_JSON, 0).status())
+        .isEqualTo(503);
+    assertThat(busyHits).hasValue(1);
+    http.close();
+  }
+
+  @Test
+  void perCallReadTimeout() {
+    var http = new SharedHttpClient(1000, 5000, 8, 4, 1000, 30);
+    assertThatThrownBy(() -> http.get(base + "/slow", Map.of(), 100))
+        .isInstanceOf(UncheckedIOException.class);
+    http.close();
+  }
+}
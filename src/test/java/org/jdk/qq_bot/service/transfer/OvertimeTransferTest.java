@@ -0,0 +1,146 @@
+package org.jdk.qq_bot.service.transfer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jooq.generated.tables.OvertimeLog.OVERTIME_LOG;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import javax.sql.DataSource;
+import org.jdk.qq_bot.TestDb;
+import org.jdk.qq_bot.repository.OvertimeDailyRepository;
+import org.jdk.qq_bot.repository.OvertimeLogRepository;
+import org.jdk.qq_bot.repository.OvertimeMonthlyRepository;
+import org.jdk.qq_bot.service.OvertimeRankCache;
+import org.jdk.qq_bot.service.OvertimeSummaryCache;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.TransactionAwareDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class OvertimeTransferTest {
+
+  private DataSource ds;
+  private DSLContext dsl;
+  private OvertimeDailyRepository dailyRepo;
+  private OvertimeMonthlyRepository monthlyRepo;
+  private OvertimeTransfer transfer;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    ds = TestDb.create("transfer");
+    dsl = DSL.using(new TransactionAwareDataSourceProxy(ds), SQLDialect.H2);
+    dailyRepo = new OvertimeDailyRepository(dsl);
+    monthlyRepo = new OvertimeMonthlyRepository(dsl);
+    transfer =
+        new OvertimeTransfer(
+            new OvertimeLogRepository(dsl),
+            dailyRepo,
+            monthlyRepo,
+            new OvertimeSummaryCache(100, 600),
+            new OvertimeRankCache(16),
+            new TransactionTemplate(new DataSourceTransactionManager(ds)),
+            3,
+            5,
+            2);
+  }
+
+  @AfterEach
+  void tearDown() throws Exception {
+    TestDb.drop(ds);
+  }
+
+  @Test
+  void csvImportSkipsBadLinesAndRoundTrips() throws Exception {
+    StringBuilder csv = new StringBuilder("\uFEFFuser_id,work_date,hours,ot_type,group_id,note\n");
+    for (int i = 0; i < 12; i++) {
+      csv.append(1 + i % 3)
+          .append(",2025-0")
+          .append(7 + i % 2)
+          .append('-')
+          .append(10 + i)
+          .append(",1.5,G")
+          .append(1 + i % 3)
+          .append(",100,")
+          .append(i == 4 ? "\"加班, 上线\"\"v2\"\"\"" : "")
+          .append('\n');
+    }
+    csv.append("\n")
+        .append("abc,2025-08-01,1,G1,,\n")
+        .append("1,2025-13-01,1,G1,,\n")
+        .append("1,2025-08-01,0,G1,,\n")
+        .append("1,2025-08-01,1.234,G4,,\n");
+
+    var result = transfer.importFrom(new StringReader(csv.toString()), TransferFormat.CSV);
+
+    assertThat(result.read()).isEqualTo(16);
+    assertThat(result.imported()).isEqualTo(12);
+    assertThat(result.rejected()).isEqualTo(4);
+    assertThat(result.errors())
+        .containsExactly(
+            "line 15: user_id 不是正整数：abc", "line 16: work_date 不是 yyyy-MM-dd：2025-13-01");
+    assertThat(dsl.fetchCount(OVERTIME_LOG)).isEqualTo(12);
+    assertThat(dailyRepo.findMismatchedDays()).isEmpty();
+    assertThat(monthlyRepo.findMismatchedMonths()).isEmpty();
+
+    StringWriter out = new StringWriter();
+    long rows = transfer.exportTo(out, TransferFormat.CSV, null, null, null);
+    assertThat(rows).isEqualTo(12);
+    String[] lines = out.toString().split("\n");
+    assertThat(lines[0]).isEqualTo("user_id,group_id,work_date,ot_type,hours,note");
+    assertThat(lines[5]).isEqualTo("2,100,2025-07-14,G2,1.50,\"加班, 上线\"\"v2\"\"\"");
+
+    // 导出的文件原样导回，明细与汇总都翻倍
+    transfer.importFrom(new StringReader(out.toString()), TransferFormat.CSV);
+    assertThat(dsl.fetchCount(OVERTIME_LOG)).isEqualTo(24);
+    assertThat(dailyRepo.findMismatchedDays()).isEmpty();
+    assertThat(monthlyRepo.findMismatchedMonths()).isEmpty();
+  }
+
+  @Test
+  void jsonlImportAndFilteredExport() throws Exception {
+    String jsonl =
+        """
+        {"user_id":1,"work_date":"2025-08-01","hours":2,"ot_type":"g2","note":"发版"}
+        {"user_id":2,"group_id":100,"work_date":"2025-08-02","hours":"3.25"}
+        {"user_id":1,"work_date":"2025-09-01","hours":1}
+        not json
+        [1,2]
+        """;
+
+    var result = transfer.importFrom(new StringReader(jsonl), TransferFormat.JSONL);
+
+    assertThat(result.imported()).isEqualTo(3);
+    assertThat(result.errors()).containsExactly("line 4: 不是合法的 JSON", "line 5: 不是 JSON 对象");
+    assertThat(
+            dsl.select(OVERTIME_LOG.HOURS)
+                .from(OVERTIME_LOG)
+                .where(OVERTIME_LOG.USER_ID.eq(2L))
+                .fetchOne(OVERTIME_LOG.HOURS))
+        .isEqualByComparingTo(new BigDecimal("3.25"));
+
+    StringWriter out = new StringWriter();
+    long rows =
+        transfer.exportTo(
+            out, TransferFormat.JSONL, LocalDate.of(2025, 8, 1), LocalDate.of(2025, 8, 31), 1L);
+    assertThat(rows).isEqualTo(1);
+    assertThat(out.toString())
+        .isEqualTo(
+            "{\"user_id\":1,\"work_date\":\"2025-08-01\",\"ot_type\":\"G2\",\"hours\":2.00,\"note\":\"发版\"}\n");
+  }
+
+  @Test
+  void csvHeaderMustNameRequiredColumns() {
+    assertThatThrownBy(
+            () -> transfer.importFrom(new StringReader("user_id,hours\n1,2\n"), TransferFormat.CSV))
+        .isInstanceOf(IllegalArgumentException.class)
+        .hasMessage("缺少列：work_date");
+  }
+}